@@ -21,11 +21,13 @@ import java.io.Serializable;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeoutException;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.rabbitmq.jms.util.UriCodec.*;
@@ -146,6 +148,172 @@ public class RMQConnectionFactory implements ConnectionFactory, Referenceable, S
      */
     private ConfirmListener confirmListener;
 
+    /**
+     * Number of messages the broker pushes in advance to each consumer used
+     * for synchronous {@link javax.jms.MessageConsumer#receive()}.
+     * <p>
+     * Default is 0, which means synchronous receive polls the queue.
+     *
+     * @since 2.0.0
+     */
+    private int receivePrefetch = 0;
+
+    /**
+     * Whether {@link MessageListener#onMessage(Message)} is called directly on the
+     * thread that delivers messages, instead of on a dedicated thread per session.
+     * <p>
+     * Default is false.
+     *
+     * @since 2.0.0
+     */
+    private boolean directMessageListenerDispatch = false;
+
+    /**
+     * Extracts the correlation token of published messages for publisher confirms.
+     *
+     * @since 2.0.0
+     */
+    private Function<Message, Object> confirmTokenExtractor;
+
+    /**
+     * Maximum number of unconfirmed messages per session, 0 for no limit.
+     *
+     * @since 2.0.0
+     */
+    private int maxInFlightMessages = 0;
+
+    /**
+     * Maximum size of unconfirmed messages per session, in bytes, 0 for no limit.
+     *
+     * @since 2.0.0
+     */
+    private long maxInFlightBytes = 0;
+
+    /**
+     * What to do when the publishing window of a session is full.
+     *
+     * @since 2.0.0
+     */
+    private PublishingWindowPolicy publishingWindowPolicy = PublishingWindowPolicy.BLOCK;
+
+    /**
+     * How long to wait for room in a full publishing window, in milliseconds.
+     *
+     * @since 2.0.0
+     */
+    private long publishingWindowTimeout = 30000;
+
+    /**
+     * Called when the publishing window of a session is full.
+     *
+     * @since 2.0.0
+     */
+    private PublishingWindowFullHandler publishingWindowFullHandler;
+
+    /**
+     * Whether transacted sessions use publisher confirms instead of AMQP transactions.
+     *
+     * @since 2.0.0
+     */
+    private boolean confirmTransactions = false;
+
+    /**
+     * The format JMS messages are published in.
+     * Default is {@link MessageWireFormat#V1}, which clients older than 2.0.0 can read.
+     *
+     * @since 2.0.0
+     */
+    private MessageWireFormat messageWireFormat = MessageWireFormat.V1;
+
+    /**
+     * Whether received messages are decoded when they are first accessed.
+     * Default is false.
+     *
+     * @since 2.0.0
+     */
+    private boolean lazyMessageDecoding = false;
+
+    /**
+     * Generates the IDs of sent messages; <code>null</code> for the default generator.
+     *
+     * @since 2.0.0
+     */
+    private MessageIdGenerator messageIdGenerator;
+
+    /**
+     * Number of channels producers of non-transacted sessions publish on, 0 to publish on the channel of the session.
+     *
+     * @since 2.0.0
+     */
+    private int publishingChannelPoolSize = 0;
+
+    /**
+     * Number of AMQP connections each JMS connection uses, at least 1.
+     *
+     * @since 2.0.0
+     */
+    private int amqpConnectionsPerConnection = 1;
+
+    /**
+     * How channels are spread across the AMQP connections of a JMS connection.
+     *
+     * @since 2.0.0
+     */
+    private AmqpConnectionBalancingPolicy amqpConnectionBalancingPolicy = AmqpConnectionBalancingPolicy.ROUND_ROBIN;
+
+    /**
+     * Whether producers of non-transacted sessions publish on a dedicated AMQP connection.
+     *
+     * @since 2.0.0
+     */
+    private boolean separatePublishingConnection = false;
+
+    /**
+     * Number of acknowledgements of non-transacted AUTO_ACKNOWLEDGE and DUPS_OK_ACKNOWLEDGE sessions
+     * sent together, 0 to send them one by one.
+     *
+     * @since 2.0.0
+     */
+    private int ackCoalescingBatchSize = 0;
+
+    /**
+     * Maximum time in milliseconds coalesced acknowledgements wait before they are sent.
+     *
+     * @since 2.0.0
+     */
+    private long ackCoalescingIntervalMs = 100;
+
+    /**
+     * Whether acknowledgements of CLIENT_INDIVIDUAL_ACKNOWLEDGE sessions are sent together
+     * when they form a range.
+     *
+     * @since 2.0.0
+     */
+    private boolean individualAckCoalescing = false;
+
+    /**
+     * Number of threads the messages of a session are delivered to its listeners on.
+     *
+     * @since 2.0.0
+     */
+    private int messageListenerConcurrency = 1;
+
+    /**
+     * Extracts the key of messages delivered to listeners in parallel, messages with the same key
+     * are delivered in order. <code>null</code> to use the <code>JMSXGroupID</code> property.
+     *
+     * @since 2.0.0
+     */
+    private Function<Message, Object> messageListenerKeyExtractor;
+
+    /**
+     * What happens to messages that do not match the selector of a queue consumer,
+     * <code>null</code> if queue consumers do not support selectors.
+     *
+     * @since 2.0.0
+     */
+    private QueueSelectorMismatchPolicy queueSelectorMismatchPolicy;
+
 
     /** Default not to use ssl */
     private boolean ssl = false;
@@ -249,6 +417,20 @@ public class RMQConnectionFactory implements ConnectionFactory, Referenceable, S
         }
 
         com.rabbitmq.client.Connection rabbitConnection = instantiateNodeConnection(cf, connectionCreator);
+        List<com.rabbitmq.client.Connection> additionalRabbitConnections = new ArrayList<>(this.amqpConnectionsPerConnection - 1);
+        com.rabbitmq.client.Connection publishingRabbitConnection = null;
+        try {
+            for (int i = 1; i < this.amqpConnectionsPerConnection; i++) {
+                additionalRabbitConnections.add(instantiateNodeConnection(cf, connectionCreator));
+            }
+            if (this.separatePublishingConnection) {
+                publishingRabbitConnection = instantiateNodeConnection(cf, connectionCreator);
+            }
+        } catch (JMSException | RuntimeException x) {
+            closeQuietly(rabbitConnection);
+            additionalRabbitConnections.forEach(this::closeQuietly);
+            throw x;
+        }
 
         ReceivingContextConsumer rcc;
         if (this.declareReplyToDestination) {
@@ -262,6 +444,9 @@ public class RMQConnectionFactory implements ConnectionFactory, Referenceable, S
 
         RMQConnection conn = new RMQConnection(new ConnectionParams()
             .setRabbitConnection(rabbitConnection)
+            .setAdditionalRabbitConnections(additionalRabbitConnections)
+            .setPublishingRabbitConnection(publishingRabbitConnection)
+            .setAmqpConnectionBalancingPolicy(this.amqpConnectionBalancingPolicy)
             .setTerminationTimeout(getTerminationTimeout())
             .setQueueBrowserReadMax(getQueueBrowserReadMax())
             .setOnMessageTimeoutMs(getOnMessageTimeoutMs())
@@ -275,11 +460,38 @@ public class RMQConnectionFactory implements ConnectionFactory, Referenceable, S
             .setReceivingContextConsumer(rcc)
             .setConfirmListener(confirmListener)
             .setTrustedPackages(this.trustedPackages)
+            .setReceivePrefetch(this.receivePrefetch)
+            .setDirectMessageListenerDispatch(this.directMessageListenerDispatch)
+            .setConfirmTokenExtractor(this.confirmTokenExtractor)
+            .setMaxInFlightMessages(this.maxInFlightMessages)
+            .setMaxInFlightBytes(this.maxInFlightBytes)
+            .setPublishingWindowPolicy(this.publishingWindowPolicy)
+            .setPublishingWindowTimeout(this.publishingWindowTimeout)
+            .setPublishingWindowFullHandler(this.publishingWindowFullHandler)
+            .setConfirmTransactions(this.confirmTransactions)
+            .setMessageWireFormat(this.messageWireFormat)
+            .setLazyMessageDecoding(this.lazyMessageDecoding)
+            .setMessageIdGenerator(this.messageIdGenerator)
+            .setPublishingChannelPoolSize(this.publishingChannelPoolSize)
+            .setAckCoalescingBatchSize(this.ackCoalescingBatchSize)
+            .setAckCoalescingIntervalMs(this.ackCoalescingIntervalMs)
+            .setIndividualAckCoalescing(this.individualAckCoalescing)
+            .setMessageListenerConcurrency(this.messageListenerConcurrency)
+            .setMessageListenerKeyExtractor(this.messageListenerKeyExtractor)
+            .setQueueSelectorMismatchPolicy(this.queueSelectorMismatchPolicy)
         );
         logger.debug("Connection {} created.", conn);
         return conn;
     }
 
+    private void closeQuietly(com.rabbitmq.client.Connection connection) {
+        try {
+            connection.abort();
+        } catch (Exception e) {
+            logger.debug("Error while closing AMQP connection", e);
+        }
+    }
+
     protected com.rabbitmq.client.ConnectionFactory createConnectionFactory() {
         return new com.rabbitmq.client.ConnectionFactory();
     }
@@ -961,6 +1173,532 @@ public class RMQConnectionFactory implements ConnectionFactory, Referenceable, S
         this.confirmListener = confirmListener;
     }
 
+    /**
+     * Set the number of messages the broker pushes in advance to each consumer used
+     * for synchronous {@link javax.jms.MessageConsumer#receive()}.
+     * <p>
+     * With a positive value, a consumer subscribes on its first <code>receive</code> with
+     * this value as its own QoS and buffers the messages it is delivered, so <code>receive</code>
+     * returns as soon as a message arrives instead of polling the queue.
+     * Buffered messages are requeued when the connection is stopped or the consumer is closed.
+     * <p>
+     * Default is 0, which means synchronous receive polls the queue.
+     *
+     * @param receivePrefetch number of messages to prefetch, 0 to poll
+     * @since 2.0.0
+     */
+    public void setReceivePrefetch(int receivePrefetch) {
+        if (receivePrefetch >= 0) this.receivePrefetch = receivePrefetch;
+        else this.logger.warn("Cannot set receivePrefetch to negative value {} (on {})", receivePrefetch, this);
+    }
+
+    public int getReceivePrefetch() {
+        return this.receivePrefetch;
+    }
+
+    /**
+     * Whether {@link MessageListener#onMessage(Message)} is called directly on the
+     * thread that delivers messages, instead of on a dedicated thread per session.
+     * <p>
+     * Direct dispatch saves two thread hand-offs per message. A single watchdog thread per connection
+     * interrupts <code>onMessage</code> calls that take longer than <i>onMessageTimeoutMs</i>, as
+     * with the default dispatch. A listener that ignores the interrupt keeps the delivering thread busy,
+     * though, which delays the delivery of messages to the other consumers of the connection.
+     * <p>
+     * Default is false.
+     *
+     * @param directMessageListenerDispatch true to call <code>onMessage</code> on the delivering thread
+     * @see #setOnMessageTimeoutMs(int)
+     * @since 2.0.0
+     */
+    public void setDirectMessageListenerDispatch(boolean directMessageListenerDispatch) {
+        this.directMessageListenerDispatch = directMessageListenerDispatch;
+    }
+
+    public boolean isDirectMessageListenerDispatch() {
+        return this.directMessageListenerDispatch;
+    }
+
+    /**
+     * Set the function that extracts a correlation token from published messages,
+     * when publisher confirms are enabled.
+     * <p>
+     * When this property is set, only the JMS message ID and the token of published
+     * messages are kept until they are confirmed, instead of the messages themselves, which
+     * saves memory when many large messages are not confirmed yet. The {@link ConfirmListener} then
+     * gets them with {@link com.rabbitmq.jms.client.PublisherConfirmContext#getMessageId()} and
+     * {@link com.rabbitmq.jms.client.PublisherConfirmContext#getToken()}, and
+     * {@link com.rabbitmq.jms.client.PublisherConfirmContext#getMessage()} returns <code>null</code>.
+     * <p>
+     * Default is <code>null</code>: the messages are kept.
+     *
+     * @param confirmTokenExtractor the function that extracts the token from a message
+     * @see #setConfirmListener(ConfirmListener)
+     * @since 2.0.0
+     */
+    public void setConfirmTokenExtractor(Function<Message, Object> confirmTokenExtractor) {
+        this.confirmTokenExtractor = confirmTokenExtractor;
+    }
+
+    public Function<Message, Object> getConfirmTokenExtractor() {
+        return this.confirmTokenExtractor;
+    }
+
+    /**
+     * Set the maximum number of messages a session can have published and not yet confirmed.
+     * <p>
+     * This only applies when publisher confirms are enabled, with a {@link ConfirmListener}
+     * or by sending messages asynchronously. What happens when a session reaches the limit depends on the
+     * publishing window policy.
+     * <p>
+     * Default is 0, which means no limit.
+     *
+     * @param maxInFlightMessages maximum number of unconfirmed messages per session, 0 for no limit
+     * @see #setPublishingWindowPolicy(PublishingWindowPolicy)
+     * @see RMQSession#getInFlightMessages()
+     * @since 2.0.0
+     */
+    public void setMaxInFlightMessages(int maxInFlightMessages) {
+        if (maxInFlightMessages >= 0) this.maxInFlightMessages = maxInFlightMessages;
+        else this.logger.warn("Cannot set maxInFlightMessages to negative value {} (on {})", maxInFlightMessages, this);
+    }
+
+    public int getMaxInFlightMessages() {
+        return this.maxInFlightMessages;
+    }
+
+    /**
+     * Set the maximum size (of the bodies, in bytes) of the messages a session can have
+     * published and not yet confirmed.
+     * <p>
+     * This only applies when publisher confirms are enabled. A message larger than the limit
+     * is published when the session has no unconfirmed message.
+     * <p>
+     * Default is 0, which means no limit.
+     *
+     * @param maxInFlightBytes maximum size of unconfirmed messages per session, 0 for no limit
+     * @see #setMaxInFlightMessages(int)
+     * @see RMQSession#getInFlightBytes()
+     * @since 2.0.0
+     */
+    public void setMaxInFlightBytes(long maxInFlightBytes) {
+        if (maxInFlightBytes >= 0) this.maxInFlightBytes = maxInFlightBytes;
+        else this.logger.warn("Cannot set maxInFlightBytes to negative value {} (on {})", maxInFlightBytes, this);
+    }
+
+    public long getMaxInFlightBytes() {
+        return this.maxInFlightBytes;
+    }
+
+    /**
+     * Set what a producer does when its session has as many unconfirmed messages (or bytes) as allowed.
+     * <p>
+     * Default is {@link PublishingWindowPolicy#BLOCK}.
+     *
+     * @param publishingWindowPolicy the policy
+     * @see #setMaxInFlightMessages(int)
+     * @see #setMaxInFlightBytes(long)
+     * @since 2.0.0
+     */
+    public void setPublishingWindowPolicy(PublishingWindowPolicy publishingWindowPolicy) {
+        this.publishingWindowPolicy = publishingWindowPolicy;
+    }
+
+    public PublishingWindowPolicy getPublishingWindowPolicy() {
+        return this.publishingWindowPolicy;
+    }
+
+    /**
+     * Set how long a send waits for confirms to make room in the publishing window of its session,
+     * with the {@link PublishingWindowPolicy#BLOCK} policy, before failing.
+     * <p>
+     * This is also how long batch sends wait for their messages to be confirmed.
+     * <p>
+     * Default is 30 seconds.
+     *
+     * @param publishingWindowTimeout timeout in milliseconds
+     * @see RMQMessageProducer#send(Destination, java.util.List)
+     * @since 2.0.0
+     */
+    public void setPublishingWindowTimeout(long publishingWindowTimeout) {
+        this.publishingWindowTimeout = publishingWindowTimeout;
+    }
+
+    public long getPublishingWindowTimeout() {
+        return this.publishingWindowTimeout;
+    }
+
+    /**
+     * Set the callback invoked when a message is sent while the publishing window of its session is full,
+     * with the {@link PublishingWindowPolicy#CALLBACK} policy.
+     *
+     * @param publishingWindowFullHandler the callback
+     * @see PublishingWindowFullHandler
+     * @since 2.0.0
+     */
+    public void setPublishingWindowFullHandler(PublishingWindowFullHandler publishingWindowFullHandler) {
+        this.publishingWindowFullHandler = publishingWindowFullHandler;
+    }
+
+    public PublishingWindowFullHandler getPublishingWindowFullHandler() {
+        return this.publishingWindowFullHandler;
+    }
+
+    /**
+     * Whether transacted sessions use publisher confirms instead of AMQP transactions.
+     * <p>
+     * AMQP transactions make every commit a synchronous round trip that is much slower
+     * than publisher confirms. With this option, transacted sessions publish messages with
+     * publisher confirms and hold the acknowledgement of the messages they receive:
+     * {@link Session#commit()} waits for the broker to confirm the messages sent in the transaction,
+     * then acknowledges the messages received in the transaction (with a single acknowledgement if possible),
+     * and {@link Session#rollback()} requeues (or nacks, see {@link #setNackOnRollback(boolean)}) the messages received.
+     * <p>
+     * This is a weaker form of transaction: messages sent before a rollback are not retracted,
+     * and a commit that fails after some messages have been confirmed does not retract them either.
+     * A commit fails with a {@link TransactionRolledBackException}, and the received
+     * messages are rolled back, if a message sent is nack-ed or not confirmed within the
+     * publishing window timeout.
+     * <p>
+     * Default is false.
+     *
+     * @param confirmTransactions true to use publisher confirms in transacted sessions
+     * @see #setPublishingWindowTimeout(long)
+     * @since 2.0.0
+     */
+    public void setConfirmTransactions(boolean confirmTransactions) {
+        this.confirmTransactions = confirmTransactions;
+    }
+
+    public boolean isConfirmTransactions() {
+        return this.confirmTransactions;
+    }
+
+    /**
+     * Set the format of the JMS messages sent by producers.
+     * <p>
+     * {@link MessageWireFormat#V2} is more compact and cheaper to write and read than {@link MessageWireFormat#V1},
+     * but only clients from 2.0.0 on read it. Consumers read messages in both formats, whatever this setting.
+     * </p>
+     * <p>
+     * This setting has no effect on AMQP destinations.
+     * </p>
+     *
+     * @param messageWireFormat the format of sent JMS messages
+     * @since 2.0.0
+     */
+    public void setMessageWireFormat(MessageWireFormat messageWireFormat) {
+        this.messageWireFormat = messageWireFormat == null ? MessageWireFormat.V1 : messageWireFormat;
+    }
+
+    public MessageWireFormat getMessageWireFormat() {
+        return this.messageWireFormat;
+    }
+
+    /**
+     * Decode the properties and the body of received JMS messages when they are first accessed, rather than when they
+     * are received.
+     * <p>
+     * This saves the decoding of the properties of messages only routed or dropped by listeners (or
+     * {@link #setReceivingContextConsumer(ReceivingContextConsumer) receiving context consumers}) without looking at
+     * them, and of the body of {@link javax.jms.MapMessage}s and {@link javax.jms.StreamMessage}s whose body is not read.
+     * Messages that can not be decoded then fail on the first access to their properties or body, rather than when they
+     * are received.
+     * </p>
+     * <p>
+     * This only applies to messages sent in the {@link MessageWireFormat#V2} format.
+     * </p>
+     *
+     * @param lazyMessageDecoding true to decode received messages when they are first accessed
+     * @see #setMessageWireFormat(MessageWireFormat)
+     * @since 2.0.0
+     */
+    public void setLazyMessageDecoding(boolean lazyMessageDecoding) {
+        this.lazyMessageDecoding = lazyMessageDecoding;
+    }
+
+    public boolean isLazyMessageDecoding() {
+        return this.lazyMessageDecoding;
+    }
+
+    /**
+     * Set the generator of the <code>JMSMessageID</code> of sent messages.
+     * <p>
+     * The default generator draws a random prefix for each connection and appends a counter to it, which is much
+     * cheaper than a random UUID per message. IDs are not generated at all for producers with
+     * {@link MessageProducer#setDisableMessageID(boolean)} set.
+     * </p>
+     *
+     * @param messageIdGenerator the message ID generator, <code>null</code> for the default one
+     * @since 2.0.0
+     */
+    public void setMessageIdGenerator(MessageIdGenerator messageIdGenerator) {
+        this.messageIdGenerator = messageIdGenerator;
+    }
+
+    public MessageIdGenerator getMessageIdGenerator() {
+        return this.messageIdGenerator;
+    }
+
+    /**
+     * Set the size of the pool of channels producers publish on.
+     * <p>
+     * By default, producers publish on the channel of their session, so publishing from several threads
+     * requires a session per thread. With a pool, the producers of non-transacted sessions borrow a channel
+     * from a pool shared by the sessions of the connection for each message they send, so that a producer
+     * can be used from several threads at once. Each pooled channel has its own publisher confirm tracking
+     * and publishing window.
+     * </p>
+     * <p>
+     * The broker keeps the order of messages per channel only. To keep the order of the messages of a session,
+     * a thread publishes again on the channel it last published on for the session, and waits for it when
+     * another thread uses it. Messages sent by different threads on the same session, which JMS does not allow,
+     * are not ordered between threads.
+     * </p>
+     * <p>
+     * Default is 0, which disables the pool.
+     * </p>
+     *
+     * @param publishingChannelPoolSize number of pooled channels, 0 to disable the pool
+     * @since 2.0.0
+     */
+    public void setPublishingChannelPoolSize(int publishingChannelPoolSize) {
+        if (publishingChannelPoolSize >= 0) this.publishingChannelPoolSize = publishingChannelPoolSize;
+        else this.logger.warn("Cannot set publishingChannelPoolSize to negative value {} (on {})", publishingChannelPoolSize, this);
+    }
+
+    public int getPublishingChannelPoolSize() {
+        return this.publishingChannelPoolSize;
+    }
+
+    /**
+     * Set the number of AMQP connections each JMS connection uses.
+     * <p>
+     * All the channels of a JMS connection share its AMQP connection by default, and so a single socket
+     * and a single thread reading frames from it. With more AMQP connections, the channels of sessions,
+     * consumers and browsers are spread across them, according to {@link #setAmqpConnectionBalancingPolicy(AmqpConnectionBalancingPolicy)}.
+     * Message ordering between sessions is not guaranteed anyway, but the queues of temporary destinations
+     * and of non-durable topic subscribers can no longer be exclusive to one AMQP connection: they are
+     * declared non-exclusive, the queues of subscribers are auto-deleted and temporary queues are deleted
+     * when the JMS connection is closed. They stay on the broker if the client stops without closing it.
+     * Statistics of each AMQP connection are available with {@link RMQConnection#getAmqpConnectionStatistics()}.
+     * </p>
+     * <p>
+     * Default is 1.
+     * </p>
+     *
+     * @param amqpConnectionsPerConnection number of AMQP connections, at least 1
+     * @since 2.0.0
+     */
+    public void setAmqpConnectionsPerConnection(int amqpConnectionsPerConnection) {
+        if (amqpConnectionsPerConnection >= 1) this.amqpConnectionsPerConnection = amqpConnectionsPerConnection;
+        else this.logger.warn("Cannot set amqpConnectionsPerConnection to value lower than 1: {} (on {})", amqpConnectionsPerConnection, this);
+    }
+
+    public int getAmqpConnectionsPerConnection() {
+        return this.amqpConnectionsPerConnection;
+    }
+
+    /**
+     * Set how channels are spread across the AMQP connections of a JMS connection,
+     * when it has more than one.
+     * <p>
+     * Default is {@link AmqpConnectionBalancingPolicy#ROUND_ROBIN}.
+     * </p>
+     *
+     * @param amqpConnectionBalancingPolicy the balancing policy, <code>null</code> for the default one
+     * @see #setAmqpConnectionsPerConnection(int)
+     * @since 2.0.0
+     */
+    public void setAmqpConnectionBalancingPolicy(AmqpConnectionBalancingPolicy amqpConnectionBalancingPolicy) {
+        this.amqpConnectionBalancingPolicy = amqpConnectionBalancingPolicy == null ?
+            AmqpConnectionBalancingPolicy.ROUND_ROBIN : amqpConnectionBalancingPolicy;
+    }
+
+    public AmqpConnectionBalancingPolicy getAmqpConnectionBalancingPolicy() {
+        return this.amqpConnectionBalancingPolicy;
+    }
+
+    /**
+     * Set whether producers of non-transacted sessions publish on a dedicated AMQP connection.
+     * <p>
+     * When a memory or disk alarm goes off, RabbitMQ blocks the connections that publish. Consumers sharing
+     * the AMQP connection of producers are then stalled too, including the acknowledgments that would
+     * help clear the alarm. With this setting, each JMS connection opens an extra AMQP connection, with the
+     * same settings, that producers publish on, while consuming, acknowledging and browsing stay on the other
+     * connections. Transacted sessions still publish on their own channel, as the transaction covers both
+     * published and acknowledged messages.
+     * </p>
+     * <p>
+     * Default is false.
+     * </p>
+     *
+     * @param separatePublishingConnection <code>true</code> to publish on a dedicated AMQP connection
+     * @since 2.0.0
+     */
+    public void setSeparatePublishingConnection(boolean separatePublishingConnection) {
+        this.separatePublishingConnection = separatePublishingConnection;
+    }
+
+    public boolean isSeparatePublishingConnection() {
+        return this.separatePublishingConnection;
+    }
+
+    /**
+     * Set the number of acknowledgements of non-transacted sessions in {@link Session#AUTO_ACKNOWLEDGE} or
+     * {@link Session#DUPS_OK_ACKNOWLEDGE} mode sent together.
+     * <p>
+     * By default, each message is acknowledged with its own <code>basic.ack</code>, on the thread that dispatches
+     * messages. With coalescing, acknowledgements are gathered per session and sent as a single multiple
+     * <code>basic.ack</code> by a background thread, when this number of messages has been acknowledged
+     * or after {@link #setAckCoalescingIntervalMs(long)}, whichever comes first. Pending acknowledgements
+     * are also sent when the session is closed or recovered and when the connection is stopped.
+     * </p>
+     * <p>
+     * Messages acknowledged but whose acknowledgement has not been sent yet are redelivered if the
+     * connection fails, which is allowed for {@link Session#DUPS_OK_ACKNOWLEDGE} but can lead to
+     * duplicates for {@link Session#AUTO_ACKNOWLEDGE}.
+     * </p>
+     * <p>
+     * Default is 0, which disables coalescing.
+     * </p>
+     *
+     * @param ackCoalescingBatchSize number of acknowledgements sent together, 0 to disable coalescing
+     * @since 2.0.0
+     */
+    public void setAckCoalescingBatchSize(int ackCoalescingBatchSize) {
+        if (ackCoalescingBatchSize >= 0) this.ackCoalescingBatchSize = ackCoalescingBatchSize;
+        else this.logger.warn("Cannot set ackCoalescingBatchSize to negative value {} (on {})", ackCoalescingBatchSize, this);
+    }
+
+    public int getAckCoalescingBatchSize() {
+        return this.ackCoalescingBatchSize;
+    }
+
+    /**
+     * Set the maximum time coalesced acknowledgements wait before they are sent.
+     * <p>
+     * Only used when acknowledgement coalescing is enabled with {@link #setAckCoalescingBatchSize(int)}
+     * or {@link #setIndividualAckCoalescing(boolean)}.
+     * </p>
+     * <p>
+     * Default is 100 ms.
+     * </p>
+     *
+     * @param ackCoalescingIntervalMs time in milliseconds, must be positive
+     * @since 2.0.0
+     */
+    public void setAckCoalescingIntervalMs(long ackCoalescingIntervalMs) {
+        if (ackCoalescingIntervalMs > 0) this.ackCoalescingIntervalMs = ackCoalescingIntervalMs;
+        else this.logger.warn("Cannot set ackCoalescingIntervalMs to non-positive value {} (on {})", ackCoalescingIntervalMs, this);
+    }
+
+    public long getAckCoalescingIntervalMs() {
+        return this.ackCoalescingIntervalMs;
+    }
+
+    /**
+     * Whether to coalesce the acknowledgements of sessions in {@link RMQSession#CLIENT_INDIVIDUAL_ACKNOWLEDGE} mode.
+     * <p>
+     * By default, each {@link Message#acknowledge()} sends its own <code>basic.ack</code>. With coalescing,
+     * acknowledged messages are held until they form a range starting at the lowest message not
+     * acknowledged yet, and the range is then acknowledged with a single multiple <code>basic.ack</code>.
+     * This suits workers that finish messages out of order. Acknowledgements that do not form a range are
+     * sent one by one after {@link #setAckCoalescingIntervalMs(long)}, or when the session is closed or
+     * recovered and when the connection is stopped.
+     * </p>
+     * <p>
+     * Messages acknowledged but whose acknowledgement has not been sent yet are redelivered if the
+     * connection fails.
+     * </p>
+     * <p>
+     * Default is false.
+     * </p>
+     *
+     * @param individualAckCoalescing true to coalesce acknowledgements
+     * @see RMQSession#acknowledge(java.util.Collection)
+     * @since 2.0.0
+     */
+    public void setIndividualAckCoalescing(boolean individualAckCoalescing) {
+        this.individualAckCoalescing = individualAckCoalescing;
+    }
+
+    public boolean isIndividualAckCoalescing() {
+        return this.individualAckCoalescing;
+    }
+
+    /**
+     * Set the number of threads the messages of a session are delivered to its message listeners on.
+     * <p>
+     * By default, a session calls its listeners with one message at a time. With more threads, the
+     * <code>onMessage</code> calls of non-transacted sessions run in parallel, while messages with the same
+     * key, see {@link #setMessageListenerKeyExtractor(Function)}, are still delivered one after the other,
+     * in order. Messages are acknowledged, in {@link Session#AUTO_ACKNOWLEDGE} and
+     * {@link Session#DUPS_OK_ACKNOWLEDGE} modes, only once they and all the messages delivered before them
+     * are processed, so processed messages can be redelivered after a failure, but messages are never
+     * acknowledged before they are processed. The <code>onMessage</code> timeout is enforced only when
+     * the session is closed.
+     * </p>
+     * <p>
+     * Default is 1, which delivers messages one at a time.
+     * </p>
+     *
+     * @param messageListenerConcurrency number of threads, at least 1
+     * @since 2.0.0
+     */
+    public void setMessageListenerConcurrency(int messageListenerConcurrency) {
+        if (messageListenerConcurrency >= 1) this.messageListenerConcurrency = messageListenerConcurrency;
+        else this.logger.warn("Cannot set messageListenerConcurrency to value lower than 1: {} (on {})", messageListenerConcurrency, this);
+    }
+
+    public int getMessageListenerConcurrency() {
+        return this.messageListenerConcurrency;
+    }
+
+    /**
+     * Set the function that extracts the key of messages delivered to listeners in parallel.
+     * <p>
+     * Messages with equal keys are delivered one after the other, in order. Messages with a <code>null</code>
+     * key can be delivered in any order. The default is the <code>JMSXGroupID</code> property of messages.
+     * </p>
+     *
+     * @param messageListenerKeyExtractor the function that extracts the key of a message
+     * @see #setMessageListenerConcurrency(int)
+     * @since 2.0.0
+     */
+    public void setMessageListenerKeyExtractor(Function<Message, Object> messageListenerKeyExtractor) {
+        this.messageListenerKeyExtractor = messageListenerKeyExtractor;
+    }
+
+    public Function<Message, Object> getMessageListenerKeyExtractor() {
+        return this.messageListenerKeyExtractor;
+    }
+
+    /**
+     * Enable selectors for queue consumers and set what happens to the messages that do not match them.
+     * <p>
+     * The broker applies selectors of topic subscribers, but it delivers all the messages of a queue to
+     * its consumers. With a policy set, the selector of a queue consumer is evaluated on the client against
+     * the properties of each message received: matching messages are delivered to the application, the others
+     * are rejected, see {@link QueueSelectorMismatchPolicy}. Statistics of the rejections are available with
+     * {@link com.rabbitmq.jms.client.RMQMessageConsumer#getSelectorStatistics()}.
+     * </p>
+     * <p>
+     * Default is <code>null</code>: creating a queue consumer with a selector throws
+     * {@link UnsupportedOperationException}.
+     * </p>
+     *
+     * @param queueSelectorMismatchPolicy the policy, <code>null</code> to not support selectors on queues
+     * @since 2.0.0
+     */
+    public void setQueueSelectorMismatchPolicy(QueueSelectorMismatchPolicy queueSelectorMismatchPolicy) {
+        this.queueSelectorMismatchPolicy = queueSelectorMismatchPolicy;
+    }
+
+    public QueueSelectorMismatchPolicy getQueueSelectorMismatchPolicy() {
+        return this.queueSelectorMismatchPolicy;
+    }
+
     @FunctionalInterface
     private interface ConnectionCreator {
         com.rabbitmq.client.Connection create(com.rabbitmq.client.ConnectionFactory cf) throws Exception;
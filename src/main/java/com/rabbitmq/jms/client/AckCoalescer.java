@@ -0,0 +1,202 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gathers the acknowledgements of a session in {@link javax.jms.Session#AUTO_ACKNOWLEDGE} or
+ * {@link javax.jms.Session#DUPS_OK_ACKNOWLEDGE} mode and sends them as a single <code>basic.ack</code>
+ * with <code>multiple=true</code>, every <i>N</i> messages or every <i>T</i> milliseconds.
+ * <p>
+ * In {@link RMQSession#CLIENT_INDIVIDUAL_ACKNOWLEDGE} mode, acknowledgements are also sent as soon as
+ * they form a range up to the lowest message not acknowledged, see {@link #flushContiguous()}.
+ * </p>
+ * <p>
+ * Acknowledgements are sent by the scheduler thread, not by the thread that dispatches messages, through
+ * the {@link PendingAcks} of the session so that they keep their order with the other acknowledgements.
+ * Deliveries are dispatched in delivery tag order on a channel, so when a message is acknowledged
+ * all the messages with a lower delivery tag have been acknowledged or rejected already, except
+ * the ones prefetched for synchronous receive and not yet received. The lowest prefetched tag is
+ * given with each acknowledgement, by the thread of the session: a multiple acknowledgement never
+ * goes past it, the tags above are acknowledged one by one.
+ * </p>
+ * <p>
+ * Messages acknowledged but not flushed yet are redelivered if the channel fails.
+ * </p>
+ *
+ * @since 2.0.0
+ */
+class AckCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(AckCoalescer.class);
+
+    private final PendingAcks acks;
+
+    private final int batchSize;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final ScheduledFuture<?> periodicFlush;
+
+    private long[] pending; // @GuardedBy(this)
+    private int pendingCount = 0; // @GuardedBy(this)
+    private boolean sorted = true; // @GuardedBy(this)
+    private long highestTag = 0; // @GuardedBy(this)
+    /** Highest delivery tag such that all the lower tags are acknowledged, pending or rejected */
+    private long multipleAckBound = 0; // @GuardedBy(this)
+    private boolean flushScheduled = false; // @GuardedBy(this)
+    private boolean closed = false; // @GuardedBy(this)
+
+    /**
+     * @param acks - the acknowledgements of the channel the messages are received on
+     * @param batchSize - number of acknowledgements that triggers a flush
+     * @param intervalMs - maximum time acknowledgements wait before they are flushed
+     * @param scheduler - sends the acknowledgements
+     */
+    AckCoalescer(PendingAcks acks, int batchSize, long intervalMs, ScheduledExecutorService scheduler) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Acknowledgement batch size must be positive");
+        }
+        if (intervalMs <= 0) {
+            throw new IllegalArgumentException("Acknowledgement flush interval must be positive");
+        }
+        this.acks = acks;
+        this.batchSize = batchSize;
+        this.scheduler = scheduler;
+        this.pending = new long[Math.min(batchSize, 256)];
+        this.periodicFlush = scheduler.scheduleWithFixedDelay(this::flush, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records the acknowledgement of a message, to be sent with the next flush.
+     * @param deliveryTag the delivery tag of the message
+     * @param ceiling the lowest delivery tag of the messages still to be received or rejected,
+     *                {@link Long#MAX_VALUE} if all the messages delivered so far are
+     */
+    void ack(long deliveryTag, long ceiling) {
+        boolean scheduleFlush = false;
+        boolean closed;
+        synchronized (this) {
+            closed = this.closed;
+            if (!closed) {
+                if (this.pendingCount == this.pending.length) {
+                    this.pending = Arrays.copyOf(this.pending, this.pending.length * 2);
+                }
+                if (this.pendingCount > 0 && deliveryTag < this.pending[this.pendingCount - 1]) {
+                    this.sorted = false;
+                }
+                this.pending[this.pendingCount++] = deliveryTag;
+                this.highestTag = Math.max(this.highestTag, deliveryTag);
+                this.multipleAckBound = Math.max(this.multipleAckBound, Math.min(ceiling - 1, this.highestTag));
+                scheduleFlush = this.pendingCount >= this.batchSize && !this.flushScheduled;
+                if (scheduleFlush) {
+                    this.flushScheduled = true;
+                }
+            }
+        }
+        if (closed) {
+            this.acks.ack(deliveryTag, false);
+            this.sendQuietly();
+        } else if (scheduleFlush) {
+            try {
+                this.scheduler.execute(this::flush);
+            } catch (RejectedExecutionException x) {
+                this.flush();
+            }
+        }
+    }
+
+    /**
+     * Sends the pending acknowledgements.
+     */
+    void flush() {
+        synchronized (this) {
+            this.flushScheduled = false;
+            if (this.pendingCount == 0) {
+                return;
+            }
+            if (!this.sorted) {
+                Arrays.sort(this.pending, 0, this.pendingCount);
+                this.sorted = true;
+            }
+            int i = 0;
+            while (i < this.pendingCount && this.pending[i] <= this.multipleAckBound) {
+                i++;
+            }
+            if (i > 0) {
+                this.acks.ack(this.pending[i - 1], i > 1);
+            }
+            for (; i < this.pendingCount; i++) {
+                this.acks.ack(this.pending[i], false);
+            }
+            this.pendingCount = 0;
+        }
+        this.sendQuietly();
+    }
+
+    /**
+     * Adds the pending acknowledgements that can be sent as a single multiple acknowledgement to the
+     * {@link PendingAcks} of the session, which the caller sends; the others stay pending.
+     * @return the highest delivery tag acknowledged, <code>0</code> if none
+     */
+    synchronized long flushContiguous() {
+        if (!this.sorted) {
+            Arrays.sort(this.pending, 0, this.pendingCount);
+            this.sorted = true;
+        }
+        int i = 0;
+        while (i < this.pendingCount && this.pending[i] <= this.multipleAckBound) {
+            i++;
+        }
+        if (i == 0) {
+            return 0;
+        }
+        long acked = this.pending[i - 1];
+        this.acks.ack(acked, i > 1);
+        System.arraycopy(this.pending, i, this.pending, 0, this.pendingCount - i);
+        this.pendingCount -= i;
+        return acked;
+    }
+
+    /**
+     * Stops the periodic flush and sends the pending acknowledgements.
+     * Acknowledgements recorded afterwards are sent right away.
+     */
+    void close() {
+        synchronized (this) {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            this.periodicFlush.cancel(false);
+        }
+        this.flush();
+    }
+
+    /**
+     * @return the highest delivery tag acknowledged so far, <code>0</code> if none
+     */
+    synchronized long getHighestTag() {
+        return this.highestTag;
+    }
+
+    synchronized int getPendingCount() {
+        return this.pendingCount;
+    }
+
+    private void sendQuietly() {
+        try {
+            this.acks.send();
+        } catch (Exception x) { // includes unchecked exceptions, e.g. ShutdownSignalException
+            // the messages are redelivered when the channel is gone
+            logger.error("Cannot acknowledge messages received", x);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+/**
+ * How the channels of a JMS connection are spread across its AMQP connections,
+ * when it has more than one.
+ *
+ * @see com.rabbitmq.jms.admin.RMQConnectionFactory#setAmqpConnectionsPerConnection(int)
+ * @since 2.0.0
+ */
+public enum AmqpConnectionBalancingPolicy {
+
+    /**
+     * Each new channel is created on the next AMQP connection, in turn.
+     */
+    ROUND_ROBIN,
+
+    /**
+     * Each new channel is created on the AMQP connection with the fewest open channels.
+     */
+    LEAST_LOADED
+
+}
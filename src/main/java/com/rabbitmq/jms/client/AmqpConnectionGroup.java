@@ -0,0 +1,140 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.Recoverable;
+import com.rabbitmq.client.RecoveryListener;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The AMQP connections channels of a JMS connection are created on.
+ * <p>
+ * With a single connection, all channels share one socket and one frame-reading thread. With several,
+ * channels are spread across them according to the {@link AmqpConnectionBalancingPolicy}, so that the
+ * work of a JMS connection can use several cores. Closed connections are skipped as long as one is open.
+ * </p>
+ *
+ * @since 2.0.0
+ */
+class AmqpConnectionGroup {
+
+    private final List<Member> members;
+
+    private final AmqpConnectionBalancingPolicy policy;
+
+    private final AtomicInteger next = new AtomicInteger(0);
+
+    AmqpConnectionGroup(List<Connection> connections, AmqpConnectionBalancingPolicy policy) {
+        if (connections.isEmpty()) {
+            throw new IllegalArgumentException("At least one AMQP connection is required");
+        }
+        List<Member> members = new ArrayList<>(connections.size());
+        for (Connection connection : connections) {
+            members.add(new Member(connection));
+        }
+        this.members = Collections.unmodifiableList(members);
+        this.policy = policy == null ? AmqpConnectionBalancingPolicy.ROUND_ROBIN : policy;
+    }
+
+    /**
+     * Creates a channel on one of the connections.
+     * @return the created channel
+     * @throws IOException if the channel cannot be created
+     */
+    Channel createChannel() throws IOException {
+        return this.select().createChannel();
+    }
+
+    int size() {
+        return this.members.size();
+    }
+
+    List<Connection> getConnections() {
+        List<Connection> connections = new ArrayList<>(this.members.size());
+        for (Member member : this.members) {
+            connections.add(member.connection);
+        }
+        return connections;
+    }
+
+    List<AmqpConnectionStatistics> getStatistics() {
+        List<AmqpConnectionStatistics> statistics = new ArrayList<>(this.members.size());
+        for (Member member : this.members) {
+            statistics.add(member.statistics());
+        }
+        return Collections.unmodifiableList(statistics);
+    }
+
+    private Member select() {
+        int size = this.members.size();
+        if (size == 1) {
+            return this.members.get(0);
+        }
+        Member selected = null;
+        if (this.policy == AmqpConnectionBalancingPolicy.LEAST_LOADED) {
+            for (Member member : this.members) {
+                if (member.connection.isOpen() && (selected == null || member.openChannels.get() < selected.openChannels.get())) {
+                    selected = member;
+                }
+            }
+        } else {
+            int start = Math.floorMod(this.next.getAndIncrement(), size);
+            for (int i = 0; i < size && selected == null; i++) {
+                Member member = this.members.get((start + i) % size);
+                if (member.connection.isOpen()) {
+                    selected = member;
+                }
+            }
+        }
+        // all closed: let the first connection report the error
+        return selected == null ? this.members.get(0) : selected;
+    }
+
+    private static final class Member {
+
+        private final Connection connection;
+        private final AtomicInteger openChannels = new AtomicInteger(0);
+        private final AtomicLong createdChannels = new AtomicLong(0);
+
+        private Member(Connection connection) {
+            this.connection = connection;
+        }
+
+        private Channel createChannel() throws IOException {
+            Channel channel = this.connection.createChannel();
+            if (channel == null) {
+                throw new IOException("No channel available on " + this.connection);
+            }
+            this.openChannels.incrementAndGet();
+            this.createdChannels.incrementAndGet();
+            channel.addShutdownListener(cause -> this.openChannels.decrementAndGet());
+            if (channel instanceof Recoverable) {
+                ((Recoverable) channel).addRecoveryListener(new RecoveryListener() {
+                    @Override
+                    public void handleRecovery(Recoverable recoverable) {
+                        openChannels.incrementAndGet();
+                    }
+
+                    @Override
+                    public void handleRecoveryStarted(Recoverable recoverable) {
+                    }
+                });
+            }
+            return channel;
+        }
+
+        private AmqpConnectionStatistics statistics() {
+            InetAddress address = this.connection.getAddress();
+            return new AmqpConnectionStatistics((address == null ? "" : address.getHostAddress()) + ":" + this.connection.getPort(),
+                this.connection.isOpen(), this.openChannels.get(), this.createdChannels.get());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+/**
+ * Snapshot of the activity of one of the AMQP connections of a JMS connection.
+ *
+ * @see RMQConnection#getAmqpConnectionStatistics()
+ * @since 2.0.0
+ */
+public final class AmqpConnectionStatistics {
+
+    private final String address;
+    private final boolean open;
+    private final int openChannels;
+    private final long createdChannels;
+
+    AmqpConnectionStatistics(String address, boolean open, int openChannels, long createdChannels) {
+        this.address = address;
+        this.open = open;
+        this.openChannels = openChannels;
+        this.createdChannels = createdChannels;
+    }
+
+    /**
+     * @return the address of the broker the connection is connected to, as <code>host:port</code>
+     */
+    public String getAddress() {
+        return this.address;
+    }
+
+    /**
+     * @return <code>true</code> if the connection is open
+     */
+    public boolean isOpen() {
+        return this.open;
+    }
+
+    /**
+     * @return the number of channels currently open on the connection
+     */
+    public int getOpenChannels() {
+        return this.openChannels;
+    }
+
+    /**
+     * @return the number of channels created on the connection since it was opened
+     */
+    public long getCreatedChannels() {
+        return this.createdChannels;
+    }
+
+    @Override
+    public String toString() {
+        return "AmqpConnectionStatistics{" +
+            "address='" + this.address + '\'' +
+            ", open=" + this.open +
+            ", openChannels=" + this.openChannels +
+            ", createdChannels=" + this.createdChannels +
+            '}';
+    }
+}
@@ -0,0 +1,158 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import com.rabbitmq.client.AMQP;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-producer cache of the constant part of the AMQP properties of published messages.
+ * <p>
+ * The content type, delivery mode, priority and expiration of a message only depend on the
+ * (delivery mode, priority, time-to-live) combination it is sent with, which rarely changes
+ * for a given producer. They are computed once per combination and only the headers and
+ * the reply-to are merged in for each message.
+ * </p>
+ * <p>
+ * Not thread-safe, like the producer it belongs to.
+ * </p>
+ *
+ * @since 2.0.0
+ */
+final class BasicPropertiesTemplates {
+
+    static final String CONTENT_TYPE = "application/octet-stream";
+
+    /** Bounds the number of templates kept for producers that keep changing their settings */
+    static final int MAX_TEMPLATES = 64;
+
+    /** This is dictated by `erlang:send_after' on which rabbitmq depends to implement TTL:
+     * <br/><code>-define(MAX_EXPIRY_TIMER, 4294967295)</code>.
+     */
+    private static final long MAX_TTL = 4294967295L;
+
+    private final Map<Key, Template> templates = new HashMap<>();
+
+    /** The most recently used template, checked before the map */
+    private Template last;
+
+    Template get(int deliveryMode, int priority, long timeToLive) {
+        Template template = this.last;
+        if (template != null && template.matches(deliveryMode, priority, timeToLive)) {
+            return template;
+        }
+        Key key = new Key(deliveryMode, priority, timeToLive);
+        template = this.templates.get(key);
+        if (template == null) {
+            if (this.templates.size() >= MAX_TEMPLATES) {
+                this.templates.clear();
+            }
+            template = new Template(deliveryMode, priority, timeToLive);
+            this.templates.put(key, template);
+        }
+        this.last = template;
+        return template;
+    }
+
+    /**
+     * @return a template that is not cached, for time-to-live values that change with every message
+     */
+    static Template uncached(int deliveryMode, int priority, long timeToLive) {
+        return new Template(deliveryMode, priority, timeToLive);
+    }
+
+    int size() {
+        return this.templates.size();
+    }
+
+    /**
+     * Convert long time-to-live to String time-to-live for amqp protocol.
+     * Constrain to limits: <code>0 &LT;= ttl &LT;= MAX_TTL</code>.
+     * @param ttl JMS time-to-live long integer
+     * @return RabbitMQ message expiration setting (null if expiration==0L)
+     */
+    static String rmqExpiration(long ttl) {
+        if (ttl == 0L) return null;
+
+        return String.valueOf( ttl < 0L      ? 0L
+                             : ttl > MAX_TTL ? MAX_TTL
+                             :                 ttl
+                             );
+    }
+
+    /**
+     * Immutable constant part of the AMQP properties for a (delivery mode, priority, time-to-live) combination.
+     */
+    static final class Template {
+
+        private final int jmsDeliveryMode;
+        private final int jmsPriority;
+        private final long timeToLive;
+
+        private final Integer deliveryMode;
+        private final Integer priority;
+        private final String expiration;
+
+        private Template(int jmsDeliveryMode, int jmsPriority, long timeToLive) {
+            this.jmsDeliveryMode = jmsDeliveryMode;
+            this.jmsPriority = jmsPriority;
+            this.timeToLive = timeToLive;
+            this.deliveryMode = RMQMessage.rmqDeliveryMode(jmsDeliveryMode);
+            this.priority = jmsPriority;
+            this.expiration = rmqExpiration(timeToLive);
+        }
+
+        private boolean matches(int jmsDeliveryMode, int jmsPriority, long timeToLive) {
+            return this.jmsDeliveryMode == jmsDeliveryMode && this.jmsPriority == jmsPriority && this.timeToLive == timeToLive;
+        }
+
+        /**
+         * Builds the properties of a message, without going through a builder.
+         * The headers are copied by {@link AMQP.BasicProperties}, so the map can be reused once this method returns.
+         */
+        AMQP.BasicProperties properties(Map<String, Object> headers, String replyTo) {
+            return new AMQP.BasicProperties(CONTENT_TYPE, null, headers, this.deliveryMode, this.priority,
+                null, replyTo, this.expiration, null, null, null, null, null, null);
+        }
+
+        /**
+         * @return a builder pre-filled with the constant properties, for the properties customiser to work on
+         */
+        AMQP.BasicProperties.Builder builder(Map<String, Object> headers, String replyTo) {
+            return new AMQP.BasicProperties.Builder()
+                .contentType(CONTENT_TYPE)
+                .deliveryMode(this.deliveryMode)
+                .priority(this.priority)
+                .expiration(this.expiration)
+                .headers(headers)
+                .replyTo(replyTo);
+        }
+    }
+
+    private static final class Key {
+
+        private final int deliveryMode;
+        private final int priority;
+        private final long timeToLive;
+
+        private Key(int deliveryMode, int priority, long timeToLive) {
+            this.deliveryMode = deliveryMode;
+            this.priority = priority;
+            this.timeToLive = timeToLive;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return deliveryMode == key.deliveryMode && priority == key.priority && timeToLive == key.timeToLive;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * deliveryMode + priority) + Long.hashCode(timeToLive);
+        }
+    }
+}
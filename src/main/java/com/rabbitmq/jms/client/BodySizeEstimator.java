@@ -0,0 +1,51 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+/**
+ * Estimates the initial capacity to give to the body of new {@link javax.jms.BytesMessage}s and
+ * {@link javax.jms.StreamMessage}s from the size of the messages recently sent, so that bodies are rarely
+ * grown (and copied) while they are written.
+ * <p>
+ * The estimate follows a larger message at once and decays slowly after smaller ones; it is rounded up to
+ * a power of two (the size class of the body) and kept between {@link #MIN_SIZE} and {@link #MAX_SIZE}.
+ * </p>
+ * <p>
+ * Concurrent updates may lose one another, which only makes the estimate less accurate.
+ * </p>
+ *
+ * @since 2.0.0
+ */
+class BodySizeEstimator {
+
+    static final int MIN_SIZE = 64;
+    static final int MAX_SIZE = 1024 * 1024;
+
+    /** The estimate moves down by 1/2<sup>DECAY_SHIFT</sup> of the difference for each smaller message */
+    private static final int DECAY_SHIFT = 4;
+
+    private volatile int estimate;
+
+    /**
+     * @param initialSize - the estimate before any message is recorded
+     */
+    BodySizeEstimator(int initialSize) {
+        this.estimate = initialSize;
+    }
+
+    /**
+     * @param size - size of a message sent, in bytes
+     */
+    void record(int size) {
+        int e = this.estimate;
+        this.estimate = size >= e ? size : e - ((e - size) >> DECAY_SHIFT);
+    }
+
+    /**
+     * @return the initial capacity for the body of a new message, in bytes
+     */
+    int initialSize() {
+        int e = Math.max(MIN_SIZE, Math.min(MAX_SIZE, this.estimate));
+        int sizeClass = Integer.highestOneBit(e);
+        return sizeClass == e ? e : sizeClass << 1;
+    }
+}
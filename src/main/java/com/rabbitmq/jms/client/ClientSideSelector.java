@@ -0,0 +1,109 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.jms.parse.sql.SqlEvaluator;
+import com.rabbitmq.jms.parse.sql.SqlParser;
+import com.rabbitmq.jms.parse.sql.SqlTokenStream;
+import com.rabbitmq.jms.util.RMQJMSSelectorException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jms.JMSException;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Evaluates the selector of a queue consumer against the messages it receives, and rejects the messages
+ * that do not match according to a {@link QueueSelectorMismatchPolicy}.
+ * <p>
+ * Only the properties of the messages are decoded for the evaluation, the body is decoded
+ * later if lazy message decoding is enabled.
+ * </p>
+ *
+ * @since 2.0.0
+ */
+class ClientSideSelector {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientSideSelector.class);
+
+    private final SqlEvaluator evaluator; // @GuardedBy(this), evaluation is not thread-safe
+
+    private final QueueSelectorMismatchPolicy mismatchPolicy;
+
+    private final Map<String, Object> headers = new HashMap<>(); // @GuardedBy(this)
+
+    private final AtomicLong selected = new AtomicLong(0);
+    private final AtomicLong rejected = new AtomicLong(0);
+    private final AtomicLong redeliveredRejected = new AtomicLong(0);
+
+    /**
+     * @param selector - the selector expression
+     * @param mismatchPolicy - what to do with the messages that do not match
+     * @throws RMQJMSSelectorException if the selector is not valid
+     */
+    ClientSideSelector(String selector, QueueSelectorMismatchPolicy mismatchPolicy) throws RMQJMSSelectorException {
+        this.evaluator = new SqlEvaluator(new SqlParser(new SqlTokenStream(selector)), RMQSession.JMS_TYPE_IDENTS);
+        if (!this.evaluator.evaluatorOk()) {
+            throw new RMQJMSSelectorException(String.format("Selector expression failure: \"%s\" (%s).", selector, this.evaluator.getErrorMessage()));
+        }
+        this.mismatchPolicy = mismatchPolicy;
+    }
+
+    /**
+     * Evaluates the selector against a message received, and rejects the message if it does not match.
+     *
+     * @param message - the message received
+     * @param channel - the channel the message was received on
+     * @return <code>true</code> if the message matches and can be delivered, <code>false</code> if it has been rejected
+     */
+    boolean select(RMQMessage message, Channel channel) {
+        if (this.matches(message)) {
+            this.selected.incrementAndGet();
+            return true;
+        }
+        long deliveryTag = message.getRabbitDeliveryTag();
+        boolean requeue = this.requeues();
+        try {
+            channel.basicNack(deliveryTag, false, requeue);
+        } catch (Exception x) { // includes unchecked exceptions, e.g. ShutdownSignalException
+            logger.warn("Cannot reject message not matching selector (dTag={}, requeue={})", deliveryTag, requeue, x);
+        }
+        this.rejected.incrementAndGet();
+        if (redelivered(message)) {
+            this.redeliveredRejected.incrementAndGet();
+        }
+        return false;
+    }
+
+    private synchronized boolean matches(RMQMessage message) {
+        try {
+            this.headers.clear();
+            return this.evaluator.evaluate(message.toHeaders(this.headers));
+        } catch (IOException | JMSException | RuntimeException e) {
+            logger.warn("Cannot evaluate selector against message {}, considering it does not match", message, e);
+            return false;
+        }
+    }
+
+    private static boolean redelivered(RMQMessage message) {
+        try {
+            return message.getJMSRedelivered();
+        } catch (JMSException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return <code>true</code> if messages that do not match are requeued
+     */
+    boolean requeues() {
+        return this.mismatchPolicy == QueueSelectorMismatchPolicy.REQUEUE;
+    }
+
+    MessageSelectorStatistics getStatistics() {
+        return new MessageSelectorStatistics(this.selected.get(), this.rejected.get(), this.redeliveredRejected.get());
+    }
+}
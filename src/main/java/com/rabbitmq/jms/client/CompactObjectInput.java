@@ -0,0 +1,42 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInput;
+import java.util.List;
+
+import com.rabbitmq.jms.util.WhiteListObjectInputStream;
+
+/**
+ * The {@link ObjectInput} reading what a {@link CompactObjectOutput} writes.
+ * <p>
+ * Objects are deserialized with a {@link WhiteListObjectInputStream}, which only loads classes of trusted packages.
+ * </p>
+ *
+ * @see MessageWireFormat#V2
+ * @since 2.0.0
+ */
+class CompactObjectInput extends DataInputStream implements ObjectInput {
+
+    private final List<String> trustedPackages;
+
+    CompactObjectInput(InputStream in, List<String> trustedPackages) {
+        super(in);
+        this.trustedPackages = trustedPackages;
+    }
+
+    @Override
+    public Object readObject() throws ClassNotFoundException, IOException {
+        byte[] serialized = new byte[this.readInt()];
+        this.readFully(serialized);
+        WhiteListObjectInputStream in = new WhiteListObjectInputStream(new ByteArrayInputStream(serialized), this.trustedPackages);
+        try {
+            return in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+}
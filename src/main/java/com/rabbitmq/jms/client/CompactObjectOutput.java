@@ -0,0 +1,37 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * An {@link ObjectOutput} writing primitive values as a {@link DataOutputStream} does, without the stream header,
+ * block data framing and handle tables of an {@link ObjectOutputStream}.
+ * <p>
+ * Objects are written as a length-prefixed Java serialization of the object alone; they are read back with
+ * {@link CompactObjectInput#readObject()}.
+ * </p>
+ *
+ * @see MessageWireFormat#V2
+ * @since 2.0.0
+ */
+class CompactObjectOutput extends DataOutputStream implements ObjectOutput {
+
+    CompactObjectOutput(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void writeObject(Object obj) throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        ObjectOutputStream oout = new ObjectOutputStream(bout);
+        oout.writeObject(obj);
+        oout.flush();
+        this.writeInt(bout.size());
+        bout.writeTo(this);
+    }
+}
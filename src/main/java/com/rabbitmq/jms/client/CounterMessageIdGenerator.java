@@ -0,0 +1,44 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The default {@link MessageIdGenerator}: a random prefix, drawn once per generator, followed by a counter.
+ * <p>
+ * IDs look like <code>ID:5f0b2c0e-7d1a-4c5e-9c3b-2a6b8d1e4f70:1a2b</code>, the counter being in hexadecimal.
+ * Each ID is rendered without intermediate strings, so generating an ID costs an atomic increment and the allocation
+ * of the ID, without the contention on the shared {@link java.security.SecureRandom} of {@link UUID#randomUUID()}.
+ * </p>
+ *
+ * @since 2.0.0
+ */
+class CounterMessageIdGenerator implements MessageIdGenerator {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final char[] prefix;
+    private final AtomicLong counter = new AtomicLong(0);
+
+    CounterMessageIdGenerator() {
+        this("ID:" + UUID.randomUUID() + ":");
+    }
+
+    CounterMessageIdGenerator(String prefix) {
+        this.prefix = prefix.toCharArray();
+    }
+
+    @Override
+    public String generate() {
+        long value = this.counter.incrementAndGet();
+        int digits = Math.max(1, (Long.SIZE - Long.numberOfLeadingZeros(value) + 3) >> 2);
+        char[] id = new char[this.prefix.length + digits];
+        System.arraycopy(this.prefix, 0, id, 0, this.prefix.length);
+        for (int i = id.length - 1; i >= this.prefix.length; i--) {
+            id[i] = HEX_DIGITS[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+        return new String(id);
+    }
+}
@@ -0,0 +1,93 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.rabbitmq.client.Recoverable;
+import com.rabbitmq.client.RecoveryListener;
+
+/**
+ * The exchanges, queues and bindings of destinations declared on a connection, so that each of them is declared once
+ * for the lifetime of the connection, whatever the number of {@link com.rabbitmq.jms.admin.RMQDestination} objects
+ * that refer to them.
+ * <p>
+ * Each declaration is keyed by all its parameters (names, flags and arguments): a declaration with different
+ * parameters is made again, and the broker accepts or refuses it as usual. Exclusive queues are also keyed by the
+ * AMQP connection they are declared on, as they belong to it. The cache is cleared when the connection recovers,
+ * as the broker may have lost the topology meanwhile.
+ * </p>
+ * <p>
+ * Queues declared for topic subscribers are unique to each subscriber and are not cached.
+ * </p>
+ *
+ * @since 2.0.0
+ */
+class DeclaredTopology implements RecoveryListener {
+
+    private final Set<List<Object>> declared = ConcurrentHashMap.newKeySet();
+
+    static List<Object> exchange(String name, String type, boolean durable) {
+        return Arrays.asList("exchange", name, type, durable);
+    }
+
+    /**
+     * @param owner - the AMQP connection an exclusive queue is declared on, <code>null</code> for other queues
+     */
+    static List<Object> queue(String name, boolean durable, boolean exclusive, boolean autoDelete, Map<String, Object> arguments,
+                              com.rabbitmq.client.Connection owner) {
+        return Arrays.asList("queue", name, durable, exclusive, autoDelete, copy(arguments), owner);
+    }
+
+    static List<Object> binding(String queue, String exchange, String routingKey) {
+        return Arrays.asList("binding", queue, exchange, routingKey);
+    }
+
+    private static Map<String, Object> copy(Map<String, Object> arguments) {
+        return arguments == null ? null : new HashMap<String, Object>(arguments);
+    }
+
+    /**
+     * @param key - the key of a declaration
+     * @return <code>true</code> if the declaration has been made on the connection
+     */
+    boolean isDeclared(List<Object> key) {
+        return this.declared.contains(key);
+    }
+
+    /**
+     * Record a declaration made successfully on the connection.
+     * @param key - the key of the declaration
+     */
+    void declared(List<Object> key) {
+        this.declared.add(key);
+    }
+
+    void clear() {
+        this.declared.clear();
+    }
+
+    /**
+     * Clear the cache when the connection recovers.
+     * @param connection - the underlying connection
+     */
+    void clearOnRecovery(com.rabbitmq.client.Connection connection) {
+        if (connection instanceof Recoverable) {
+            ((Recoverable) connection).addRecoveryListener(this);
+        }
+    }
+
+    @Override
+    public void handleRecovery(Recoverable recoverable) {
+        this.clear();
+    }
+
+    @Override
+    public void handleRecoveryStarted(Recoverable recoverable) {
+        this.clear();
+    }
+}
@@ -1,12 +1,23 @@
 /* Copyright (c) 2013 Pivotal Software, Inc. All rights reserved. */
 package com.rabbitmq.jms.client;
 
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.Consumer;
+import com.rabbitmq.client.Envelope;
 import com.rabbitmq.client.GetResponse;
+import com.rabbitmq.client.ShutdownSignalException;
+import com.rabbitmq.jms.util.Abortable;
 import com.rabbitmq.jms.util.TimeTracker;
 
 /**
@@ -15,22 +26,36 @@ import com.rabbitmq.jms.util.TimeTracker;
  * The blocking method <code>get()</code> only returns with <code>null</code> when either the Receiver is closed,
  * or the timeout expires.
  * </p>
+ * <p>
+ * When the batching size is positive, messages are pushed by the broker to a {@link Consumer} subscription,
+ * whose per-consumer QoS is the batching size, and buffered until <code>get()</code> takes them. Otherwise
+ * the queue is polled with <code>basicGet</code>.
+ * </p>
+ * <p>
+ * The subscription is only made on the first <code>get()</code>. It is cancelled on {@link #stop()} (and re-made
+ * on the next <code>get()</code>) and on {@link #abort()}; buffered messages are then requeued.
+ * </p>
  */
-class DelayedReceiver {
+class DelayedReceiver implements Abortable {
 
     private final Logger logger = LoggerFactory.getLogger(DelayedReceiver.class);
 
     private static final TimeTracker POLLING_INTERVAL = new TimeTracker(100, TimeUnit.MILLISECONDS); // one tenth of a second
 
-    @SuppressWarnings("unused")
+    private static final int INITIAL_BATCH_CAPACITY = 64;
+
     private final int batchingSize;
     private final RMQMessageConsumer rmqMessageConsumer;
 
     private final Object responseLock = new Object();
     private boolean aborted = false; // @GuardedBy(responseLock)
+    /** Messages pushed by the broker and not yet taken by <code>get()</code> */
+    private final Deque<GetResponse> buffer = new ArrayDeque<GetResponse>(); // @GuardedBy(responseLock)
+    /** The current subscription, if any */
+    private BufferingConsumer subscription = null; // @GuardedBy(responseLock)
 
     /**
-     * @param batchingSize - the intended limit of messages that can be pre-fetched.
+     * @param batchingSize - the limit of messages that can be pre-fetched; if not positive, messages are polled.
      * @param rmqMessageConsumer - the JMS MessageConsumer we are serving.
      */
     public DelayedReceiver(int batchingSize, RMQMessageConsumer rmqMessageConsumer) {
@@ -38,6 +63,13 @@ class DelayedReceiver {
         this.rmqMessageConsumer = rmqMessageConsumer;
     }
 
+    /**
+     * @return <code>true</code> if messages are pushed to a buffer, <code>false</code> if they are polled
+     */
+    boolean isPrefetching() {
+        return this.batchingSize > 0;
+    }
+
     /**
      * Get a message; if there isn't one, try again at intervals not exceeding the total time available. Aborts if closed while polling.
      * @param tt - keeps track of the time available
@@ -45,6 +77,9 @@ class DelayedReceiver {
      */
     public GetResponse get(TimeTracker tt) {
         try {
+            if (this.isPrefetching()) {
+                return this.take(tt);
+            }
             synchronized (this.responseLock) {
                 GetResponse resp = this.rmqMessageConsumer.getFromRabbitQueue();
                 if (resp != null) return resp;
@@ -64,15 +99,207 @@ class DelayedReceiver {
         }
     }
 
-    private void abort() {
+    /**
+     * Get up to <code>max</code> messages; waits for the first one as {@link #get(TimeTracker)} does,
+     * then takes those that are immediately available, without waiting.
+     * @param max - the maximum number of messages to get; must be positive
+     * @param tt - keeps track of the time available for the first message
+     * @return messages gotten, empty if timeout or connection closed.
+     */
+    public List<GetResponse> get(int max, TimeTracker tt) {
+        List<GetResponse> resps = new ArrayList<GetResponse>(Math.min(max, INITIAL_BATCH_CAPACITY));
+        GetResponse resp = this.get(tt);
+        if (resp == null) return resps;
+        resps.add(resp);
+        synchronized (this.responseLock) {
+            while (resps.size() < max && !this.aborted) {
+                resp = this.isPrefetching() ? this.buffer.poll() : this.rmqMessageConsumer.getFromRabbitQueue();
+                if (resp == null)
+                    break;
+                resps.add(resp);
+            }
+        }
+        return resps;
+    }
+
+    /**
+     * @return the lowest delivery tag of the buffered messages, {@link Long#MAX_VALUE} if there are none
+     */
+    long lowestBufferedTag() {
+        synchronized (this.responseLock) {
+            GetResponse resp = this.buffer.peek();
+            return resp == null ? Long.MAX_VALUE : resp.getEnvelope().getDeliveryTag();
+        }
+    }
+
+    /**
+     * Take a message from the buffer, waiting for one to be pushed if necessary. If nothing has arrived when
+     * the time runs out, a single <code>basicGet</code> is tried, so that <code>receiveNoWait()</code> sees
+     * messages that are ready in the queue but not yet delivered to the subscription.
+     */
+    private GetResponse take(TimeTracker tt) throws InterruptedException {
+        synchronized (this.responseLock) {
+            if (this.aborted) return null;
+            this.subscribeIfNecessary();
+            while (this.buffer.isEmpty() && !this.aborted && !tt.timedOut()) {
+                tt.timedWait(this.responseLock);
+            }
+            GetResponse resp = this.buffer.poll();
+            if (resp == null && !this.aborted) {
+                resp = this.rmqMessageConsumer.getFromRabbitQueue();
+            }
+            return resp;
+        }
+    }
+
+    private void subscribeIfNecessary() { // @GuardedBy(responseLock)
+        if (this.subscription != null) return;
+        BufferingConsumer consumer = new BufferingConsumer(RMQMessageConsumer.newConsumerTag());
+        try {
+            this.rmqMessageConsumer.basicConsume(consumer, consumer.consTag, this.batchingSize);
+            this.subscription = consumer;
+        } catch (Exception e) { // includes unchecked exceptions, e.g. ShutdownSignalException
+            if (!(e instanceof ShutdownSignalException) && !(e.getCause() instanceof ShutdownSignalException)) {
+                logger.error("basicConsume (consumerTag='{}') for synchronous receive threw exception", consumer.consTag, e);
+            }
+        }
+    }
+
+    /**
+     * Cancel the subscription, if any, and deal with the messages it left in the buffer.
+     * @param requeue - <code>true</code> to nack (and requeue) buffered messages, <code>false</code> to simply
+     *            forget them (when the channel is about to recover them anyway).
+     */
+    private void unsubscribe(boolean requeue) {
+        BufferingConsumer consumer;
+        synchronized (this.responseLock) {
+            consumer = this.subscription;
+            this.subscription = null;
+            if (consumer == null) return;
+            consumer.cancelled = true; // from now on deliveries bypass the buffer
+            consumer.requeue = requeue;
+        }
+        consumer.cancel();
+        synchronized (this.responseLock) {
+            GetResponse resp;
+            while ((resp = this.buffer.poll()) != null) {
+                if (requeue) this.nack(resp.getEnvelope().getDeliveryTag());
+            }
+        }
+    }
+
+    private void nack(long dtag) {
+        logger.debug("basicNack: dtag='{}' (buffered for synchronous receive)", dtag);
+        this.rmqMessageConsumer.getSession().explicitNack(dtag);
+    }
+
+    /**
+     * Cancel the subscription and forget the buffered messages, which must be recovered on the channel by the caller.
+     */
+    void discardBuffered() {
+        this.unsubscribe(false);
+    }
+
+    @Override
+    public void abort() {
+        this.unsubscribe(true);
         synchronized(this.responseLock) {
             this.aborted = true;
             this.responseLock.notifyAll();
         }
     }
 
+    /**
+     * Cancel the subscription, if any, and requeue the buffered messages; the next <code>get()</code> subscribes again.
+     */
+    @Override
+    public void stop() {
+        this.unsubscribe(true);
+    }
+
+    @Override
+    public void start() {
+        // no-op: the subscription is made again on demand
+    }
+
     public void close() {
         this.abort();
     }
 
-}
\ No newline at end of file
+    /**
+     * The {@link Consumer} behind a subscription: pushes deliveries to the buffer and wakes up waiting <code>get()</code>s.
+     */
+    private final class BufferingConsumer implements Consumer {
+        private final String consTag;
+        private final Completion completion = new Completion(); // completed when cancelled
+        private volatile boolean cancelled = false;
+        private volatile boolean requeue = true;
+
+        BufferingConsumer(String consTag) {
+            this.consTag = consTag;
+        }
+
+        @Override
+        public void handleDelivery(String consumerTag, Envelope envelope, BasicProperties properties, byte[] body) throws IOException {
+            logger.trace("consumerTag='{}' envelope='{}'", consumerTag, envelope);
+            synchronized (DelayedReceiver.this.responseLock) {
+                if (!this.cancelled) {
+                    // last parameter is remaining message count, which we don't know.
+                    DelayedReceiver.this.buffer.add(new GetResponse(envelope, properties, body, 0));
+                    DelayedReceiver.this.responseLock.notifyAll();
+                    return;
+                }
+            }
+            if (this.requeue) nack(envelope.getDeliveryTag());
+        }
+
+        private void cancel() {
+            TimeTracker tt = new TimeTracker(DelayedReceiver.this.rmqMessageConsumer.getSession().getConnection().getTerminationTimeout(),
+                                             TimeUnit.MILLISECONDS);
+            try {
+                if (!this.completion.isComplete()) {
+                    logger.debug("consumerTag='{}' basicCancel:", this.consTag);
+                    DelayedReceiver.this.rmqMessageConsumer.getSession().getChannel().basicCancel(this.consTag);
+                    this.completion.waitUntilComplete(tt);
+                }
+            } catch (TimeoutException te) {
+                logger.warn("basicCancel (consumerTag='{}') timed out", this.consTag);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) { // includes unchecked exceptions, e.g. ShutdownSignalException
+                logger.debug("basicCancel (consumerTag='{}') threw exception", this.consTag, e);
+            }
+        }
+
+        @Override
+        public void handleConsumeOk(String consumerTag) {
+            logger.trace("consumerTag='{}'", consumerTag);
+        }
+
+        @Override
+        public void handleCancelOk(String consumerTag) {
+            logger.trace("consumerTag='{}'", consumerTag);
+            this.completion.setComplete();
+        }
+
+        @Override
+        public void handleCancel(String consumerTag) throws IOException {
+            logger.trace("consumerTag='{}'", consumerTag);
+            this.completion.setComplete();
+            synchronized (DelayedReceiver.this.responseLock) {
+                if (DelayedReceiver.this.subscription == this) DelayedReceiver.this.subscription = null; // subscribe again next time
+            }
+        }
+
+        @Override
+        public void handleShutdownSignal(String consumerTag, ShutdownSignalException sig) {
+            logger.trace("consumerTag='{}'", consumerTag, sig);
+            this.completion.setComplete();
+        }
+
+        @Override
+        public void handleRecoverOk(String consumerTag) {
+            logger.trace("consumerTag='{}'", consumerTag);
+        }
+    }
+}
@@ -17,6 +17,10 @@ import com.rabbitmq.jms.util.RMQJMSException;
  * Class to deliver messages to the <code>onMessage()</code> callback. Handles execution on a different thread, timeout
  * if execution takes too long (set on instantiation), and interrupts execution on closure or timeout. Also serialises
  * calls. There is one instance of this executor per session.
+ * <p>
+ * When created with an {@link OnMessageWatchdog}, <code>onMessage()</code> is called directly on the delivering thread
+ * instead, and the watchdog interrupts it if it takes too long.
+ * </p>
  */
 public class DeliveryExecutor {
 
@@ -42,8 +46,20 @@ public class DeliveryExecutor {
     private ExecutorService onMessageExecutorService = null;
     private final Object lockOnMessageExecutorService = new Object();
 
+    /** Watch on direct <code>onMessage</code> calls; <code>null</code> if they are made on the executor thread. */
+    private final OnMessageWatchdog.Watch watch;
+
     public DeliveryExecutor(long onMessageTimeoutMs) {
+        this(onMessageTimeoutMs, null);
+    }
+
+    /**
+     * @param onMessageTimeoutMs timeout for onMessage executions
+     * @param watchdog if not <code>null</code>, onMessage is called on the delivering thread, watched by this watchdog
+     */
+    DeliveryExecutor(long onMessageTimeoutMs, OnMessageWatchdog watchdog) {
         this.onMessageTimeoutMs = onMessageTimeoutMs;
+        this.watch = watchdog == null ? null : watchdog.register();
     }
 
     /**
@@ -58,6 +74,10 @@ public class DeliveryExecutor {
      * @throws InterruptedException if executing thread is interrupted
      */
     public void deliverMessageWithProtection(RMQMessage rmqMessage, MessageListener messageListener) throws JMSException, InterruptedException {
+        if (this.watch != null) {
+            this.deliverMessageDirectly(rmqMessage, messageListener);
+            return;
+        }
         try {
             this.getExecutorService().submit(new CallOnMessage(rmqMessage, messageListener)).get(this.onMessageTimeoutMs, TimeUnit.MILLISECONDS);
         } catch (TimeoutException e) {
@@ -68,7 +88,31 @@ public class DeliveryExecutor {
         }
     }
 
+    /**
+     * Call <code>onMessage</code> on the current thread, under the watch of the connection watchdog.
+     */
+    private void deliverMessageDirectly(RMQMessage rmqMessage, MessageListener messageListener) throws JMSException {
+        boolean timedOut;
+        RuntimeException listenerException = null;
+        this.watch.arm();
+        try {
+            messageListener.onMessage(rmqMessage);
+        } catch (RuntimeException e) {
+            listenerException = e;
+        } finally {
+            timedOut = this.watch.disarm();
+        }
+        if (timedOut) {
+            throw new RMQJMSException("onMessage took too long and was interrupted", null);
+        } else if (listenerException != null) {
+            throw new RMQMessageListenerExecutionJMSException("onMessage threw exception", listenerException);
+        }
+    }
+
     public void close() {
+        if (this.watch != null) {
+            this.watch.unregister();
+        }
         closeExecutorService(this.takeExecutorService());
     }
 
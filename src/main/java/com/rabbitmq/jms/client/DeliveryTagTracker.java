@@ -0,0 +1,199 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongConsumer;
+
+/**
+ * Set of the delivery tags of the messages received and not yet acknowledged on a channel.
+ * <p>
+ * Delivery tags are positive and (mostly) increasing, so they are tracked in a ring of slots, indexed by tag modulo the
+ * capacity of the ring, with a low watermark below which no tag is in the ring. A slot holds the tag it tracks, or
+ * <code>0</code>. Adding and removing a tag is a compare-and-set on its slot, without allocation; removing all the
+ * tags up to a given one moves the watermark past it and clears the slots it moved over, which costs, over
+ * time, one slot per delivery tag.
+ * </p>
+ * <p>
+ * Tags that do not fit in the ring (because their slot is held by an older tag, or because they are below the low
+ * watermark) are kept in an overflow set. This is rare: it only happens when more messages than the capacity
+ * are unacknowledged, or when a message is received after the messages that follow it were acknowledged.
+ * </p>
+ * <p>
+ * All methods are thread-safe and lock-free.
+ * </p>
+ */
+class DeliveryTagTracker {
+
+    /** Returned when there is no tag */
+    static final long NO_TAG = 0L;
+
+    private final int capacity;
+    private final AtomicLongArray slots;
+    /** No tag below this is held in {@link #slots} */
+    private final AtomicLong low = new AtomicLong(1);
+    private final AtomicInteger size = new AtomicInteger(0);
+    private final NavigableSet<Long> overflow = new ConcurrentSkipListSet<Long>();
+
+    /**
+     * @param capacity - number of tags that can be tracked without overflow
+     */
+    DeliveryTagTracker(int capacity) {
+        this.capacity = capacity;
+        this.slots = new AtomicLongArray(capacity);
+    }
+
+    private int slot(long tag) {
+        return (int) (tag % this.capacity);
+    }
+
+    /**
+     * @param tag - the delivery tag of a message received, not already tracked
+     */
+    void add(long tag) {
+        this.size.incrementAndGet();
+        if (tag >= this.low.get()) {
+            int i = this.slot(tag);
+            if (this.slots.compareAndSet(i, NO_TAG, tag)) {
+                /*
+                 * A removeUpTo moving the watermark past the tag meanwhile covers it: either its sweep removed
+                 * (and counted) the tag, or it swept the slot before the tag was set and the tag is removed here.
+                 */
+                if (tag < this.low.get() && this.slots.compareAndSet(i, tag, NO_TAG)) {
+                    this.size.decrementAndGet();
+                }
+                return;
+            }
+        }
+        this.overflow.add(tag);
+    }
+
+    /**
+     * @param tag - a delivery tag
+     * @return <code>true</code> if the tag is tracked
+     */
+    boolean contains(long tag) {
+        return this.slots.get(this.slot(tag)) == tag || (!this.overflow.isEmpty() && this.overflow.contains(tag));
+    }
+
+    /**
+     * @param tag - a delivery tag
+     * @return <code>true</code> if the tag was tracked, and is no longer
+     */
+    boolean remove(long tag) {
+        if (this.slots.compareAndSet(this.slot(tag), tag, NO_TAG)
+         || (!this.overflow.isEmpty() && this.overflow.remove(tag))) {
+            this.size.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param upTo - the highest delivery tag of interest
+     * @return the lowest tracked tag less than or equal to <code>upTo</code>, or {@link #NO_TAG} if there is none
+     */
+    long lowest(long upTo) {
+        long lowest = NO_TAG;
+        if (!this.overflow.isEmpty()) {
+            Long t = this.overflow.ceiling(Long.MIN_VALUE);
+            if (t != null && t <= upTo) {
+                lowest = t;
+            }
+        }
+        long from = this.low.get();
+        long to = lowest == NO_TAG ? upTo : Math.min(upTo, lowest - 1);
+        if (to - from < this.capacity) {
+            /* the slots of the range hold its tags, if tracked */
+            for (long t = from; t <= to; t++) {
+                if (this.slots.get(this.slot(t)) == t) {
+                    return t;
+                }
+            }
+        } else {
+            for (int i = 0; i < this.capacity; i++) {
+                long held = this.slots.get(i);
+                if (held != NO_TAG && held <= to && (lowest == NO_TAG || held < lowest)) {
+                    lowest = held;
+                }
+            }
+        }
+        return lowest;
+    }
+
+    /**
+     * Remove all the tracked tags less than or equal to a given tag.
+     * @param tag - the delivery tag
+     * @return the highest tag removed, or {@link #NO_TAG} if none was removed
+     */
+    long removeUpTo(long tag) {
+        long from = this.low.get();
+        while (from <= tag && !this.low.compareAndSet(from, tag + 1)) {
+            from = this.low.get();
+        }
+        long highest = NO_TAG;
+        if (from <= tag) {
+            long sweep = Math.min(tag - from + 1, this.capacity);
+            for (long t = tag - sweep + 1; t <= tag; t++) {
+                int i = this.slot(t);
+                long held = this.slots.get(i);
+                if (held != NO_TAG && held <= tag && this.slots.compareAndSet(i, held, NO_TAG)) {
+                    this.size.decrementAndGet();
+                    highest = Math.max(highest, held);
+                }
+            }
+        }
+        if (!this.overflow.isEmpty()) {
+            for (Long t : this.overflow.headSet(tag, true)) {
+                if (this.overflow.remove(t)) {
+                    this.size.decrementAndGet();
+                    highest = Math.max(highest, t);
+                }
+            }
+        }
+        return highest;
+    }
+
+    /**
+     * Remove all the tracked tags.
+     * @return the highest tag removed, or {@link #NO_TAG} if none was removed
+     */
+    long clear() {
+        long[] highest = { NO_TAG };
+        this.clear(tag -> highest[0] = Math.max(highest[0], tag));
+        return highest[0];
+    }
+
+    /**
+     * Remove all the tracked tags.
+     * @param action - applied to each tag removed, not necessarily in order
+     */
+    void clear(LongConsumer action) {
+        for (int i = 0; i < this.capacity; i++) {
+            long held = this.slots.get(i);
+            if (held != NO_TAG && this.slots.compareAndSet(i, held, NO_TAG)) {
+                this.size.decrementAndGet();
+                long l;
+                while ((l = this.low.get()) <= held && !this.low.compareAndSet(l, held + 1)) {
+                    // retry
+                }
+                action.accept(held);
+            }
+        }
+        Long t;
+        while ((t = this.overflow.pollFirst()) != null) {
+            this.size.decrementAndGet();
+            action.accept(t);
+        }
+    }
+
+    /**
+     * @return <code>true</code> if no tag is tracked
+     */
+    boolean isEmpty() {
+        return this.size.get() <= 0;
+    }
+}
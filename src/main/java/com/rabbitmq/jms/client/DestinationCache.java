@@ -0,0 +1,120 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import com.rabbitmq.jms.admin.RMQDestination;
+
+/**
+ * The destinations read from received messages (<code>JMSDestination</code> and <code>JMSReplyTo</code>) on a
+ * connection, so that messages with the same destination share the same names.
+ * <p>
+ * Only the names are shared: {@link RMQDestination} is mutable, so each message gets its own instance.
+ * Temporary destinations are not cached, they do not outlive the connection that created them. The cache
+ * is bounded and evicts the least recently used destinations when it is full.
+ * </p>
+ *
+ * @see MessageWireFormat#V2
+ * @since 2.0.0
+ */
+class DestinationCache {
+
+    static final int DEFAULT_MAX_SIZE = 1024;
+
+    private final Map<Key, Key> destinations;
+
+    DestinationCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize - maximum number of destinations in the cache
+     */
+    DestinationCache(final int maxSize) {
+        this.destinations = new LinkedHashMap<Key, Key>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Key> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return a new destination, with the names of the equal destination in the cache if there is one
+     */
+    RMQDestination destination(String name, String exchange, String routingKey, String queueName,
+                               boolean amqp, boolean queue, boolean temporary) {
+        Key key = new Key(name, exchange, routingKey, queueName, amqp, queue);
+        if (!temporary) {
+            synchronized (this.destinations) {
+                Key cached = this.destinations.get(key);
+                if (cached == null) {
+                    this.destinations.put(key, key);
+                } else {
+                    key = cached;
+                }
+            }
+        }
+        return newDestination(key.name, key.exchange, key.routingKey, key.queueName, key.amqp, key.queue, temporary);
+    }
+
+    static RMQDestination newDestination(String name, String exchange, String routingKey, String queueName,
+                                         boolean amqp, boolean queue, boolean temporary) {
+        RMQDestination destination = new RMQDestination(name, queue, temporary);
+        if (amqp) {
+            destination.setAmqp(true);
+            destination.setQueue(queue);
+        }
+        destination.setAmqpExchangeName(exchange);
+        destination.setAmqpRoutingKey(routingKey);
+        destination.setAmqpQueueName(queueName);
+        return destination;
+    }
+
+    int size() {
+        synchronized (this.destinations) {
+            return this.destinations.size();
+        }
+    }
+
+    /**
+     * Immutable names of a destination.
+     */
+    private static final class Key {
+
+        private final String name;
+        private final String exchange;
+        private final String routingKey;
+        private final String queueName;
+        private final boolean amqp;
+        private final boolean queue;
+        private final int hashCode;
+
+        private Key(String name, String exchange, String routingKey, String queueName, boolean amqp, boolean queue) {
+            this.name = name;
+            this.exchange = exchange;
+            this.routingKey = routingKey;
+            this.queueName = queueName;
+            this.amqp = amqp;
+            this.queue = queue;
+            this.hashCode = Objects.hash(name, exchange, routingKey, queueName, amqp, queue);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key) obj;
+            return this.amqp == other.amqp && this.queue == other.queue
+                && Objects.equals(this.name, other.name) && Objects.equals(this.exchange, other.exchange)
+                && Objects.equals(this.routingKey, other.routingKey) && Objects.equals(this.queueName, other.queueName);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+    }
+}
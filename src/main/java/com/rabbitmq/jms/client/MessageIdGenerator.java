@@ -0,0 +1,24 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+/**
+ * Generates the <code>JMSMessageID</code> of messages when they are sent.
+ * <p>
+ * Generated IDs must start with <code>ID:</code> and be unique across all the messages the application (and the
+ * other applications it exchanges messages with) may see. The generator is shared by all the producers of a
+ * connection, it must be thread-safe.
+ * </p>
+ *
+ * @see com.rabbitmq.jms.admin.RMQConnectionFactory#setMessageIdGenerator(MessageIdGenerator)
+ * @see javax.jms.MessageProducer#setDisableMessageID(boolean)
+ * @since 2.0.0
+ */
+@FunctionalInterface
+public interface MessageIdGenerator {
+
+    /**
+     * @return a new message ID, starting with <code>ID:</code>
+     */
+    String generate();
+
+}
@@ -124,13 +124,26 @@ class MessageListenerConsumer implements Consumer, Abortable {
         GetResponse response = new GetResponse(envelope, properties, body, 0); // last parameter is remaining message count, which we don't know.
         try {
             long dtag = envelope.getDeliveryTag();
-            if (this.messageListener != null) {
+            RMQMessage msg = this.messageListener == null ? null :
+                RMQMessage.convertMessage(this.messageConsumer.getSession(), this.messageConsumer.getDestination(),
+                    response, this.receivingContextConsumer);
+            if (msg != null && !this.messageConsumer.select(msg)) {
+                return; // rejected by the selector, neither delivered nor acknowledged
+            }
+            ParallelMessageDispatcher parallelDispatcher = this.messageListener == null ? null :
+                this.messageConsumer.getSession().getParallelDispatcher();
+            if (parallelDispatcher != null) {
+                if (!this.autoAck) {
+                    // tracked before it reaches a lane, so that the listener can acknowledge it
+                    dealWithAcknowledgments(dtag);
+                }
+                // acknowledged by the dispatcher once processed, when the session acknowledges automatically
+                parallelDispatcher.dispatch(msg, this.autoAck && !this.skipAck, () -> this.deliverInParallel(msg, dtag));
+            } else if (this.messageListener != null) {
                 if (this.requeueOnMessageListenerException) {
                     // requeuing in case of RuntimeException from the listener
                     // see https://github.com/rabbitmq/rabbitmq-jms-client/issues/23
                     // see section 4.5.2 of JMS 1.1 specification
-                    RMQMessage msg = RMQMessage.convertMessage(this.messageConsumer.getSession(), this.messageConsumer.getDestination(),
-                        response, this.receivingContextConsumer);
                     this.messageConsumer.getSession().addUncommittedTag(dtag);
                     boolean runtimeExceptionInListener = false;
                     try {
@@ -150,8 +163,6 @@ class MessageListenerConsumer implements Consumer, Abortable {
                 } else {
                     // this is the "historical" behavior, not compliant with the spec
                     dealWithAcknowledgments(dtag);
-                    RMQMessage msg = RMQMessage.convertMessage(this.messageConsumer.getSession(), this.messageConsumer.getDestination(),
-                        response, this.receivingContextConsumer);
                     this.messageConsumer.getSession().addUncommittedTag(dtag);
                     this.messageConsumer.getSession().deliverMessage(msg, this.messageListener);
                 }
@@ -169,6 +180,30 @@ class MessageListenerConsumer implements Consumer, Abortable {
         }
     }
 
+    /**
+     * Calls the listener on a lane of the parallel dispatcher.
+     * @return <code>false</code> if the message has been requeued
+     */
+    private boolean deliverInParallel(RMQMessage msg, long dtag) {
+        try {
+            this.messageListener.onMessage(msg);
+            return true;
+        } catch (RuntimeException e) {
+            if (this.requeueOnMessageListenerException) {
+                if (this.autoAck) {
+                    nack(dtag);
+                } else if (!this.skipAck) {
+                    // no longer tracked, unless the listener acknowledged it already
+                    this.messageConsumer.getSession().rejectMessage(msg);
+                }
+                this.abort();
+                return false;
+            }
+            logger.error("onMessage threw exception for message {}", msg, e);
+            return true;
+        }
+    }
+
     private void nack(long dtag) {
         if (!skipAck) {
             this.messageConsumer.getSession().explicitNack(dtag);
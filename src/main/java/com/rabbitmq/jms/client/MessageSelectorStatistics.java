@@ -0,0 +1,60 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+/**
+ * Snapshot of the activity of the selector of a queue consumer, which is evaluated on the client.
+ *
+ * @see RMQMessageConsumer#getSelectorStatistics()
+ * @since 2.0.0
+ */
+public final class MessageSelectorStatistics {
+
+    private final long selected;
+    private final long rejected;
+    private final long redeliveredRejected;
+
+    MessageSelectorStatistics(long selected, long rejected, long redeliveredRejected) {
+        this.selected = selected;
+        this.rejected = rejected;
+        this.redeliveredRejected = redeliveredRejected;
+    }
+
+    /**
+     * @return the number of messages that matched the selector and were delivered to the application
+     */
+    public long getSelected() {
+        return this.selected;
+    }
+
+    /**
+     * @return the number of messages that did not match the selector and were rejected
+     */
+    public long getRejected() {
+        return this.rejected;
+    }
+
+    /**
+     * @return the number of rejected messages that had been delivered before, a high number means messages
+     *         nobody selects go round between the queue and its consumers
+     */
+    public long getRedeliveredRejected() {
+        return this.redeliveredRejected;
+    }
+
+    /**
+     * @return the share of messages received that were rejected, between 0 and 1, 0 if none was received
+     */
+    public double getRejectionRate() {
+        long received = this.selected + this.rejected;
+        return received == 0 ? 0 : (double) this.rejected / received;
+    }
+
+    @Override
+    public String toString() {
+        return "MessageSelectorStatistics{" +
+            "selected=" + this.selected +
+            ", rejected=" + this.rejected +
+            ", redeliveredRejected=" + this.redeliveredRejected +
+            '}';
+    }
+}
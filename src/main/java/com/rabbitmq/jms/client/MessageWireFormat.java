@@ -0,0 +1,32 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+/**
+ * How JMS messages (as opposed to AMQP messages, see {@link com.rabbitmq.jms.admin.RMQDestination#isAmqp()})
+ * are encoded in the body of the AMQP messages a producer publishes.
+ * <p>
+ * Consumers read messages in any of the formats, whatever the format they publish with. Clients older than 2.0.0
+ * only read {@link #V1}.
+ * </p>
+ *
+ * @see com.rabbitmq.jms.admin.RMQConnectionFactory#setMessageWireFormat(MessageWireFormat)
+ * @since 2.0.0
+ */
+public enum MessageWireFormat {
+
+    /**
+     * Java serialization of the message class name, properties and body. This is the format of clients
+     * older than 2.0.0.
+     */
+    V1,
+
+    /**
+     * Compact binary format: a version header, a numeric code for the message type, type-tagged properties
+     * (with numeric codes for the JMS header properties) and the body. <code>JMSDestination</code> and
+     * <code>JMSReplyTo</code> are written as their names and flags, and received messages with the same destination
+     * share the same {@link com.rabbitmq.jms.admin.RMQDestination} instance. It does not use Java serialization,
+     * except for property values that are neither primitive types, strings nor destinations.
+     */
+    V2
+
+}
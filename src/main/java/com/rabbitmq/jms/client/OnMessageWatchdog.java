@@ -0,0 +1,140 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watchdog shared by all the sessions of a connection, to interrupt <code>onMessage()</code> calls that take too long
+ * when they are made directly on the thread that delivers messages.
+ * <p>
+ * Each session registers a single {@link Watch}, which is armed before and disarmed after each <code>onMessage()</code>
+ * call, so watching a call costs a couple of atomic operations and no allocation. A daemon thread, started when
+ * the first watch is registered, checks the watches at regular ticks (a fraction of the timeout) and interrupts
+ * the threads of those armed for longer than the timeout.
+ * </p>
+ */
+class OnMessageWatchdog {
+
+    private final Logger logger = LoggerFactory.getLogger(OnMessageWatchdog.class);
+
+    private static final long MIN_TICK_MS = 10;
+    private static final int TICKS_PER_TIMEOUT = 10;
+
+    private final long timeoutNanos;
+    private final long tickMs;
+    private final CopyOnWriteArrayList<Watch> watches = new CopyOnWriteArrayList<Watch>();
+
+    private final Object threadLock = new Object();
+    private Thread thread = null; // @GuardedBy(threadLock)
+    private boolean closed = false; // @GuardedBy(threadLock)
+
+    /**
+     * @param onMessageTimeoutMs - how long <code>onMessage()</code> can take before it is interrupted, in milliseconds
+     */
+    OnMessageWatchdog(long onMessageTimeoutMs) {
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(onMessageTimeoutMs);
+        this.tickMs = Math.max(MIN_TICK_MS, onMessageTimeoutMs / TICKS_PER_TIMEOUT);
+    }
+
+    /**
+     * @return a new watch, checked by this watchdog until it is {@link Watch#unregister()}ed
+     */
+    Watch register() {
+        Watch watch = new Watch();
+        this.watches.add(watch);
+        this.startIfNecessary();
+        return watch;
+    }
+
+    private void startIfNecessary() {
+        synchronized (this.threadLock) {
+            if (this.thread == null && !this.closed) {
+                this.thread = new Thread(this::run, "rabbitmq-jms-onmessage-watchdog");
+                this.thread.setDaemon(true);
+                this.thread.start();
+            }
+        }
+    }
+
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Thread.sleep(this.tickMs);
+                long now = System.nanoTime();
+                for (Watch watch : this.watches) {
+                    watch.check(now);
+                }
+            }
+        } catch (InterruptedException e) {
+            // closed
+        }
+    }
+
+    void close() {
+        synchronized (this.threadLock) {
+            this.closed = true;
+            if (this.thread != null) {
+                this.thread.interrupt();
+                this.thread = null;
+            }
+        }
+        this.watches.clear();
+    }
+
+    /**
+     * Watches the <code>onMessage()</code> calls of a session, one at a time.
+     */
+    final class Watch {
+        private static final int IDLE = 0, ARMED = 1, FIRING = 2, FIRED = 3;
+
+        private final AtomicInteger state = new AtomicInteger(IDLE);
+        private volatile Thread watchedThread;
+        private volatile long deadline;
+
+        /**
+         * Start watching the current thread.
+         */
+        void arm() {
+            this.watchedThread = Thread.currentThread();
+            this.deadline = System.nanoTime() + OnMessageWatchdog.this.timeoutNanos;
+            this.state.set(ARMED);
+        }
+
+        /**
+         * Stop watching the current thread, clearing the interrupt we may have caused.
+         * @return <code>true</code> if the watched thread was interrupted because it took too long
+         */
+        boolean disarm() {
+            if (this.state.compareAndSet(ARMED, IDLE)) {
+                this.watchedThread = null;
+                return false;
+            }
+            while (this.state.get() == FIRING) {
+                Thread.yield(); // the watchdog is about to interrupt us
+            }
+            Thread.interrupted(); // clear the interrupt, this thread goes on delivering messages
+            this.watchedThread = null;
+            this.state.set(IDLE);
+            return true;
+        }
+
+        private void check(long now) {
+            if (this.state.get() == ARMED && now - this.deadline > 0 && this.state.compareAndSet(ARMED, FIRING)) {
+                Thread t = this.watchedThread;
+                logger.warn("onMessage took more than {} ms, interrupting thread '{}'",
+                            TimeUnit.NANOSECONDS.toMillis(OnMessageWatchdog.this.timeoutNanos), t == null ? null : t.getName());
+                if (t != null) t.interrupt();
+                this.state.set(FIRED);
+            }
+        }
+
+        void unregister() {
+            OnMessageWatchdog.this.watches.remove(this);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import com.rabbitmq.client.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jms.Message;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Delivers the messages of a session to its listeners on several threads, keeping the order of
+ * messages with the same key.
+ * <p>
+ * Each thread, or lane, calls <code>onMessage</code> for the messages it is given in the order they
+ * were delivered. Messages are given to lanes according to the hash code of their key, so messages with
+ * the same key are processed one after the other, in order. Messages without key are spread across lanes.
+ * </p>
+ * <p>
+ * Messages processed out of delivery order are acknowledged only once all the messages delivered before
+ * them are processed, with a single multiple <code>basic.ack</code> for the processed range, so a message
+ * is never acknowledged before it has been processed.
+ * </p>
+ *
+ * @since 2.0.0
+ */
+class ParallelMessageDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelMessageDispatcher.class);
+
+    /** Messages waiting for a lane, per lane, before deliveries block */
+    static final int MAX_QUEUED_PER_LANE = 256;
+
+    /** Default key: the group of the message, as per section 3.5.9 of the JMS 1.1 specification */
+    static final Function<Message, Object> GROUP_ID_KEY_EXTRACTOR = message -> {
+        try {
+            return message.getStringProperty(RMQConnectionMetaData.JMSX_GROUP_ID_LABEL);
+        } catch (Exception e) {
+            return null;
+        }
+    };
+
+    private final Channel channel;
+
+    private final ExecutorService[] lanes;
+
+    private final Function<Message, Object> keyExtractor;
+
+    /** Whether a multiple ack can cover the messages delivered before, false if some can be prefetched for receive */
+    private final boolean multipleAcks;
+
+    private final Semaphore queued;
+
+    private final AtomicInteger nextLane = new AtomicInteger(0);
+
+    /** Deliveries not yet acknowledged, in delivery order */
+    private final Deque<Dispatch> dispatches = new ArrayDeque<>(); // @GuardedBy(dispatches)
+
+    private volatile boolean closed = false;
+
+    /**
+     * @param channel - the channel the messages are received on
+     * @param concurrency - number of lanes
+     * @param keyExtractor - extracts the key of messages, <code>null</code> to use the <code>JMSXGroupID</code> property
+     * @param multipleAcks - whether the messages delivered before a message can be acknowledged along with it
+     */
+    ParallelMessageDispatcher(Channel channel, int concurrency, Function<Message, Object> keyExtractor, boolean multipleAcks) {
+        if (concurrency <= 1) {
+            throw new IllegalArgumentException("Parallel dispatch requires more than 1 lane");
+        }
+        this.channel = channel;
+        this.keyExtractor = keyExtractor == null ? GROUP_ID_KEY_EXTRACTOR : keyExtractor;
+        this.multipleAcks = multipleAcks;
+        this.queued = new Semaphore(concurrency * MAX_QUEUED_PER_LANE);
+        this.lanes = new ExecutorService[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            String name = "rabbitmq-jms-listener-lane-" + i;
+            this.lanes[i] = Executors.newSingleThreadExecutor(r -> new Thread(r, name));
+        }
+    }
+
+    /**
+     * Gives a message to the lane of its key. Blocks if too many messages are waiting for a lane.
+     *
+     * @param message - the message
+     * @param acknowledge - whether to acknowledge the message once processed
+     * @param delivery - calls the listener, on the lane
+     * @throws InterruptedException if interrupted while waiting for the lanes to catch up
+     */
+    void dispatch(RMQMessage message, boolean acknowledge, Delivery delivery) throws InterruptedException {
+        this.queued.acquire();
+        Dispatch dispatch = new Dispatch(message.getRabbitDeliveryTag(), acknowledge);
+        synchronized (this.dispatches) {
+            this.dispatches.addLast(dispatch);
+        }
+        try {
+            this.laneOf(message).execute(() -> {
+                boolean ack = true;
+                try {
+                    ack = delivery.deliver();
+                } catch (RuntimeException e) {
+                    logger.error("Error while delivering message {}", message, e);
+                } finally {
+                    this.completed(dispatch, ack);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // closed, requeue the message, so that acknowledgements of later messages do not cover it
+            this.nack(dispatch.deliveryTag);
+            this.completed(dispatch, false);
+        }
+    }
+
+    private ExecutorService laneOf(Message message) {
+        Object key;
+        try {
+            key = this.keyExtractor.apply(message);
+        } catch (RuntimeException e) {
+            logger.debug("Cannot extract key of message {}", message, e);
+            key = null;
+        }
+        int lane = key == null ? this.nextLane.getAndIncrement() : key.hashCode();
+        return this.lanes[Math.floorMod(lane, this.lanes.length)];
+    }
+
+    /**
+     * Acknowledges the range of processed messages at the head of the deliveries, if any.
+     * Acknowledgements are sent while holding the lock, so that they are sent in order.
+     */
+    private void completed(Dispatch dispatch, boolean ack) {
+        synchronized (this.dispatches) {
+            dispatch.completed = true;
+            dispatch.ack = dispatch.ack && ack;
+            long lastAck = 0;
+            Dispatch head;
+            while ((head = this.dispatches.peekFirst()) != null && head.completed) {
+                this.dispatches.pollFirst();
+                if (head.ack) {
+                    if (this.multipleAcks) {
+                        lastAck = head.deliveryTag;
+                    } else {
+                        this.ack(head.deliveryTag, false);
+                    }
+                }
+            }
+            if (lastAck != 0) {
+                this.ack(lastAck, true);
+            }
+            if (this.dispatches.isEmpty()) {
+                this.dispatches.notifyAll();
+            }
+        }
+        this.queued.release();
+    }
+
+    private void nack(long deliveryTag) {
+        try {
+            this.channel.basicNack(deliveryTag, false, true);
+        } catch (Exception x) { // includes unchecked exceptions, e.g. ShutdownSignalException
+            logger.warn("Cannot reject/requeue message received (dTag={})", deliveryTag, x);
+        }
+    }
+
+    private void ack(long deliveryTag, boolean multiple) {
+        try {
+            this.channel.basicAck(deliveryTag, multiple);
+        } catch (Exception x) { // includes unchecked exceptions, e.g. ShutdownSignalException
+            logger.error("Cannot acknowledge message(s) received (dTag={}, multiple={})", deliveryTag, multiple, x);
+        }
+    }
+
+    /**
+     * Waits for the messages given to lanes to be processed.
+     * @param timeoutMs - maximum time to wait
+     * @return <code>true</code> if all the messages are processed
+     */
+    boolean awaitIdle(long timeoutMs) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        synchronized (this.dispatches) {
+            long remaining;
+            while (!this.dispatches.isEmpty() && (remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this.dispatches, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return this.dispatches.isEmpty();
+        }
+    }
+
+    /**
+     * Waits for the messages given to lanes to be processed, then stops the lanes.
+     * Lanes still busy after the timeout are interrupted.
+     * @param timeoutMs - maximum time to wait
+     */
+    void close(long timeoutMs) {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        boolean idle = this.awaitIdle(timeoutMs);
+        for (ExecutorService lane : this.lanes) {
+            if (idle) {
+                lane.shutdown();
+            } else {
+                lane.shutdownNow();
+            }
+        }
+    }
+
+    int getConcurrency() {
+        return this.lanes.length;
+    }
+
+    /**
+     * Calls the listener with a message.
+     */
+    @FunctionalInterface
+    interface Delivery {
+
+        /**
+         * @return <code>true</code> if the message can be acknowledged, <code>false</code> if it has been rejected,
+         *         as later acknowledgements can cover it
+         */
+        boolean deliver();
+
+    }
+
+    private static final class Dispatch {
+
+        private final long deliveryTag;
+        private boolean ack; // @GuardedBy(dispatches)
+        private boolean completed = false; // @GuardedBy(dispatches)
+
+        private Dispatch(long deliveryTag, boolean ack) {
+            this.deliveryTag = deliveryTag;
+            this.ack = ack;
+        }
+    }
+}
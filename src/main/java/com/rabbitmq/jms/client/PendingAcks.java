@@ -0,0 +1,119 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import com.rabbitmq.client.Channel;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Acknowledgements and rejections of the messages received on a channel, sent in the order they are added.
+ * <p>
+ * A multiple acknowledgement must reach the broker after the acknowledgements of the tags it does not cover,
+ * and before any acknowledgement of a higher tag, so the order in which a session decides them must be kept.
+ * Threads add them in that order, under a short critical section without I/O, then call {@link #send()}:
+ * one thread at a time writes on the channel, and the others leave their acknowledgements to it instead of
+ * waiting for the channel.
+ * </p>
+ *
+ * @since 2.0.0
+ */
+class PendingAcks {
+
+    private static final int ACK = 0;
+    private static final int ACK_MULTIPLE = 1;
+    private static final int NACK_REQUEUE = 2;
+    private static final int NACK = 3;
+
+    private static final long NONE = -1L;
+
+    private final Channel channel;
+
+    private final Object lock = new Object();
+    /** Ring of tag and kind pairs, encoded as <code>tag &lt;&lt; 2 | kind</code> */
+    private long[] queue = new long[16]; // @GuardedBy(lock)
+    private int head = 0; // @GuardedBy(lock)
+    private int count = 0; // @GuardedBy(lock)
+
+    private final AtomicBoolean sending = new AtomicBoolean(false);
+
+    /**
+     * @param channel - the channel the messages are received on
+     */
+    PendingAcks(Channel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * @param deliveryTag - the delivery tag of the message to acknowledge
+     * @param multiple - <code>true</code> to acknowledge all the messages up to the given one
+     */
+    void ack(long deliveryTag, boolean multiple) {
+        this.add(deliveryTag << 2 | (multiple ? ACK_MULTIPLE : ACK));
+    }
+
+    /**
+     * @param deliveryTag - the delivery tag of the message to reject
+     * @param requeue - <code>true</code> to requeue the message
+     */
+    void nack(long deliveryTag, boolean requeue) {
+        this.add(deliveryTag << 2 | (requeue ? NACK_REQUEUE : NACK));
+    }
+
+    /**
+     * Sends the acknowledgements added so far, unless another thread is sending them already.
+     * @throws IOException if an acknowledgement cannot be sent, the following ones stay pending
+     */
+    void send() throws IOException {
+        // acknowledgements added while the sending thread leaves are sent by another round
+        while (!this.isEmpty() && this.sending.compareAndSet(false, true)) {
+            try {
+                long record;
+                while ((record = this.poll()) != NONE) {
+                    long deliveryTag = record >>> 2;
+                    switch ((int) (record & 3)) {
+                        case ACK:          this.channel.basicAck(deliveryTag, false); break;
+                        case ACK_MULTIPLE: this.channel.basicAck(deliveryTag, true); break;
+                        case NACK_REQUEUE: this.channel.basicNack(deliveryTag, false, true); break;
+                        default:           this.channel.basicNack(deliveryTag, false, false); break;
+                    }
+                }
+            } finally {
+                this.sending.set(false);
+            }
+        }
+    }
+
+    private void add(long record) {
+        synchronized (this.lock) {
+            if (this.count == this.queue.length) {
+                long[] queue = new long[this.queue.length * 2];
+                for (int i = 0; i < this.count; i++) {
+                    queue[i] = this.queue[(this.head + i) % this.queue.length];
+                }
+                this.queue = queue;
+                this.head = 0;
+            }
+            this.queue[(this.head + this.count) % this.queue.length] = record;
+            this.count++;
+        }
+    }
+
+    private long poll() {
+        synchronized (this.lock) {
+            if (this.count == 0) {
+                return NONE;
+            }
+            long record = this.queue[this.head];
+            this.head = (this.head + 1) % this.queue.length;
+            this.count--;
+            return record;
+        }
+    }
+
+    private boolean isEmpty() {
+        synchronized (this.lock) {
+            return this.count == 0;
+        }
+    }
+}
@@ -12,28 +12,90 @@ import javax.jms.Message;
 public class PublisherConfirmContext {
 
     private final Message message;
+    private final String messageId;
+    private final Object token;
     private final boolean ack;
+    private final boolean confirmed;
 
     PublisherConfirmContext(Message message, boolean ack) {
+        this(message, message == null ? null : PublisherConfirmsUtils.messageId(message), null, ack);
+    }
+
+    PublisherConfirmContext(Message message, String messageId, Object token, boolean ack) {
+        this(message, messageId, token, ack, true);
+    }
+
+    private PublisherConfirmContext(Message message, String messageId, Object token, boolean ack, boolean confirmed) {
         this.message = message;
+        this.messageId = messageId;
+        this.token = token;
         this.ack = ack;
+        this.confirmed = confirmed;
+    }
+
+    /**
+     * @return the outcome of a message the broker has neither confirmed nor nack-ed
+     */
+    static PublisherConfirmContext unconfirmed(Message message) {
+        return new PublisherConfirmContext(message, PublisherConfirmsUtils.messageId(message), null, false, false);
     }
 
     /**
      * The message being confirmed.
+     * <p>
+     * This is <code>null</code> when a confirm token extractor is set, as only
+     * the message ID and the token are then kept until the message is confirmed.
      *
      * @return the confirmed message
+     * @see com.rabbitmq.jms.admin.RMQConnectionFactory#setConfirmTokenExtractor(java.util.function.Function)
      */
     public Message getMessage() {
         return message;
     }
 
+    /**
+     * The JMS message ID of the message being confirmed.
+     *
+     * @return the ID of the confirmed message
+     * @since 2.0.0
+     */
+    public String getMessageId() {
+        return messageId;
+    }
+
+    /**
+     * The correlation token extracted from the message being confirmed.
+     *
+     * @return the token, <code>null</code> if no confirm token extractor is set
+     * @see com.rabbitmq.jms.admin.RMQConnectionFactory#setConfirmTokenExtractor(java.util.function.Function)
+     * @since 2.0.0
+     */
+    public Object getToken() {
+        return token;
+    }
+
     /**
      * Whether the message is confirmed or nack-ed (considered lost).
      *
-     * @return true if confirmed, false if nack-ed
+     * @return true if confirmed, false if nack-ed or not {@link #isConfirmed() confirmed at all}
      */
     public boolean isAck() {
         return ack;
     }
+
+    /**
+     * Whether the broker has confirmed or nack-ed the message.
+     * <p>
+     * This is <code>false</code> when the outcome of the message is unknown: it has not been confirmed in time,
+     * the channel has been closed before, or the message has not been sent. Such a message is not acknowledged,
+     * it may or may not have reached the broker.
+     * </p>
+     *
+     * @return true if the broker has confirmed or nack-ed the message, false if its outcome is unknown
+     * @see RMQMessageProducer#send(javax.jms.Destination, java.util.List)
+     * @since 2.0.0
+     */
+    public boolean isConfirmed() {
+        return confirmed;
+    }
 }
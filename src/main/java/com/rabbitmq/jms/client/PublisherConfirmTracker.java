@@ -0,0 +1,150 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Correlates the publishing sequence numbers of a channel to the values (messages, or handles on them) that must be
+ * given back when the broker confirms them.
+ * <p>
+ * Sequence numbers are increasing, so values are kept in a ring indexed by sequence number modulo the capacity of the
+ * ring, without boxing. A confirm for a single sequence number clears its slot; a confirm for all the sequence numbers up
+ * to a given one clears the slots from a low watermark (the lowest sequence number that may still be outstanding),
+ * which costs the number of slots it clears. Values whose slot is still held (when more than the capacity are
+ * outstanding) are kept in an overflow map.
+ * </p>
+ * <p>
+ * Values are put by the publishing thread and removed by the thread that handles confirms; all methods are thread-safe.
+ * </p>
+ *
+ * @param <T> the type of the values
+ * @since 2.0.0
+ */
+class PublisherConfirmTracker<T> {
+
+    private final int mask;
+    private final AtomicLongArray sequenceNumbers;
+    private final AtomicReferenceArray<T> values;
+    private final ConcurrentNavigableMap<Long, T> overflow = new ConcurrentSkipListMap<Long, T>();
+    /** No sequence number below this is outstanding */
+    private final AtomicLong low = new AtomicLong(1);
+    /** Highest sequence number put */
+    private final AtomicLong high = new AtomicLong(0);
+    private final AtomicInteger size = new AtomicInteger(0);
+
+    /**
+     * @param capacity - number of outstanding values kept without overflow; rounded up to a power of 2
+     */
+    PublisherConfirmTracker(int capacity) {
+        int c = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = c - 1;
+        this.sequenceNumbers = new AtomicLongArray(c);
+        this.values = new AtomicReferenceArray<T>(c);
+    }
+
+    private int slot(long sequenceNumber) {
+        return (int) (sequenceNumber & this.mask);
+    }
+
+    /**
+     * @param sequenceNumber - publishing sequence number, higher than those put before
+     * @param value - value given back when the sequence number is confirmed
+     */
+    void put(long sequenceNumber, T value) {
+        this.size.incrementAndGet();
+        int i = this.slot(sequenceNumber);
+        if (this.values.compareAndSet(i, null, value)) {
+            this.sequenceNumbers.set(i, sequenceNumber);
+        } else {
+            this.overflow.put(sequenceNumber, value);
+        }
+        long h;
+        while ((h = this.high.get()) < sequenceNumber && !this.high.compareAndSet(h, sequenceNumber)) {
+            // retry
+        }
+    }
+
+    /**
+     * @param sequenceNumber - a confirmed sequence number
+     * @return the value put for this sequence number, or <code>null</code> if there is none
+     */
+    T remove(long sequenceNumber) {
+        T value = this.take(sequenceNumber);
+        this.advanceLow();
+        return value;
+    }
+
+    /**
+     * Remove the values put for all the sequence numbers up to, and including, a given one.
+     * @param sequenceNumber - the highest confirmed sequence number
+     * @param action - applied to each value removed, in order of sequence number
+     */
+    void removeUpTo(long sequenceNumber, Consumer<T> action) {
+        long from = this.low.get();
+        while (from <= sequenceNumber && !this.low.compareAndSet(from, sequenceNumber + 1)) {
+            from = this.low.get();
+        }
+        for (long s = from; s <= sequenceNumber; s++) {
+            T value = this.take(s);
+            if (value != null) action.accept(value);
+        }
+        if (!this.overflow.isEmpty()) {
+            for (Map.Entry<Long, T> entry : this.overflow.headMap(sequenceNumber, true).entrySet()) {
+                if (this.overflow.remove(entry.getKey(), entry.getValue())) {
+                    this.size.decrementAndGet();
+                    action.accept(entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove all the values.
+     * @param action - applied to each value removed
+     */
+    void clear(Consumer<T> action) {
+        this.removeUpTo(this.high.get(), action);
+    }
+
+    /**
+     * @return the number of outstanding values
+     */
+    int size() {
+        return Math.max(0, this.size.get());
+    }
+
+    private T take(long sequenceNumber) {
+        int i = this.slot(sequenceNumber);
+        if (this.sequenceNumbers.compareAndSet(i, sequenceNumber, 0L)) {
+            T value = this.values.getAndSet(i, null);
+            this.size.decrementAndGet();
+            return value;
+        }
+        if (!this.overflow.isEmpty()) {
+            T value = this.overflow.remove(sequenceNumber);
+            if (value != null) this.size.decrementAndGet();
+            return value;
+        }
+        return null;
+    }
+
+    /**
+     * Move the low watermark past the sequence numbers confirmed individually, so that multiple confirms only
+     * go through outstanding ones.
+     */
+    private void advanceLow() {
+        long l;
+        while ((l = this.low.get()) <= this.high.get()
+               && this.sequenceNumbers.get(this.slot(l)) != l
+               && !this.overflow.containsKey(l)) {
+            if (!this.low.compareAndSet(l, l + 1)) return; // someone else is moving it
+        }
+    }
+}
@@ -2,12 +2,13 @@
 package com.rabbitmq.jms.client;
 
 import com.rabbitmq.client.Channel;
+import com.rabbitmq.jms.util.RMQJMSException;
 
+import javax.jms.JMSException;
 import javax.jms.Message;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Utility class to handle publisher confirms.
@@ -16,6 +17,9 @@ import java.util.function.Consumer;
  */
 class PublisherConfirmsUtils {
 
+    /** Number of outstanding confirms correlated without overflow, per channel */
+    static final int OUTSTANDING_CONFIRMS_CAPACITY = 4096;
+
     /**
      * Enables publisher confirms support.
      * <p>
@@ -30,28 +34,82 @@ class PublisherConfirmsUtils {
      * @return
      */
     static PublishingListener configurePublisherConfirmsSupport(Channel channel, ConfirmListener confirmListener) {
-        final Map<Long, Message> outstandingConfirms = new ConcurrentHashMap<>();
-        final AtomicLong multipleLowerBound = new AtomicLong(1);
-        PublishingListener publishingListener = (message, sequenceNumber) -> {
-            outstandingConfirms.put(sequenceNumber, message);
+        return configurePublisherConfirmsSupport(channel, confirmListener, null);
+    }
+
+    /**
+     * Enables publisher confirms support.
+     * <p>
+     * If a token extractor is provided, only the message ID and the token of published messages are kept
+     * until they are confirmed, not the messages themselves.
+     *
+     * @param channel
+     * @param confirmListener can be <code>null</code> if only asynchronous sends wait for confirms
+     * @param tokenExtractor extracts the correlation token of a message, can be <code>null</code>
+     * @return
+     * @since 2.0.0
+     */
+    static PublishingListener configurePublisherConfirmsSupport(Channel channel, ConfirmListener confirmListener,
+                                                                Function<Message, Object> tokenExtractor) {
+        return configurePublisherConfirmsSupport(channel, confirmListener, tokenExtractor, null);
+    }
+
+    /**
+     * Enables publisher confirms support, with a bounded publishing window.
+     * <p>
+     * The returned {@link PublishingListener} acquires a slot of the window for each published message,
+     * the slot is released when the message is confirmed or nack-ed, or when the channel is closed.
+     *
+     * @param channel
+     * @param confirmListener can be <code>null</code> if only asynchronous sends wait for confirms
+     * @param tokenExtractor extracts the correlation token of a message, can be <code>null</code>
+     * @param window the publishing window, can be <code>null</code>
+     * @return
+     * @since 2.0.0
+     */
+    static PublishingListener configurePublisherConfirmsSupport(Channel channel, ConfirmListener confirmListener,
+                                                                Function<Message, Object> tokenExtractor,
+                                                                PublishingWindow window) {
+        final PublisherConfirmTracker<Object> outstandingConfirms = new PublisherConfirmTracker<>(OUTSTANDING_CONFIRMS_CAPACITY);
+        final boolean tracksBytes = window != null && window.tracksBytes();
+        PublishingListener publishingListener = (message, sequenceNumber, size, completion) -> {
+            if (window != null) {
+                window.acquire(message, size);
+            }
+            Object correlation = tokenExtractor == null ? message :
+                new ConfirmHandle(messageId(message), tokenExtractor.apply(message));
+            if (completion != null || tracksBytes) {
+                correlation = new PendingConfirm(correlation, tracksBytes ? size : 0, completion);
+            }
+            outstandingConfirms.put(sequenceNumber, correlation);
         };
         channel.addConfirmListener(new com.rabbitmq.client.ConfirmListener() {
             @Override
             public void handleAck(long deliveryTag, boolean multiple) {
                 cleanPublisherConfirmsCorrelation(
-                        outstandingConfirms, multipleLowerBound,
-                        deliveryTag, multiple, message -> confirmListener.handle(new PublisherConfirmContext(message, true))
+                        outstandingConfirms, deliveryTag, multiple,
+                        correlation -> confirm(confirmListener, window, correlation, true)
                 );
             }
 
             @Override
             public void handleNack(long deliveryTag, boolean multiple) {
                 cleanPublisherConfirmsCorrelation(
-                        outstandingConfirms, multipleLowerBound,
-                        deliveryTag, multiple, message -> confirmListener.handle(new PublisherConfirmContext(message, false))
+                        outstandingConfirms, deliveryTag, multiple,
+                        correlation -> confirm(confirmListener, window, correlation, false)
                 );
             }
         });
+        channel.addShutdownListener(cause -> outstandingConfirms.clear(correlation -> {
+            PendingConfirm pending = correlation instanceof PendingConfirm ? (PendingConfirm) correlation : null;
+            if (window != null) {
+                window.release(pending == null ? 0 : pending.size);
+            }
+            if (pending != null && pending.completion != null) {
+                pending.completion.completeExceptionally(
+                    new RMQJMSException("Channel closed before the message was confirmed", cause));
+            }
+        }));
         return publishingListener;
     }
 
@@ -61,30 +119,89 @@ class PublisherConfirmsUtils {
      * Invoke a provided callback for each message confirmed/nack-ed.
      *
      * @param outstandingConfirms
-     * @param multipleLowerBound
      * @param deliveryTag
      * @param multiple
-     * @param messageConsumer
+     * @param correlationConsumer
      */
-    private static void cleanPublisherConfirmsCorrelation(Map<Long, Message> outstandingConfirms, AtomicLong multipleLowerBound,
-                                                          long deliveryTag, boolean multiple, Consumer<Message> messageConsumer) {
-        Long lowerBound = multipleLowerBound.get();
+    private static void cleanPublisherConfirmsCorrelation(PublisherConfirmTracker<Object> outstandingConfirms,
+                                                          long deliveryTag, boolean multiple, Consumer<Object> correlationConsumer) {
         if (multiple) {
-            for (long i = lowerBound; i <= deliveryTag; i++) {
-                Message message = outstandingConfirms.remove(i);
-                if (message != null) {
-                    messageConsumer.accept(message);
-                }
-            }
+            outstandingConfirms.removeUpTo(deliveryTag, correlationConsumer);
         } else {
-            Message message = outstandingConfirms.remove(deliveryTag);
-            if (message != null) {
-                messageConsumer.accept(message);
-            }
-            if (deliveryTag == lowerBound + 1) {
-                multipleLowerBound.compareAndSet(lowerBound, deliveryTag);
+            Object correlation = outstandingConfirms.remove(deliveryTag);
+            if (correlation != null) {
+                correlationConsumer.accept(correlation);
             }
         }
     }
 
+    private static void confirm(ConfirmListener confirmListener, PublishingWindow window, Object correlation, boolean ack) {
+        CompletableFuture<PublisherConfirmContext> completion = null;
+        int size = 0;
+        if (correlation instanceof PendingConfirm) {
+            PendingConfirm pending = (PendingConfirm) correlation;
+            completion = pending.completion;
+            size = pending.size;
+            correlation = pending.correlation;
+        }
+        if (window != null) {
+            window.release(size);
+        }
+        PublisherConfirmContext context = context(correlation, ack);
+        if (confirmListener != null) {
+            confirmListener.handle(context);
+        }
+        if (completion != null) {
+            completion.complete(context);
+        }
+    }
+
+    private static PublisherConfirmContext context(Object correlation, boolean ack) {
+        if (correlation instanceof ConfirmHandle) {
+            ConfirmHandle handle = (ConfirmHandle) correlation;
+            return new PublisherConfirmContext(null, handle.messageId, handle.token, ack);
+        } else {
+            return new PublisherConfirmContext((Message) correlation, ack);
+        }
+    }
+
+    static String messageId(Message message) {
+        try {
+            return message.getJMSMessageID();
+        } catch (JMSException e) {
+            return null;
+        }
+    }
+
+    /**
+     * What is kept of a published message until it is confirmed, when not the message itself.
+     */
+    private static final class ConfirmHandle {
+
+        private final String messageId;
+        private final Object token;
+
+        private ConfirmHandle(String messageId, Object token) {
+            this.messageId = messageId;
+            this.token = token;
+        }
+    }
+
+    /**
+     * A published message (or its handle) waited for by an asynchronous send,
+     * or whose size must be given back to the publishing window.
+     */
+    private static final class PendingConfirm {
+
+        private final Object correlation;
+        private final int size;
+        private final CompletableFuture<PublisherConfirmContext> completion;
+
+        private PendingConfirm(Object correlation, int size, CompletableFuture<PublisherConfirmContext> completion) {
+            this.correlation = correlation;
+            this.size = size;
+            this.completion = completion;
+        }
+    }
+
 }
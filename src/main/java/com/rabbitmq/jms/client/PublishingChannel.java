@@ -0,0 +1,106 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import com.rabbitmq.client.Channel;
+
+import javax.jms.JMSException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A channel messages are published on, with the state needed to publish on it.
+ * <p>
+ * A publishing channel is used by one thread at a time: either the thread of the session
+ * it belongs to, or the thread that borrowed it from a {@link PublishingChannelPool}.
+ * The properties templates and the headers map of the messages are kept here rather
+ * than in the producer, so that a producer can publish from several threads at once on
+ * pooled channels.
+ * </p>
+ *
+ * @since 2.0.0
+ */
+class PublishingChannel {
+
+    private final Supplier<Channel> channel;
+
+    /** Enables publisher confirms on the channel, can be <code>null</code> if they cannot be enabled */
+    private final ConfirmsEnabler confirmsEnabler;
+
+    private final BasicPropertiesTemplates propertiesTemplates = new BasicPropertiesTemplates();
+
+    private final Map<String, Object> headers = new HashMap<>();
+
+    private volatile PublishingListener publishingListener;
+
+    /** Set when a {@link PublishingChannelPool} closes the channel and no longer lends it */
+    private volatile boolean discarded = false;
+
+    private final Object confirmsLock = new Object();
+
+    /**
+     * @param channel - supplies the AMQP channel, which can be created after this object
+     * @param publishingListener - the listener if confirms are already enabled on the channel, <code>null</code> otherwise
+     * @param confirmsEnabler - enables confirms on the channel and returns the listener to use
+     */
+    PublishingChannel(Supplier<Channel> channel, PublishingListener publishingListener, ConfirmsEnabler confirmsEnabler) {
+        this.channel = channel;
+        this.publishingListener = publishingListener;
+        this.confirmsEnabler = confirmsEnabler;
+    }
+
+    Channel getChannel() {
+        return this.channel.get();
+    }
+
+    /**
+     * @return the listener to notify of published messages, <code>null</code> if publisher confirms are not enabled
+     */
+    PublishingListener getPublishingListener() {
+        return this.publishingListener;
+    }
+
+    /**
+     * Enables publisher confirms on the channel, if they are not already enabled.
+     * @return the listener to notify of published messages
+     */
+    PublishingListener enablePublisherConfirms() throws JMSException {
+        PublishingListener listener = this.publishingListener;
+        if (listener != null) {
+            return listener;
+        }
+        synchronized (this.confirmsLock) {
+            if (this.publishingListener == null) {
+                this.publishingListener = this.confirmsEnabler.enable(this.getChannel());
+            }
+            return this.publishingListener;
+        }
+    }
+
+    boolean isDiscarded() {
+        return this.discarded;
+    }
+
+    void discarded() {
+        this.discarded = true;
+    }
+
+    BasicPropertiesTemplates getPropertiesTemplates() {
+        return this.propertiesTemplates;
+    }
+
+    /**
+     * @return an empty map to fill with the headers of a message, valid until the next message is published
+     */
+    Map<String, Object> headers() {
+        this.headers.clear();
+        return this.headers;
+    }
+
+    @FunctionalInterface
+    interface ConfirmsEnabler {
+
+        PublishingListener enable(Channel channel) throws JMSException;
+
+    }
+}
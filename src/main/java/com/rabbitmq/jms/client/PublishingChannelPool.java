@@ -0,0 +1,246 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.jms.util.RMQJMSException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Pool of channels producers of non-transacted sessions publish on, shared by the sessions of a connection.
+ * <p>
+ * A producer borrows a channel for each message it sends and gives it back right after, so a single
+ * producer can publish from several threads at once, each thread on its own channel. Channels are
+ * created when they are first needed, up to the size of the pool; threads wait for a channel to be
+ * given back when they are all in use. Each channel has its own publisher confirm tracking and
+ * publishing window.
+ * </p>
+ * <p>
+ * The broker keeps the order of messages per channel only, so a session borrows again the channel a thread
+ * last published on, waiting for it if it is in use, see {@link #borrow(PublishingChannel)}.
+ * </p>
+ *
+ * @since 2.0.0
+ */
+class PublishingChannelPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(PublishingChannelPool.class);
+
+    private final int size;
+
+    private final ChannelFactory channelFactory;
+
+    private final ConfirmListener confirmListener;
+
+    private final Function<Message, Object> confirmTokenExtractor;
+
+    private final Supplier<PublishingWindow> publishingWindowFactory;
+
+    private final BlockingQueue<PublishingChannel> idleChannels;
+
+    /** Number of channels created and not discarded, idle or borrowed */
+    private final AtomicInteger channelCount = new AtomicInteger(0);
+
+    /** Notified when a channel is given back, for the threads waiting for a given channel */
+    private final Object releases = new Object();
+
+    /** Number of threads waiting for a given channel */
+    private final AtomicInteger waiting = new AtomicInteger(0);
+
+    private volatile boolean closed = false;
+
+    /**
+     * @param size - maximum number of channels
+     * @param channelFactory - creates the AMQP channels
+     * @param confirmListener - listener of publisher confirms, confirms are enabled on channels from the start if not <code>null</code>
+     * @param confirmTokenExtractor - extracts the token of messages for the confirm listener, can be <code>null</code>
+     * @param publishingWindowFactory - creates the publishing window of each channel
+     */
+    PublishingChannelPool(int size, ChannelFactory channelFactory, ConfirmListener confirmListener,
+                          Function<Message, Object> confirmTokenExtractor, Supplier<PublishingWindow> publishingWindowFactory) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Publishing channel pool size must be positive");
+        }
+        this.size = size;
+        this.channelFactory = channelFactory;
+        this.confirmListener = confirmListener;
+        this.confirmTokenExtractor = confirmTokenExtractor;
+        this.publishingWindowFactory = publishingWindowFactory;
+        this.idleChannels = new ArrayBlockingQueue<>(size);
+    }
+
+    /**
+     * Borrows a channel, creating it if there is no idle channel and the pool is not full,
+     * waiting for a channel to be given back otherwise.
+     * The channel must be given back with {@link #release(PublishingChannel)}.
+     *
+     * @return a channel only the calling thread publishes on until it is given back
+     * @throws JMSException if the pool is closed, if the channel cannot be created, or if the thread is interrupted
+     */
+    PublishingChannel borrow() throws JMSException {
+        while (true) {
+            if (this.closed) {
+                throw new IllegalStateException("Publishing channel pool is closed");
+            }
+            PublishingChannel channel = this.idleChannels.poll();
+            if (channel != null) {
+                return channel;
+            }
+            int count = this.channelCount.get();
+            if (count < this.size) {
+                if (this.channelCount.compareAndSet(count, count + 1)) {
+                    try {
+                        return this.create();
+                    } catch (JMSException | RuntimeException x) {
+                        this.channelCount.decrementAndGet();
+                        throw x;
+                    }
+                }
+            } else {
+                try {
+                    // wait for a channel to be given back; channels created in the meantime are picked up on the next loop
+                    channel = this.idleChannels.poll(100, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException x) {
+                    Thread.currentThread().interrupt(); // reset interrupt status
+                    throw new RMQJMSException("Interrupted while waiting for a publishing channel", x);
+                }
+                if (channel != null) {
+                    return channel;
+                }
+            }
+        }
+    }
+
+    /**
+     * Borrows a given channel, waiting for it to be given back if it is in use, so that messages published
+     * one after the other on it keep their order. Borrows any channel, see {@link #borrow()}, if the given
+     * one is <code>null</code> or has been discarded.
+     *
+     * @param preferred - the channel to borrow, can be <code>null</code>
+     * @return a channel only the calling thread publishes on until it is given back
+     * @throws JMSException if the pool is closed, if a channel cannot be created, or if the thread is interrupted
+     */
+    PublishingChannel borrow(PublishingChannel preferred) throws JMSException {
+        if (preferred != null) {
+            this.waiting.incrementAndGet();
+            try {
+                while (!preferred.isDiscarded()) {
+                    if (this.closed) {
+                        throw new IllegalStateException("Publishing channel pool is closed");
+                    }
+                    if (this.idleChannels.remove(preferred)) {
+                        return preferred;
+                    }
+                    synchronized (this.releases) {
+                        if (!preferred.isDiscarded() && !this.idleChannels.contains(preferred)) {
+                            this.releases.wait(100);
+                        }
+                    }
+                }
+            } catch (InterruptedException x) {
+                Thread.currentThread().interrupt(); // reset interrupt status
+                throw new RMQJMSException("Interrupted while waiting for a publishing channel", x);
+            } finally {
+                this.waiting.decrementAndGet();
+            }
+        }
+        return this.borrow();
+    }
+
+    /**
+     * Gives back a borrowed channel. Closed channels are discarded, so that new ones are created instead.
+     *
+     * @param channel the channel to give back
+     */
+    void release(PublishingChannel channel) {
+        if (this.closed || !channel.getChannel().isOpen() || !this.idleChannels.offer(channel)) {
+            this.discard(channel);
+        }
+        if (this.waiting.get() > 0) {
+            synchronized (this.releases) {
+                this.releases.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Closes the idle channels and discards the borrowed ones when they are given back.
+     */
+    void close() {
+        this.closed = true;
+        PublishingChannel channel;
+        while ((channel = this.idleChannels.poll()) != null) {
+            this.discard(channel);
+        }
+    }
+
+    /**
+     * @return the maximum number of channels of this pool
+     */
+    int getSize() {
+        return this.size;
+    }
+
+    /**
+     * @return the number of channels currently open, borrowed or not
+     */
+    int getChannelCount() {
+        return this.channelCount.get();
+    }
+
+    private PublishingChannel create() throws JMSException {
+        try {
+            Channel channel = this.channelFactory.create();
+            PublishingWindow window = this.publishingWindowFactory.get();
+            PublishingListener listener = null;
+            if (this.confirmListener != null) {
+                channel.confirmSelect();
+                listener = PublisherConfirmsUtils.configurePublisherConfirmsSupport(
+                    channel, this.confirmListener, this.confirmTokenExtractor, window
+                );
+            }
+            return new PublishingChannel(() -> channel, listener, ch -> {
+                try {
+                    ch.confirmSelect();
+                } catch (Exception x) { // includes unchecked exceptions, e.g. ShutdownSignalException
+                    throw new RMQJMSException(x);
+                }
+                return PublisherConfirmsUtils.configurePublisherConfirmsSupport(
+                    ch, null, this.confirmTokenExtractor, window
+                );
+            });
+        } catch (Exception x) { // includes unchecked exceptions, e.g. ShutdownSignalException
+            throw new RMQJMSException(x);
+        }
+    }
+
+    private void discard(PublishingChannel channel) {
+        channel.discarded();
+        this.channelCount.decrementAndGet();
+        Channel amqpChannel = channel.getChannel();
+        if (amqpChannel.isOpen()) {
+            try {
+                amqpChannel.close();
+            } catch (Exception x) { // includes unchecked exceptions, e.g. ShutdownSignalException
+                logger.debug("Error while closing publishing channel", x);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface ChannelFactory {
+
+        Channel create() throws Exception;
+
+    }
+}
@@ -1,7 +1,9 @@
 /* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
 package com.rabbitmq.jms.client;
 
+import javax.jms.JMSException;
 import javax.jms.Message;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Internal interface to notify about a published message when publisher confirms are enabled.
@@ -10,6 +12,20 @@ import javax.jms.Message;
  */
 interface PublishingListener {
 
-    void publish(Message message, long sequenceNumber);
+    default void publish(Message message, long sequenceNumber) throws JMSException {
+        publish(message, sequenceNumber, 0, null);
+    }
+
+    /**
+     * Called right before a message is published. This may wait for room in the publishing window.
+     *
+     * @param message the published message
+     * @param sequenceNumber the publishing sequence number of the message
+     * @param size the size of the message, in bytes
+     * @param completion completed when the message is confirmed or nack-ed, can be <code>null</code>
+     * @throws JMSException if the message must not be published, because the publishing window is full
+     * @since 2.0.0
+     */
+    void publish(Message message, long sequenceNumber, int size, CompletableFuture<PublisherConfirmContext> completion) throws JMSException;
 
 }
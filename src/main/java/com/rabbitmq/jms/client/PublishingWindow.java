@@ -0,0 +1,185 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.ResourceAllocationException;
+
+import com.rabbitmq.jms.util.RMQJMSException;
+import com.rabbitmq.jms.util.TimeTracker;
+
+/**
+ * Bounds the number (and optionally the size) of the messages published on a channel and not yet confirmed.
+ * <p>
+ * A slot is acquired before a message is published, and released when the message is confirmed or nack-ed
+ * (or when the channel is closed). While there is room in the window, acquiring and releasing a slot is a couple
+ * of compare-and-sets; senders only synchronise when they have to wait for the window to drain.
+ * </p>
+ * <p>
+ * The size of messages is only tracked when the window has a limit in bytes.
+ * </p>
+ *
+ * @since 2.0.0
+ */
+class PublishingWindow {
+
+    private final int maxMessages;
+    private final long maxBytes;
+    private final PublishingWindowPolicy policy;
+    private final long timeoutMs;
+    private final PublishingWindowFullHandler fullHandler;
+
+    private final AtomicInteger messages = new AtomicInteger(0);
+    private final AtomicLong bytes = new AtomicLong(0);
+
+    private final Object lock = new Object();
+    private volatile int waiters = 0; // @GuardedBy(lock) for writes
+
+    /**
+     * @param maxMessages - maximum number of unconfirmed messages, 0 for no limit
+     * @param maxBytes - maximum size of unconfirmed messages, in bytes, 0 for no limit
+     * @param policy - what to do when the window is full
+     * @param timeoutMs - how long to wait for room in the window with the {@link PublishingWindowPolicy#BLOCK} policy
+     * @param fullHandler - called when the window is full with the {@link PublishingWindowPolicy#CALLBACK} policy
+     */
+    PublishingWindow(int maxMessages, long maxBytes, PublishingWindowPolicy policy, long timeoutMs,
+                     PublishingWindowFullHandler fullHandler) {
+        this.maxMessages = Math.max(0, maxMessages);
+        this.maxBytes = Math.max(0L, maxBytes);
+        this.policy = policy == null ? PublishingWindowPolicy.BLOCK : policy;
+        this.timeoutMs = timeoutMs;
+        this.fullHandler = fullHandler;
+    }
+
+    /**
+     * @return <code>true</code> if the size of messages must be given back on {@link #release(int)}
+     */
+    boolean tracksBytes() {
+        return this.maxBytes > 0;
+    }
+
+    /**
+     * Acquire a slot for a message about to be published, according to the policy of the window.
+     * @param message - the message about to be published
+     * @param size - size of the message, in bytes
+     * @throws JMSException if the window is full and the message must not be published
+     */
+    void acquire(Message message, int size) throws JMSException {
+        if (this.tryAcquire(size)) {
+            return;
+        }
+        switch (this.policy) {
+            case FAIL_FAST:
+                throw this.full();
+            case CALLBACK:
+                if (this.fullHandler != null) {
+                    this.fullHandler.handle(message, this.getInFlightMessages(), this.getInFlightBytes());
+                }
+                this.forceAcquire(size);
+                return;
+            default:
+                this.waitAndAcquire(size);
+        }
+    }
+
+    private void waitAndAcquire(int size) throws JMSException {
+        TimeTracker tt = new TimeTracker(this.timeoutMs, TimeUnit.MILLISECONDS);
+        synchronized (this.lock) {
+            this.waiters++;
+            try {
+                while (!this.tryAcquire(size)) {
+                    if (tt.timedOut()) {
+                        throw this.full();
+                    }
+                    tt.timedWait(this.lock);
+                }
+            } catch (InterruptedException x) {
+                Thread.currentThread().interrupt(); // reset interrupt status
+                throw new RMQJMSException("Interrupted while waiting for room in the publishing window", x);
+            } finally {
+                this.waiters--;
+            }
+        }
+    }
+
+    private ResourceAllocationException full() {
+        return new ResourceAllocationException(String.format(
+            "Publishing window full: %d unconfirmed messages (%d bytes)", this.getInFlightMessages(), this.getInFlightBytes()));
+    }
+
+    private boolean tryAcquire(int size) {
+        int m;
+        do {
+            m = this.messages.get();
+            if (this.maxMessages > 0 && m >= this.maxMessages) {
+                return false;
+            }
+        } while (!this.messages.compareAndSet(m, m + 1));
+        if (this.tracksBytes()) {
+            long b;
+            do {
+                b = this.bytes.get();
+                /* a message larger than the window can go when the window is empty */
+                if (b > 0 && b + size > this.maxBytes) {
+                    this.messages.decrementAndGet();
+                    this.signal();
+                    return false;
+                }
+            } while (!this.bytes.compareAndSet(b, b + size));
+        }
+        return true;
+    }
+
+    private void forceAcquire(int size) {
+        this.messages.incrementAndGet();
+        if (this.tracksBytes()) {
+            this.bytes.addAndGet(size);
+        }
+    }
+
+    /**
+     * Release the slot of a message confirmed or nack-ed.
+     * @param size - size of the message, in bytes, as given to {@link #acquire(Message, int)}, if {@link #tracksBytes()}
+     */
+    void release(int size) {
+        this.messages.decrementAndGet();
+        if (this.tracksBytes()) {
+            this.bytes.addAndGet(-size);
+        }
+        this.signal();
+    }
+
+    private void signal() {
+        if (this.waiters > 0) {
+            synchronized (this.lock) {
+                this.lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * @return how long to wait for room in the window, in milliseconds
+     */
+    long getTimeoutMs() {
+        return this.timeoutMs;
+    }
+
+    /**
+     * @return the number of messages published and not yet confirmed
+     */
+    int getInFlightMessages() {
+        return Math.max(0, this.messages.get());
+    }
+
+    /**
+     * @return the size of the messages published and not yet confirmed, in bytes, 0 if the window
+     * has no limit in bytes
+     */
+    long getInFlightBytes() {
+        return Math.max(0L, this.bytes.get());
+    }
+}
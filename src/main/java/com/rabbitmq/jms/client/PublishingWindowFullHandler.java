@@ -0,0 +1,30 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+/**
+ * Callback invoked when a message is sent while the publishing window of the session is full,
+ * with the {@link PublishingWindowPolicy#CALLBACK} policy.
+ *
+ * @see com.rabbitmq.jms.admin.RMQConnectionFactory#setPublishingWindowFullHandler(PublishingWindowFullHandler)
+ * @since 2.0.0
+ */
+@FunctionalInterface
+public interface PublishingWindowFullHandler {
+
+    /**
+     * Decide what to do with a message that does not fit in the publishing window.
+     * <p>
+     * The message is sent anyway if this method returns normally, and is not sent if it throws.
+     * The method is called on the sending thread, it can wait for the window to drain.
+     *
+     * @param message the message being sent
+     * @param inFlightMessages the number of unconfirmed messages of the session
+     * @param inFlightBytes the size of the unconfirmed messages of the session, in bytes
+     * @throws JMSException to fail the send
+     */
+    void handle(Message message, int inFlightMessages, long inFlightBytes) throws JMSException;
+
+}
@@ -0,0 +1,35 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+/**
+ * What a producer does when the publishing window of its session is full, that is when the session has as many
+ * unconfirmed messages (or bytes) outstanding as allowed.
+ *
+ * @see com.rabbitmq.jms.admin.RMQConnectionFactory#setMaxInFlightMessages(int)
+ * @see com.rabbitmq.jms.admin.RMQConnectionFactory#setMaxInFlightBytes(long)
+ * @see com.rabbitmq.jms.admin.RMQConnectionFactory#setPublishingWindowPolicy(PublishingWindowPolicy)
+ * @since 2.0.0
+ */
+public enum PublishingWindowPolicy {
+
+    /**
+     * Wait for confirms to free the window, up to the publishing window timeout, then fail the send.
+     *
+     * @see com.rabbitmq.jms.admin.RMQConnectionFactory#setPublishingWindowTimeout(long)
+     */
+    BLOCK,
+
+    /**
+     * Fail the send immediately.
+     */
+    FAIL_FAST,
+
+    /**
+     * Call the {@link PublishingWindowFullHandler}, which fails the send by throwing an exception,
+     * or lets the message go over the window by returning.
+     *
+     * @see com.rabbitmq.jms.admin.RMQConnectionFactory#setPublishingWindowFullHandler(PublishingWindowFullHandler)
+     */
+    CALLBACK
+
+}
@@ -0,0 +1,27 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+/**
+ * What happens to a message delivered to a queue consumer when it does not match the selector of the
+ * consumer. Selectors of queue consumers are evaluated on the client, as the broker delivers all the
+ * messages of a queue to its consumers.
+ *
+ * @see com.rabbitmq.jms.admin.RMQConnectionFactory#setQueueSelectorMismatchPolicy(QueueSelectorMismatchPolicy)
+ * @see RMQMessageConsumer#getSelectorStatistics()
+ * @since 2.0.0
+ */
+public enum QueueSelectorMismatchPolicy {
+
+    /**
+     * The message is rejected and requeued, for other consumers of the queue. It can be delivered to
+     * the same consumer again, which shows as redelivered rejections in the statistics of the consumer.
+     */
+    REQUEUE,
+
+    /**
+     * The message is rejected without requeuing: it is dead-lettered if the queue has a dead letter
+     * exchange, dropped otherwise.
+     */
+    REJECT
+
+}
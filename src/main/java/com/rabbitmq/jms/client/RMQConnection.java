@@ -6,10 +6,14 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import javax.jms.*;
 import javax.jms.IllegalStateException;
@@ -41,6 +45,21 @@ public class RMQConnection implements Connection, QueueConnection, TopicConnecti
 
     /** the TCP connection wrapper to the RabbitMQ broker */
     private final com.rabbitmq.client.Connection rabbitConnection;
+
+    /**
+     * The AMQP connections channels are created on: the main one, and additional ones if any.
+     *
+     * @since 2.0.0
+     */
+    private final AmqpConnectionGroup amqpConnections;
+
+    /**
+     * The AMQP connection producers of non-transacted sessions publish on, so that the flow control
+     * of publishing does not block consuming; <code>null</code> if they publish on {@link #amqpConnections}.
+     *
+     * @since 2.0.0
+     */
+    private final AmqpConnectionGroup publishingAmqpConnections;
     /** Hard coded connection meta data returned in the call {@link #getMetaData()} call */
     private static final ConnectionMetaData connectionMetaData = new RMQConnectionMetaData();
     /** The client ID for this connection */
@@ -49,6 +68,8 @@ public class RMQConnection implements Connection, QueueConnection, TopicConnecti
     private final AtomicReference<ExceptionListener> exceptionListener = new AtomicReference<ExceptionListener>();
     /** The list of all {@link RMQSession} objects created by this connection */
     private final List<RMQSession> sessions = Collections.<RMQSession> synchronizedList(new ArrayList<RMQSession>());
+    /** Connection consumers, closed along with the connection */
+    private final List<RMQConnectionConsumer> connectionConsumers = Collections.synchronizedList(new ArrayList<>());
     /** value to see if this connection has been closed */
     private volatile boolean closed = false;
     /** atomic flag to pause and unpause the connection consumers (see {@link #start()} and {@link #stop()} methods) */
@@ -140,15 +161,193 @@ public class RMQConnection implements Connection, QueueConnection, TopicConnecti
      */
     private final List<String> trustedPackages;
 
+    /**
+     * Number of messages pushed in advance to consumers for synchronous receive.
+     * 0 means synchronous receive polls the queue.
+     *
+     * @since 2.0.0
+     */
+    private final int receivePrefetch;
+
+    /**
+     * Whether {@link javax.jms.MessageListener#onMessage(Message)} is called directly on the
+     * thread that delivers messages, instead of on a dedicated thread per session.
+     *
+     * @since 2.0.0
+     */
+    private final boolean directMessageListenerDispatch;
+
+    /** Interrupts direct onMessage calls that take too long; <code>null</code> without direct dispatch */
+    private final OnMessageWatchdog onMessageWatchdog;
+
+    /** Exchanges, queues and bindings of destinations declared on this connection */
+    private final DeclaredTopology declaredTopology = new DeclaredTopology();
+
+    /** Destinations read from messages received on this connection */
+    private final DestinationCache destinationCache = new DestinationCache();
+
+    /** Temporary queues declared non-exclusive across AMQP connections, deleted when this connection is closed */
+    private final Set<String> sharedTemporaryQueues = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Extracts the correlation token of published messages for publisher confirms.
+     * When set, only the message ID and the token are kept until messages are confirmed.
+     *
+     * @since 2.0.0
+     */
+    private final Function<Message, Object> confirmTokenExtractor;
+
+    /**
+     * Maximum number of unconfirmed messages per session, 0 for no limit.
+     *
+     * @since 2.0.0
+     */
+    private final int maxInFlightMessages;
+
+    /**
+     * Maximum size of unconfirmed messages per session, in bytes, 0 for no limit.
+     *
+     * @since 2.0.0
+     */
+    private final long maxInFlightBytes;
+
+    /**
+     * What to do when the publishing window of a session is full.
+     *
+     * @since 2.0.0
+     */
+    private final PublishingWindowPolicy publishingWindowPolicy;
+
+    /**
+     * How long to wait for room in a full publishing window, in milliseconds.
+     *
+     * @since 2.0.0
+     */
+    private final long publishingWindowTimeout;
+
+    /**
+     * Called when the publishing window of a session is full.
+     *
+     * @since 2.0.0
+     */
+    private final PublishingWindowFullHandler publishingWindowFullHandler;
+
+    /**
+     * Whether transacted sessions use publisher confirms instead of AMQP transactions.
+     *
+     * @since 2.0.0
+     */
+    private final boolean confirmTransactions;
+
+    /**
+     * The format JMS messages are published in.
+     *
+     * @since 2.0.0
+     */
+    private final MessageWireFormat messageWireFormat;
+
+    /**
+     * Whether received messages are decoded when they are first accessed.
+     *
+     * @since 2.0.0
+     */
+    private final boolean lazyMessageDecoding;
+
+    /**
+     * Generates the IDs of sent messages.
+     *
+     * @since 2.0.0
+     */
+    private final MessageIdGenerator messageIdGenerator;
+
+    /**
+     * Number of channels producers of non-transacted sessions publish on,
+     * 0 to publish on the channel of the session.
+     *
+     * @since 2.0.0
+     */
+    private final int publishingChannelPoolSize;
+
+    /**
+     * Channels producers of non-transacted sessions publish on, created on first use.
+     *
+     * @since 2.0.0
+     */
+    private volatile PublishingChannelPool publishingChannelPool; // @GuardedBy(this) for writes
+
+    /**
+     * Number of acknowledgements of AUTO_ACKNOWLEDGE and DUPS_OK_ACKNOWLEDGE sessions
+     * sent together, 0 to send them one by one.
+     *
+     * @since 2.0.0
+     */
+    private final int ackCoalescingBatchSize;
+
+    /**
+     * Maximum time in milliseconds coalesced acknowledgements wait before they are sent.
+     *
+     * @since 2.0.0
+     */
+    private final long ackCoalescingIntervalMs;
+
+    /** Sends the coalesced acknowledgements of the sessions, created when first needed */
+    private ScheduledExecutorService ackScheduler; // @GuardedBy(this)
+
+    /**
+     * Whether acknowledgements of CLIENT_INDIVIDUAL_ACKNOWLEDGE sessions are sent together
+     * when they form a range.
+     *
+     * @since 2.0.0
+     */
+    private final boolean individualAckCoalescing;
+
+    /**
+     * Number of threads the messages of a session are delivered to its listeners on.
+     *
+     * @since 2.0.0
+     */
+    private final int messageListenerConcurrency;
+
+    /**
+     * Extracts the key of messages delivered to listeners in parallel, messages with the same key
+     * are delivered in order. <code>null</code> to use the <code>JMSXGroupID</code> property.
+     *
+     * @since 2.0.0
+     */
+    private final Function<Message, Object> messageListenerKeyExtractor;
+
+    /**
+     * What happens to messages that do not match the selector of a queue consumer,
+     * <code>null</code> if queue consumers do not support selectors.
+     *
+     * @since 2.0.0
+     */
+    private final QueueSelectorMismatchPolicy queueSelectorMismatchPolicy;
+
     /**
      * Creates an RMQConnection object.
      * @param connectionParams parameters for this connection
      */
     public RMQConnection(ConnectionParams connectionParams) {
 
-        connectionParams.getRabbitConnection().addShutdownListener(new RMQConnectionShutdownListener());
+        List<com.rabbitmq.client.Connection> rabbitConnections = new ArrayList<>();
+        rabbitConnections.add(connectionParams.getRabbitConnection());
+        if (connectionParams.getAdditionalRabbitConnections() != null) {
+            rabbitConnections.addAll(connectionParams.getAdditionalRabbitConnections());
+        }
+        com.rabbitmq.client.Connection publishingRabbitConnection = connectionParams.getPublishingRabbitConnection();
+        List<com.rabbitmq.client.Connection> allRabbitConnections = new ArrayList<>(rabbitConnections);
+        if (publishingRabbitConnection != null) {
+            allRabbitConnections.add(publishingRabbitConnection);
+        }
+        for (com.rabbitmq.client.Connection rabbitConnection : allRabbitConnections) {
+            rabbitConnection.addShutdownListener(new RMQConnectionShutdownListener());
+        }
 
         this.rabbitConnection = connectionParams.getRabbitConnection();
+        this.amqpConnections = new AmqpConnectionGroup(rabbitConnections, connectionParams.getAmqpConnectionBalancingPolicy());
+        this.publishingAmqpConnections = publishingRabbitConnection == null ? null :
+            new AmqpConnectionGroup(Collections.singletonList(publishingRabbitConnection), null);
         this.terminationTimeout = connectionParams.getTerminationTimeout();
         this.queueBrowserReadMax = connectionParams.getQueueBrowserReadMax();
         this.onMessageTimeoutMs = connectionParams.getOnMessageTimeoutMs();
@@ -162,6 +361,30 @@ public class RMQConnection implements Connection, QueueConnection, TopicConnecti
         this.receivingContextConsumer = connectionParams.getReceivingContextConsumer();
         this.confirmListener = connectionParams.getConfirmListener();
         this.trustedPackages = connectionParams.getTrustedPackages();
+        this.receivePrefetch = connectionParams.getReceivePrefetch();
+        this.directMessageListenerDispatch = connectionParams.isDirectMessageListenerDispatch();
+        this.confirmTokenExtractor = connectionParams.getConfirmTokenExtractor();
+        this.maxInFlightMessages = connectionParams.getMaxInFlightMessages();
+        this.maxInFlightBytes = connectionParams.getMaxInFlightBytes();
+        this.publishingWindowPolicy = connectionParams.getPublishingWindowPolicy();
+        this.publishingWindowTimeout = connectionParams.getPublishingWindowTimeout();
+        this.publishingWindowFullHandler = connectionParams.getPublishingWindowFullHandler();
+        this.confirmTransactions = connectionParams.isConfirmTransactions();
+        this.messageWireFormat = connectionParams.getMessageWireFormat();
+        this.lazyMessageDecoding = connectionParams.isLazyMessageDecoding();
+        this.messageIdGenerator = connectionParams.getMessageIdGenerator() == null ?
+            new CounterMessageIdGenerator() : connectionParams.getMessageIdGenerator();
+        this.publishingChannelPoolSize = connectionParams.getPublishingChannelPoolSize();
+        this.ackCoalescingBatchSize = connectionParams.getAckCoalescingBatchSize();
+        this.ackCoalescingIntervalMs = connectionParams.getAckCoalescingIntervalMs();
+        this.individualAckCoalescing = connectionParams.isIndividualAckCoalescing();
+        this.messageListenerConcurrency = connectionParams.getMessageListenerConcurrency();
+        this.messageListenerKeyExtractor = connectionParams.getMessageListenerKeyExtractor();
+        this.queueSelectorMismatchPolicy = connectionParams.getQueueSelectorMismatchPolicy();
+        this.onMessageWatchdog = this.directMessageListenerDispatch ? new OnMessageWatchdog(this.onMessageTimeoutMs) : null;
+        for (com.rabbitmq.client.Connection rabbitConnection : allRabbitConnections) {
+            this.declaredTopology.clearOnRecovery(rabbitConnection);
+        }
     }
 
     /**
@@ -193,15 +416,102 @@ public class RMQConnection implements Connection, QueueConnection, TopicConnecti
     /** For RMQSession to retrieve */
     int getQueueBrowserReadMax() { return this.queueBrowserReadMax; }
 
+    /** For consumers to restore the channel QoS after a per-consumer one */
+    int getChannelsQos() { return this.channelsQos; }
+
+    /** For RMQSession to watch direct onMessage calls */
+    OnMessageWatchdog getOnMessageWatchdog() { return this.onMessageWatchdog; }
+
+    /** For RMQSession to declare the topology of destinations once per connection */
+    DeclaredTopology getDeclaredTopology() { return this.declaredTopology; }
+
+    /** For received messages to share destination instances */
+    DestinationCache getDestinationCache() { return this.destinationCache; }
+
+    /** For RMQSession to share the queues that would be exclusive to the AMQP connection of a session */
+    boolean hasSeveralAmqpConnections() { return this.amqpConnections.size() > 1; }
+
+    /** For RMQSession to have a temporary queue deleted when this connection is closed */
+    void sharedTemporaryQueueDeclared(String queueName) { this.sharedTemporaryQueues.add(queueName); }
+
+    /**
+     * Statistics of the AMQP connections of this connection, the main one first, the publishing one last.
+     * <p>
+     * A connection has several AMQP connections when
+     * {@link com.rabbitmq.jms.admin.RMQConnectionFactory#setAmqpConnectionsPerConnection(int)} is set,
+     * and a publishing one when
+     * {@link com.rabbitmq.jms.admin.RMQConnectionFactory#setSeparatePublishingConnection(boolean)} is set.
+     * </p>
+     * @return a snapshot of the statistics of each AMQP connection
+     * @since 2.0.0
+     */
+    public List<AmqpConnectionStatistics> getAmqpConnectionStatistics() {
+        if (this.publishingAmqpConnections == null) {
+            return this.amqpConnections.getStatistics();
+        }
+        List<AmqpConnectionStatistics> statistics = new ArrayList<>(this.amqpConnections.getStatistics());
+        statistics.addAll(this.publishingAmqpConnections.getStatistics());
+        return Collections.unmodifiableList(statistics);
+    }
+
+    /** For non-transacted sessions to publish on a separate connection */
+    boolean hasSeparatePublishingConnection() { return this.publishingAmqpConnections != null; }
+
+    /**
+     * For producers of non-transacted sessions to publish on pooled channels.
+     * @return the pool, <code>null</code> if publishing channels are not pooled
+     */
+    PublishingChannelPool getPublishingChannelPool() {
+        PublishingChannelPool pool = this.publishingChannelPool;
+        if (pool != null || this.publishingChannelPoolSize == 0) {
+            return pool;
+        }
+        synchronized (this) {
+            if (this.publishingChannelPool == null && !this.closed) {
+                this.publishingChannelPool = new PublishingChannelPool(this.publishingChannelPoolSize,
+                    this.publishingAmqpConnections == null ? this.amqpConnections::createChannel : this.publishingAmqpConnections::createChannel,
+                    this.confirmListener, this.confirmTokenExtractor,
+                    () -> new PublishingWindow(this.maxInFlightMessages, this.maxInFlightBytes, this.publishingWindowPolicy,
+                        this.publishingWindowTimeout, this.publishingWindowFullHandler));
+            }
+            return this.publishingChannelPool;
+        }
+    }
+
+    /**
+     * For sessions to send coalesced acknowledgements off the thread that dispatches messages.
+     * @return the scheduler shared by the sessions of this connection
+     */
+    synchronized ScheduledExecutorService getAckScheduler() {
+        if (this.ackScheduler == null) {
+            this.ackScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "rabbitmq-jms-ack-coalescer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return this.ackScheduler;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Session createSession(boolean transacted, int acknowledgeMode) throws JMSException {
         logger.trace("transacted={}, acknowledgeMode={}", transacted, acknowledgeMode);
+        return this.createSession(this.sessionParams(transacted, acknowledgeMode));
+    }
+
+    private RMQSession createSession(SessionParams sessionParams) throws JMSException {
         illegalStateExceptionIfClosed();
         freezeClientID();
-        RMQSession session = new RMQSession(new SessionParams()
+        RMQSession session = new RMQSession(sessionParams);
+        this.sessions.add(session);
+        return session;
+    }
+
+    private SessionParams sessionParams(boolean transacted, int acknowledgeMode) {
+        return new SessionParams()
             .setConnection(this)
             .setTransacted(transacted)
             .setOnMessageTimeoutMs(onMessageTimeoutMs)
@@ -216,9 +526,24 @@ public class RMQConnection implements Connection, QueueConnection, TopicConnecti
             .setReceivingContextConsumer(this.receivingContextConsumer)
             .setConfirmListener(this.confirmListener)
             .setTrustedPackages(this.trustedPackages)
-        );
-        this.sessions.add(session);
-        return session;
+            .setReceivePrefetch(this.receivePrefetch)
+            .setDirectMessageListenerDispatch(this.directMessageListenerDispatch)
+            .setConfirmTokenExtractor(this.confirmTokenExtractor)
+            .setMaxInFlightMessages(this.maxInFlightMessages)
+            .setMaxInFlightBytes(this.maxInFlightBytes)
+            .setPublishingWindowPolicy(this.publishingWindowPolicy)
+            .setPublishingWindowTimeout(this.publishingWindowTimeout)
+            .setPublishingWindowFullHandler(this.publishingWindowFullHandler)
+            .setConfirmTransactions(this.confirmTransactions)
+            .setMessageWireFormat(this.messageWireFormat)
+            .setLazyMessageDecoding(this.lazyMessageDecoding)
+            .setMessageIdGenerator(this.messageIdGenerator)
+            .setAckCoalescingBatchSize(this.ackCoalescingBatchSize)
+            .setAckCoalescingIntervalMs(this.ackCoalescingIntervalMs)
+            .setIndividualAckCoalescing(this.individualAckCoalescing)
+            .setMessageListenerConcurrency(this.messageListenerConcurrency)
+            .setMessageListenerKeyExtractor(this.messageListenerKeyExtractor)
+            .setQueueSelectorMismatchPolicy(this.queueSelectorMismatchPolicy);
     }
 
     private void freezeClientID() {
@@ -351,17 +676,44 @@ public class RMQConnection implements Connection, QueueConnection, TopicConnecti
         // We null any exception listener since we don't want it driven during close().
         this.exceptionListener.set(null);
 
+        closeAllConnectionConsumers();
         closeAllSessions();
 
-        try {
-            this.rabbitConnection.close();
-        } catch (ShutdownSignalException x) {
-            //nothing to do
-        } catch (IOException x) {
-            if (!(x.getCause() instanceof ShutdownSignalException)) {
-                throw new RMQJMSException(x);
+        synchronized (this) {
+            if (this.publishingChannelPool != null) {
+                this.publishingChannelPool.close();
+            }
+            if (this.ackScheduler != null) {
+                // sessions flushed their acknowledgements when closed
+                this.ackScheduler.shutdown();
             }
         }
+
+        if (this.onMessageWatchdog != null) {
+            this.onMessageWatchdog.close();
+        }
+
+        deleteSharedTemporaryQueues();
+
+        RMQJMSException closeException = null;
+        List<com.rabbitmq.client.Connection> rabbitConnections = this.amqpConnections.getConnections();
+        if (this.publishingAmqpConnections != null) {
+            rabbitConnections.addAll(this.publishingAmqpConnections.getConnections());
+        }
+        for (com.rabbitmq.client.Connection rabbitConnection : rabbitConnections) {
+            try {
+                rabbitConnection.close();
+            } catch (ShutdownSignalException x) {
+                //nothing to do
+            } catch (IOException x) {
+                if (!(x.getCause() instanceof ShutdownSignalException) && closeException == null) {
+                    closeException = new RMQJMSException(x);
+                }
+            }
+        }
+        if (closeException != null) {
+            throw closeException;
+        }
     }
 
     private void removeClientID() throws JMSException {
@@ -370,6 +722,37 @@ public class RMQConnection implements Connection, QueueConnection, TopicConnecti
             CLIENT_IDS.remove(cID);
     }
 
+    /**
+     * Temporary queues are not exclusive with several AMQP connections, so the broker does not delete them
+     * when the connections are closed.
+     */
+    private void deleteSharedTemporaryQueues() {
+        if (this.sharedTemporaryQueues.isEmpty()) return;
+        try {
+            Channel channel = this.amqpConnections.createChannel();
+            try {
+                for (String queueName : this.sharedTemporaryQueues) {
+                    channel.queueDelete(queueName);
+                }
+            } finally {
+                channel.close();
+            }
+        } catch (Exception e) {
+            logger.warn("Cannot delete the temporary queues {} of connection ({})", this.sharedTemporaryQueues, this, e);
+        }
+        this.sharedTemporaryQueues.clear();
+    }
+
+    private void closeAllConnectionConsumers() {
+        for (RMQConnectionConsumer connectionConsumer : new ArrayList<>(this.connectionConsumers)) {
+            try {
+                this.connectionConsumerClose(connectionConsumer);
+            } catch (JMSException x) {
+                logger.error("Connection consumer ({}) cannot be closed", connectionConsumer, x);
+            }
+        }
+    }
+
     private void closeAllSessions() {
         for (RMQSession session : this.sessions) {
             try {
@@ -385,8 +768,23 @@ public class RMQConnection implements Connection, QueueConnection, TopicConnecti
         this.sessions.clear();
     }
 
+    /**
+     * Creates a channel on the publishing connection, for a non-transacted session to publish on.
+     * @return the channel
+     * @throws IOException if the channel cannot be created
+     * @see #hasSeparatePublishingConnection()
+     * @since 2.0.0
+     */
+    Channel createPublishingRabbitChannel() throws IOException {
+        Channel channel = this.publishingAmqpConnections.createChannel();
+        if (this.confirmListener != null) {
+            channel.confirmSelect();
+        }
+        return channel;
+    }
+
     Channel createRabbitChannel(boolean transactional) throws IOException {
-        Channel channel = this.rabbitConnection.createChannel();
+        Channel channel = this.amqpConnections.createChannel();
         if(this.channelsQos != NO_CHANNEL_QOS) {
             channel.basicQos(channelsQos);
         }
@@ -408,12 +806,13 @@ public class RMQConnection implements Connection, QueueConnection, TopicConnecti
     }
 
     /**
-     * @throws UnsupportedOperationException - optional method not implemented
+     * {@inheritDoc}
+     * @see RMQConnectionConsumer
      */
     @Override
     public ConnectionConsumer
             createConnectionConsumer(Topic topic, String messageSelector, ServerSessionPool sessionPool, int maxMessages) throws JMSException {
-        throw new UnsupportedOperationException();
+        return this.createConnectionConsumer(topic, null, messageSelector, sessionPool, maxMessages);
     }
 
     /**
@@ -425,29 +824,32 @@ public class RMQConnection implements Connection, QueueConnection, TopicConnecti
     }
 
     /**
-     * @throws UnsupportedOperationException - optional method not implemented
+     * {@inheritDoc}
+     * @see RMQConnectionConsumer
      */
     @Override
     public ConnectionConsumer createConnectionConsumer(Queue queue,
                                                        String messageSelector,
                                                        ServerSessionPool sessionPool,
                                                        int maxMessages) throws JMSException {
-        throw new UnsupportedOperationException();
+        return this.createConnectionConsumer(queue, null, messageSelector, sessionPool, maxMessages);
     }
 
     /**
-     * @throws UnsupportedOperationException - optional method not implemented
+     * {@inheritDoc}
+     * @see RMQConnectionConsumer
      */
     @Override
     public ConnectionConsumer createConnectionConsumer(Destination destination,
                                                        String messageSelector,
                                                        ServerSessionPool sessionPool,
                                                        int maxMessages) throws JMSException {
-        throw new UnsupportedOperationException();
+        return this.createConnectionConsumer(destination, null, messageSelector, sessionPool, maxMessages);
     }
 
     /**
-     * @throws UnsupportedOperationException - optional method not implemented
+     * {@inheritDoc}
+     * @see RMQConnectionConsumer
      */
     @Override
     public ConnectionConsumer createDurableConnectionConsumer(Topic topic,
@@ -455,11 +857,62 @@ public class RMQConnection implements Connection, QueueConnection, TopicConnecti
                                                               String messageSelector,
                                                               ServerSessionPool sessionPool,
                                                               int maxMessages) throws JMSException {
-        throw new UnsupportedOperationException();
+        if (subscriptionName == null) {
+            throw new InvalidDestinationException("Durable subscription name must not be null");
+        }
+        return this.createConnectionConsumer(topic, subscriptionName, messageSelector, sessionPool, maxMessages);
+    }
+
+    private ConnectionConsumer createConnectionConsumer(Destination destination, String subscriptionName, String messageSelector,
+                                                        ServerSessionPool sessionPool, int maxMessages) throws JMSException {
+        logger.trace("destination={}, subscriptionName={}, maxMessages={}", destination, subscriptionName, maxMessages);
+        if (sessionPool == null) {
+            throw new JMSException("Server session pool must not be null");
+        }
+        if (maxMessages <= 0) {
+            throw new JMSException(String.format("Cannot create connection consumer with maxMessages = %d, it must be positive.", maxMessages));
+        }
+        // messages are processed concurrently and acknowledged one by one, as their processing completes
+        RMQSession session = this.createSession(this.sessionParams(false, RMQSession.CLIENT_INDIVIDUAL_ACKNOWLEDGE)
+            .setReceivePrefetch(0)
+            .setIndividualAckCoalescing(false)
+            .setMessageListenerConcurrency(1));
+        RMQConnectionConsumer connectionConsumer = new RMQConnectionConsumer(this, session, sessionPool, maxMessages);
+        try {
+            MessageConsumer consumer = subscriptionName == null ?
+                session.createConsumer(destination, messageSelector) :
+                session.createDurableSubscriber((Topic) destination, subscriptionName, messageSelector, false);
+            if (this.channelsQos == NO_CHANNEL_QOS) {
+                session.getChannel().basicQos(maxMessages * RMQConnectionConsumer.PREFETCHED_CHUNKS);
+            }
+            this.connectionConsumers.add(connectionConsumer);
+            connectionConsumer.start(consumer);
+        } catch (JMSException | IOException | RuntimeException e) {
+            this.connectionConsumers.remove(connectionConsumer);
+            connectionConsumer.internalClose();
+            if (e instanceof JMSException) {
+                throw (JMSException) e;
+            } else if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            throw new RMQJMSException(e);
+        }
+        return connectionConsumer;
     }
 
     /* Internal methods. */
 
+    /**
+     * Closes a connection consumer and removes it from this connection.
+     *
+     * @param connectionConsumer - the connection consumer that is being closed
+     */
+    void connectionConsumerClose(RMQConnectionConsumer connectionConsumer) throws JMSException {
+        logger.trace("internal:connectionConsumerClose({})", connectionConsumer);
+        this.connectionConsumers.remove(connectionConsumer);
+        connectionConsumer.internalClose();
+    }
+
     /** A connection must track all sessions that are created,
      * but when we call {@link RMQSession#close()} we must unregister this
      * session with the connection.
@@ -0,0 +1,154 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jms.ConnectionConsumer;
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+import javax.jms.MessageConsumer;
+import javax.jms.ServerSession;
+import javax.jms.ServerSessionPool;
+import javax.jms.Session;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation of {@link ConnectionConsumer}, for application servers to process the messages of a
+ * destination concurrently with a pool of sessions.
+ * <p>
+ * The messages are consumed with a single subscription, on a session of its own in
+ * {@link RMQSession#CLIENT_INDIVIDUAL_ACKNOWLEDGE} mode. A thread takes the messages received, loads them
+ * into a {@link ServerSession} of the {@link ServerSessionPool} in chunks of up to <code>maxMessages</code>,
+ * and starts the server session, which delivers them to the listener of its session with {@link RMQSession#run()}.
+ * The messages are acknowledged on the session of this consumer, according to the acknowledgement mode of the
+ * session of the server session they are delivered to: e.g. when that session commits if it is transacted.
+ * </p>
+ *
+ * @since 2.0.0
+ */
+public class RMQConnectionConsumer implements ConnectionConsumer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RMQConnectionConsumer.class);
+
+    /** Chunks of messages the subscription can be ahead of the server sessions, unless the channel QoS is set */
+    static final int PREFETCHED_CHUNKS = 4;
+
+    private final RMQConnection connection;
+
+    /** The session the messages are consumed and acknowledged on */
+    private final RMQSession session;
+
+    private final ServerSessionPool serverSessionPool;
+
+    private final int maxMessages;
+
+    private final BlockingQueue<RMQMessage> received = new LinkedBlockingQueue<>();
+
+    private final Thread dispatcher;
+
+    private volatile boolean closed = false;
+
+    /**
+     * @param connection - the connection this consumer belongs to
+     * @param session - the session to consume on, which belongs to this consumer
+     * @param serverSessionPool - provides the server sessions to process messages with
+     * @param maxMessages - maximum number of messages loaded into a server session at once
+     */
+    RMQConnectionConsumer(RMQConnection connection, RMQSession session, ServerSessionPool serverSessionPool, int maxMessages) {
+        this.connection = connection;
+        this.session = session;
+        this.serverSessionPool = serverSessionPool;
+        this.maxMessages = maxMessages;
+        this.dispatcher = new Thread(this::dispatch, "rabbitmq-jms-connection-consumer");
+        this.dispatcher.setDaemon(true);
+    }
+
+    /**
+     * Starts loading messages into server sessions and subscribes the consumer.
+     * @param consumer - a consumer of the session of this connection consumer
+     * @throws JMSException if the subscription fails
+     */
+    void start(MessageConsumer consumer) throws JMSException {
+        this.dispatcher.start();
+        consumer.setMessageListener(message -> this.received.add((RMQMessage) message));
+    }
+
+    private void dispatch() {
+        List<RMQMessage> chunk = new ArrayList<>(Math.min(this.maxMessages, 64));
+        try {
+            while (!this.closed) {
+                RMQMessage message = this.received.poll(100, TimeUnit.MILLISECONDS);
+                if (message == null) {
+                    continue;
+                }
+                chunk.add(message);
+                this.received.drainTo(chunk, this.maxMessages - 1);
+                this.load(chunk);
+                chunk.clear();
+            }
+        } catch (InterruptedException e) {
+            // closed, messages not loaded are requeued when the channel is closed
+        }
+    }
+
+    private void load(List<RMQMessage> chunk) {
+        try {
+            ServerSession serverSession = this.serverSessionPool.getServerSession();
+            Session session = serverSession.getSession();
+            if (!(session instanceof RMQSession)) {
+                throw new IllegalStateException(String.format("Server session pool provided a session of another provider (%s)", session));
+            }
+            ((RMQSession) session).loadMessages(chunk);
+            serverSession.start();
+        } catch (JMSException | RuntimeException e) {
+            logger.error("Cannot load {} message(s) into a server session, requeuing them", chunk.size(), e);
+            for (RMQMessage message : chunk) {
+                this.session.rejectMessage(message);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ServerSessionPool getServerSessionPool() throws JMSException {
+        if (this.closed) {
+            throw new IllegalStateException("Connection consumer is closed");
+        }
+        return this.serverSessionPool;
+    }
+
+    /**
+     * Stops loading messages into server sessions and closes the subscription.
+     * Messages received and not processed yet are requeued.
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws JMSException {
+        this.connection.connectionConsumerClose(this);
+    }
+
+    void internalClose() throws JMSException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        this.dispatcher.interrupt();
+        try {
+            this.dispatcher.join(this.connection.getTerminationTimeout());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.session.close();
+    }
+
+    int getMaxMessages() {
+        return this.maxMessages;
+    }
+}
@@ -14,7 +14,6 @@ import com.rabbitmq.jms.client.message.RMQTextMessage;
 import com.rabbitmq.jms.util.HexDisplay;
 import com.rabbitmq.jms.util.IteratorEnum;
 import com.rabbitmq.jms.util.RMQJMSException;
-import com.rabbitmq.jms.util.Util;
 import com.rabbitmq.jms.util.WhiteListObjectInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,6 +31,7 @@ import javax.jms.StreamMessage;
 import javax.jms.TextMessage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
@@ -39,6 +39,7 @@ import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.Date;
 import java.util.Enumeration;
@@ -111,6 +112,67 @@ public abstract class RMQMessage implements Message, Cloneable {
     static final String JMS_MESSAGE_EXPIRATION = PREFIX + "jms.message.expiration";
     static final String JMS_MESSAGE_PRIORITY = PREFIX + "jms.message.priority";
 
+    /**
+     * First bytes of a message in the {@link MessageWireFormat#V2} format: they can not start a Java serialization
+     * stream (which starts with <code>0xACED</code>), so that both formats can be told apart.
+     */
+    private static final byte[] WIRE_FORMAT_V2_HEADER = {'R', 'M', 'Q', 2};
+
+    /**
+     * Codes of the message types in the {@link MessageWireFormat#V2} format, which are their index in this array;
+     * <code>0</code> is for other types, whose class name is written. Codes are part of the format, so the array
+     * can only be appended to.
+     */
+    private static final String[] WIRE_MESSAGE_TYPES = {
+        null,
+        RMQTextMessage.class.getName(),
+        RMQBytesMessage.class.getName(),
+        RMQMapMessage.class.getName(),
+        RMQObjectMessage.class.getName(),
+        RMQStreamMessage.class.getName()
+    };
+
+    /**
+     * Codes of the JMS properties in the {@link MessageWireFormat#V2} format, which are their index in this array;
+     * <code>0</code> is for other properties, whose name is written. Codes are part of the format, so the array
+     * can only be appended to.
+     */
+    private static final String[] WIRE_JMS_PROPERTIES = {
+        null,
+        JMS_MESSAGE_ID,
+        JMS_MESSAGE_TIMESTAMP,
+        JMS_MESSAGE_CORR_ID,
+        JMS_MESSAGE_REPLY_TO,
+        JMS_MESSAGE_DESTINATION,
+        JMS_MESSAGE_REDELIVERED,
+        JMS_MESSAGE_TYPE,
+        JMS_MESSAGE_DELIVERY_MODE,
+        JMS_MESSAGE_EXPIRATION,
+        JMS_MESSAGE_PRIORITY
+    };
+
+    /**
+     * Type tag of destinations in the {@link MessageWireFormat#V2} format, next to those of
+     * {@link #writePrimitive(Object, ObjectOutput, boolean)}, followed by the flags below and the names they announce.
+     */
+    private static final byte WIRE_DESTINATION = 11;
+    private static final int DESTINATION_AMQP = 1;
+    private static final int DESTINATION_QUEUE = 1 << 1;
+    private static final int DESTINATION_TEMPORARY = 1 << 2;
+    private static final int DESTINATION_NAME = 1 << 3;
+    private static final int DESTINATION_EXCHANGE = 1 << 4;
+    private static final int DESTINATION_ROUTING_KEY = 1 << 5;
+    private static final int DESTINATION_ROUTING_KEY_IS_NAME = 1 << 6;
+    private static final int DESTINATION_QUEUE_NAME = 1 << 7;
+    private static final int DESTINATION_QUEUE_NAME_IS_NAME = 1 << 8;
+
+    /** Buffer each thread writes messages in, before they are copied to the exact size */
+    private static final ThreadLocal<WireBuffer> WIRE_BUFFER =
+        ThreadLocal.withInitial(() -> new WireBuffer(DEFAULT_MESSAGE_BODY_SIZE));
+
+    /** A thread does not keep its buffer after writing a message larger than this */
+    private static final int MAX_REUSED_WIRE_BUFFER_SIZE = 64 * 1024;
+
     /**
      * For turning {@link String}s into <code>byte[]</code> and back we use this {@link Charset} instance.
      * This is used for {@link RMQMessage#getJMSCorrelationIDAsBytes()}.
@@ -127,6 +189,20 @@ public abstract class RMQMessage implements Message, Cloneable {
      * {@link #hashCode()} and {@link #equals(Object)}
      */
     private volatile String internalMessageID=null;
+
+    /**
+     * Generates the message IDs of messages sent without a session-specific generator.
+     */
+    private static final MessageIdGenerator DEFAULT_MESSAGE_ID_GENERATOR = new CounterMessageIdGenerator();
+
+    /**
+     * Properties of a received message not decoded yet; they are decoded when they are first accessed.
+     * Properties set before they are decoded are kept.
+     */
+    private volatile EncodedSection encodedProperties;
+    /** Body of a received message not decoded yet, see {@link #decodeBody()} */
+    private volatile EncodedSection encodedBody;
+    private final Object decodingLock = new Object();
     /**
      * A message is read only if it has been received.
      * We set this flag when we receive a message in the following method
@@ -215,6 +291,21 @@ public abstract class RMQMessage implements Message, Cloneable {
         this.session = session;
     }
 
+    /**
+     * The server session a message received by a connection consumer is delivered to, if it acknowledges the message
+     * according to its own mode.
+     * @see RMQSession#acknowledgeLoadedMessage(RMQMessage)
+     */
+    private volatile transient RMQSession deliveringSession = null;
+
+    /**
+     * @param deliveringSession the server session this message is delivered to
+     * @since 2.0.0
+     */
+    void setDeliveringSession(RMQSession deliveringSession) {
+        this.deliveringSession = deliveringSession;
+    }
+
     /**
      * Constructor for auto de-serialization
      */
@@ -407,6 +498,7 @@ public abstract class RMQMessage implements Message, Cloneable {
      */
     @Override
     public final void clearProperties() throws JMSException {
+        this.decodeProperties();
         this.userJmsProperties.clear();
         this.setReadOnlyProperties(false);
     }
@@ -416,6 +508,7 @@ public abstract class RMQMessage implements Message, Cloneable {
      */
     @Override
     public boolean propertyExists(String name) throws JMSException {
+        this.decodeProperties();
         return this.userJmsProperties.containsKey(name) || this.rmqProperties.containsKey(name);
     }
 
@@ -566,6 +659,7 @@ public abstract class RMQMessage implements Message, Cloneable {
      */
     @Override
     public Object getObjectProperty(String name) throws JMSException {
+        this.decodeProperties();
         if (name.startsWith(PREFIX))
             return this.rmqProperties.get(name);
         else
@@ -577,6 +671,7 @@ public abstract class RMQMessage implements Message, Cloneable {
      */
     @Override
     public Enumeration<?> getPropertyNames() throws JMSException {
+        this.decodeProperties();
         return new IteratorEnum<String>(this.userJmsProperties.keySet().iterator());
     }
 
@@ -706,6 +801,7 @@ public abstract class RMQMessage implements Message, Cloneable {
 
             if (name!=null && name.startsWith(PREFIX)) {
                 if (value==null) {
+                    this.decodeProperties();
                     this.rmqProperties.remove(name);
                 } else {
                     this.rmqProperties.put(name, (Serializable) value);
@@ -715,6 +811,7 @@ public abstract class RMQMessage implements Message, Cloneable {
                 checkName(name);
 
                 if (value==null) {
+                    this.decodeProperties();
                     this.userJmsProperties.remove(name);
                 } else if (validPropertyValueType(value)) {
                     this.userJmsProperties.put(name, (Serializable) value);
@@ -766,7 +863,12 @@ public abstract class RMQMessage implements Message, Cloneable {
      */
     @Override
     public void acknowledge() throws JMSException {
-        getSession().acknowledgeMessage(this);
+        RMQSession deliveringSession = this.deliveringSession;
+        if (deliveringSession != null) {
+            deliveringSession.acknowledgeLoadedMessage(this);
+        } else {
+            getSession().acknowledgeMessage(this);
+        }
     }
 
     /**
@@ -774,6 +876,7 @@ public abstract class RMQMessage implements Message, Cloneable {
      */
     @Override
     public final void clearBody() throws JMSException {
+        this.encodedBody = null;
         setReadOnlyBody(false);
         clearBodyInternal();
     }
@@ -805,6 +908,16 @@ public abstract class RMQMessage implements Message, Cloneable {
      */
     protected abstract void writeAmqpBody(ByteArrayOutputStream out) throws IOException;
 
+    /**
+     * Size of the body written by the application, for the messages whose body is grown as it is written.
+     * @return the number of bytes of the body, or -1 if the body of this type of message is not grown
+     * @throws JMSException if the size of the body cannot be computed
+     * @since 2.0.0
+     */
+    protected int bodySize() throws JMSException {
+        return -1;
+    }
+
     /**
      * Invoked when a message is being deserialized to read and decode the message body.
      * The implementing class should <i>only</i> read its body from this stream.
@@ -817,6 +930,69 @@ public abstract class RMQMessage implements Message, Cloneable {
      */
     protected abstract void readBody(ObjectInput inputStream, ByteArrayInputStream bin) throws IOException, ClassNotFoundException;
 
+    /**
+     * Read the rest of the body of a received message, as a view over the bytes of the delivery.
+     * The view is a copy if the stream is not over the bytes of a delivery.
+     * @param bin - the underlying byte input stream, as given to {@link #readBody(ObjectInput, ByteArrayInputStream)}
+     * @return the rest of the body; its array and offset locate it in the bytes of the delivery
+     * @throws IOException if a read error occurs on the input stream
+     * @since 2.0.0
+     */
+    protected static ByteBuffer readRemainingBody(ByteArrayInputStream bin) throws IOException {
+        if (bin instanceof DeliveryInputStream) {
+            return ((DeliveryInputStream) bin).slice(bin.available());
+        }
+        byte[] body = new byte[bin.available()];
+        bin.read(body);
+        return ByteBuffer.wrap(body);
+    }
+
+    /**
+     * Read a part of the body of a received message, as a view over the bytes of the delivery when the wire format
+     * lets the part be read from them as is ({@link MessageWireFormat#V2}), or as a copy.
+     * @param in - the stream to read the body from, as given to {@link #readBody(ObjectInput, ByteArrayInputStream)}
+     * @param bin - the underlying byte input stream, as given to {@link #readBody(ObjectInput, ByteArrayInputStream)}
+     * @param length - number of bytes to read
+     * @return the bytes read; their array and offset locate them in the bytes of the delivery
+     * @throws IOException if a read error occurs on the input stream
+     * @since 2.0.0
+     */
+    protected static ByteBuffer readBody(ObjectInput in, ByteArrayInputStream bin, int length) throws IOException {
+        if (in instanceof CompactObjectInput && bin instanceof DeliveryInputStream) {
+            return ((DeliveryInputStream) bin).slice(length);
+        }
+        byte[] body = new byte[length];
+        in.readFully(body, 0, length);
+        return ByteBuffer.wrap(body);
+    }
+
+    /**
+     * The stream over the bytes of a delivery, from which parts of the body are taken without copying them.
+     */
+    private static final class DeliveryInputStream extends ByteArrayInputStream {
+
+        DeliveryInputStream(byte[] buf) {
+            super(buf);
+        }
+
+        DeliveryInputStream(byte[] buf, int offset, int length) {
+            super(buf, offset, length);
+        }
+
+        int position() {
+            return this.pos;
+        }
+
+        ByteBuffer slice(int length) throws EOFException {
+            if (length > this.count - this.pos) {
+                throw new EOFException();
+            }
+            ByteBuffer slice = ByteBuffer.wrap(this.buf, this.pos, length).slice();
+            this.pos += length;
+            return slice;
+        }
+    }
+
     /**
      * Invoked when an AMQP message is being transformed into a RMQMessage
      * The implementing class should <i>only</i> read its body by this method
@@ -861,7 +1037,18 @@ public abstract class RMQMessage implements Message, Cloneable {
      * </blockquote>
      */
     Map<String, Object> toHeaders() throws IOException, JMSException {
-        Map<String, Object> hdrs = new HashMap<String, Object>();
+        this.decodeProperties();
+        return toHeaders(new HashMap<String, Object>(headersCapacity()));
+    }
+
+    /**
+     * Same as {@link #toHeaders()}, but fills the passed-in map, so that it can be reused.
+     * @param hdrs the map to fill
+     * @return the passed-in map
+     * @since 2.0.0
+     */
+    Map<String, Object> toHeaders(Map<String, Object> hdrs) throws IOException, JMSException {
+        this.decodeProperties();
 
         // set non-null user properties
         for (Map.Entry<String, Serializable> e : this.userJmsProperties.entrySet()) {
@@ -898,7 +1085,10 @@ public abstract class RMQMessage implements Message, Cloneable {
 
     static RMQMessage convertJmsMessage(RMQSession session, GetResponse response, ReceivingContextConsumer receivingContextConsumer) throws JMSException {
         // Deserialize the message payload from the byte[] body
-        RMQMessage message = fromMessage(response.getBody(), session.getTrustedPackages());
+        RMQConnection connection = session.getConnection();
+        RMQMessage message = fromMessage(response.getBody(), session.getTrustedPackages(),
+                                         connection == null ? null : connection.getDestinationCache(),
+                                         session.isLazyMessageDecoding());
 
         message.setSession(session);                                            // Insert session in received message for Message.acknowledge
         message.setJMSRedelivered(response.getEnvelope().isRedeliver());        // Set the redelivered flag
@@ -1003,7 +1193,8 @@ public abstract class RMQMessage implements Message, Cloneable {
      * </blockquote>
      */
     Map<String, Object> toAmqpHeaders() throws IOException, JMSException {
-        Map<String, Object> hdrs = new HashMap<String, Object>();
+        this.decodeProperties();
+        Map<String, Object> hdrs = new HashMap<String, Object>(headersCapacity());
 
         // set non-null user properties
         for (Map.Entry<String, Serializable> e : this.userJmsProperties.entrySet()) {
@@ -1021,6 +1212,13 @@ public abstract class RMQMessage implements Message, Cloneable {
         return hdrs;
     }
 
+    /**
+     * @return a capacity for the headers map that avoids rehashing: the user properties and up to 5 JMS properties
+     */
+    private int headersCapacity() {
+        return (this.userJmsProperties.size() + 5) * 4 / 3 + 1;
+    }
+
     private static void putIfNotNullAndAmqpType(Map<String, Object> hdrs, String key, Object val) {
         if (val!=null)
             if (  val instanceof String
@@ -1062,12 +1260,29 @@ public abstract class RMQMessage implements Message, Cloneable {
      * @throws IOException if serialization fails
      */
     byte[] toByteArray() throws IOException, JMSException {
-        ByteArrayOutputStream bout = new ByteArrayOutputStream(DEFAULT_MESSAGE_BODY_SIZE);
+        return this.toByteArray(MessageWireFormat.V1);
+    }
+
+    /**
+     * Generates a JMS byte array body for this message in a given wire format.
+     * This method invokes the {@link #writeBody(ObjectOutput, ByteArrayOutputStream)} method
+     * on the class that is being serialized
+     * @param format - the wire format to use
+     * @return the body in a byte array
+     * @throws IOException if serialization fails
+     */
+    byte[] toByteArray(MessageWireFormat format) throws IOException, JMSException {
+        this.decodeProperties();
+        this.decodeBody();
+        if (format == MessageWireFormat.V2) {
+            return this.toCompactByteArray();
+        }
+        ByteArrayOutputStream bout = wireBuffer();
         ObjectOutputStream out = new ObjectOutputStream(bout);
         //write the class of the message so we can instantiate on the other end
         out.writeUTF(this.getClass().getName());
         //write out message id
-        out.writeUTF(this.internalMessageID);
+        out.writeUTF(this.internalMessageID == null ? "" : this.internalMessageID);
         //write our JMS properties
         out.writeInt(this.rmqProperties.size());
         for (Map.Entry<String, Serializable> entry : this.rmqProperties.entrySet()) {
@@ -1083,11 +1298,302 @@ public abstract class RMQMessage implements Message, Cloneable {
         out.flush();  // ensure structured part written to byte stream
         this.writeBody(out, bout);
         out.flush();  // force any more structured data to byte stream
-        return bout.toByteArray();
+        return wireBytes(bout);
+    }
+
+    /**
+     * @return the buffer of the calling thread to write a message in, emptied
+     */
+    private static WireBuffer wireBuffer() {
+        WireBuffer bout = WIRE_BUFFER.get();
+        bout.reset();
+        return bout;
+    }
+
+    /**
+     * @param bout - the buffer of the calling thread, a message written in it
+     * @return a copy of the message
+     */
+    private static byte[] wireBytes(ByteArrayOutputStream bout) {
+        byte[] result = bout.toByteArray();
+        if (bout.size() > MAX_REUSED_WIRE_BUFFER_SIZE) {
+            WIRE_BUFFER.remove(); // do not hold on to the buffer of an unusually large message
+        }
+        return result;
     }
 
     /**
-     * Deserializes a {@link RMQMessage} from a JMS generated byte array
+     * Writes this message in the {@link MessageWireFormat#V2} format: the {@link #WIRE_FORMAT_V2_HEADER}, the code of
+     * the message type (or <code>0</code> and the class name), the message id, the JMS properties, each keyed by its
+     * code (or <code>0</code> and its name), the custom properties and finally the body.
+     */
+    private byte[] toCompactByteArray() throws IOException, JMSException {
+        WireBuffer bout = wireBuffer();
+        CompactObjectOutput out = new CompactObjectOutput(bout);
+        out.write(WIRE_FORMAT_V2_HEADER);
+        int typeCode = indexOf(WIRE_MESSAGE_TYPES, this.getClass().getName());
+        out.writeByte(typeCode);
+        if (typeCode == 0) {
+            out.writeUTF(this.getClass().getName());
+        }
+        out.writeUTF(this.internalMessageID == null ? "" : this.internalMessageID);
+        int propertiesLengthIndex = bout.size();
+        out.writeInt(0); // length of the properties, known once they are written
+        out.writeInt(this.rmqProperties.size());
+        for (Map.Entry<String, Serializable> entry : this.rmqProperties.entrySet()) {
+            int propertyCode = indexOf(WIRE_JMS_PROPERTIES, entry.getKey());
+            out.writeByte(propertyCode);
+            if (propertyCode == 0) {
+                out.writeUTF(entry.getKey());
+            }
+            if (entry.getValue() instanceof RMQDestination) {
+                writeDestination((RMQDestination) entry.getValue(), out);
+            } else {
+                writePrimitive(entry.getValue(), out, true);
+            }
+        }
+        out.writeInt(this.userJmsProperties.size());
+        for (Map.Entry<String, Serializable> entry : this.userJmsProperties.entrySet()) {
+            out.writeUTF(entry.getKey());
+            writePrimitive(entry.getValue(), out, true);
+        }
+        bout.putInt(propertiesLengthIndex, bout.size() - propertiesLengthIndex - 4);
+        this.writeBody(out, bout);
+        out.flush();
+        return wireBytes(bout);
+    }
+
+    /**
+     * Writes a destination as its flags and names, instead of its Java serialization. The routing key and the queue
+     * name are not written when they are the destination name, as they are for JMS (non-AMQP) destinations.
+     */
+    private static void writeDestination(RMQDestination destination, ObjectOutput out) throws IOException {
+        String name = destination.getDestinationName();
+        String exchange = destination.getAmqpExchangeName();
+        String routingKey = destination.getAmqpRoutingKey();
+        String queueName = destination.getAmqpQueueName();
+        int flags = 0;
+        if (destination.isAmqp()) flags |= DESTINATION_AMQP;
+        if (destination.isQueue()) flags |= DESTINATION_QUEUE;
+        if (destination.isTemporary()) flags |= DESTINATION_TEMPORARY;
+        if (name != null) flags |= DESTINATION_NAME;
+        if (exchange != null) flags |= DESTINATION_EXCHANGE;
+        if (routingKey != null) flags |= (routingKey.equals(name) ? DESTINATION_ROUTING_KEY_IS_NAME : DESTINATION_ROUTING_KEY);
+        if (queueName != null) flags |= (queueName.equals(name) ? DESTINATION_QUEUE_NAME_IS_NAME : DESTINATION_QUEUE_NAME);
+        out.writeByte(WIRE_DESTINATION);
+        out.writeShort(flags);
+        if (name != null) out.writeUTF(name);
+        if (exchange != null) out.writeUTF(exchange);
+        if ((flags & DESTINATION_ROUTING_KEY) != 0) out.writeUTF(routingKey);
+        if ((flags & DESTINATION_QUEUE_NAME) != 0) out.writeUTF(queueName);
+    }
+
+    /**
+     * Reads a destination written by {@link #writeDestination(RMQDestination, ObjectOutput)}, after its type tag.
+     * @param destinationCache - cache to share destination names, may be <code>null</code>
+     */
+    private static RMQDestination readDestination(ObjectInput in, DestinationCache destinationCache) throws IOException {
+        int flags = in.readUnsignedShort();
+        String name = (flags & DESTINATION_NAME) != 0 ? in.readUTF() : null;
+        String exchange = (flags & DESTINATION_EXCHANGE) != 0 ? in.readUTF() : null;
+        String routingKey = (flags & DESTINATION_ROUTING_KEY) != 0 ? in.readUTF()
+                          : (flags & DESTINATION_ROUTING_KEY_IS_NAME) != 0 ? name : null;
+        String queueName = (flags & DESTINATION_QUEUE_NAME) != 0 ? in.readUTF()
+                         : (flags & DESTINATION_QUEUE_NAME_IS_NAME) != 0 ? name : null;
+        boolean amqp = (flags & DESTINATION_AMQP) != 0;
+        boolean queue = (flags & DESTINATION_QUEUE) != 0;
+        boolean temporary = (flags & DESTINATION_TEMPORARY) != 0;
+        return destinationCache == null
+            ? DestinationCache.newDestination(name, exchange, routingKey, queueName, amqp, queue, temporary)
+            : destinationCache.destination(name, exchange, routingKey, queueName, amqp, queue, temporary);
+    }
+
+    /**
+     * Reads a message written by {@link #toCompactByteArray()}.
+     * @param destinationCache - cache to share destination instances, may be <code>null</code>
+     * @param lazy - <code>true</code> to decode the properties, and the body if the message type allows it,
+     *               when they are first accessed
+     */
+    private static RMQMessage fromCompactMessage(byte[] b, List<String> trustedPackages, DestinationCache destinationCache, boolean lazy) throws IOException, ClassNotFoundException, RMQJMSException {
+        DeliveryInputStream bin = new DeliveryInputStream(b, WIRE_FORMAT_V2_HEADER.length, b.length - WIRE_FORMAT_V2_HEADER.length);
+        CompactObjectInput in = new CompactObjectInput(bin, trustedPackages);
+        int typeCode = in.readUnsignedByte();
+        RMQMessage msg;
+        if (typeCode == 0) {
+            msg = instantiateRmqMessage(in.readUTF(), trustedPackages);
+        } else if (typeCode < WIRE_MESSAGE_TYPES.length) {
+            msg = instantiateRmqMessage(WIRE_MESSAGE_TYPES[typeCode], trustedPackages);
+        } else {
+            throw new RMQJMSException(new MessageFormatException("Unknown message type code " + typeCode));
+        }
+        msg.internalMessageID = emptyToNull(in.readUTF());
+        int propertiesLength = in.readInt();
+        if (lazy) {
+            msg.encodedProperties = new EncodedSection(b, bin.position(), propertiesLength, trustedPackages, destinationCache);
+            bin.slice(propertiesLength);
+        } else {
+            readProperties(msg, in, destinationCache);
+        }
+        if (lazy && msg.decodesBodyLazily()) {
+            msg.encodedBody = new EncodedSection(b, bin.position(), bin.available(), trustedPackages, destinationCache);
+        } else {
+            msg.readBody(in, bin);
+        }
+        return msg;
+    }
+
+    /**
+     * Reads the properties written by {@link #toCompactByteArray()}. Properties set on the message before
+     * (when it is received) are kept.
+     */
+    private static void readProperties(RMQMessage msg, ObjectInput in, DestinationCache destinationCache) throws IOException, ClassNotFoundException, RMQJMSException {
+        int propsize = in.readInt();
+        for (int i = 0; i < propsize; i++) {
+            int propertyCode = in.readUnsignedByte();
+            String name;
+            if (propertyCode == 0) {
+                name = in.readUTF();
+            } else if (propertyCode < WIRE_JMS_PROPERTIES.length) {
+                name = WIRE_JMS_PROPERTIES[propertyCode];
+            } else {
+                throw new RMQJMSException(new MessageFormatException("Unknown property code " + propertyCode));
+            }
+            byte tag = in.readByte();
+            Object value = tag == WIRE_DESTINATION ? readDestination(in, destinationCache) : readPrimitive(tag, in);
+            msg.rmqProperties.putIfAbsent(name, (Serializable) value);
+        }
+        propsize = in.readInt();
+        for (int i = 0; i < propsize; i++) {
+            String name = in.readUTF();
+            msg.userJmsProperties.putIfAbsent(name, (Serializable) readPrimitive(in));
+        }
+    }
+
+    /**
+     * Decode the properties of a received message, if they are not decoded yet.
+     * @throws JMSException if the properties can not be decoded
+     */
+    private void decodeProperties() throws JMSException {
+        if (this.encodedProperties != null) {
+            synchronized (this.decodingLock) {
+                EncodedSection properties = this.encodedProperties;
+                if (properties != null) {
+                    try {
+                        readProperties(this, properties.input(), properties.destinationCache);
+                    } catch (IOException x) {
+                        throw new RMQJMSException(x);
+                    } catch (ClassNotFoundException x) {
+                        throw new RMQJMSException(x);
+                    }
+                    this.encodedProperties = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Decode the body of a received message, if it is not decoded yet. Message types that decode their body lazily
+     * (see {@link #decodesBodyLazily()}) call this before they access their body.
+     * @throws JMSException if the body can not be decoded
+     * @since 2.0.0
+     */
+    protected final void decodeBody() throws JMSException {
+        if (this.encodedBody != null) {
+            synchronized (this.decodingLock) {
+                EncodedSection body = this.encodedBody;
+                if (body != null) {
+                    try {
+                        DeliveryInputStream bin = body.stream();
+                        this.readBody(new CompactObjectInput(bin, body.trustedPackages), bin);
+                    } catch (IOException x) {
+                        throw new RMQJMSException(x);
+                    } catch (ClassNotFoundException x) {
+                        throw new RMQJMSException(x);
+                    }
+                    this.encodedBody = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Message types whose body is costly to decode and is not always accessed return <code>true</code>, and call
+     * {@link #decodeBody()} before they access their body.
+     * @return <code>true</code> if the body of received messages can be decoded when it is first accessed
+     * @since 2.0.0
+     */
+    protected boolean decodesBodyLazily() {
+        return false;
+    }
+
+    /**
+     * A section of the bytes of a delivery, decoded when it is first accessed.
+     */
+    private static final class EncodedSection {
+
+        private final byte[] bytes;
+        private final int offset;
+        private final int length;
+        private final List<String> trustedPackages;
+        private final DestinationCache destinationCache;
+
+        EncodedSection(byte[] bytes, int offset, int length, List<String> trustedPackages, DestinationCache destinationCache) {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+            this.trustedPackages = trustedPackages;
+            this.destinationCache = destinationCache;
+        }
+
+        DeliveryInputStream stream() {
+            return new DeliveryInputStream(this.bytes, this.offset, this.length);
+        }
+
+        CompactObjectInput input() {
+            return new CompactObjectInput(this.stream(), this.trustedPackages);
+        }
+    }
+
+    /**
+     * The buffer messages are written in, which lets a length be written once what it measures is written.
+     */
+    private static final class WireBuffer extends ByteArrayOutputStream {
+
+        WireBuffer(int size) {
+            super(size);
+        }
+
+        void putInt(int index, int value) {
+            this.buf[index] = (byte) (value >>> 24);
+            this.buf[index + 1] = (byte) (value >>> 16);
+            this.buf[index + 2] = (byte) (value >>> 8);
+            this.buf[index + 3] = (byte) value;
+        }
+    }
+
+    private static boolean isCompactMessage(byte[] b) {
+        if (b.length < WIRE_FORMAT_V2_HEADER.length) {
+            return false;
+        }
+        for (int i = 0; i < WIRE_FORMAT_V2_HEADER.length; i++) {
+            if (b[i] != WIRE_FORMAT_V2_HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(String[] codes, String value) {
+        for (int i = 1; i < codes.length; i++) {
+            if (codes[i].equals(value)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Deserializes a {@link RMQMessage} from a JMS generated byte array, in any {@link MessageWireFormat}.
      * This method invokes the {@link #readBody(ObjectInput, ByteArrayInputStream)} method
      * on the deserialized class
      * @param b - the message bytes
@@ -1096,9 +1602,26 @@ public abstract class RMQMessage implements Message, Cloneable {
      * @throws RMQJMSException if RJMS class-related errors occur
      */
     static RMQMessage fromMessage(byte[] b, List<String> trustedPackages) throws RMQJMSException {
+        return fromMessage(b, trustedPackages, null, false);
+    }
+
+    /**
+     * Deserializes a {@link RMQMessage} from a JMS generated byte array, in any {@link MessageWireFormat}.
+     * @param b - the message bytes
+     * @param trustedPackages prefixes of packages that are trusted to be safe to deserialize
+     * @param destinationCache cache to share the destinations of messages, may be <code>null</code>
+     * @param lazy <code>true</code> to decode the properties and the body of {@link MessageWireFormat#V2} messages
+     *             when they are first accessed
+     * @return a RMQMessage object
+     * @throws RMQJMSException if RJMS class-related errors occur
+     */
+    static RMQMessage fromMessage(byte[] b, List<String> trustedPackages, DestinationCache destinationCache, boolean lazy) throws RMQJMSException {
         /* If we don't recognise the message format this throws an exception */
         try {
-            ByteArrayInputStream bin = new ByteArrayInputStream(b);
+            if (isCompactMessage(b)) {
+                return fromCompactMessage(b, trustedPackages, destinationCache, lazy);
+            }
+            ByteArrayInputStream bin = new DeliveryInputStream(b);
             WhiteListObjectInputStream in = new WhiteListObjectInputStream(bin, trustedPackages);
             // read the class name from the stream
             String clazz = in.readUTF();
@@ -1106,7 +1629,7 @@ public abstract class RMQMessage implements Message, Cloneable {
             RMQMessage msg = instantiateRmqMessage(clazz, trustedPackages);
 
             // read the message id
-            msg.internalMessageID = in.readUTF();
+            msg.internalMessageID = emptyToNull(in.readUTF());
             // read JMS properties
             int propsize = in.readInt();
             for (int i = 0; i < propsize; i++) {
@@ -1222,11 +1745,16 @@ public abstract class RMQMessage implements Message, Cloneable {
         }
     }
 
+    /**
+     * Messages without an ID (not sent yet, or sent with message IDs disabled) are only equal to themselves.
+     */
     @Override
     public int hashCode() {
+        if (this.internalMessageID == null)
+            return System.identityHashCode(this);
         final int prime = 31;
         int result = 1;
-        result = prime * result + ((this.internalMessageID == null) ? 0 : this.internalMessageID.hashCode());
+        result = prime * result + this.internalMessageID.hashCode();
         return result;
     }
     @Override
@@ -1239,8 +1767,7 @@ public abstract class RMQMessage implements Message, Cloneable {
             return false;
         RMQMessage other = (RMQMessage) obj;
         if (this.internalMessageID == null) {
-            if (other.internalMessageID != null)
-                return false;
+            return false;
         } else if (!this.internalMessageID.equals(other.internalMessageID))
             return false;
         return true;
@@ -1255,12 +1782,36 @@ public abstract class RMQMessage implements Message, Cloneable {
         return this.internalMessageID;
     }
 
+    private static String emptyToNull(String s) {
+        return s.isEmpty() ? null : s;
+    }
+
     /**
      * Called when a message is sent so that each message is unique
      */
     void generateInternalID() {
-        this.internalMessageID = Util.generateUUID("");
-        this.rmqProperties.put(JMS_MESSAGE_ID, "ID:" + this.internalMessageID);
+        generateInternalID(DEFAULT_MESSAGE_ID_GENERATOR);
+    }
+
+    /**
+     * Called when a message is sent so that each message is unique.
+     * The internal ID and the <code>JMSMessageID</code> share the generated string.
+     * @param messageIdGenerator the generator of the message ID, <code>null</code> for the default one
+     * @since 2.0.0
+     */
+    void generateInternalID(MessageIdGenerator messageIdGenerator) {
+        String messageId = (messageIdGenerator == null ? DEFAULT_MESSAGE_ID_GENERATOR : messageIdGenerator).generate();
+        this.internalMessageID = messageId;
+        this.rmqProperties.put(JMS_MESSAGE_ID, messageId);
+    }
+
+    /**
+     * Called when a message is sent by a producer with message IDs disabled.
+     * @since 2.0.0
+     */
+    void clearInternalID() {
+        this.internalMessageID = null;
+        this.rmqProperties.remove(JMS_MESSAGE_ID);
     }
 
 	/**
@@ -1337,7 +1888,10 @@ public abstract class RMQMessage implements Message, Cloneable {
      * @throws ClassNotFoundException if a class of serialized object cannot be found
      */
     protected static Object readPrimitive(ObjectInput in) throws IOException, ClassNotFoundException {
-        byte b = in.readByte();
+        return readPrimitive(in.readByte(), in);
+    }
+
+    private static Object readPrimitive(byte b, ObjectInput in) throws IOException, ClassNotFoundException {
         switch (b) {
         case -1:
             return null;
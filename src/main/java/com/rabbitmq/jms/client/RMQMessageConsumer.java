@@ -2,6 +2,8 @@
 package com.rabbitmq.jms.client;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -35,7 +37,8 @@ import com.rabbitmq.jms.util.Util;
 /**
  * The implementation of {@link MessageConsumer} in the RabbitMQ JMS Client.
  * <p>
- * Single message {@link #receive receive()}s are implemented by abortable polling in {@link DelayedReceiver}.
+ * Single message {@link #receive receive()}s are implemented in {@link DelayedReceiver}, either by abortable polling or,
+ * when a receive prefetch is configured on the session, by a buffering subscription.
  * </p>
  * <p>
  * {@link MessageListener#onMessage} calls are implemented with a more conventional {@link Consumer}.
@@ -46,7 +49,6 @@ public class RMQMessageConsumer implements MessageConsumer, QueueReceiver, Topic
 
     private static final String DIRECT_REPLY_TO = "amq.rabbitmq.reply-to";
 
-    private static final int DEFAULT_BATCHING_SIZE = 5;
     private static final long STOP_TIMEOUT_MS = 1000; // ONE SECOND
     /** The destination that this consumer belongs to */
     private final RMQDestination destination;
@@ -56,6 +58,8 @@ public class RMQMessageConsumer implements MessageConsumer, QueueReceiver, Topic
     private final String uuidTag;
     /** The selector used to filter messages consumed */
     private final String messageSelector;
+    /** Evaluates the selector of a queue consumer on the client, <code>null</code> if there is none */
+    private final ClientSideSelector clientSideSelector;
     /** The {@link Consumer} that we use to subscribe to Rabbit messages which drives {@link MessageListener#onMessage}. */
     private final AtomicReference<MessageListenerConsumer> listenerConsumer = new AtomicReference<MessageListenerConsumer>();
     /** Entry and exit of application threads calling {@link #receive} are managed by an {@link EntryExitManager}. */
@@ -96,15 +100,20 @@ public class RMQMessageConsumer implements MessageConsumer, QueueReceiver, Topic
      * @param uuidTag - when creating queues to a topic, we need a unique queue name for each consumer. This is the
      *            unique name.
      * @param paused - true if the connection is {@link javax.jms.Connection#stop}ped, false otherwise.
+     * @param clientSideSelector - selects the messages received, <code>null</code> if the broker selects them or there is no selector
      * @param requeueOnMessageListenerException true to requeue message on RuntimeException in listener, false otherwise
      */
-    RMQMessageConsumer(RMQSession session, RMQDestination destination, String uuidTag, boolean paused, String messageSelector, boolean requeueOnMessageListenerException,
+    RMQMessageConsumer(RMQSession session, RMQDestination destination, String uuidTag, boolean paused, String messageSelector, ClientSideSelector clientSideSelector,
+            boolean requeueOnMessageListenerException,
             ReceivingContextConsumer receivingContextConsumer) {
         this.session = session;
         this.destination = destination;
         this.uuidTag = uuidTag;
-        this.delayedReceiver = new DelayedReceiver(DEFAULT_BATCHING_SIZE, this);
+        this.delayedReceiver = new DelayedReceiver(isDirectReplyTo() ? 0 : session.getReceivePrefetch(), this);
+        if (this.delayedReceiver.isPrefetching())
+            this.abortables.add(this.delayedReceiver);
         this.messageSelector = messageSelector;
+        this.clientSideSelector = clientSideSelector;
         if (!paused)
             this.receiveManager.openGate();
         this.autoAck = session.isAutoAck();
@@ -185,6 +194,7 @@ public class RMQMessageConsumer implements MessageConsumer, QueueReceiver, Topic
         }
         logger.trace("setting MessageListener({})", messageListener);
         this.removeListenerConsumer();  // if there is any
+        this.delayedReceiver.stop();    // give back messages prefetched for receive(), if any
         this.messageListener = messageListener;
         try {
             this.setNewListenerConsumer(messageListener); // if needed
@@ -259,6 +269,51 @@ public class RMQMessageConsumer implements MessageConsumer, QueueReceiver, Topic
         return receive(timeout==0 ? new TimeTracker() : new TimeTracker(timeout, TimeUnit.MILLISECONDS));
     }
 
+    /**
+     * Receive up to <code>maxMessages</code> messages from the destination, waiting for up to <code>timeout</code>
+     * milliseconds for the first one if necessary. Further messages are only taken if they are immediately available.
+     * <p>
+     * Entry into the receive region (which blocks while the connection is stopped) happens once for the whole batch.
+     * In {@link Session#CLIENT_ACKNOWLEDGE} mode, {@link Message#acknowledge()} on the last message of the batch
+     * acknowledges the whole batch.
+     * </p>
+     * <p>
+     * This method is RabbitMQ specific.
+     * </p>
+     *
+     * @param maxMessages - the maximum number of messages to receive; must be positive
+     * @param timeout - (in milliseconds) zero means wait forever
+     * @return the messages received, in order; empty if none arrived in time or this consumer was closed
+     * @throws JMSException if the consumer is closed or <code>maxMessages</code> is not positive
+     * @see #receive(long)
+     * @since 2.0.0
+     */
+    public List<Message> receive(int maxMessages, long timeout) throws JMSException {
+        if (this.closed || this.closing)
+            throw new IllegalStateException("Consumer is closed or closing.");
+        logger.trace("receive(maxMessages={}, timeout={}ms)", maxMessages, timeout);
+        return receive(maxMessages, timeout==0 ? new TimeTracker() : new TimeTracker(timeout, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Receive up to <code>maxMessages</code> messages from the destination, if they are immediately available.
+     * <p>
+     * This method is RabbitMQ specific.
+     * </p>
+     *
+     * @param maxMessages - the maximum number of messages to receive; must be positive
+     * @return the messages received, in order; empty if none is available
+     * @throws JMSException if the consumer is closed or <code>maxMessages</code> is not positive
+     * @see #receive(int, long)
+     * @since 2.0.0
+     */
+    public List<Message> receiveNoWait(int maxMessages) throws JMSException {
+        if (this.closed || this.closing)
+            throw new IllegalStateException("Consumer is closed or closing.");
+        logger.trace("receive without waiting (maxMessages={})", maxMessages);
+        return receive(maxMessages, TimeTracker.ZERO);
+    }
+
     /**
      * Returns true if messages should be automatically acknowledged upon arrival
      *
@@ -298,6 +353,30 @@ public class RMQMessageConsumer implements MessageConsumer, QueueReceiver, Topic
                        );
     }
 
+    /**
+     * Register a {@link Consumer} with the Rabbit API to receive messages, limiting the number of unacknowledged
+     * messages it can be delivered.
+     * <p>
+     * The limit is set with a per-consumer {@link Channel#basicQos(int)} just before subscribing,
+     * after which the channel QoS of the connection is restored for subsequent consumers.
+     * </p>
+     *
+     * @param consumer the Consumer being registered
+     * @param consTag the ConsumerTag to use for RabbitMQ callbacks
+     * @param prefetch the maximum number of unacknowledged messages delivered to this consumer
+     * @throws IOException from RabbitMQ calls
+     */
+    void basicConsume(Consumer consumer, String consTag, int prefetch) throws IOException {
+        Channel channel = getSession().getChannel();
+        channel.basicQos(prefetch);
+        try {
+            basicConsume(consumer, consTag);
+        } finally {
+            int channelsQos = getSession().getConnection().getChannelsQos();
+            channel.basicQos(channelsQos == RMQConnection.NO_CHANNEL_QOS ? 0 : channelsQos);
+        }
+    }
+
     /**
      * RabbitMQ {@link Channel#basicConsume} should accept a {@link null} consumer-tag, to cause it to generate a new,
      * unique one for us; but it doesn't :-(
@@ -341,9 +420,17 @@ public class RMQMessageConsumer implements MessageConsumer, QueueReceiver, Topic
             try {
                 GetResponse resp = this.delayedReceiver.get(tt);
                 if (resp == null) return null; // nothing received in time or aborted
+                RMQMessage message = this.convertOrReject(resp);
+                while (!this.select(message)) {
+                    // a requeued message can come back right away, stop once the time is up
+                    if (tt.timedOut() && this.clientSideSelector.requeues()) return null;
+                    resp = this.delayedReceiver.get(tt);
+                    if (resp == null) return null;
+                    message = this.convertOrReject(resp);
+                }
                 this.dealWithAcknowledgements(this.isAutoAck(), resp.getEnvelope().getDeliveryTag());
                 this.session.addUncommittedTag(resp.getEnvelope().getDeliveryTag());
-                return RMQMessage.convertMessage(this.session, this.destination, resp, this.receivingContextConsumer);
+                return message;
             } finally {
                 this.receiveManager.exit();
             }
@@ -359,6 +446,90 @@ public class RMQMessageConsumer implements MessageConsumer, QueueReceiver, Topic
         }
     }
 
+    private List<Message> receive(int maxMessages, TimeTracker tt) throws JMSException {
+        if (maxMessages <= 0) {
+            throw new JMSException(String.format("cannot receive %d messages, maxMessages must be positive.", maxMessages));
+        }
+        if (!this.session.syncAllowed()) {
+            throw new IllegalStateException("A session may not receive() when a MessageListener is set. (See JMS 1.1 §4.4.6.)");
+        }
+        this.numberOfReceives.incrementAndGet();
+        try {
+            if (!this.receiveManager.enter(tt))  // stopped?
+                return new ArrayList<Message>(0); // timed out while stopped
+            try {
+                List<GetResponse> resps = this.delayedReceiver.get(maxMessages, tt);
+                /* the whole batch is converted before any message is acknowledged or tracked, so that it can be requeued */
+                List<RMQMessage> converted = new ArrayList<RMQMessage>(resps.size());
+                try {
+                    for (GetResponse resp : resps) {
+                        converted.add(RMQMessage.convertMessage(this.session, this.destination, resp, this.receivingContextConsumer));
+                    }
+                } catch (JMSException | RuntimeException e) {
+                    for (GetResponse resp : resps) {
+                        this.session.explicitNack(resp.getEnvelope().getDeliveryTag());
+                    }
+                    throw e;
+                }
+                List<Message> msgs = new ArrayList<Message>(converted.size());
+                for (RMQMessage message : converted) {
+                    if (!this.select(message)) {
+                        continue;
+                    }
+                    this.dealWithAcknowledgements(this.isAutoAck(), message.getRabbitDeliveryTag());
+                    this.session.addUncommittedTag(message.getRabbitDeliveryTag());
+                    msgs.add(message);
+                }
+                return msgs;
+            } finally {
+                this.receiveManager.exit();
+            }
+        } catch (AbortedException e) {
+            /* If we were aborted (closed) we return nothing, too. */
+            return new ArrayList<Message>(0);
+        } catch (InterruptedException e) {
+            /* Someone interrupted us -- we ought to terminate */
+            Thread.currentThread().interrupt(); // reset interrupt status
+            return new ArrayList<Message>(0);
+        } finally {
+            this.numberOfReceives.decrementAndGet();
+        }
+    }
+
+    /**
+     * Converts a message received, rejecting it if it cannot be converted, as it is not acknowledged or tracked yet.
+     * The message is not requeued: it would fail again on every delivery, a dead-letter exchange can take it instead.
+     */
+    private RMQMessage convertOrReject(GetResponse resp) throws JMSException {
+        try {
+            return RMQMessage.convertMessage(this.session, this.destination, resp, this.receivingContextConsumer);
+        } catch (JMSException | RuntimeException e) {
+            this.session.explicitNack(resp.getEnvelope().getDeliveryTag(), false);
+            throw e;
+        }
+    }
+
+    /**
+     * Evaluates the selector of this consumer against a message received, if the broker has not.
+     * @param message - the message received
+     * @return <code>true</code> if the message can be delivered, <code>false</code> if it has been rejected
+     */
+    boolean select(RMQMessage message) {
+        return this.clientSideSelector == null || this.clientSideSelector.select(message, this.session.getChannel());
+    }
+
+    /**
+     * Statistics of the selector of this consumer, when it is a queue consumer with a selector, as the selector
+     * is then evaluated on the client.
+     *
+     * @return a snapshot of the statistics, <code>null</code> if the selector is not evaluated on the client
+     * @see com.rabbitmq.jms.admin.RMQConnectionFactory#setQueueSelectorMismatchPolicy(QueueSelectorMismatchPolicy)
+     * @since 2.0.0
+     */
+    public MessageSelectorStatistics getSelectorStatistics() {
+        return this.clientSideSelector == null ? null : this.clientSideSelector.getStatistics();
+    }
+
     void dealWithAcknowledgements(boolean ack, long dtag) {
         if (ack) {
             this.session.explicitAck(dtag);
@@ -541,6 +712,22 @@ public class RMQMessageConsumer implements MessageConsumer, QueueReceiver, Topic
         this.noLocal = noLocal;
     }
 
+    /**
+     * Forget messages prefetched for {@link #receive}, but not yet received, before the session recovers
+     * its channel (which requeues them).
+     */
+    void discardPrefetched() {
+        this.delayedReceiver.discardBuffered();
+    }
+
+    /**
+     * @return the lowest delivery tag of the messages prefetched for {@link #receive}, but not yet received,
+     *         {@link Long#MAX_VALUE} if there are none
+     */
+    long lowestPrefetchedTag() {
+        return this.delayedReceiver.lowestBufferedTag();
+    }
+
     GetResponse getFromRabbitQueue() {
         String qN = rmqQueueName();
         try {
@@ -7,6 +7,7 @@ import com.rabbitmq.jms.admin.RMQDestination;
 import com.rabbitmq.jms.client.message.RMQBytesMessage;
 import com.rabbitmq.jms.client.message.RMQTextMessage;
 import com.rabbitmq.jms.util.RMQJMSException;
+import com.rabbitmq.jms.util.TimeTracker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,6 +21,12 @@ import javax.jms.QueueSender;
 import javax.jms.Topic;
 import javax.jms.TopicPublisher;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.BiFunction;
 
 import static com.rabbitmq.jms.client.RMQMessage.JMS_MESSAGE_DELIVERY_MODE;
@@ -50,14 +57,10 @@ public class RMQMessageProducer implements MessageProducer, QueueSender, TopicPu
     private int deliveryMode = Message.DEFAULT_DELIVERY_MODE;
     /**
      * Should we use message IDs or not.
-     * In this implementation, this flag is ignored and we will
-     * always use message IDs
      */
     private boolean disableMessageID = false;
     /**
      * Should we disable timestamps
-     * In this implementation, this flag is ignored and we will
-     * always use message timestamps
      */
     private boolean disableMessageTimestamp = false;
     /**
@@ -75,7 +78,10 @@ public class RMQMessageProducer implements MessageProducer, QueueSender, TopicPu
 
     private final SendingContextConsumer sendingContextConsumer;
 
-    private final BeforePublishingCallback beforePublishingCallback;
+    /**
+     * The channel of the session, used when publishing channels are not pooled.
+     */
+    private final PublishingChannel sessionChannel;
 
     RMQMessageProducer(RMQSession session, RMQDestination destination, boolean preferProducerMessageProperty,
                               BiFunction<AMQP.BasicProperties.Builder, Message, AMQP.BasicProperties.Builder> amqpPropertiesCustomiser,
@@ -90,11 +96,8 @@ public class RMQMessageProducer implements MessageProducer, QueueSender, TopicPu
         }
         this.amqpPropertiesCustomiser = amqpPropertiesCustomiser == null ? (builder, message) -> builder : amqpPropertiesCustomiser;
         this.sendingContextConsumer = sendingContextConsumer == null ? ctx -> {} : sendingContextConsumer;
-        if (publishingListener == null) {
-            this.beforePublishingCallback = (message, channel) -> {};
-        } else {
-            this.beforePublishingCallback = (message, channel) -> publishingListener.publish(message, channel.getNextPublishSeqNo());
-        }
+        this.sessionChannel = new PublishingChannel(session::getPublishingChannel, publishingListener,
+            channel -> session.enablePublisherConfirms());
     }
 
     public RMQMessageProducer(RMQSession session, RMQDestination destination, boolean preferProducerMessageProperty,
@@ -256,6 +259,143 @@ public class RMQMessageProducer implements MessageProducer, QueueSender, TopicPu
         this.sendingStrategy.send(destination, message);
     }
 
+    /**
+     * Sends a message to the destination of this producer, without waiting for the broker to confirm it.
+     *
+     * @param message the message to send
+     * @return completed when the message is confirmed or nack-ed
+     * @throws JMSException if the message cannot be sent
+     * @see #sendAsync(Destination, Message)
+     * @since 2.0.0
+     */
+    public CompletableFuture<PublisherConfirmContext> sendAsync(Message message) throws JMSException {
+        return this.sendAsync(null, message);
+    }
+
+    /**
+     * Sends a message, without waiting for the broker to confirm it.
+     * <p>
+     * The returned future is completed when the broker confirms (or nacks) the message,
+     * and completed exceptionally if the channel is closed before. This enables publisher confirms on the
+     * channel of the session if they are not already, so it cannot be used in a transacted session,
+     * unless transactions use publisher confirms.
+     * </p>
+     * <p>
+     * The future is completed on the thread of the connection that handles confirms: actions attached to it
+     * with non-async methods must not block, nor use the session.
+     * </p>
+     *
+     * @param destination the destination to send the message to, must be <code>null</code> unless this producer is unidentified
+     * @param message the message to send
+     * @return completed when the message is confirmed or nack-ed
+     * @throws JMSException if the message cannot be sent, or if the session uses AMQP transactions
+     * @since 2.0.0
+     */
+    public CompletableFuture<PublisherConfirmContext> sendAsync(Destination destination, Message message) throws JMSException {
+        this.checkUnidentifiedMessageProducer(destination);
+        return this.internalSendAsync(destination, message);
+    }
+
+    private CompletableFuture<PublisherConfirmContext> internalSendAsync(Destination destination, Message message) throws JMSException {
+        return this.internalSendAsync(destination, message, null);
+    }
+
+    private CompletableFuture<PublisherConfirmContext> internalSendAsync(Destination destination, Message message,
+                                                                         PublishingChannel publishingChannel) throws JMSException {
+        // publisher confirms are enabled on the channel the message is published on
+        CompletableFuture<PublisherConfirmContext> completion = new CompletableFuture<>();
+        this.sendingStrategy.send(destination, message, completion, publishingChannel);
+        return completion;
+    }
+
+    /**
+     * Sends messages to the destination of this producer, and waits for the broker to confirm them.
+     *
+     * @param messages the messages to send
+     * @return the outcome of each message, in the order of the messages
+     * @throws JMSException if no message can be sent
+     * @see #send(Destination, List)
+     * @since 2.0.0
+     */
+    public List<PublisherConfirmContext> send(List<Message> messages) throws JMSException {
+        return this.send(null, messages);
+    }
+
+    /**
+     * Sends messages, and waits for the broker to confirm them.
+     * <p>
+     * The messages are published back-to-back on the same channel, even when the session uses a pool of
+     * publishing channels, so the broker can confirm them together, often with a single acknowledgement.
+     * The call waits for confirms up to the publishing window timeout.
+     * </p>
+     * <p>
+     * There is an outcome for each message, whatever happens to the others: it tells whether the message has been
+     * confirmed or nack-ed, or whether its outcome is unknown ({@link PublisherConfirmContext#isConfirmed()} is
+     * <code>false</code>) because it has not been confirmed in time, the channel has been closed, or it has not been
+     * sent. The messages that are not {@link PublisherConfirmContext#isAck() acknowledged} can be sent again, those
+     * with an unknown outcome may then be duplicated. If a message cannot be sent, the messages after it are not
+     * sent either.
+     * </p>
+     * <p>
+     * This enables publisher confirms on the channel of the session if they are not already, so it cannot be used in
+     * a transacted session, unless transactions use publisher confirms.
+     * </p>
+     *
+     * @param destination the destination to send the messages to, must be <code>null</code> unless this producer is unidentified
+     * @param messages the messages to send
+     * @return the outcome of each message, in the order of the messages
+     * @throws JMSException if no message can be sent, e.g. if the session uses AMQP transactions, or if the thread is interrupted
+     * @see com.rabbitmq.jms.admin.RMQConnectionFactory#setPublishingWindowTimeout(long)
+     * @since 2.0.0
+     */
+    public List<PublisherConfirmContext> send(Destination destination, List<Message> messages) throws JMSException {
+        this.checkUnidentifiedMessageProducer(destination);
+        List<CompletableFuture<PublisherConfirmContext>> completions = new ArrayList<>(messages.size());
+        PublishingChannelPool pool = this.session.getPublishingChannelPool();
+        PublishingChannel publishingChannel = pool == null ? null : this.session.borrowPublishingChannel(pool);
+        try {
+            for (Message message : messages) {
+                completions.add(this.internalSendAsync(destination, message, publishingChannel));
+            }
+        } catch (JMSException x) {
+            if (completions.isEmpty()) {
+                throw x;
+            }
+            // the messages sent so far still get their outcome
+            this.logger.warn("Could not send message {} of {}, the following ones are not sent", completions.size() + 1, messages.size(), x);
+        } finally {
+            if (pool != null) {
+                pool.release(publishingChannel);
+            }
+        }
+        TimeTracker tt = new TimeTracker(this.session.getConfirmTimeout(), TimeUnit.MILLISECONDS);
+        List<PublisherConfirmContext> outcomes = new ArrayList<>(messages.size());
+        int unconfirmed = 0;
+        for (int i = 0; i < messages.size(); i++) {
+            PublisherConfirmContext outcome = null;
+            if (i < completions.size()) {
+                try {
+                    // once the time is over, the outcomes already there are still collected
+                    outcome = completions.get(i).get(tt.remainingNanos(), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException x) {
+                    Thread.currentThread().interrupt(); // reset interrupt status
+                    throw new RMQJMSException("Interrupted while waiting for confirms", x);
+                } catch (ExecutionException | TimeoutException x) {
+                    // the outcome is unknown
+                }
+            }
+            if (outcome == null) {
+                outcome = PublisherConfirmContext.unconfirmed(messages.get(i));
+                unconfirmed++;
+            }
+            outcomes.add(outcome);
+        }
+        if (unconfirmed > 0) {
+            this.logger.debug("{} of {} messages not confirmed", unconfirmed, messages.size());
+        }
+        return outcomes;
+    }
+
     private void checkUnidentifiedMessageProducer(Destination destination) {
         if (destination != null && this.destination != null)
             throw new UnsupportedOperationException("Must not supply a destination unless MessageProducer is unidentified.");
@@ -270,7 +410,12 @@ public class RMQMessageProducer implements MessageProducer, QueueSender, TopicPu
         this.sendingStrategy.send(destination, message, deliveryMode, priority, timeToLive);
     }
 
-    private void internalSend(RMQDestination destination, Message message, int deliveryMode, int priority, long timeToLiveOrExpiration, MessageExpirationType messageExpirationType) throws JMSException {
+    /**
+     * @param borrowedChannel the pooled channel to publish on, borrowed by the caller, <code>null</code> to borrow one
+     */
+    private void internalSend(RMQDestination destination, Message message, int deliveryMode, int priority, long timeToLiveOrExpiration,
+                              MessageExpirationType messageExpirationType, CompletableFuture<PublisherConfirmContext> pendingConfirm,
+                              PublishingChannel borrowedChannel) throws JMSException {
         logger.trace("send/publish message({}) to destination({}) with properties deliveryMode({}), priority({}), timeToLive({})", message, destination, deliveryMode, priority, timeToLiveOrExpiration);
 
         this.sendingContextConsumer.accept(new SendingContext(destination, message));
@@ -301,18 +446,38 @@ public class RMQMessageProducer implements MessageProducer, QueueSender, TopicPu
         rmqMessage.setJMSPriority(priority);
         rmqMessage.setJMSExpiration(expiration);
         rmqMessage.setJMSDestination(destination);
-        rmqMessage.setJMSTimestamp(currentTime);
-        rmqMessage.generateInternalID();
+        // a disabled timestamp or message ID is a hint that the application does not need them
+        rmqMessage.setJMSTimestamp(this.disableMessageTimestamp ? 0L : currentTime);
+        if (this.disableMessageID) {
+            rmqMessage.clearInternalID();
+        } else {
+            rmqMessage.generateInternalID(this.session.getMessageIdGenerator());
+        }
 
         /* Now send it */
-        if (destination.isAmqp()) {
-            sendAMQPMessage(destination, rmqMessage, message, deliveryMode, priority, ttl);
-        } else {
-            sendJMSMessage(destination, rmqMessage, message, deliveryMode, priority, ttl);
+        PublishingChannelPool pool = borrowedChannel == null ? this.session.getPublishingChannelPool() : null;
+        PublishingChannel publishingChannel = borrowedChannel != null ? borrowedChannel
+            : pool == null ? this.sessionChannel : this.session.borrowPublishingChannel(pool);
+        try {
+            // a time-to-live derived from an absolute expiration is different for each message
+            BasicPropertiesTemplates.Template propertiesTemplate =
+                messageExpirationType == MessageExpirationType.TTL || ttl == 0L ?
+                    publishingChannel.getPropertiesTemplates().get(deliveryMode, priority, ttl) :
+                    BasicPropertiesTemplates.uncached(deliveryMode, priority, ttl);
+            Publication publication = new Publication(publishingChannel, propertiesTemplate, message, pendingConfirm);
+            if (destination.isAmqp()) {
+                sendAMQPMessage(destination, rmqMessage, publication);
+            } else {
+                sendJMSMessage(destination, rmqMessage, publication);
+            }
+        } finally {
+            if (pool != null) {
+                pool.release(publishingChannel);
+            }
         }
     }
 
-    private void sendAMQPMessage(RMQDestination destination, RMQMessage msg, Message originalMessage, int deliveryMode, int priority, long timeToLive) throws JMSException {
+    private void sendAMQPMessage(RMQDestination destination, RMQMessage msg, Publication publication) throws JMSException {
         if (!destination.amqpWritable()) {
             this.logger.error("Cannot write to AMQP destination {}", destination);
             throw new RMQJMSException("Cannot write to AMQP destination", new UnsupportedOperationException("MessageProducer.send to undefined AMQP resource"));
@@ -320,21 +485,16 @@ public class RMQMessageProducer implements MessageProducer, QueueSender, TopicPu
 
         if (msg instanceof RMQBytesMessage || msg instanceof RMQTextMessage) {
             try {
-                AMQP.BasicProperties.Builder bob = new AMQP.BasicProperties.Builder();
-                bob.contentType("application/octet-stream");
-                bob.deliveryMode(RMQMessage.rmqDeliveryMode(deliveryMode));
-                bob.priority(priority);
-                bob.expiration(rmqExpiration(timeToLive));
-                bob.headers(msg.toAmqpHeaders());
-
-                maybeSetReplyToPropertyToDirectReplyTo(bob, msg);
+                // the customiser may keep the builder, so the headers are not reused here
+                AMQP.BasicProperties.Builder bob = publication.propertiesTemplate
+                    .builder(msg.toAmqpHeaders(), directReplyTo(msg));
 
                 bob = amqpPropertiesCustomiser.apply(bob, msg);
 
                 byte[] data = msg.toAmqpByteArray();
 
-                this.beforePublishingCallback.beforePublishing(originalMessage, this.session.getChannel());
-                this.session.getChannel().basicPublish(destination.getAmqpExchangeName(), destination.getAmqpRoutingKey(), bob.build(), data);
+                Channel channel = this.beforePublishing(publication, data.length);
+                channel.basicPublish(destination.getAmqpExchangeName(), destination.getAmqpRoutingKey(), bob.build(), data);
             } catch (IOException x) {
                 throw new RMQJMSException(x);
             }
@@ -345,68 +505,63 @@ public class RMQMessageProducer implements MessageProducer, QueueSender, TopicPu
     }
 
     // protected for testing
-    protected void sendJMSMessage(RMQDestination destination, RMQMessage msg, Message originalMessage, int deliveryMode, int priority, long timeToLive) throws JMSException {
+    protected void sendJMSMessage(RMQDestination destination, RMQMessage msg, Publication publication) throws JMSException {
         this.session.declareDestinationIfNecessary(destination);
         try {
-            AMQP.BasicProperties.Builder bob = new AMQP.BasicProperties.Builder();
-            bob.contentType("application/octet-stream");
-            bob.deliveryMode(RMQMessage.rmqDeliveryMode(deliveryMode));
-            bob.priority(priority);
-            bob.expiration(rmqExpiration(timeToLive));
-            bob.headers(msg.toHeaders());
-
-            maybeSetReplyToPropertyToDirectReplyTo(bob, msg);
-
-            byte[] data = msg.toByteArray();
+            // the properties copy the headers, so the same map can be filled for every message
+            AMQP.BasicProperties properties = publication.propertiesTemplate
+                .properties(msg.toHeaders(publication.channel.headers()), directReplyTo(msg));
+
+            byte[] data = msg.toByteArray(this.session.getMessageWireFormat());
+            int bodySize = msg.bodySize();
+            if (bodySize >= 0) {
+                this.session.bodySizeSent(bodySize);
+            }
 
-            this.beforePublishingCallback.beforePublishing(originalMessage, this.session.getChannel());
-            this.session.getChannel().basicPublish(destination.getAmqpExchangeName(), destination.getAmqpRoutingKey(), bob.build(), data);
+            Channel channel = this.beforePublishing(publication, data.length);
+            channel.basicPublish(destination.getAmqpExchangeName(), destination.getAmqpRoutingKey(), properties, data);
         } catch (IOException x) {
             throw new RMQJMSException(x);
         }
     }
 
     /**
-     * Set AMQP reply-to property to direct-reply-to if necessary.
+     * Notifies the publishing listener of the channel, enabling publisher confirms if the message is sent asynchronously.
+     * @return the channel to publish the message on
+     */
+    private Channel beforePublishing(Publication publication, int size) throws JMSException {
+        PublishingChannel publishingChannel = publication.channel;
+        PublishingListener listener = publication.pendingConfirm == null ?
+            publishingChannel.getPublishingListener() : publishingChannel.enablePublisherConfirms();
+        Channel channel = publishingChannel.getChannel();
+        if (listener != null) {
+            listener.publish(publication.message, channel.getNextPublishSeqNo(), size, publication.pendingConfirm);
+        }
+        return channel;
+    }
+
+    /**
+     * AMQP reply-to property for direct-reply-to.
      * <p>
-     * Set the <code>reply-to</code> property to <code>amq.rabbitmq.reply-to</code>
+     * The <code>reply-to</code> property is <code>amq.rabbitmq.reply-to</code>
      * if the <code>JMSReplyTo</code> header is set to a destination with that
      * name.
      * <p>
      * For outbound RPC request.
      *
-     * @param builder
      * @param msg
+     * @return the reply-to property, <code>null</code> if it is not direct-reply-to
      * @throws JMSException
      * @since 1.11.0
      */
-    private static void maybeSetReplyToPropertyToDirectReplyTo(AMQP.BasicProperties.Builder builder, RMQMessage msg) throws JMSException {
+    private static String directReplyTo(RMQMessage msg) throws JMSException {
         if (msg.getJMSReplyTo() != null && msg.getJMSReplyTo() instanceof RMQDestination) {
             RMQDestination replyTo = (RMQDestination) msg.getJMSReplyTo();
             if (DIRECT_REPLY_TO.equals(replyTo.getDestinationName())) {
-                builder.replyTo(DIRECT_REPLY_TO);
+                return DIRECT_REPLY_TO;
             }
         }
-    }
-
-    /** This is dictated by `erlang:send_after' on which rabbitmq depends to implement TTL:
-     * <br/><code>-define(MAX_EXPIRY_TIMER, 4294967295)</code>.
-     */
-    private static final long MAX_TTL = 4294967295L;
-
-    /**
-     * Convert long time-to-live to String time-to-live for amqp protocol.
-     * Constrain to limits: <code>0 &LT;= ttl &LT;= MAX_TTL</code>.
-     * @param ttl JMS time-to-live long integer
-     * @return RabbitMQ message expiration setting (null if expiration==0L)
-     */
-    private static final String rmqExpiration(long ttl) {
-        if (ttl == 0L) return null;
-
-        return String.valueOf( ttl < 0L      ? 0L
-                             : ttl > MAX_TTL ? MAX_TTL
-                             :                 ttl
-                             );
+        return null;
     }
 
     /**
@@ -473,12 +628,35 @@ public class RMQMessageProducer implements MessageProducer, QueueSender, TopicPu
         this.sendingStrategy.send(topic, message, deliveryMode, priority, timeToLive);
     }
 
+    /**
+     * Publishes messages to a topic, and waits for the broker to confirm them.
+     *
+     * @param topic the topic to publish the messages to, must be <code>null</code> unless this producer is unidentified
+     * @param messages the messages to publish
+     * @return the outcome of each message, in the order of the messages
+     * @throws JMSException if no message can be published, e.g. if the session uses AMQP transactions, or if the thread is interrupted
+     * @see #send(Destination, List)
+     * @since 2.0.0
+     */
+    public List<PublisherConfirmContext> publish(Topic topic, List<Message> messages) throws JMSException {
+        return this.send(topic, messages);
+    }
+
     /**
      * Strategy interface for sending messages.
      */
     private interface SendingStrategy {
 
-        void send(Destination destination, Message message) throws JMSException;
+        default void send(Destination destination, Message message) throws JMSException {
+            send(destination, message, null, null);
+        }
+
+        /**
+         * @param pendingConfirm completed when the message is confirmed, <code>null</code> if the message is not sent asynchronously
+         * @param publishingChannel the pooled channel to publish on, <code>null</code> to borrow one if the session uses a pool
+         */
+        void send(Destination destination, Message message, CompletableFuture<PublisherConfirmContext> pendingConfirm,
+                  PublishingChannel publishingChannel) throws JMSException;
 
         void send(Destination destination, Message message, int deliveryMode, int priority, long timeToLive) throws JMSException;
 
@@ -491,13 +669,15 @@ public class RMQMessageProducer implements MessageProducer, QueueSender, TopicPu
     private class PreferMessageProducerPropertySendingStategy implements SendingStrategy {
 
         @Override
-        public void send(Destination destination, Message message) throws JMSException {
-            internalSend((RMQDestination) destination, message, getDeliveryMode(), getPriority(), getTimeToLive(), MessageExpirationType.TTL);
+        public void send(Destination destination, Message message, CompletableFuture<PublisherConfirmContext> pendingConfirm,
+                         PublishingChannel publishingChannel) throws JMSException {
+            internalSend((RMQDestination) destination, message, getDeliveryMode(), getPriority(), getTimeToLive(), MessageExpirationType.TTL,
+                pendingConfirm, publishingChannel);
         }
 
         @Override
         public void send(Destination destination, Message message, int deliveryMode, int priority, long timeToLive) throws JMSException {
-            internalSend((RMQDestination) destination, message, deliveryMode, priority, timeToLive, MessageExpirationType.TTL);
+            internalSend((RMQDestination) destination, message, deliveryMode, priority, timeToLive, MessageExpirationType.TTL, null, null);
         }
 
     }
@@ -509,17 +689,19 @@ public class RMQMessageProducer implements MessageProducer, QueueSender, TopicPu
     private class PreferMessagePropertySendingStrategy implements SendingStrategy {
 
         @Override
-        public void send(Destination destination, Message message) throws JMSException {
+        public void send(Destination destination, Message message, CompletableFuture<PublisherConfirmContext> pendingConfirm,
+                         PublishingChannel publishingChannel) throws JMSException {
             internalSend((RMQDestination) destination, message,
                 message.propertyExists(JMS_MESSAGE_DELIVERY_MODE) ? message.getJMSDeliveryMode() : getDeliveryMode(),
                 message.propertyExists(JMS_MESSAGE_PRIORITY) ? message.getJMSPriority() : getPriority(),
                 message.propertyExists(JMS_MESSAGE_EXPIRATION) ? message.getJMSExpiration() : getTimeToLive(),
-                message.propertyExists(JMS_MESSAGE_EXPIRATION) ? MessageExpirationType.EXPIRATION : MessageExpirationType.TTL);
+                message.propertyExists(JMS_MESSAGE_EXPIRATION) ? MessageExpirationType.EXPIRATION : MessageExpirationType.TTL,
+                pendingConfirm, publishingChannel);
         }
 
         @Override
         public void send(Destination destination, Message message, int deliveryMode, int priority, long timeToLive) throws JMSException {
-            internalSend((RMQDestination) destination, message, deliveryMode, priority, timeToLive, MessageExpirationType.TTL);
+            internalSend((RMQDestination) destination, message, deliveryMode, priority, timeToLive, MessageExpirationType.TTL, null, null);
         }
 
     }
@@ -528,10 +710,26 @@ public class RMQMessageProducer implements MessageProducer, QueueSender, TopicPu
         TTL, EXPIRATION
     }
 
-    interface BeforePublishingCallback {
+    /**
+     * What a message is published with, besides the message itself.
+     */
+    static final class Publication {
 
-        void beforePublishing(Message message, Channel channel);
+        /** the channel to publish on, only used by the current thread */
+        private final PublishingChannel channel;
+        private final BasicPropertiesTemplates.Template propertiesTemplate;
+        /** the message as passed in by the application, to notify about publisher confirms */
+        private final Message message;
+        /** completed when the message is confirmed, <code>null</code> if the message is not sent asynchronously */
+        private final CompletableFuture<PublisherConfirmContext> pendingConfirm;
 
+        private Publication(PublishingChannel channel, BasicPropertiesTemplates.Template propertiesTemplate,
+                            Message message, CompletableFuture<PublisherConfirmContext> pendingConfirm) {
+            this.channel = channel;
+            this.propertiesTemplate = propertiesTemplate;
+            this.message = message;
+            this.pendingConfirm = pendingConfirm;
+        }
     }
 
 }
@@ -4,16 +4,19 @@ package com.rabbitmq.jms.client;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeoutException;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import javax.jms.BytesMessage;
 import javax.jms.Destination;
@@ -40,6 +43,7 @@ import javax.jms.Topic;
 import javax.jms.TopicPublisher;
 import javax.jms.TopicSession;
 import javax.jms.TopicSubscriber;
+import javax.jms.TransactionRolledBackException;
 
 import com.rabbitmq.client.AMQP;
 import com.rabbitmq.jms.util.WhiteListObjectInputStream;
@@ -73,6 +77,12 @@ public class RMQSession implements Session, QueueSession, TopicSession {
     private final RMQConnection connection;
     /** Set to true if this session is transacted. */
     private final boolean transacted;
+    /**
+     * Set to true if this session is transacted with publisher confirms instead of AMQP transactions.
+     *
+     * @since 2.0.0
+     */
+    private final boolean confirmTransacted;
 
     /** This value must be the maximum allowed, and contiguous with valid values for {@link #acknowledgeMode}. */
     public static final int CLIENT_INDIVIDUAL_ACKNOWLEDGE = 4; // mode in {0, 1, 2, 3, 4} is valid
@@ -129,24 +139,53 @@ public class RMQSession implements Session, QueueSession, TopicSession {
 
     private final ReceivingContextConsumer receivingContextConsumer;
 
-    private final PublishingListener publishingListener;
+    /**
+     * Correlates publisher confirms, <code>null</code> while publisher confirms are not enabled on the channel.
+     */
+    private volatile PublishingListener publishingListener; // @GuardedBy(confirmsLock) for writes
+    private final Object confirmsLock = new Object();
+
+    /**
+     * Extracts the token kept to correlate a message to its confirm.
+     *
+     * @since 2.0.0
+     */
+    private final Function<Message, Object> confirmTokenExtractor;
+
+    /**
+     * Bounds the number of unconfirmed messages, when publisher confirms are enabled.
+     *
+     * @since 2.0.0
+     */
+    private final PublishingWindow publishingWindow;
 
     /** The main RabbitMQ channel we use under the hood */
     private final Channel channel;
+    /**
+     * The channel producers publish on: the main channel, or a channel of the publishing connection
+     * if the connection has one and this session is not transacted.
+     */
+    private final Channel publishingChannel;
     /** Set to true if close() has been called and completed */
     private volatile boolean closed = false;
     /** The message listener for this session. */
     private volatile MessageListener messageListener;
+    /** Messages loaded by a connection consumer, to be delivered to the message listener by {@link #run()} */
+    private final ConcurrentLinkedQueue<RMQMessage> loadedMessages = new ConcurrentLinkedQueue<>();
+    /** Messages delivered by {@link #run()} and not acknowledged yet, settled according to the mode of this session */
+    private final List<RMQMessage> deliveredLoadedMessages = new ArrayList<>(); // @GuardedBy(deliveredLoadedMessages)
     /** A list of all the producers created by this session.
      * When a producer is closed, it will be removed from this list */
     private final ArrayList<RMQMessageProducer> producers = new ArrayList<RMQMessageProducer>();
     /** A list of all the consumers created by this session.
      * When a consumer is closed, it will be removed from this list */
     private final ArrayList<RMQMessageConsumer> consumers = new ArrayList<RMQMessageConsumer>();
-    /** We keep an ordered set of the message tags (acknowledgement tags) for all messages received and unacknowledged.
+    /** We keep a set of the message tags (acknowledgement tags) for all messages received and unacknowledged.
      * Each message acknowledgement must ACK all (unacknowledged) messages received up to this point, and
      * we must never acknowledge a message more than once (nor acknowledge a message that doesn't exist). */
-    private final SortedSet<Long> unackedMessageTags = Collections.synchronizedSortedSet(new TreeSet<Long>());
+    private final DeliveryTagTracker unackedMessageTags = new DeliveryTagTracker(UNACKED_MESSAGE_TAGS_CAPACITY);
+    /** Number of unacknowledged messages tracked without overflow */
+    private static final int UNACKED_MESSAGE_TAGS_CAPACITY = 1024;
 
     /* Holds the uncommited tags to commit a nack on rollback */
     private final List<Long> uncommittedMessageTags = new ArrayList<Long>(); // GuardedBy("commitLock");
@@ -217,6 +256,90 @@ public class RMQSession implements Session, QueueSession, TopicSession {
      */
     private Map<String, Object> queueDeclareArguments = null;
 
+    /**
+     * Number of messages pushed in advance to consumers for synchronous receive.
+     * 0 means synchronous receive polls the queue.
+     *
+     * @since 2.0.0
+     */
+    private final int receivePrefetch;
+
+    /**
+     * The format JMS messages are published in.
+     *
+     * @since 2.0.0
+     */
+    private final MessageWireFormat messageWireFormat;
+
+    /** Initial size of the body of bytes and stream messages created by this session */
+    private final BodySizeEstimator bodySizeEstimator = new BodySizeEstimator(RMQMessage.DEFAULT_MESSAGE_BODY_SIZE);
+
+    /**
+     * Whether received messages are decoded when they are first accessed.
+     *
+     * @since 2.0.0
+     */
+    private final boolean lazyMessageDecoding;
+
+    /**
+     * Generates the IDs of sent messages.
+     *
+     * @since 2.0.0
+     */
+    private final MessageIdGenerator messageIdGenerator;
+
+    /**
+     * Sends the acknowledgements of non-transacted AUTO_ACKNOWLEDGE and DUPS_OK_ACKNOWLEDGE sessions,
+     * or of CLIENT_INDIVIDUAL_ACKNOWLEDGE sessions, together, <code>null</code> to send them one by one.
+     *
+     * @since 2.0.0
+     */
+    private final AckCoalescer ackCoalescer;
+
+    /**
+     * Acknowledgements and rejections decided under the {@link #unackedMessageTags} monitor, sent in that order
+     * once the monitor is released.
+     *
+     * @since 2.0.0
+     */
+    private final PendingAcks pendingAcks;
+
+    /**
+     * The pooled channel each thread last published on, see {@link #borrowPublishingChannel(PublishingChannelPool)}.
+     *
+     * @since 2.0.0
+     */
+    private final ThreadLocal<PublishingChannel> pooledPublishingChannel = new ThreadLocal<>();
+
+    /**
+     * Number of threads the messages of a session are delivered to its listeners on.
+     *
+     * @since 2.0.0
+     */
+    private final int messageListenerConcurrency;
+
+    /**
+     * Extracts the key of messages delivered to listeners in parallel, messages with the same key
+     * are delivered in order. <code>null</code> to use the <code>JMSXGroupID</code> property.
+     *
+     * @since 2.0.0
+     */
+    private final Function<Message, Object> messageListenerKeyExtractor;
+
+    /** How long to wait for onMessage to return, in milliseconds */
+    private final int onMessageTimeoutMs;
+
+    /** Created when first needed, <code>null</code> if messages are delivered one at a time */
+    private ParallelMessageDispatcher parallelDispatcher; // @GuardedBy(this)
+
+    /**
+     * What happens to messages that do not match the selector of a queue consumer,
+     * <code>null</code> if queue consumers do not support selectors.
+     *
+     * @since 2.0.0
+     */
+    private final QueueSelectorMismatchPolicy queueSelectorMismatchPolicy;
+
     /**
      * Creates a session object associated with a connection
      * @param sessionParams parameters for this session
@@ -228,8 +351,11 @@ public class RMQSession implements Session, QueueSession, TopicSession {
         }
         this.connection = sessionParams.getConnection();
         this.transacted = sessionParams.isTransacted();
+        this.confirmTransacted = this.transacted && sessionParams.isConfirmTransactions();
         this.subscriptions = sessionParams.getSubscriptions();
-        this.deliveryExecutor = new DeliveryExecutor(sessionParams.getOnMessageTimeoutMs());
+        this.deliveryExecutor = sessionParams.isDirectMessageListenerDispatch() && this.connection.getOnMessageWatchdog() != null ?
+            new DeliveryExecutor(sessionParams.getOnMessageTimeoutMs(), this.connection.getOnMessageWatchdog()) :
+            new DeliveryExecutor(sessionParams.getOnMessageTimeoutMs());
         this.preferProducerMessageProperty = sessionParams.willPreferProducerMessageProperty();
         this.requeueOnMessageListenerException = sessionParams.willRequeueOnMessageListenerException();
         this.nackOnRollback = sessionParams.willNackOnRollback();
@@ -239,7 +365,20 @@ public class RMQSession implements Session, QueueSession, TopicSession {
         this.receivingContextConsumer = sessionParams.getReceivingContextConsumer() == null ?
             ReceivingContextConsumer.NO_OP : sessionParams.getReceivingContextConsumer();
         this.trustedPackages = sessionParams.getTrustedPackages();
-
+        this.receivePrefetch = sessionParams.getReceivePrefetch();
+        this.confirmTokenExtractor = sessionParams.getConfirmTokenExtractor();
+        this.publishingWindow = new PublishingWindow(sessionParams.getMaxInFlightMessages(), sessionParams.getMaxInFlightBytes(),
+            sessionParams.getPublishingWindowPolicy(), sessionParams.getPublishingWindowTimeout(),
+            sessionParams.getPublishingWindowFullHandler());
+
+        this.messageWireFormat = sessionParams.getMessageWireFormat();
+        this.lazyMessageDecoding = sessionParams.isLazyMessageDecoding();
+        this.messageIdGenerator = sessionParams.getMessageIdGenerator() == null ?
+            new CounterMessageIdGenerator() : sessionParams.getMessageIdGenerator();
+        this.messageListenerConcurrency = sessionParams.getMessageListenerConcurrency();
+        this.messageListenerKeyExtractor = sessionParams.getMessageListenerKeyExtractor();
+        this.onMessageTimeoutMs = sessionParams.getOnMessageTimeoutMs();
+        this.queueSelectorMismatchPolicy = sessionParams.getQueueSelectorMismatchPolicy();
         if (transacted) {
             this.acknowledgeMode = Session.SESSION_TRANSACTED;
             this.isIndividualAck = false;
@@ -251,10 +390,18 @@ public class RMQSession implements Session, QueueSession, TopicSession {
             this.isIndividualAck = false;
         }
         try {
-            this.channel = connection.createRabbitChannel(transacted);
+            this.channel = connection.createRabbitChannel(transacted && !this.confirmTransacted);
+            // publishing and transaction outcomes must be on the same channel
+            this.publishingChannel = !transacted && connection.hasSeparatePublishingConnection() ?
+                connection.createPublishingRabbitChannel() : this.channel;
             if (sessionParams.getConfirmListener() != null) {
                 this.publishingListener = PublisherConfirmsUtils.configurePublisherConfirmsSupport(
-                        this.channel, sessionParams.getConfirmListener()
+                        this.publishingChannel, sessionParams.getConfirmListener(), this.confirmTokenExtractor, this.publishingWindow
+                );
+            } else if (this.confirmTransacted) {
+                this.channel.confirmSelect();
+                this.publishingListener = PublisherConfirmsUtils.configurePublisherConfirmsSupport(
+                        this.channel, null, this.confirmTokenExtractor, this.publishingWindow
                 );
             } else {
                 this.publishingListener = null;
@@ -262,6 +409,18 @@ public class RMQSession implements Session, QueueSession, TopicSession {
         } catch (Exception x) { // includes unchecked exceptions, e.g. ShutdownSignalException
             throw new RMQJMSException(x);
         }
+        this.pendingAcks = new PendingAcks(this.channel);
+        boolean lazyAcks = this.acknowledgeMode == Session.AUTO_ACKNOWLEDGE || this.acknowledgeMode == Session.DUPS_OK_ACKNOWLEDGE;
+        if (lazyAcks && sessionParams.getAckCoalescingBatchSize() > 0) {
+            this.ackCoalescer = new AckCoalescer(this.pendingAcks, sessionParams.getAckCoalescingBatchSize(),
+                sessionParams.getAckCoalescingIntervalMs(), this.connection.getAckScheduler());
+        } else if (this.isIndividualAck && sessionParams.isIndividualAckCoalescing()) {
+            // acknowledgements that do not form a range are sent on the timer, or when there are too many of them
+            this.ackCoalescer = new AckCoalescer(this.pendingAcks, UNACKED_MESSAGE_TAGS_CAPACITY,
+                sessionParams.getAckCoalescingIntervalMs(), this.connection.getAckScheduler());
+        } else {
+            this.ackCoalescer = null;
+        }
     }
 
     /**
@@ -289,7 +448,7 @@ public class RMQSession implements Session, QueueSession, TopicSession {
     @Override
     public BytesMessage createBytesMessage() throws JMSException {
         illegalStateExceptionIfClosed();
-        return new RMQBytesMessage();
+        return new RMQBytesMessage(this.initialBodySize());
     }
 
     private void illegalStateExceptionIfClosed() throws IllegalStateException {
@@ -340,7 +499,7 @@ public class RMQSession implements Session, QueueSession, TopicSession {
     @Override
     public StreamMessage createStreamMessage() throws JMSException {
         illegalStateExceptionIfClosed();
-        return new RMQStreamMessage();
+        return new RMQStreamMessage(this.initialBodySize());
     }
 
     /**
@@ -448,7 +607,14 @@ public class RMQSession implements Session, QueueSession, TopicSession {
         logger.trace("commit transaction on session {}", this);
         illegalStateExceptionIfClosed();
         if (!this.transacted) throw new IllegalStateException("Session is not transacted");
-        if (this.enterCommittingBlock()) {
+        if (this.confirmTransacted) {
+            try {
+                this.commitWithConfirms();
+            } catch (TransactionRolledBackException x) {
+                this.rejectDeliveredLoadedMessages(!this.nackOnRollback);
+                throw x;
+            }
+        } else if (this.enterCommittingBlock()) {
             try {
                 // Call commit on the channel.
                 // All messages ought already to have been acked.
@@ -461,6 +627,7 @@ public class RMQSession implements Session, QueueSession, TopicSession {
                 this.leaveCommittingBlock();
             }
         }
+        this.acknowledgeDeliveredLoadedMessages();
     }
 
     /**
@@ -471,6 +638,11 @@ public class RMQSession implements Session, QueueSession, TopicSession {
         logger.trace("rollback transaction on session {}", this);
         illegalStateExceptionIfClosed();
         if (!this.transacted) throw new IllegalStateException("Session is not transacted");
+        this.rejectDeliveredLoadedMessages(!this.nackOnRollback);
+        if (this.confirmTransacted) {
+            this.rollbackWithConfirms();
+            return;
+        }
         if (this.enterCommittingBlock()) {
             try {
                 // rollback the RabbitMQ transaction which may cause some messages to become unacknowledged
@@ -483,6 +655,7 @@ public class RMQSession implements Session, QueueSession, TopicSession {
                     this.clearUncommittedTags();
                 }
                 // requeue all unacknowledged messages (not automatically done by RabbitMQ)
+                this.discardPrefetchedMessages();
                 this.channel.basicRecover(true); // requeue
             } catch (IOException x) {
                 this.logger.error("RabbitMQ exception on channel.txRollback() or channel.basicRecover(true) in session {}",
@@ -494,8 +667,124 @@ public class RMQSession implements Session, QueueSession, TopicSession {
         }
     }
 
-    void explicitAck(long deliveryTag) {
+    /**
+     * Commit without AMQP transaction: wait for the messages sent to be confirmed,
+     * then acknowledge the messages received.
+     */
+    private void commitWithConfirms() throws JMSException {
+        if (this.enterCommittingBlock()) {
+            boolean confirmed;
+            try {
+                confirmed = this.channel.waitForConfirms(this.getConfirmTimeout());
+            } catch (TimeoutException x) {
+                confirmed = false;
+            } catch (InterruptedException x) {
+                Thread.currentThread().interrupt(); // reset interrupt status
+                this.leaveCommittingBlock();
+                throw new RMQJMSException("Interrupted while waiting for confirms", x);
+            } catch (Exception x) {
+                this.leaveCommittingBlock();
+                this.logger.error("RabbitMQ exception on channel.waitForConfirms() in session {}", this, x);
+                throw new RMQJMSException(x);
+            }
+            try {
+                if (confirmed) {
+                    synchronized (this.unackedMessageTags) {
+                        /* messages prefetched for receive() but not yet received must not be covered by a multiple ack */
+                        long lastTag = this.unackedMessageTags.removeUpTo(this.lowestPrefetchedTag() - 1);
+                        if (lastTag != DeliveryTagTracker.NO_TAG) {
+                            this.pendingAcks.ack(lastTag, true);
+                        }
+                        /* the tags received after a prefetched one are acked one by one */
+                        this.unackedMessageTags.clear(tag -> this.pendingAcks.ack(tag, false));
+                    }
+                    /* a failure fails the commit */
+                    this.pendingAcks.send();
+                } else {
+                    this.recoverReceivedMessages();
+                }
+            } catch (IOException x) {
+                this.logger.error("RabbitMQ exception on channel.basicAck() or channel.basicRecover(true) in session {}", this, x);
+                throw new RMQJMSException(x);
+            } finally {
+                this.leaveCommittingBlock();
+            }
+            if (!confirmed) {
+                throw new TransactionRolledBackException("Messages sent in the transaction were not confirmed");
+            }
+        }
+    }
+
+    /**
+     * Rollback without AMQP transaction: the messages received are requeued (or nacked), the messages sent stay sent.
+     */
+    private void rollbackWithConfirms() throws JMSException {
         if (this.enterCommittingBlock()) {
+            try {
+                this.recoverReceivedMessages();
+            } catch (IOException x) {
+                this.logger.error("RabbitMQ exception on channel.basicNack() or channel.basicRecover(true) in session {}", this, x);
+                throw new RMQJMSException(x);
+            } finally {
+                this.leaveCommittingBlock();
+            }
+        }
+    }
+
+    private void recoverReceivedMessages() throws IOException {
+        if (this.nackOnRollback) {
+            this.unackedMessageTags.clear(tag -> {
+                try {
+                    this.channel.basicNack(tag, false, false);
+                } catch (IOException x) {
+                    this.logger.warn("Cannot nack message received (dTag={})", tag, x);
+                }
+            });
+        } else {
+            this.unackedMessageTags.clear();
+        }
+        // requeue all unacknowledged messages
+        this.discardPrefetchedMessages();
+        this.channel.basicRecover(true);
+    }
+
+    /**
+     * Messages prefetched for synchronous receive are unacknowledged on the channel and are requeued
+     * by a channel recover, so consumers must not hand them out afterwards.
+     */
+    private void discardPrefetchedMessages() {
+        if (this.receivePrefetch > 0) {
+            for (RMQMessageConsumer consumer : this.consumers) {
+                consumer.discardPrefetched();
+            }
+        }
+    }
+
+    /**
+     * @return the lowest delivery tag of the messages prefetched for synchronous receive by the consumers of this
+     *         session, but not yet received, {@link Long#MAX_VALUE} if there are none
+     */
+    private long lowestPrefetchedTag() {
+        long lowest = Long.MAX_VALUE;
+        if (this.receivePrefetch > 0) {
+            for (RMQMessageConsumer consumer : this.consumers) {
+                lowest = Math.min(lowest, consumer.lowestPrefetchedTag());
+            }
+        }
+        return lowest;
+    }
+
+    /**
+     * @return the number of messages pushed in advance to consumers for synchronous receive, 0 if they poll
+     */
+    int getReceivePrefetch() {
+        return this.receivePrefetch;
+    }
+
+    void explicitAck(long deliveryTag) {
+        if (this.ackCoalescer != null) {
+            this.ackCoalescer.ack(deliveryTag, this.lowestPrefetchedTag());
+        } else if (this.enterCommittingBlock()) {
             try {
                 this.channel.basicAck(deliveryTag, false);
             } catch (Exception x) {
@@ -510,9 +799,16 @@ public class RMQSession implements Session, QueueSession, TopicSession {
     }
 
     void explicitNack(long deliveryTag) {
+        this.explicitNack(deliveryTag, true);
+    }
+
+    /**
+     * @param requeue - <code>false</code> to reject the message, so that a dead-letter exchange can take it
+     */
+    void explicitNack(long deliveryTag, boolean requeue) {
         if (this.enterCommittingBlock()) {
             try {
-                this.channel.basicNack(deliveryTag, false, true);
+                this.channel.basicNack(deliveryTag, false, requeue);
             } catch (Exception x) {
                 // TODO logging impl debug message
                 this.logger.warn("Cannot reject/requeue message received (dTag={})", deliveryTag, x);
@@ -540,15 +836,26 @@ public class RMQSession implements Session, QueueSession, TopicSession {
                 // close consumers first (to prevent requeues being consumed)
                 closeAllConsumers();
 
+                // messages delivered by run() and not acknowledged are requeued
+                this.rejectDeliveredLoadedMessages(true);
+
                 // rollback anything not committed already
                 if (this.getTransactedNoException()) {
                     // don't nack messages on close
                     this.clearUncommittedTags();
+                    if (this.confirmTransacted) {
+                        this.unackedMessageTags.clear();
+                    }
                     this.rollback();
                 }
 
                 //clear up potential executor
                 this.deliveryExecutor.close();
+                ParallelMessageDispatcher dispatcher = this.existingParallelDispatcher();
+                if (dispatcher != null) {
+                    // messages being processed are acknowledged before the channel is closed
+                    dispatcher.close(this.onMessageTimeoutMs);
+                }
 
                 //close all producers created by this session
                 for (RMQMessageProducer producer : this.producers) {
@@ -561,6 +868,10 @@ public class RMQSession implements Session, QueueSession, TopicSession {
                     this.commit();
                 }
 
+                if (this.ackCoalescer != null) {
+                    this.ackCoalescer.close();
+                }
+
                 this.closeRabbitChannels();
 
             } finally {
@@ -581,12 +892,38 @@ public class RMQSession implements Session, QueueSession, TopicSession {
         this.consumers.clear();
     }
 
+    /**
+     * Messages of non-transacted sessions can be delivered to listeners in parallel, except in
+     * {@link Session#CLIENT_ACKNOWLEDGE} mode, where acknowledging a message acknowledges the messages
+     * delivered before it, which may still be processed.
+     * @return the dispatcher to deliver messages to listeners with, <code>null</code> to deliver them one at a time
+     */
+    synchronized ParallelMessageDispatcher getParallelDispatcher() {
+        if (this.parallelDispatcher == null && this.messageListenerConcurrency > 1 && !this.closed && !this.transacted
+            && (this.acknowledgeMode != Session.CLIENT_ACKNOWLEDGE || this.isIndividualAck)) {
+            this.parallelDispatcher = new ParallelMessageDispatcher(this.channel, this.messageListenerConcurrency,
+                this.messageListenerKeyExtractor, this.receivePrefetch == 0);
+        }
+        return this.parallelDispatcher;
+    }
+
+    private synchronized ParallelMessageDispatcher existingParallelDispatcher() {
+        return this.parallelDispatcher;
+    }
+
     void deliverMessage(RMQMessage rmqMessage, MessageListener messageListener) throws JMSException, InterruptedException {
         this.deliveryExecutor.deliverMessageWithProtection(rmqMessage, messageListener);
     }
 
     private void closeRabbitChannels() throws JMSException {
         this.clearBrowsingChannels(); // does not throw exception
+        if (this.publishingChannel != null && this.publishingChannel != this.channel) {
+            try {
+                this.publishingChannel.close();
+            } catch (Exception x) { // includes unchecked exceptions, e.g. ShutdownSignalException
+                this.logger.debug("RabbitMQ publishing channel({}) failed to close on session {}", this.publishingChannel, this, x);
+            }
+        }
         if (this.channel == null)
             return;
         try {
@@ -619,17 +956,19 @@ public class RMQSession implements Session, QueueSession, TopicSession {
         if (getTransactedNoException()) {
             throw new javax.jms.IllegalStateException("Session is transacted.");
         } else {
-            synchronized (this.unackedMessageTags) {
-                /* If we have messages to recover */
-                if (!this.unackedMessageTags.isEmpty()) {
-                    try {
-                        this.channel.basicRecover(true); // requeue
-                    } catch (IOException x) {
-                        logger.warn("basicRecover on channel({}) failed", this.channel, x);
-                        throw new RMQJMSException(x);
-                    }
-                    this.unackedMessageTags.clear();
+            this.rejectDeliveredLoadedMessages(true);
+            // messages already acknowledged must not be redelivered
+            this.flushAcks();
+            /* If we have messages to recover */
+            if (!this.unackedMessageTags.isEmpty()) {
+                try {
+                    this.discardPrefetchedMessages();
+                    this.channel.basicRecover(true); // requeue
+                } catch (IOException x) {
+                    logger.warn("basicRecover on channel({}) failed", this.channel, x);
+                    throw new RMQJMSException(x);
                 }
+                this.unackedMessageTags.clear();
             }
         }
     }
@@ -648,17 +987,162 @@ public class RMQSession implements Session, QueueSession, TopicSession {
      */
     @Override
     public void setMessageListener(MessageListener listener) throws JMSException {
-        // not implemented
-        throw new UnsupportedOperationException();
+        illegalStateExceptionIfClosed();
+        this.messageListener = listener;
     }
 
     /**
+     * Delivers the messages loaded into this session by a {@link RMQConnectionConsumer} to the listener of
+     * this session. The messages are rejected and requeued if there is no listener or the session is closed.
+     * <p>
+     * The messages are acknowledged according to the mode of this session, on the session that received them:
+     * once the listener returns in {@link Session#AUTO_ACKNOWLEDGE} and {@link Session#DUPS_OK_ACKNOWLEDGE} modes,
+     * when they are acknowledged in {@link Session#CLIENT_ACKNOWLEDGE} and {@link #CLIENT_INDIVIDUAL_ACKNOWLEDGE}
+     * modes, and when this session commits in transacted mode. They are requeued when this session recovers,
+     * rolls back, or is closed before.
+     * </p>
      * {@inheritDoc}
      */
     @Override
     public void run() {
-        //this will not be implemented
-        throw new UnsupportedOperationException();
+        RMQMessage message;
+        while ((message = this.loadedMessages.poll()) != null) {
+            RMQSession consumingSession = message.getSession();
+            MessageListener listener = this.messageListener;
+            if (listener == null || this.closed) {
+                this.logger.warn("No listener to deliver message {} to on session '{}', requeuing it", message, this);
+                consumingSession.rejectMessage(message);
+                continue;
+            }
+            boolean ack = true;
+            if (this.acknowledgesLoadedMessages()) {
+                message.setDeliveringSession(this);
+                synchronized (this.deliveredLoadedMessages) {
+                    this.deliveredLoadedMessages.add(message);
+                }
+            }
+            try {
+                listener.onMessage(message);
+            } catch (RuntimeException e) {
+                this.logger.error("Message listener of session '{}' threw exception on message {}", this, message, e);
+                if (this.requeueOnMessageListenerException) {
+                    this.removeDeliveredLoadedMessage(message);
+                    consumingSession.rejectMessage(message);
+                    ack = false;
+                }
+            }
+            if (ack && !this.acknowledgesLoadedMessages()) {
+                try {
+                    consumingSession.acknowledgeMessage(message);
+                } catch (JMSException e) {
+                    this.logger.error("Cannot acknowledge message {} delivered on session '{}'", message, this, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the messages loaded by a connection consumer are acknowledged by the application
+     *         or on commit, <code>false</code> if they are acknowledged once the listener returns
+     */
+    private boolean acknowledgesLoadedMessages() {
+        return this.transacted || this.acknowledgeMode == Session.CLIENT_ACKNOWLEDGE || this.isIndividualAck;
+    }
+
+    /**
+     * Loads messages for the next {@link #run()}.
+     * @param messages - messages received by the session of a {@link RMQConnectionConsumer}
+     */
+    void loadMessages(List<RMQMessage> messages) {
+        this.loadedMessages.addAll(messages);
+    }
+
+    /**
+     * Acknowledges a message delivered by {@link #run()}, according to the mode of this session.
+     * Invoked when the method {@link javax.jms.Message#acknowledge()} is called.
+     * @param message - the message to be acknowledged, received by the session of a {@link RMQConnectionConsumer}
+     */
+    void acknowledgeLoadedMessage(RMQMessage message) throws JMSException {
+        illegalStateExceptionIfClosed();
+        if (this.transacted) {
+            return; // acknowledged on commit
+        }
+        if (this.isIndividualAck) {
+            if (this.removeDeliveredLoadedMessage(message)) {
+                message.getSession().acknowledgeMessage(message);
+            }
+        } else {
+            this.acknowledgeDeliveredLoadedMessages();
+        }
+    }
+
+    private boolean removeDeliveredLoadedMessage(RMQMessage message) {
+        synchronized (this.deliveredLoadedMessages) {
+            // by identity, messages with the same ID can be delivered more than once
+            for (Iterator<RMQMessage> iterator = this.deliveredLoadedMessages.iterator(); iterator.hasNext(); ) {
+                if (iterator.next() == message) {
+                    iterator.remove();
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private List<RMQMessage> drainDeliveredLoadedMessages() {
+        synchronized (this.deliveredLoadedMessages) {
+            if (this.deliveredLoadedMessages.isEmpty()) {
+                return Collections.emptyList();
+            }
+            List<RMQMessage> messages = new ArrayList<>(this.deliveredLoadedMessages);
+            this.deliveredLoadedMessages.clear();
+            return messages;
+        }
+    }
+
+    private void acknowledgeDeliveredLoadedMessages() throws JMSException {
+        List<RMQMessage> messages = this.drainDeliveredLoadedMessages();
+        if (!messages.isEmpty()) {
+            // all received by the session of the connection consumer, acknowledged together
+            messages.get(0).getSession().acknowledge(messages);
+        }
+    }
+
+    /**
+     * @param requeue - <code>false</code> to reject the messages, so that a dead-letter exchange can take them
+     */
+    private void rejectDeliveredLoadedMessages(boolean requeue) {
+        for (RMQMessage message : this.drainDeliveredLoadedMessages()) {
+            message.getSession().rejectMessage(message, requeue);
+        }
+    }
+
+    /**
+     * Rejects and requeues a message received by this session and not acknowledged yet.
+     * @param message - the message to requeue
+     */
+    void rejectMessage(RMQMessage message) {
+        this.rejectMessage(message, true);
+    }
+
+    /**
+     * Rejects a message received by this session and not acknowledged yet.
+     * @param message - the message to reject
+     * @param requeue - <code>false</code> to reject the message, so that a dead-letter exchange can take it
+     */
+    void rejectMessage(RMQMessage message, boolean requeue) {
+        long deliveryTag = message.getRabbitDeliveryTag();
+        synchronized (this.unackedMessageTags) {
+            if (!this.unackedMessageTags.remove(deliveryTag)) {
+                return;
+            }
+            this.pendingAcks.nack(deliveryTag, requeue);
+        }
+        try {
+            this.pendingAcks.send();
+        } catch (Exception x) { // includes unchecked exceptions, e.g. ShutdownSignalException
+            this.logger.warn("Cannot reject/requeue message {} on session '{}'", message, this, x);
+        }
     }
 
     /**
@@ -750,8 +1234,11 @@ public class RMQSession implements Session, QueueSession, TopicSession {
                 throw new RMQJMSException("RabbitMQ Exception creating Consumer", x);
             }
         }
+        // the broker does not apply selectors to queues, messages are selected on reception
+        ClientSideSelector clientSideSelector = dest.isQueue() && !nullOrEmpty(jmsSelector) ?
+            new ClientSideSelector(jmsSelector, this.queueSelectorMismatchPolicy) : null;
         RMQMessageConsumer consumer = new RMQMessageConsumer(this, dest, consumerTag, getConnection().isStopped(),
-            jmsSelector, this.requeueOnMessageListenerException, this.receivingContextConsumer);
+            jmsSelector, clientSideSelector, this.requeueOnMessageListenerException, this.receivingContextConsumer);
         this.consumers.add(consumer);
         return consumer;
     }
@@ -802,17 +1289,18 @@ public class RMQSession implements Session, QueueSession, TopicSession {
 
     /**
      * {@inheritDoc}
-     * @throws UnsupportedOperationException - method not implemented until we support selectors
+     * @throws UnsupportedOperationException - if the destination is a queue, the selector is not empty and
+     * no {@link QueueSelectorMismatchPolicy} is set
      */
     @Override
     public MessageConsumer createConsumer(Destination destination, String messageSelector) throws JMSException {
         illegalStateExceptionIfClosed();
         if (nullOrEmpty(messageSelector)) {
             return createConsumer(destination);
-        } else if (isTopic(destination)) {
+        } else if (isTopic(destination) || this.queueSelectorMismatchPolicy != null) {
             return createConsumerInternal((RMQDestination) destination, null, false, messageSelector);
         } else {
-            // selectors are not supported for queues
+            // selectors are not supported for queues without a mismatch policy
             throw new UnsupportedOperationException();
         }
     }
@@ -827,7 +1315,8 @@ public class RMQSession implements Session, QueueSession, TopicSession {
 
     /**
      * {@inheritDoc}
-     * @throws UnsupportedOperationException - method not implemented until we support selectors
+     * @throws UnsupportedOperationException - if the destination is a queue, the selector is not empty and
+     * no {@link QueueSelectorMismatchPolicy} is set
      */
     @Override
     public MessageConsumer createConsumer(Destination destination, String messageSelector, boolean noLocal) throws JMSException {
@@ -836,12 +1325,12 @@ public class RMQSession implements Session, QueueSession, TopicSession {
             RMQMessageConsumer consumer = (RMQMessageConsumer)createConsumer(destination);
             consumer.setNoLocal(noLocal);
             return consumer;
-        } else if (isTopic(destination)) {
+        } else if (isTopic(destination) || this.queueSelectorMismatchPolicy != null) {
             RMQMessageConsumer consumer = createConsumerInternal((RMQDestination) destination, null, false, messageSelector);
             consumer.setNoLocal(noLocal);
             return consumer;
         }  else {
-            // selectors are not supported for queues
+            // selectors are not supported for queues without a mismatch policy
             throw new UnsupportedOperationException();
         }
     }
@@ -887,19 +1376,36 @@ public class RMQSession implements Session, QueueSession, TopicSession {
          */
         boolean exclusive = dest.isTemporary() || ((!dest.isQueue()) && (!durableSubscriber));
 
+        /*
+         * With several AMQP connections, the sessions of this connection are not all on the AMQP connection that
+         * owns an exclusive queue, so such queues are shared instead: queues of topic subscribers are auto-deleted
+         * with their consumer and temporary queues are deleted when this connection is closed.
+         */
+        boolean shared = exclusive && this.connection.hasSeveralAmqpConnections();
+        if (shared) {
+            exclusive = false;
+        }
+
+        /* the queue of a destination is declared once per connection, queues of topic subscribers are unique */
+        DeclaredTopology topology = queueNameOverride == null ? this.connection.getDeclaredTopology() : null;
+
         if (dest.isQueue()) {
             if (dest.noNeedToDeclareExchange()) {
                 logger.warn("no need to declare built-in exchange for queue destination '{}'", dest);
             }
             else {
-                logger.trace("declare RabbitMQ exchange for queue destinations '{}'", dest);
-                try {
-                    this.channel.exchangeDeclare(exchangeName, exchangeType, durable,
-                                                 false, // autoDelete
-                                                 false, // internal
-                                                 null); // object properties
-                } catch (Exception x) {
-                    throw new RMQJMSException(x);
+                List<Object> exchangeKey = DeclaredTopology.exchange(exchangeName, exchangeType, durable);
+                if (topology == null || !topology.isDeclared(exchangeKey)) {
+                    logger.trace("declare RabbitMQ exchange for queue destinations '{}'", dest);
+                    try {
+                        this.channel.exchangeDeclare(exchangeName, exchangeType, durable,
+                                                     false, // autoDelete
+                                                     false, // internal
+                                                     null); // object properties
+                    } catch (Exception x) {
+                        throw new RMQJMSException(x);
+                    }
+                    if (topology != null) topology.declared(exchangeKey);
                 }
             }
         }
@@ -909,24 +1415,33 @@ public class RMQSession implements Session, QueueSession, TopicSession {
         */
         boolean autoDelete = cleanUpServerNamedQueuesForNonDurableTopics ?
             !durable && queueNameOverride != null && !dest.isQueue() : false;
-
-        try { /* Declare the queue to RabbitMQ -- this creates it if it doesn't already exist */
-            this.logger.debug("declare RabbitMQ queue name({}), durable({}), exclusive({}), auto-delete({}), arguments({})",
-                              queueName, durable, exclusive, false, queueDeclareArguments);
-            this.channel.queueDeclare(queueName,
-                                      durable,
-                                      exclusive,
-                                      autoDelete,
-                                      queueDeclareArguments);
-
-            /* Temporary or 'topic queues' are exclusive and therefore get deleted by RabbitMQ on close */
-        } catch (Exception x) {
-            this.logger.error("RabbitMQ exception on queue declare name({}), durable({}), exclusive({}), auto-delete({}), arguments({})",
-                              queueName, durable, exclusive, autoDelete, queueDeclareArguments, x);
-            throw new RMQJMSException(x);
+        autoDelete |= shared && !dest.isQueue();
+
+        /* an exclusive queue declared on one AMQP connection must be declared again on another one */
+        List<Object> queueKey = DeclaredTopology.queue(queueName, durable, exclusive, autoDelete, queueDeclareArguments,
+                                                       exclusive ? this.channel.getConnection() : null);
+        if (topology == null || !topology.isDeclared(queueKey)) {
+            try { /* Declare the queue to RabbitMQ -- this creates it if it doesn't already exist */
+                this.logger.debug("declare RabbitMQ queue name({}), durable({}), exclusive({}), auto-delete({}), arguments({})",
+                                  queueName, durable, exclusive, false, queueDeclareArguments);
+                this.channel.queueDeclare(queueName,
+                                          durable,
+                                          exclusive,
+                                          autoDelete,
+                                          queueDeclareArguments);
+
+                /* Temporary or 'topic queues' are exclusive and therefore get deleted by RabbitMQ on close */
+            } catch (Exception x) {
+                this.logger.error("RabbitMQ exception on queue declare name({}), durable({}), exclusive({}), auto-delete({}), arguments({})",
+                                  queueName, durable, exclusive, autoDelete, queueDeclareArguments, x);
+                throw new RMQJMSException(x);
+            }
+            if (shared && dest.isQueue()) this.connection.sharedTemporaryQueueDeclared(queueName);
+            if (topology != null) topology.declared(queueKey);
         }
 
-        if (bind) {
+        List<Object> bindingKey = DeclaredTopology.binding(queueName, exchangeName, queueName);
+        if (bind && (topology == null || !topology.isDeclared(bindingKey))) {
             try { /* Bind the queue to our exchange -- this allows publications to succeed. */
                 this.logger.debug("bind queue name({}), to exchange({}), with r-key({}), no arguments",
                         queueName, exchangeName, queueName);
@@ -938,6 +1453,7 @@ public class RMQSession implements Session, QueueSession, TopicSession {
                         queueName, durable, exclusive, false, queueDeclareArguments, x);
                 throw new RMQJMSException(x);
             }
+            if (topology != null) topology.declared(bindingKey);
         }
         dest.setDeclared(true);
     }
@@ -964,23 +1480,28 @@ public class RMQSession implements Session, QueueSession, TopicSession {
             logger.warn("no need to declare built-in exchange for topic destination '{}'", dest);
         }
         else {
-            logger.trace("declare RabbitMQ exchange for topic destination '{}'", dest);
-            try {
-                this.channel.exchangeDeclare(/* the name of the exchange */
-                                             dest.getAmqpExchangeName(),
-                                             /* the type of exchange to use */
-                                             dest.amqpExchangeType(),
-                                             /* durable for all except temporary topics */
-                                             !dest.isTemporary(),
-                                             // TODO: how do we delete exchanges used for temporary topics
-                                             /* auto delete is always false */
-                                             false,
-                                             /* internal is false: JMS clients will want to publish directly to the exchange */
-                                             false,
-                                             /* object parameters */
-                                             null);
-            } catch (IOException x) {
-                throw new RMQJMSException(x);
+            DeclaredTopology topology = this.connection.getDeclaredTopology();
+            List<Object> exchangeKey = DeclaredTopology.exchange(dest.getAmqpExchangeName(), dest.amqpExchangeType(), !dest.isTemporary());
+            if (!topology.isDeclared(exchangeKey)) {
+                logger.trace("declare RabbitMQ exchange for topic destination '{}'", dest);
+                try {
+                    this.channel.exchangeDeclare(/* the name of the exchange */
+                                                 dest.getAmqpExchangeName(),
+                                                 /* the type of exchange to use */
+                                                 dest.amqpExchangeType(),
+                                                 /* durable for all except temporary topics */
+                                                 !dest.isTemporary(),
+                                                 // TODO: how do we delete exchanges used for temporary topics
+                                                 /* auto delete is always false */
+                                                 false,
+                                                 /* internal is false: JMS clients will want to publish directly to the exchange */
+                                                 false,
+                                                 /* object parameters */
+                                                 null);
+                } catch (IOException x) {
+                    throw new RMQJMSException(x);
+                }
+                topology.declared(exchangeKey);
             }
         }
         dest.setDeclared(true);
@@ -1209,6 +1730,133 @@ public class RMQSession implements Session, QueueSession, TopicSession {
         return this.connection;
     }
 
+    /**
+     * Enables publisher confirms on the channel of this session, if they are not already enabled.
+     * @return the listener to notify when a message is published
+     * @throws JMSException if the session uses AMQP transactions (an AMQP channel cannot be both transactional and in confirm mode),
+     * or if confirms cannot be enabled
+     * @since 2.0.0
+     */
+    PublishingListener enablePublisherConfirms() throws JMSException {
+        PublishingListener listener = this.publishingListener;
+        if (listener != null) {
+            return listener;
+        }
+        if (this.transacted && !this.confirmTransacted) {
+            throw new IllegalStateException("Publisher confirms are not supported in sessions using AMQP transactions");
+        }
+        synchronized (this.confirmsLock) {
+            if (this.publishingListener == null) {
+                try {
+                    this.publishingChannel.confirmSelect();
+                } catch (Exception x) { // includes unchecked exceptions, e.g. ShutdownSignalException
+                    throw new RMQJMSException(x);
+                }
+                this.publishingListener = PublisherConfirmsUtils.configurePublisherConfirmsSupport(
+                    this.publishingChannel, null, this.confirmTokenExtractor, this.publishingWindow
+                );
+            }
+            return this.publishingListener;
+        }
+    }
+
+    /**
+     * The number of messages published by this session and not yet confirmed by the broker.
+     *
+     * @return the number of unconfirmed messages, 0 if publisher confirms are not enabled
+     * @see com.rabbitmq.jms.admin.RMQConnectionFactory#setMaxInFlightMessages(int)
+     * @since 2.0.0
+     */
+    public int getInFlightMessages() {
+        return this.publishingWindow.getInFlightMessages();
+    }
+
+    /**
+     * The size of the messages published by this session and not yet confirmed by the broker.
+     *
+     * @return the size of unconfirmed messages, in bytes, 0 if publisher confirms are not enabled
+     * or if the publishing window has no limit in bytes
+     * @see com.rabbitmq.jms.admin.RMQConnectionFactory#setMaxInFlightBytes(long)
+     * @since 2.0.0
+     */
+    public long getInFlightBytes() {
+        return this.publishingWindow.getInFlightBytes();
+    }
+
+    /**
+     * @return how long to wait for messages sent in a batch to be confirmed, in milliseconds
+     * @since 2.0.0
+     */
+    long getConfirmTimeout() {
+        return this.publishingWindow.getTimeoutMs();
+    }
+
+    /**
+     * @return the format JMS messages are published in
+     * @since 2.0.0
+     */
+    MessageWireFormat getMessageWireFormat() {
+        return this.messageWireFormat;
+    }
+
+    /**
+     * @return <code>true</code> if received messages are decoded when they are first accessed
+     * @since 2.0.0
+     */
+    boolean isLazyMessageDecoding() {
+        return this.lazyMessageDecoding;
+    }
+
+    /**
+     * @return the generator of the IDs of the messages sent by this session
+     * @since 2.0.0
+     */
+    MessageIdGenerator getMessageIdGenerator() {
+        return this.messageIdGenerator;
+    }
+
+    /**
+     * @return the pool of channels the producers of this session publish on,
+     * <code>null</code> if they publish on the channel of this session
+     * @since 2.0.0
+     */
+    PublishingChannelPool getPublishingChannelPool() {
+        // transacted messages must be published on the channel of the transaction
+        return this.transacted || this.connection == null ? null : this.connection.getPublishingChannelPool();
+    }
+
+    /**
+     * Borrows a channel from the pool to publish on, the one the calling thread last published on in this session
+     * if it is still in the pool, so that the messages of the session keep their order (JMS 1.1 §4.4.10).
+     * @param pool - the pool of channels of this session
+     * @return the channel to publish on, to give back to the pool
+     * @throws JMSException if no channel can be borrowed
+     * @since 2.0.0
+     */
+    PublishingChannel borrowPublishingChannel(PublishingChannelPool pool) throws JMSException {
+        PublishingChannel channel = pool.borrow(this.pooledPublishingChannel.get());
+        this.pooledPublishingChannel.set(channel);
+        return channel;
+    }
+
+    /**
+     * Record the size of a {@link BytesMessage} or {@link StreamMessage} sent in this session, to size the body
+     * of the next ones.
+     * @param size - size of the body of the message, in bytes
+     * @since 2.0.0
+     */
+    void bodySizeSent(int size) {
+        this.bodySizeEstimator.record(size);
+    }
+
+    /**
+     * @return the initial capacity of the body of the next {@link BytesMessage} or {@link StreamMessage} created
+     * @since 2.0.0
+     */
+    int initialBodySize() {
+        return this.bodySizeEstimator.initialSize();
+    }
+
     /**
      * Returns the {@link Channel} this session has created
      * @return
@@ -1217,6 +1865,14 @@ public class RMQSession implements Session, QueueSession, TopicSession {
         return this.channel;
     }
 
+    /**
+     * @return the channel producers of this session publish on, when publishing channels are not pooled
+     * @since 2.0.0
+     */
+    Channel getPublishingChannel() {
+        return this.publishingChannel;
+    }
+
     void consumerClose(RMQMessageConsumer consumer) throws JMSException {
         if (this.consumers.remove(consumer)) {
             //TODO: if (consumer.isDurable()) { don't cancel it? cancel it? -- decide }
@@ -1231,7 +1887,8 @@ public class RMQSession implements Session, QueueSession, TopicSession {
     }
 
     boolean isAutoAck() {
-        return (getAcknowledgeModeNoException()!=Session.CLIENT_ACKNOWLEDGE);  // only case when auto ack not required
+        // messages received in a transaction with publisher confirms are acknowledged on commit
+        return (getAcknowledgeModeNoException()!=Session.CLIENT_ACKNOWLEDGE) && !this.confirmTransacted;  // only cases when auto ack not required
     }
 
     /**
@@ -1256,6 +1913,17 @@ public class RMQSession implements Session, QueueSession, TopicSession {
                 throw new RMQJMSException(x);
             }
         }
+        ParallelMessageDispatcher dispatcher = this.existingParallelDispatcher();
+        if (dispatcher != null && !dispatcher.awaitIdle(this.onMessageTimeoutMs)) {
+            logger.warn("Messages still being delivered in parallel after connection stop in session {}", this);
+        }
+        this.flushAcks();
+    }
+
+    private void flushAcks() {
+        if (this.ackCoalescer != null) {
+            this.ackCoalescer.flush();
+        }
     }
 
     /**
@@ -1275,10 +1943,8 @@ public class RMQSession implements Session, QueueSession, TopicSession {
     }
 
     void unackedMessageReceived(long dTag) {
-        if (!getTransactedNoException()) {
-            synchronized (this.unackedMessageTags) {
-                this.unackedMessageTags.add(dTag);
-            }
+        if (!getTransactedNoException() || this.confirmTransacted) {
+            this.unackedMessageTags.add(dTag);
         }
     }
 
@@ -1292,7 +1958,7 @@ public class RMQSession implements Session, QueueSession, TopicSession {
 
         boolean individualAck = this.getIndividualAck();
         boolean groupAck      = true;  // This assumption is new in RJMS 1.2.0 and is consistent with other implementations. It allows a form of group acknowledge.
-        if (!isAutoAck() && !this.unackedMessageTags.isEmpty()) {
+        if (!getTransactedNoException() && !isAutoAck() && !this.unackedMessageTags.isEmpty()) {
             /**
              * Per JMS specification of {@link Message#acknowledge()}, <i>if we ack the last message in a group, we will ack all the ones prior received</i>.
              * <p>But, JMS spec 11.2.21 says:</p>
@@ -1303,35 +1969,155 @@ public class RMQSession implements Session, QueueSession, TopicSession {
              * The individualAck option is set by session mode (CLIENT_INDIVIDUAL_ACKNOWLEDGE) and overrides groupAck (default) and acknowledges at most a single message.
              * </p>
              */
-            synchronized (this.unackedMessageTags) {
-                try {
+            try {
+                /*
+                 * Acknowledgements are decided and queued under the same lock, without I/O, and sent in that order
+                 * once it is released, so that acknowledgements from concurrent threads reach the broker in the
+                 * order their tags were removed: a multiple ack must never follow a higher one, or a bulk or
+                 * coalesced ack covering its tag.
+                 */
+                synchronized (this.unackedMessageTags) {
                     if (individualAck) {
                         long messageTag = message.getRabbitDeliveryTag();
-                        if (!this.unackedMessageTags.contains(messageTag)) return; // this message already acknowledged
-                        /* ACK a single message */
-                        this.getChannel().basicAck(messageTag, false); // we ack the single message with this tag
-                        this.unackedMessageTags.remove(messageTag);
+                        if (!this.unackedMessageTags.remove(messageTag)) return; // this message already acknowledged
+                        if (this.ackCoalescer != null) {
+                            this.ackCoalescer.ack(messageTag, this.individualAckCeiling(messageTag));
+                            this.flushContiguousAcks();
+                        } else {
+                            /* ACK a single message */
+                            this.pendingAcks.ack(messageTag, false); // we ack the single message with this tag
+                        }
                     } else if (groupAck) {
                         long messageTag = message.getRabbitDeliveryTag();
-                        /** The tags that precede the given one, and the given one, if unacknowledged */
-                        SortedSet<Long> previousTags = this.unackedMessageTags.headSet(messageTag+1);
-                        if (previousTags.isEmpty()) return; // no message to acknowledge
-                        /* ack multiple message up until the existing tag */
-                        this.getChannel().basicAck(previousTags.last(), // we ack the latest one (which might be this one, but might not be)
-                                              true);               // and everything prior to that
-                        // now remove all the tags <= messageTag
-                        previousTags.clear();
+                        /* messages prefetched for receive() but not yet received must not be covered by a multiple ack */
+                        long prefetchedTag = this.lowestPrefetchedTag();
+                        /* remove all the tags <= messageTag, the given one included, if unacknowledged */
+                        long lastTag = this.unackedMessageTags.removeUpTo(Math.min(messageTag, prefetchedTag - 1));
+                        if (lastTag != DeliveryTagTracker.NO_TAG) {
+                            /* ack multiple message up until the existing tag */
+                            this.pendingAcks.ack(lastTag, // we ack the latest one (which might be this one, but might not be)
+                                                 true);   // and everything prior to that
+                        }
+                        if (prefetchedTag < messageTag) {
+                            /* the tags received after the prefetched one are acked one by one */
+                            for (long tag = prefetchedTag + 1; tag <= messageTag; tag++) {
+                                if (this.unackedMessageTags.remove(tag))
+                                    this.pendingAcks.ack(tag, false);
+                            }
+                        }
                     } else {
                         // this block is no longer possible (groupAck == true) after RJMS 1.2.0
-                        this.getChannel().basicAck(this.unackedMessageTags.last(), // we ack the highest tag
-                                              true);                          // and everything prior to that
-                        this.unackedMessageTags.clear();
+                        long lastTag = this.unackedMessageTags.clear();
+                        if (lastTag != DeliveryTagTracker.NO_TAG)
+                            this.pendingAcks.ack(lastTag, // we ack the highest tag
+                                                 true);   // and everything prior to that
+                    }
+                }
+                this.pendingAcks.send();
+            } catch (IOException x) {
+                this.logger.error("RabbitMQ exception on basicAck of message {}; on session '{}'", message, this, x);
+                throw new RMQJMSException(x);
+            }
+        }
+    }
+
+    /**
+     * Acknowledges several messages received by this session at once.
+     * <p>
+     * In {@link #CLIENT_INDIVIDUAL_ACKNOWLEDGE} mode, the messages are acknowledged with as few <code>basic.ack</code>
+     * as possible: a single multiple acknowledgement for those that form a range starting at the lowest message
+     * not acknowledged, and one acknowledgement for each of the others. In {@link Session#CLIENT_ACKNOWLEDGE} mode,
+     * this is the same as acknowledging the last message received of the collection. In other modes, this does nothing.
+     * </p>
+     *
+     * @param messages the messages to acknowledge, received by this session
+     * @throws JMSException if the session is closed, if a message was not received by this session, or if the
+     *         acknowledgements cannot be sent
+     * @since 2.0.0
+     */
+    public void acknowledge(Collection<? extends Message> messages) throws JMSException {
+        illegalStateExceptionIfClosed();
+        if (messages.isEmpty()) {
+            return;
+        }
+        RMQMessage last = null;
+        long[] tags = new long[messages.size()];
+        int count = 0;
+        for (Message message : messages) {
+            if (!(message instanceof RMQMessage) || ((RMQMessage) message).getSession() != this) {
+                throw new JMSException(String.format("Message %s was not received by this session", message));
+            }
+            RMQMessage rmqMessage = (RMQMessage) message;
+            if (last == null || rmqMessage.getRabbitDeliveryTag() > last.getRabbitDeliveryTag()) {
+                last = rmqMessage;
+            }
+            tags[count++] = rmqMessage.getRabbitDeliveryTag();
+        }
+        if (!this.getIndividualAck()) {
+            this.acknowledgeMessage(last);
+            return;
+        }
+        try {
+            synchronized (this.unackedMessageTags) {
+                int unacked = 0;
+                for (int i = 0; i < count; i++) {
+                    if (this.unackedMessageTags.remove(tags[i])) { // skip the messages already acknowledged
+                        tags[unacked++] = tags[i];
+                    }
+                }
+                if (unacked == 0) {
+                    return;
+                }
+                Arrays.sort(tags, 0, unacked);
+                long ceiling = this.individualAckCeiling(tags[unacked - 1]);
+                if (this.ackCoalescer != null) {
+                    for (int i = 0; i < unacked; i++) {
+                        this.ackCoalescer.ack(tags[i], ceiling);
+                    }
+                    this.flushContiguousAcks();
+                } else {
+                    int i = 0;
+                    while (i < unacked && tags[i] < ceiling) {
+                        i++;
+                    }
+                    if (i > 0) {
+                        this.pendingAcks.ack(tags[i - 1], i > 1);
+                        this.unackedMessageTags.removeUpTo(tags[i - 1]); // no tag left below, moves the watermark
+                    }
+                    for (; i < unacked; i++) {
+                        this.pendingAcks.ack(tags[i], false);
                     }
-                } catch (IOException x) {
-                    this.logger.error("RabbitMQ exception on basicAck of message {}; on session '{}'", message, this, x);
-                    throw new RMQJMSException(x);
                 }
             }
+            this.pendingAcks.send();
+            if (this.ackCoalescer != null) {
+                // pending coalesced acknowledgements are sent along
+                this.ackCoalescer.flush();
+            }
+        } catch (IOException x) {
+            this.logger.error("RabbitMQ exception on basicAck of {} messages; on session '{}'", count, this, x);
+            throw new RMQJMSException(x);
+        }
+    }
+
+    /**
+     * Multiple acknowledgements of individually acknowledged messages must not cover messages received and
+     * not acknowledged, nor messages prefetched and not received yet.
+     * @param upTo the highest tag to acknowledge
+     * @return the lowest tag a multiple acknowledgement up to <code>upTo</code> must not cover
+     */
+    private long individualAckCeiling(long upTo) {
+        if (this.ackCoalescer != null) {
+            upTo = Math.max(upTo, this.ackCoalescer.getHighestTag());
+        }
+        long lowestUnacked = this.unackedMessageTags.lowest(upTo);
+        return Math.min(lowestUnacked == DeliveryTagTracker.NO_TAG ? Long.MAX_VALUE : lowestUnacked, this.lowestPrefetchedTag());
+    }
+
+    private void flushContiguousAcks() {
+        long acked = this.ackCoalescer.flushContiguous();
+        if (acked != DeliveryTagTracker.NO_TAG) {
+            this.unackedMessageTags.removeUpTo(acked); // no tag left below, moves the watermark
         }
     }
 
@@ -1340,7 +2126,7 @@ public class RMQSession implements Session, QueueSession, TopicSession {
     }
 
     void addUncommittedTag(long deliveryTag) {
-        if (this.nackOnRollback && this.getTransactedNoException()) {
+        if (this.nackOnRollback && this.getTransactedNoException() && !this.confirmTransacted) {
             if (this.enterCommittingBlock()) {
                 this.uncommittedMessageTags.add(deliveryTag);
                 this.leaveCommittingBlock();
@@ -9,6 +9,7 @@ import javax.jms.MessageProducer;
 import java.util.List;
 import java.util.Map;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * Holder for {@link RMQSession} constructor arguments.
@@ -93,6 +94,140 @@ public class SessionParams {
 
     private List<String> trustedPackages = WhiteListObjectInputStream.DEFAULT_TRUSTED_PACKAGES;
 
+    /**
+     * Number of messages pushed in advance to consumers for synchronous receive.
+     * 0 (default) means synchronous receive polls the queue.
+     *
+     * @since 2.0.0
+     */
+    private int receivePrefetch = 0;
+
+    /**
+     * Whether {@link javax.jms.MessageListener#onMessage(Message)} is called directly on the
+     * thread that delivers messages, instead of on a dedicated thread per session.
+     * Default is false.
+     *
+     * @since 2.0.0
+     */
+    private boolean directMessageListenerDispatch = false;
+
+    /**
+     * Extracts the correlation token of published messages for publisher confirms.
+     * When set, only the message ID and the token are kept until messages are confirmed.
+     *
+     * @since 2.0.0
+     */
+    private Function<Message, Object> confirmTokenExtractor;
+
+    /**
+     * Maximum number of unconfirmed messages per session, 0 for no limit.
+     *
+     * @since 2.0.0
+     */
+    private int maxInFlightMessages = 0;
+
+    /**
+     * Maximum size of unconfirmed messages per session, in bytes, 0 for no limit.
+     *
+     * @since 2.0.0
+     */
+    private long maxInFlightBytes = 0;
+
+    /**
+     * What to do when the publishing window of a session is full.
+     *
+     * @since 2.0.0
+     */
+    private PublishingWindowPolicy publishingWindowPolicy = PublishingWindowPolicy.BLOCK;
+
+    /**
+     * How long to wait for room in a full publishing window, in milliseconds.
+     *
+     * @since 2.0.0
+     */
+    private long publishingWindowTimeout = 30000;
+
+    /**
+     * Called when the publishing window of a session is full.
+     *
+     * @since 2.0.0
+     */
+    private PublishingWindowFullHandler publishingWindowFullHandler;
+
+    /**
+     * Whether transacted sessions use publisher confirms instead of AMQP transactions.
+     *
+     * @since 2.0.0
+     */
+    private boolean confirmTransactions = false;
+
+    /**
+     * The format JMS messages are published in.
+     *
+     * @since 2.0.0
+     */
+    private MessageWireFormat messageWireFormat = MessageWireFormat.V1;
+
+    /**
+     * Whether received messages are decoded when they are first accessed.
+     *
+     * @since 2.0.0
+     */
+    private boolean lazyMessageDecoding = false;
+
+    /**
+     * Generates the IDs of sent messages.
+     *
+     * @since 2.0.0
+     */
+    private MessageIdGenerator messageIdGenerator;
+
+    /**
+     * Number of acknowledgements of AUTO_ACKNOWLEDGE and DUPS_OK_ACKNOWLEDGE sessions
+     * sent together, 0 to send them one by one.
+     *
+     * @since 2.0.0
+     */
+    private int ackCoalescingBatchSize = 0;
+
+    /**
+     * Maximum time in milliseconds coalesced acknowledgements wait before they are sent.
+     *
+     * @since 2.0.0
+     */
+    private long ackCoalescingIntervalMs = 100;
+
+    /**
+     * Whether acknowledgements of CLIENT_INDIVIDUAL_ACKNOWLEDGE sessions are sent together
+     * when they form a range.
+     *
+     * @since 2.0.0
+     */
+    private boolean individualAckCoalescing = false;
+
+    /**
+     * Number of threads the messages of a session are delivered to its listeners on.
+     *
+     * @since 2.0.0
+     */
+    private int messageListenerConcurrency = 1;
+
+    /**
+     * Extracts the key of messages delivered to listeners in parallel, messages with the same key
+     * are delivered in order. <code>null</code> to use the <code>JMSXGroupID</code> property.
+     *
+     * @since 2.0.0
+     */
+    private Function<Message, Object> messageListenerKeyExtractor;
+
+    /**
+     * What happens to messages that do not match the selector of a queue consumer,
+     * <code>null</code> if queue consumers do not support selectors.
+     *
+     * @since 2.0.0
+     */
+    private QueueSelectorMismatchPolicy queueSelectorMismatchPolicy;
+
     public RMQConnection getConnection() {
         return connection;
     }
@@ -218,4 +353,166 @@ public class SessionParams {
     public List<String> getTrustedPackages() {
         return trustedPackages;
     }
+
+    public SessionParams setReceivePrefetch(int receivePrefetch) {
+        this.receivePrefetch = receivePrefetch;
+        return this;
+    }
+
+    public int getReceivePrefetch() {
+        return receivePrefetch;
+    }
+
+    public SessionParams setDirectMessageListenerDispatch(boolean directMessageListenerDispatch) {
+        this.directMessageListenerDispatch = directMessageListenerDispatch;
+        return this;
+    }
+
+    public boolean isDirectMessageListenerDispatch() {
+        return directMessageListenerDispatch;
+    }
+
+    public SessionParams setConfirmTokenExtractor(Function<Message, Object> confirmTokenExtractor) {
+        this.confirmTokenExtractor = confirmTokenExtractor;
+        return this;
+    }
+
+    public Function<Message, Object> getConfirmTokenExtractor() {
+        return confirmTokenExtractor;
+    }
+
+    public SessionParams setMaxInFlightMessages(int maxInFlightMessages) {
+        this.maxInFlightMessages = maxInFlightMessages;
+        return this;
+    }
+
+    public int getMaxInFlightMessages() {
+        return maxInFlightMessages;
+    }
+
+    public SessionParams setMaxInFlightBytes(long maxInFlightBytes) {
+        this.maxInFlightBytes = maxInFlightBytes;
+        return this;
+    }
+
+    public long getMaxInFlightBytes() {
+        return maxInFlightBytes;
+    }
+
+    public SessionParams setPublishingWindowPolicy(PublishingWindowPolicy publishingWindowPolicy) {
+        this.publishingWindowPolicy = publishingWindowPolicy;
+        return this;
+    }
+
+    public PublishingWindowPolicy getPublishingWindowPolicy() {
+        return publishingWindowPolicy;
+    }
+
+    public SessionParams setPublishingWindowTimeout(long publishingWindowTimeout) {
+        this.publishingWindowTimeout = publishingWindowTimeout;
+        return this;
+    }
+
+    public long getPublishingWindowTimeout() {
+        return publishingWindowTimeout;
+    }
+
+    public SessionParams setPublishingWindowFullHandler(PublishingWindowFullHandler publishingWindowFullHandler) {
+        this.publishingWindowFullHandler = publishingWindowFullHandler;
+        return this;
+    }
+
+    public PublishingWindowFullHandler getPublishingWindowFullHandler() {
+        return publishingWindowFullHandler;
+    }
+
+    public SessionParams setConfirmTransactions(boolean confirmTransactions) {
+        this.confirmTransactions = confirmTransactions;
+        return this;
+    }
+
+    public boolean isConfirmTransactions() {
+        return confirmTransactions;
+    }
+
+    public SessionParams setMessageWireFormat(MessageWireFormat messageWireFormat) {
+        this.messageWireFormat = messageWireFormat;
+        return this;
+    }
+
+    public MessageWireFormat getMessageWireFormat() {
+        return messageWireFormat;
+    }
+
+    public SessionParams setLazyMessageDecoding(boolean lazyMessageDecoding) {
+        this.lazyMessageDecoding = lazyMessageDecoding;
+        return this;
+    }
+
+    public boolean isLazyMessageDecoding() {
+        return lazyMessageDecoding;
+    }
+
+    public SessionParams setMessageIdGenerator(MessageIdGenerator messageIdGenerator) {
+        this.messageIdGenerator = messageIdGenerator;
+        return this;
+    }
+
+    public MessageIdGenerator getMessageIdGenerator() {
+        return messageIdGenerator;
+    }
+
+    public SessionParams setAckCoalescingBatchSize(int ackCoalescingBatchSize) {
+        this.ackCoalescingBatchSize = ackCoalescingBatchSize;
+        return this;
+    }
+
+    public int getAckCoalescingBatchSize() {
+        return ackCoalescingBatchSize;
+    }
+
+    public SessionParams setAckCoalescingIntervalMs(long ackCoalescingIntervalMs) {
+        this.ackCoalescingIntervalMs = ackCoalescingIntervalMs;
+        return this;
+    }
+
+    public long getAckCoalescingIntervalMs() {
+        return ackCoalescingIntervalMs;
+    }
+
+    public SessionParams setIndividualAckCoalescing(boolean individualAckCoalescing) {
+        this.individualAckCoalescing = individualAckCoalescing;
+        return this;
+    }
+
+    public boolean isIndividualAckCoalescing() {
+        return individualAckCoalescing;
+    }
+
+    public SessionParams setMessageListenerConcurrency(int messageListenerConcurrency) {
+        this.messageListenerConcurrency = messageListenerConcurrency;
+        return this;
+    }
+
+    public int getMessageListenerConcurrency() {
+        return messageListenerConcurrency;
+    }
+
+    public SessionParams setMessageListenerKeyExtractor(Function<Message, Object> messageListenerKeyExtractor) {
+        this.messageListenerKeyExtractor = messageListenerKeyExtractor;
+        return this;
+    }
+
+    public Function<Message, Object> getMessageListenerKeyExtractor() {
+        return messageListenerKeyExtractor;
+    }
+
+    public SessionParams setQueueSelectorMismatchPolicy(QueueSelectorMismatchPolicy queueSelectorMismatchPolicy) {
+        this.queueSelectorMismatchPolicy = queueSelectorMismatchPolicy;
+        return this;
+    }
+
+    public QueueSelectorMismatchPolicy getQueueSelectorMismatchPolicy() {
+        return queueSelectorMismatchPolicy;
+    }
 }
@@ -5,9 +5,12 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 
 import javax.jms.BytesMessage;
 import javax.jms.JMSException;
@@ -31,28 +34,49 @@ public class RMQBytesMessage extends RMQMessage implements BytesMessage {
      */
     private volatile boolean reading;
 
-    /** <code>buf</code> stores the byte array payload and we read from it directly */
+    /**
+     * <code>buf</code> stores the byte array payload and we read from it directly; for a received message,
+     * it is the bytes of the delivery, with the body from <code>offset</code> to <code>limit</code>
+     */
     private volatile transient byte[] buf;
+    /** Start of the body in the byte array <code>buf</code> */
+    private volatile transient int offset;
+    /** End of the body in the byte array <code>buf</code> */
+    private volatile transient int limit;
     /** The position of our read in the byte array <code>buf</code> */
     private volatile transient int pos;
 
     /** The stream we write structured and unstructured data to */
     private transient RMQByteArrayOutputStream bout;
 
+    /** Initial capacity of the body, in bytes */
+    private final int initialBodySize;
+
     /** Instantiates a new, writable RMQBytesMessage */
     public RMQBytesMessage() {
-        this(false);
+        this(false, DEFAULT_MESSAGE_BODY_SIZE);
+    }
+
+    /**
+     * Instantiates a new, writable RMQBytesMessage
+     * @param initialBodySize - initial capacity of the body, in bytes
+     * @since 2.0.0
+     */
+    public RMQBytesMessage(int initialBodySize) {
+        this(false, initialBodySize);
     }
 
     /**
      * Instantiates a new RMQBytesMessage
      * @param reading - <code>true</code> if this message is in a read state
+     * @param initialBodySize - initial capacity of the body, in bytes
      */
-    private RMQBytesMessage(boolean reading) {
+    private RMQBytesMessage(boolean reading, int initialBodySize) {
         this.reading = reading;
+        this.initialBodySize = initialBodySize;
         if (!reading) {
             /* If we are in Write state, then create the objects to support that state */
-            this.bout = new RMQByteArrayOutputStream(DEFAULT_MESSAGE_BODY_SIZE);
+            this.bout = new RMQByteArrayOutputStream(initialBodySize);
         }
     }
 
@@ -63,7 +87,7 @@ public class RMQBytesMessage extends RMQMessage implements BytesMessage {
     public boolean readBoolean() throws JMSException {
         if (!this.reading)
             throw new MessageNotReadableException(NOT_READABLE);
-        if (this.pos + Bits.NUM_BYTES_IN_BOOLEAN > this.buf.length)
+        if (this.pos + Bits.NUM_BYTES_IN_BOOLEAN > this.limit)
             throw new MessageEOFException(MSG_EOF);
         return Bits.getBoolean(this.buf, this.pos++);
     }
@@ -75,7 +99,7 @@ public class RMQBytesMessage extends RMQMessage implements BytesMessage {
     public byte readByte() throws JMSException {
         if (!this.reading)
             throw new MessageNotReadableException(NOT_READABLE);
-        if (this.pos + 1 > this.buf.length)
+        if (this.pos + 1 > this.limit)
             throw new MessageEOFException(MSG_EOF);
         return this.buf[this.pos++];
     }
@@ -87,7 +111,7 @@ public class RMQBytesMessage extends RMQMessage implements BytesMessage {
     public int readUnsignedByte() throws JMSException {
         if (!this.reading)
             throw new MessageNotReadableException(NOT_READABLE);
-        if (this.pos + 1 > this.buf.length)
+        if (this.pos + 1 > this.limit)
             throw new MessageEOFException(MSG_EOF);
         return ((int) (this.buf[this.pos++])) & 0xFF;
     }
@@ -99,7 +123,7 @@ public class RMQBytesMessage extends RMQMessage implements BytesMessage {
     public short readShort() throws JMSException {
         if (!this.reading)
             throw new MessageNotReadableException(NOT_READABLE);
-        if (this.pos + Bits.NUM_BYTES_IN_SHORT > this.buf.length)
+        if (this.pos + Bits.NUM_BYTES_IN_SHORT > this.limit)
             throw new MessageEOFException(MSG_EOF);
         short s = Bits.getShort(this.buf, this.pos);
         this.pos += Bits.NUM_BYTES_IN_SHORT;
@@ -113,7 +137,7 @@ public class RMQBytesMessage extends RMQMessage implements BytesMessage {
     public int readUnsignedShort() throws JMSException {
         if (!this.reading)
             throw new MessageNotReadableException(NOT_READABLE);
-        if (this.pos + Bits.NUM_BYTES_IN_SHORT > this.buf.length)
+        if (this.pos + Bits.NUM_BYTES_IN_SHORT > this.limit)
             throw new MessageEOFException(MSG_EOF);
         short s = Bits.getShort(this.buf, this.pos);
         this.pos += Bits.NUM_BYTES_IN_SHORT;
@@ -127,7 +151,7 @@ public class RMQBytesMessage extends RMQMessage implements BytesMessage {
     public char readChar() throws JMSException {
         if (!this.reading)
             throw new MessageNotReadableException(NOT_READABLE);
-        if (this.pos + Bits.NUM_BYTES_IN_CHAR > this.buf.length)
+        if (this.pos + Bits.NUM_BYTES_IN_CHAR > this.limit)
             throw new MessageEOFException(MSG_EOF);
         char ch = Bits.getChar(this.buf, this.pos);
         this.pos += Bits.NUM_BYTES_IN_CHAR;
@@ -141,7 +165,7 @@ public class RMQBytesMessage extends RMQMessage implements BytesMessage {
     public int readInt() throws JMSException {
         if (!this.reading)
             throw new MessageNotReadableException(NOT_READABLE);
-        if (this.pos + Bits.NUM_BYTES_IN_INT > this.buf.length)
+        if (this.pos + Bits.NUM_BYTES_IN_INT > this.limit)
             throw new MessageEOFException(MSG_EOF);
         int i = Bits.getInt(this.buf, this.pos);
         this.pos += Bits.NUM_BYTES_IN_INT;
@@ -155,7 +179,7 @@ public class RMQBytesMessage extends RMQMessage implements BytesMessage {
     public long readLong() throws JMSException {
         if (!this.reading)
             throw new MessageNotReadableException(NOT_READABLE);
-        if (this.pos + Bits.NUM_BYTES_IN_LONG > this.buf.length)
+        if (this.pos + Bits.NUM_BYTES_IN_LONG > this.limit)
             throw new MessageEOFException(MSG_EOF);
         long l = Bits.getLong(this.buf, this.pos);
         this.pos += Bits.NUM_BYTES_IN_LONG;
@@ -169,7 +193,7 @@ public class RMQBytesMessage extends RMQMessage implements BytesMessage {
     public float readFloat() throws JMSException {
         if (!this.reading)
             throw new MessageNotReadableException(NOT_READABLE);
-        if (this.pos + Bits.NUM_BYTES_IN_FLOAT > this.buf.length)
+        if (this.pos + Bits.NUM_BYTES_IN_FLOAT > this.limit)
             throw new MessageEOFException(MSG_EOF);
         float flt = Bits.getFloat(this.buf, this.pos);
         this.pos += Bits.NUM_BYTES_IN_FLOAT;
@@ -183,7 +207,7 @@ public class RMQBytesMessage extends RMQMessage implements BytesMessage {
     public double readDouble() throws JMSException {
         if (!this.reading)
             throw new MessageNotReadableException(NOT_READABLE);
-        if (this.pos + Bits.NUM_BYTES_IN_DOUBLE > this.buf.length)
+        if (this.pos + Bits.NUM_BYTES_IN_DOUBLE > this.limit)
             throw new MessageEOFException(MSG_EOF);
         double dbl = Bits.getDouble(this.buf, this.pos);
         this.pos += Bits.NUM_BYTES_IN_DOUBLE;
@@ -202,7 +226,7 @@ public class RMQBytesMessage extends RMQMessage implements BytesMessage {
         this.pos = posOfUtfItem;               // reset in case of failure
 
         int utfItemLen = Bits.NUM_BYTES_IN_SHORT + lenUtfBytes;
-        if (posOfUtfItem + utfItemLen > this.buf.length) {
+        if (posOfUtfItem + utfItemLen > this.limit) {
             throw new MessageFormatException("Not enough bytes in message body for UTF object");
         }
         byte[] utfBuf = new byte[utfItemLen];
@@ -235,8 +259,8 @@ public class RMQBytesMessage extends RMQMessage implements BytesMessage {
         if (length<0 || length>value.length) {
             throw new IndexOutOfBoundsException();
         }
-        if (this.pos < this.buf.length) {
-            int readLen = Math.min(length, this.buf.length - this.pos);
+        if (this.pos < this.limit) {
+            int readLen = Math.min(length, this.limit - this.pos);
             System.arraycopy(this.buf, this.pos, value, 0, readLen);
             this.pos += readLen;
             return readLen;
@@ -381,14 +405,13 @@ public class RMQBytesMessage extends RMQMessage implements BytesMessage {
         if (this.reading) {
             //if we already are reading, all we want to do is reset to the
             //beginning of the stream
-            this.pos = 0;
+            this.pos = this.offset;
         } else {
             if (this.bout != null) {
-                this.buf = this.bout.toByteArray();
+                this.setBody(this.bout.toByteArray(), 0, this.bout.size());
             } else {
-                this.buf = new byte[0];
+                this.setBody(new byte[0], 0, 0);
             }
-            this.pos = 0;
             this.reading = true;
             this.bout = null;
         }
@@ -399,7 +422,51 @@ public class RMQBytesMessage extends RMQMessage implements BytesMessage {
      */
     @Override
     public long getBodyLength() throws JMSException {
-        return this.reading ? this.buf.length : this.bout.size();
+        return this.reading ? this.limit - this.offset : this.bout.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int bodySize() throws JMSException {
+        return (int) this.getBodyLength();
+    }
+
+    /**
+     * Returns the body of this message as a read-only buffer, without copying it.
+     * <p>
+     * For a received message, this is a view over the bytes of the delivery. The buffer is independent of
+     * the read position of the message.
+     * </p>
+     * @return the body of this message
+     * @throws JMSException if the message is not in read-only mode
+     * @since 2.0.0
+     */
+    public ByteBuffer getBodyAsByteBuffer() throws JMSException {
+        if (!this.reading)
+            throw new MessageNotReadableException(NOT_READABLE);
+        return ByteBuffer.wrap(this.buf, this.offset, this.limit - this.offset).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns a stream over the body of this message, without copying it.
+     * The stream is independent of the read position of the message.
+     * @return a stream over the body of this message
+     * @throws JMSException if the message is not in read-only mode
+     * @since 2.0.0
+     */
+    public InputStream getBodyAsInputStream() throws JMSException {
+        if (!this.reading)
+            throw new MessageNotReadableException(NOT_READABLE);
+        return new ByteArrayInputStream(this.buf, this.offset, this.limit - this.offset);
+    }
+
+    private void setBody(byte[] buf, int offset, int length) {
+        this.buf = buf;
+        this.offset = offset;
+        this.limit = offset + length;
+        this.pos = offset;
     }
 
     /**
@@ -407,15 +474,20 @@ public class RMQBytesMessage extends RMQMessage implements BytesMessage {
      */
     @Override
     public void clearBodyInternal() throws JMSException {
-        this.bout = new RMQByteArrayOutputStream(DEFAULT_MESSAGE_BODY_SIZE);
+        this.bout = new RMQByteArrayOutputStream(this.initialBodySize);
         this.pos = 0;
+        this.offset = 0;
+        this.limit = 0;
         this.buf = null;
         this.reading = false;
     }
 
-    private byte[] getByteArray() {
-        if (reading) return this.buf;
-        else return this.bout.toByteArray();
+    /**
+     * Write the body to a stream, straight from the buffer of the message.
+     */
+    private void writeByteArray(OutputStream out) throws IOException {
+        if (this.reading) out.write(this.buf, this.offset, this.limit - this.offset);
+        else this.bout.writeTo(out);
     }
 
     /**
@@ -423,14 +495,12 @@ public class RMQBytesMessage extends RMQMessage implements BytesMessage {
      */
     @Override
     protected void writeBody(ObjectOutput oOut, ByteArrayOutputStream bout) throws IOException {
-        byte[] buf = getByteArray();
-        bout.write(buf);
+        writeByteArray(bout);
     }
 
     @Override
     protected void writeAmqpBody(ByteArrayOutputStream baos) throws IOException {
-        byte[] buf = getByteArray();
-        baos.write(buf);
+        writeByteArray(baos);
     }
 
     /**
@@ -440,17 +510,15 @@ public class RMQBytesMessage extends RMQMessage implements BytesMessage {
      */
     @Override
     protected void readBody(ObjectInput inputStream, ByteArrayInputStream bin) throws IOException, ClassNotFoundException {
-        this.buf = new byte[bin.available()];
-        bin.read(this.buf);
+        ByteBuffer body = readRemainingBody(bin);
+        this.setBody(body.array(), body.arrayOffset() + body.position(), body.remaining());
         this.reading = true;
-        this.pos = 0;
     }
 
     @Override
     protected void readAmqpBody(byte[] barr) {
-        this.buf = barr;
+        this.setBody(barr, 0, barr.length);
         this.reading = true;
-        this.pos = 0;
     }
 
     /**
@@ -30,6 +30,7 @@ public class RMQMapMessage extends RMQMessage implements MapMessage {
 
     @Override
     public boolean getBoolean(String name) throws JMSException {
+        decodeBody();
         Object o = this.data.get(name);
         if (o == null)
             return false;
@@ -43,6 +44,7 @@ public class RMQMapMessage extends RMQMessage implements MapMessage {
 
     @Override
     public byte getByte(String name) throws JMSException {
+        decodeBody();
         Object o = this.data.get(name);
         if (o == null)
             throw new NumberFormatException(String.format(UNABLE_TO_CAST, o, "byte"));
@@ -56,6 +58,7 @@ public class RMQMapMessage extends RMQMessage implements MapMessage {
 
     @Override
     public short getShort(String name) throws JMSException {
+        decodeBody();
         Object o = this.data.get(name);
         if (o == null)
             throw new NumberFormatException(String.format(UNABLE_TO_CAST, o, "short"));
@@ -71,6 +74,7 @@ public class RMQMapMessage extends RMQMessage implements MapMessage {
 
     @Override
     public char getChar(String name) throws JMSException {
+        decodeBody();
         Object o = this.data.get(name);
         if (o == null)
             throw new NumberFormatException(String.format(UNABLE_TO_CAST, o, "char"));
@@ -82,6 +86,7 @@ public class RMQMapMessage extends RMQMessage implements MapMessage {
 
     @Override
     public int getInt(String name) throws JMSException {
+        decodeBody();
         Object o = this.data.get(name);
         if (o == null)
             throw new NumberFormatException(String.format(UNABLE_TO_CAST, o, "int"));
@@ -99,6 +104,7 @@ public class RMQMapMessage extends RMQMessage implements MapMessage {
 
     @Override
     public long getLong(String name) throws JMSException {
+        decodeBody();
         Object o = this.data.get(name);
         if (o == null)
             throw new NumberFormatException(String.format(UNABLE_TO_CAST, o, "long"));
@@ -118,6 +124,7 @@ public class RMQMapMessage extends RMQMessage implements MapMessage {
 
     @Override
     public float getFloat(String name) throws JMSException {
+        decodeBody();
         Object o = this.data.get(name);
         if (o == null)
             throw new NumberFormatException(String.format(UNABLE_TO_CAST, o, "float"));
@@ -131,6 +138,7 @@ public class RMQMapMessage extends RMQMessage implements MapMessage {
 
     @Override
     public double getDouble(String name) throws JMSException {
+        decodeBody();
         Object o = this.data.get(name);
         if (o == null)
             throw new NumberFormatException(String.format(UNABLE_TO_CAST, o, "double"));
@@ -146,6 +154,7 @@ public class RMQMapMessage extends RMQMessage implements MapMessage {
 
     @Override
     public String getString(String name) throws JMSException {
+        decodeBody();
         Object o = this.data.get(name);
         if (o == null)
             return null;
@@ -159,6 +168,7 @@ public class RMQMapMessage extends RMQMessage implements MapMessage {
 
     @Override
     public byte[] getBytes(String name) throws JMSException {
+        decodeBody();
         Object o = this.data.get(name);
         if (o == null) {
             return null;
@@ -173,6 +183,7 @@ public class RMQMapMessage extends RMQMessage implements MapMessage {
 
     @Override
     public Object getObject(String name) throws JMSException {
+        decodeBody();
         Object o = this.data.get(name);
         if (o == null) {
             return null;
@@ -185,6 +196,7 @@ public class RMQMapMessage extends RMQMessage implements MapMessage {
 
     @Override
     public Enumeration<String> getMapNames() throws JMSException {
+        decodeBody();
         return new IteratorEnum<String>(this.data.keySet().iterator());
     }
 
@@ -286,6 +298,7 @@ public class RMQMapMessage extends RMQMessage implements MapMessage {
 
     @Override
     public boolean itemExists(String name) throws JMSException {
+        decodeBody();
         return this.data.containsKey(name);
     }
 
@@ -294,6 +307,14 @@ public class RMQMapMessage extends RMQMessage implements MapMessage {
         this.data.clear();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean decodesBodyLazily() {
+        return true;
+    }
+
     @Override
     protected void writeBody(ObjectOutput out, ByteArrayOutputStream bout) throws IOException {
         int size = this.data.size();
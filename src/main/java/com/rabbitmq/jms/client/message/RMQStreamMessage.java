@@ -19,6 +19,7 @@ import javax.jms.MessageNotWriteableException;
 import javax.jms.StreamMessage;
 
 import com.rabbitmq.jms.client.RMQMessage;
+import com.rabbitmq.jms.util.RMQByteArrayOutputStream;
 import com.rabbitmq.jms.util.RMQJMSException;
 import com.rabbitmq.jms.util.RMQMessageFormatException;
 
@@ -39,18 +40,31 @@ public class RMQStreamMessage extends RMQMessage implements StreamMessage {
     private transient ObjectInputStream in;
     private transient ByteArrayInputStream bin;
     private transient ObjectOutputStream out;
-    private transient ByteArrayOutputStream bout;
+    private transient RMQByteArrayOutputStream bout;
     private volatile transient byte[] buf;
     private volatile transient byte[] readbuf = null;
 
+    /** Initial capacity of the body, in bytes */
+    private final int initialBodySize;
+
     public RMQStreamMessage() {
-        this(false);
+        this(false, RMQMessage.DEFAULT_MESSAGE_BODY_SIZE);
+    }
+
+    /**
+     * Instantiates a new, writable RMQStreamMessage
+     * @param initialBodySize - initial capacity of the body, in bytes
+     * @since 2.0.0
+     */
+    public RMQStreamMessage(int initialBodySize) {
+        this(false, initialBodySize);
     }
 
-    private RMQStreamMessage(boolean reading) {
+    private RMQStreamMessage(boolean reading, int initialBodySize) {
         this.reading = reading;
+        this.initialBodySize = initialBodySize;
         if (!reading) {
-            this.bout = new ByteArrayOutputStream(RMQMessage.DEFAULT_MESSAGE_BODY_SIZE);
+            this.bout = new RMQByteArrayOutputStream(initialBodySize);
             try {
                 this.out = new ObjectOutputStream(this.bout);
             } catch (IOException x) {
@@ -70,6 +84,7 @@ public class RMQStreamMessage extends RMQMessage implements StreamMessage {
     }
 
     private Object readPrimitiveType(Class<?> type) throws JMSException {
+        decodeBody();
         if (!this.reading)
             throw new MessageNotReadableException(NOT_READABLE);
         if (this.readbuf!=null) {
@@ -289,6 +304,7 @@ public class RMQStreamMessage extends RMQMessage implements StreamMessage {
      */
     @Override
     public int readBytes(byte[] value) throws JMSException {
+        decodeBody();
         if (readbuf==null) {
             readbuf = (byte[])this.readPrimitiveType(ByteArray.class);
             if (readbuf==null) return -1;
@@ -439,6 +455,7 @@ public class RMQStreamMessage extends RMQMessage implements StreamMessage {
      */
     @Override
     public void reset() throws JMSException {
+        decodeBody();
         this.readbuf = null;
 
         if (this.reading) {
@@ -475,7 +492,7 @@ public class RMQStreamMessage extends RMQMessage implements StreamMessage {
      */
     @Override
     public void clearBodyInternal() throws JMSException {
-        this.bout = new ByteArrayOutputStream(RMQMessage.DEFAULT_MESSAGE_BODY_SIZE);
+        this.bout = new RMQByteArrayOutputStream(this.initialBodySize);
         try {
             this.out = new ObjectOutputStream(this.bout);
         } catch (IOException x) {
@@ -493,10 +510,28 @@ public class RMQStreamMessage extends RMQMessage implements StreamMessage {
      */
     @Override
     protected void writeBody(ObjectOutput out, ByteArrayOutputStream bout) throws IOException {
-        this.out.flush();
-        byte[] buf = this.bout.toByteArray();
-        out.writeInt(buf.length);
-        out.write(buf);
+        if (this.reading) {
+            out.writeInt(this.buf.length);
+            out.write(this.buf);
+        } else {
+            this.out.flush();
+            out.writeInt(this.bout.size());
+            this.bout.copyTo(out);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int bodySize() throws JMSException {
+        if (this.reading) return this.buf.length;
+        try {
+            this.out.flush();
+        } catch (IOException x) {
+            throw new RMQJMSException(x);
+        }
+        return this.bout.size();
     }
 
     /**
@@ -517,6 +552,14 @@ public class RMQStreamMessage extends RMQMessage implements StreamMessage {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean decodesBodyLazily() {
+        return true;
+    }
+
     private static class ByteArray {
 
     }
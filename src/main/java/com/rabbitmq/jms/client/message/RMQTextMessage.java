@@ -4,9 +4,11 @@ package com.rabbitmq.jms.client.message;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
-import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 import javax.jms.JMSException;
 import javax.jms.MessageNotWriteableException;
@@ -22,6 +24,12 @@ public class RMQTextMessage extends RMQMessage implements TextMessage {
 
     private volatile String text;
 
+    /**
+     * The UTF-8 encoded text of a received message, a view over the bytes of the delivery;
+     * it is decoded on the first call to {@link #getText()}
+     */
+    private volatile transient ByteBuffer encodedText;
+
     /**
      * {@inheritDoc}
      */
@@ -29,6 +37,7 @@ public class RMQTextMessage extends RMQMessage implements TextMessage {
     public void setText(String string) throws JMSException {
         if (isReadonlyBody()) throw new MessageNotWriteableException("Message has been received and is read only.");
         this.text = string;
+        this.encodedText = null;
     }
 
     /**
@@ -36,7 +45,43 @@ public class RMQTextMessage extends RMQMessage implements TextMessage {
      */
     @Override
     public String getText() throws JMSException {
-        return this.text;
+        String text = this.text;
+        ByteBuffer encodedText = this.encodedText;
+        if (text == null && encodedText != null) {
+            text = new String(encodedText.array(), encodedText.arrayOffset() + encodedText.position(),
+                              encodedText.remaining(), StandardCharsets.UTF_8);
+            this.text = text;
+        }
+        return text;
+    }
+
+    /**
+     * Returns the UTF-8 encoded text of this message as a read-only buffer.
+     * <p>
+     * For a received message, this is a view over the bytes of the delivery, and the text does not need to be
+     * decoded.
+     * </p>
+     * @return the encoded text of this message, <code>null</code> if the text is <code>null</code>
+     * @since 2.0.0
+     */
+    public ByteBuffer getBodyAsByteBuffer() {
+        ByteBuffer encodedText = this.encodedText;
+        if (encodedText != null) {
+            return encodedText.asReadOnlyBuffer();
+        }
+        String text = this.text;
+        return text == null ? null : ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns a stream over the UTF-8 encoded text of this message.
+     * @return a stream over the encoded text of this message, <code>null</code> if the text is <code>null</code>
+     * @see #getBodyAsByteBuffer()
+     * @since 2.0.0
+     */
+    public InputStream getBodyAsInputStream() {
+        ByteBuffer body = this.getBodyAsByteBuffer();
+        return body == null ? null : new ByteArrayInputStream(body.array(), body.arrayOffset() + body.position(), body.remaining());
     }
 
     /**
@@ -45,6 +90,7 @@ public class RMQTextMessage extends RMQMessage implements TextMessage {
     @Override
     protected void clearBodyInternal() throws JMSException {
         this.text = null;
+        this.encodedText = null;
     }
 
     /**
@@ -52,9 +98,13 @@ public class RMQTextMessage extends RMQMessage implements TextMessage {
      */
     @Override
     public void writeBody(ObjectOutput out, ByteArrayOutputStream bout) throws IOException {
+        ByteBuffer encodedText = this.encodedText;
         String text = this.text;
-        out.writeBoolean(text == null);
-        if (text!=null) {
+        out.writeBoolean(text == null && encodedText == null);
+        if (encodedText != null) {
+            out.writeInt(encodedText.remaining());
+            out.write(encodedText.array(), encodedText.arrayOffset() + encodedText.position(), encodedText.remaining());
+        } else if (text!=null) {
             byte[] ba = text.getBytes("UTF-8");
             out.writeInt(ba.length);
             out.write(ba);
@@ -69,24 +119,23 @@ public class RMQTextMessage extends RMQMessage implements TextMessage {
         boolean isnull = inputStream.readBoolean();
         if (!isnull) {
             int len = inputStream.readInt();
-            byte[] ba = new byte[len];
-            inputStream.readFully(ba, 0, len);
-            this.text = new String(ba, "UTF-8");
+            this.encodedText = readBody(inputStream, bin, len);
         }
     }
 
     @Override
     protected void readAmqpBody(byte[] barr) {
-        try {
-            this.text = new String(barr, "UTF-8");
-        } catch (UnsupportedEncodingException e) {
-            // Will not happen: UTF-8 is supported everywhere
-        }
+        this.encodedText = ByteBuffer.wrap(barr);
     }
 
     @Override
     protected void writeAmqpBody(ByteArrayOutputStream out) throws IOException {
-        out.write((this.text!=null ? this.text : "").getBytes("UTF-8"));
+        ByteBuffer encodedText = this.encodedText;
+        if (encodedText != null) {
+            out.write(encodedText.array(), encodedText.arrayOffset() + encodedText.position(), encodedText.remaining());
+        } else {
+            out.write((this.text!=null ? this.text : "").getBytes("UTF-8"));
+        }
     }
 
     public static RMQMessage recreate(TextMessage msg) throws JMSException {
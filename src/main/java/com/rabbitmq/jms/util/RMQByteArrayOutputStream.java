@@ -2,6 +2,7 @@
 package com.rabbitmq.jms.util;
 
 import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
 import java.io.IOException;
 
 import javax.jms.JMSException;
@@ -128,4 +129,14 @@ public class RMQByteArrayOutputStream extends ByteArrayOutputStream {
         } else
             throw new MessageFormatException(s + " is not a recognized writable type.");
     }
+
+    /**
+     * Writes the content of this stream to a {@link DataOutput}, without copying it first.
+     * @param out the output to write to
+     * @throws IOException if an I/O error occurs
+     * @since 2.0.0
+     */
+    public void copyTo(DataOutput out) throws IOException {
+        out.write(this.buf, 0, this.count);
+    }
 }
@@ -6,6 +6,7 @@ import com.rabbitmq.client.Address;
 import com.rabbitmq.client.AddressResolver;
 import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.ConnectionFactory;
+import com.rabbitmq.jms.client.RMQConnection;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,6 +17,7 @@ import javax.naming.Reference;
 import javax.naming.StringRefAddr;
 import java.io.ByteArrayOutputStream;
 import java.io.ObjectOutputStream;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.List;
@@ -27,6 +29,7 @@ import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 public class RMQConnectionFactoryTest {
 
@@ -214,6 +217,8 @@ public class RMQConnectionFactoryTest {
 
     AddressResolver passedInAddressResolver;
 
+    List<Connection> createdConnections = new ArrayList<>();
+
     @BeforeEach
     public void init() {
         rmqCf = new TestRmqConnectionFactory();
@@ -282,6 +287,39 @@ public class RMQConnectionFactoryTest {
         assertEquals(2, callCount.get());
     }
 
+    @Test
+    public void severalAmqpConnectionsAreCreatedAndClosedPerConnection() throws Exception {
+        rmqCf.setAmqpConnectionsPerConnection(3);
+        RMQConnection connection = (RMQConnection) rmqCf.createConnection();
+        assertEquals(3, createdConnections.size());
+        assertEquals(3, connection.getAmqpConnectionStatistics().size());
+
+        connection.close();
+        for (Connection amqpConnection : createdConnections) {
+            verify(amqpConnection).close();
+        }
+    }
+
+    @Test
+    public void invalidNumberOfAmqpConnectionsIsIgnored() {
+        rmqCf.setAmqpConnectionsPerConnection(2);
+        rmqCf.setAmqpConnectionsPerConnection(0);
+        assertEquals(2, rmqCf.getAmqpConnectionsPerConnection());
+    }
+
+    @Test
+    public void separatePublishingConnectionIsCreatedAndClosed() throws Exception {
+        rmqCf.setSeparatePublishingConnection(true);
+        RMQConnection connection = (RMQConnection) rmqCf.createConnection();
+        assertEquals(2, createdConnections.size());
+        assertEquals(2, connection.getAmqpConnectionStatistics().size());
+
+        connection.close();
+        for (Connection amqpConnection : createdConnections) {
+            verify(amqpConnection).close();
+        }
+    }
+
     @Test
     public void shouldBeSerializable() throws Exception {
         RMQConnectionFactory cf = new RMQConnectionFactory();
@@ -301,7 +339,9 @@ public class RMQConnectionFactoryTest {
                 @Override
                 public Connection newConnection(ExecutorService executor, AddressResolver addressResolver, String clientProvidedName) {
                     passedInAddressResolver = addressResolver;
-                    return mock(Connection.class);
+                    Connection connection = mock(Connection.class);
+                    createdConnections.add(connection);
+                    return connection;
                 }
             };
         }
@@ -0,0 +1,141 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import com.rabbitmq.client.Channel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AckCoalescerTest {
+
+    static final long NONE = Long.MAX_VALUE;
+
+    Channel channel;
+    ScheduledExecutorService scheduler;
+    ScheduledFuture<?> periodicFlush;
+
+    @BeforeEach
+    public void init() {
+        channel = Mockito.mock(Channel.class);
+        scheduler = Mockito.mock(ScheduledExecutorService.class);
+        periodicFlush = Mockito.mock(ScheduledFuture.class);
+        Mockito.<ScheduledFuture<?>>when(scheduler.scheduleWithFixedDelay(any(), anyLong(), anyLong(), any())).thenReturn(periodicFlush);
+    }
+
+    @Test
+    public void acknowledgementsAreSentTogetherOnPeriodicFlush() throws Exception {
+        AckCoalescer coalescer = new AckCoalescer(new PendingAcks(channel), 10, 50, scheduler);
+        ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).scheduleWithFixedDelay(flush.capture(), eq(50L), eq(50L), eq(TimeUnit.MILLISECONDS));
+
+        coalescer.ack(1, NONE);
+        coalescer.ack(2, NONE);
+        coalescer.ack(3, NONE);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+
+        flush.getValue().run();
+        verify(channel).basicAck(3, true);
+        assertThat(coalescer.getPendingCount()).isZero();
+
+        coalescer.ack(4, NONE);
+        flush.getValue().run();
+        verify(channel).basicAck(4, false);
+    }
+
+    @Test
+    public void fullBatchIsFlushedOnScheduler() throws Exception {
+        AckCoalescer coalescer = new AckCoalescer(new PendingAcks(channel), 3, 1000, scheduler);
+        coalescer.ack(1, NONE);
+        coalescer.ack(2, NONE);
+        verify(scheduler, never()).execute(any());
+        coalescer.ack(3, NONE);
+        ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).execute(flush.capture());
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+
+        flush.getValue().run();
+        verify(channel).basicAck(3, true);
+    }
+
+    @Test
+    public void multipleAcknowledgementDoesNotCoverPrefetchedMessages() throws Exception {
+        AckCoalescer coalescer = new AckCoalescer(new PendingAcks(channel), 10, 1000, scheduler);
+        // 3 is prefetched and not received yet, 5 is received before it by another consumer
+        coalescer.ack(1, 3);
+        coalescer.ack(2, 3);
+        coalescer.ack(5, 3);
+        coalescer.ack(4, 3);
+        coalescer.flush();
+
+        InOrder inOrder = Mockito.inOrder(channel);
+        inOrder.verify(channel).basicAck(2, true);
+        inOrder.verify(channel).basicAck(4, false);
+        inOrder.verify(channel).basicAck(5, false);
+        inOrder.verifyNoMoreInteractions();
+
+        // 3 is received, nothing is prefetched anymore
+        coalescer.ack(3, NONE);
+        coalescer.ack(6, NONE);
+        coalescer.ack(7, NONE);
+        coalescer.flush();
+        verify(channel).basicAck(7, true);
+    }
+
+    @Test
+    public void closeFlushesAndStopsCoalescing() throws Exception {
+        AckCoalescer coalescer = new AckCoalescer(new PendingAcks(channel), 10, 1000, scheduler);
+        coalescer.ack(1, NONE);
+        coalescer.ack(2, NONE);
+        coalescer.close();
+        verify(channel).basicAck(2, true);
+        verify(periodicFlush).cancel(false);
+
+        coalescer.ack(3, NONE);
+        verify(channel).basicAck(3, false);
+        assertThat(coalescer.getPendingCount()).isZero();
+    }
+
+    @Test
+    public void failedAcknowledgementIsDropped() throws Exception {
+        AckCoalescer coalescer = new AckCoalescer(new PendingAcks(channel), 10, 1000, scheduler);
+        Mockito.doThrow(new java.io.IOException()).when(channel).basicAck(anyLong(), anyBoolean());
+        coalescer.ack(1, NONE);
+        coalescer.flush();
+        assertThat(coalescer.getPendingCount()).isZero();
+    }
+
+    @Test
+    public void flushContiguousSendsOnlyTheRange() throws Exception {
+        PendingAcks acks = new PendingAcks(channel);
+        AckCoalescer coalescer = new AckCoalescer(acks, 10, 1000, scheduler);
+        // 3 is not acknowledged yet
+        coalescer.ack(2, 3);
+        coalescer.ack(4, 3);
+        coalescer.ack(1, 3);
+        assertThat(coalescer.flushContiguous()).isEqualTo(2);
+        acks.send();
+        verify(channel).basicAck(2, true);
+        assertThat(coalescer.getPendingCount()).isEqualTo(1);
+
+        coalescer.ack(3, Long.MAX_VALUE);
+        assertThat(coalescer.flushContiguous()).isEqualTo(4);
+        acks.send();
+        verify(channel).basicAck(4, true);
+        assertThat(coalescer.flushContiguous()).isZero();
+    }
+}
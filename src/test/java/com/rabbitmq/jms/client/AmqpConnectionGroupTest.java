@@ -0,0 +1,63 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ShutdownListener;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AmqpConnectionGroupTest {
+
+    List<ShutdownListener> channelShutdownListeners = new ArrayList<>();
+
+    Connection connection() throws Exception {
+        Connection connection = Mockito.mock(Connection.class);
+        Mockito.when(connection.isOpen()).thenReturn(true);
+        Mockito.when(connection.createChannel()).thenAnswer(invocation -> {
+            Channel channel = Mockito.mock(Channel.class);
+            Mockito.when(channel.getConnection()).thenReturn(connection);
+            Mockito.doAnswer(inv -> channelShutdownListeners.add(inv.getArgument(0)))
+                .when(channel).addShutdownListener(Mockito.any());
+            return channel;
+        });
+        return connection;
+    }
+
+    @Test
+    public void roundRobinSpreadsChannelsInTurn() throws Exception {
+        Connection c1 = connection(), c2 = connection();
+        AmqpConnectionGroup group = new AmqpConnectionGroup(Arrays.asList(c1, c2), AmqpConnectionBalancingPolicy.ROUND_ROBIN);
+        assertThat(group.createChannel().getConnection()).isSameAs(c1);
+        assertThat(group.createChannel().getConnection()).isSameAs(c2);
+        assertThat(group.createChannel().getConnection()).isSameAs(c1);
+        assertThat(group.getStatistics()).extracting(AmqpConnectionStatistics::getCreatedChannels).containsExactly(2L, 1L);
+    }
+
+    @Test
+    public void closedConnectionsAreSkipped() throws Exception {
+        Connection c1 = connection(), c2 = connection();
+        Mockito.when(c1.isOpen()).thenReturn(false);
+        AmqpConnectionGroup group = new AmqpConnectionGroup(Arrays.asList(c1, c2), AmqpConnectionBalancingPolicy.ROUND_ROBIN);
+        assertThat(group.createChannel().getConnection()).isSameAs(c2);
+        assertThat(group.createChannel().getConnection()).isSameAs(c2);
+    }
+
+    @Test
+    public void leastLoadedPicksConnectionWithFewestOpenChannels() throws Exception {
+        Connection c1 = connection(), c2 = connection();
+        AmqpConnectionGroup group = new AmqpConnectionGroup(Arrays.asList(c1, c2), AmqpConnectionBalancingPolicy.LEAST_LOADED);
+        assertThat(group.createChannel().getConnection()).isSameAs(c1);
+        assertThat(group.createChannel().getConnection()).isSameAs(c2);
+        // the channel of the first connection is closed
+        channelShutdownListeners.get(0).shutdownCompleted(null);
+        assertThat(group.createChannel().getConnection()).isSameAs(c1);
+        assertThat(group.getStatistics()).extracting(AmqpConnectionStatistics::getOpenChannels).containsExactly(1, 1);
+    }
+}
@@ -0,0 +1,56 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import com.rabbitmq.client.AMQP;
+import org.junit.jupiter.api.Test;
+
+import javax.jms.DeliveryMode;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BasicPropertiesTemplatesTest {
+
+    @Test
+    public void templatesAreCachedPerCombination() {
+        BasicPropertiesTemplates templates = new BasicPropertiesTemplates();
+        BasicPropertiesTemplates.Template template = templates.get(DeliveryMode.PERSISTENT, 4, 1000L);
+        assertThat(templates.get(DeliveryMode.PERSISTENT, 4, 1000L)).isSameAs(template);
+        assertThat(templates.get(DeliveryMode.NON_PERSISTENT, 4, 1000L)).isNotSameAs(template);
+        assertThat(templates.get(DeliveryMode.PERSISTENT, 4, 1000L)).isSameAs(template);
+        assertThat(templates.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void numberOfTemplatesIsBounded() {
+        BasicPropertiesTemplates templates = new BasicPropertiesTemplates();
+        for (int i = 0; i < BasicPropertiesTemplates.MAX_TEMPLATES * 2; i++) {
+            templates.get(DeliveryMode.PERSISTENT, 4, i);
+        }
+        assertThat(templates.size()).isLessThanOrEqualTo(BasicPropertiesTemplates.MAX_TEMPLATES);
+    }
+
+    @Test
+    public void propertiesCopyTheHeaders() {
+        BasicPropertiesTemplates.Template template = new BasicPropertiesTemplates().get(DeliveryMode.PERSISTENT, 9, 5000L);
+        Map<String, Object> headers = new HashMap<>();
+        headers.put("foo", "bar");
+        AMQP.BasicProperties properties = template.properties(headers, "amq.rabbitmq.reply-to");
+        headers.clear();
+
+        assertThat(properties.getContentType()).isEqualTo(BasicPropertiesTemplates.CONTENT_TYPE);
+        assertThat(properties.getDeliveryMode()).isEqualTo(2);
+        assertThat(properties.getPriority()).isEqualTo(9);
+        assertThat(properties.getExpiration()).isEqualTo("5000");
+        assertThat(properties.getReplyTo()).isEqualTo("amq.rabbitmq.reply-to");
+        assertThat(properties.getHeaders()).containsEntry("foo", "bar");
+    }
+
+    @Test
+    public void expirationIsConstrainedToRabbitMqLimits() {
+        assertThat(BasicPropertiesTemplates.rmqExpiration(0L)).isNull();
+        assertThat(BasicPropertiesTemplates.rmqExpiration(-10L)).isEqualTo("0");
+        assertThat(BasicPropertiesTemplates.rmqExpiration(Long.MAX_VALUE)).isEqualTo("4294967295");
+    }
+}
@@ -0,0 +1,30 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BodySizeEstimatorTest {
+
+    @Test
+    public void initialSizeIsASizeClassWithinBounds() {
+        assertThat(new BodySizeEstimator(512).initialSize()).isEqualTo(512);
+        assertThat(new BodySizeEstimator(600).initialSize()).isEqualTo(1024);
+        assertThat(new BodySizeEstimator(1).initialSize()).isEqualTo(BodySizeEstimator.MIN_SIZE);
+        assertThat(new BodySizeEstimator(Integer.MAX_VALUE).initialSize()).isEqualTo(BodySizeEstimator.MAX_SIZE);
+    }
+
+    @Test
+    public void estimateFollowsLargerMessagesAtOnceAndSmallerOnesSlowly() {
+        BodySizeEstimator estimator = new BodySizeEstimator(512);
+        estimator.record(5000);
+        assertThat(estimator.initialSize()).isEqualTo(8192);
+        estimator.record(100);
+        assertThat(estimator.initialSize()).isEqualTo(8192);
+        for (int i = 0; i < 200; i++) {
+            estimator.record(100);
+        }
+        assertThat(estimator.initialSize()).isEqualTo(128);
+    }
+}
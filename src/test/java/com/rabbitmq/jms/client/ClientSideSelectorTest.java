@@ -0,0 +1,80 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.jms.client.message.RMQTextMessage;
+import com.rabbitmq.jms.util.RMQJMSSelectorException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.jms.DeliveryMode;
+import javax.jms.JMSException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class ClientSideSelectorTest {
+
+    Channel channel;
+
+    @BeforeEach
+    public void init() {
+        channel = mock(Channel.class);
+    }
+
+    RMQMessage message(long deliveryTag, String color, boolean redelivered) throws JMSException {
+        RMQMessage message = new RMQTextMessage();
+        message.setRabbitDeliveryTag(deliveryTag);
+        message.setStringProperty("color", color);
+        message.setJMSDeliveryMode(DeliveryMode.PERSISTENT);
+        message.setJMSPriority(4);
+        message.setJMSTimestamp(System.currentTimeMillis());
+        message.setJMSRedelivered(redelivered);
+        return message;
+    }
+
+    @Test
+    public void matchingMessagesAreSelected() throws Exception {
+        ClientSideSelector selector = new ClientSideSelector("color = 'red' AND JMSPriority > 3", QueueSelectorMismatchPolicy.REQUEUE);
+        assertThat(selector.select(message(1, "red", false), channel)).isTrue();
+        verify(channel, never()).basicNack(anyLong(), anyBoolean(), anyBoolean());
+        assertThat(selector.getStatistics().getSelected()).isEqualTo(1);
+        assertThat(selector.getStatistics().getRejected()).isZero();
+    }
+
+    @Test
+    public void messagesThatDoNotMatchAreRequeued() throws Exception {
+        ClientSideSelector selector = new ClientSideSelector("color = 'red'", QueueSelectorMismatchPolicy.REQUEUE);
+        assertThat(selector.select(message(1, "blue", false), channel)).isFalse();
+        assertThat(selector.select(message(2, "blue", true), channel)).isFalse();
+        assertThat(selector.select(message(3, "red", false), channel)).isTrue();
+        verify(channel).basicNack(1, false, true);
+        verify(channel).basicNack(2, false, true);
+
+        MessageSelectorStatistics statistics = selector.getStatistics();
+        assertThat(statistics.getSelected()).isEqualTo(1);
+        assertThat(statistics.getRejected()).isEqualTo(2);
+        assertThat(statistics.getRedeliveredRejected()).isEqualTo(1);
+        assertThat(statistics.getRejectionRate()).isCloseTo(2.0 / 3, within(0.001));
+    }
+
+    @Test
+    public void messagesThatDoNotMatchAreRejectedWithoutRequeue() throws Exception {
+        ClientSideSelector selector = new ClientSideSelector("color = 'red'", QueueSelectorMismatchPolicy.REJECT);
+        assertThat(selector.select(message(1, null, false), channel)).isFalse();
+        verify(channel).basicNack(1, false, false);
+        assertThat(selector.requeues()).isFalse();
+    }
+
+    @Test
+    public void invalidSelectorIsRefused() {
+        assertThatThrownBy(() -> new ClientSideSelector("color = ", QueueSelectorMismatchPolicy.REQUEUE))
+            .isInstanceOf(RMQJMSSelectorException.class);
+    }
+}
@@ -0,0 +1,34 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CounterMessageIdGeneratorTest {
+
+    @Test
+    public void idsAreThePrefixFollowedByAHexadecimalCounter() {
+        CounterMessageIdGenerator generator = new CounterMessageIdGenerator("ID:test:");
+        assertThat(generator.generate()).isEqualTo("ID:test:1");
+        for (int i = 2; i < 255; i++) {
+            generator.generate();
+        }
+        assertThat(generator.generate()).isEqualTo("ID:test:ff");
+        assertThat(generator.generate()).isEqualTo("ID:test:100");
+    }
+
+    @Test
+    public void generatorsDrawDistinctPrefixes() {
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            String id = new CounterMessageIdGenerator().generate();
+            assertThat(id).startsWith("ID:").endsWith(":1");
+            ids.add(id);
+        }
+        assertThat(ids).hasSize(100);
+    }
+}
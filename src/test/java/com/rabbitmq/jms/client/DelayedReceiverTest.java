@@ -0,0 +1,164 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Consumer;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.GetResponse;
+import com.rabbitmq.jms.util.TimeTracker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class DelayedReceiverTest {
+
+    RMQMessageConsumer messageConsumer;
+    RMQSession session;
+    Channel channel;
+    AtomicReference<Consumer> subscription;
+
+    @BeforeEach
+    public void init() throws Exception {
+        messageConsumer = mock(RMQMessageConsumer.class);
+        session = mock(RMQSession.class);
+        channel = mock(Channel.class);
+        RMQConnection connection = mock(RMQConnection.class);
+        when(messageConsumer.getSession()).thenReturn(session);
+        when(session.getChannel()).thenReturn(channel);
+        when(session.getConnection()).thenReturn(connection);
+        when(connection.getTerminationTimeout()).thenReturn(100L);
+        subscription = new AtomicReference<>();
+        doAnswer(invocation -> {
+            subscription.set(invocation.getArgument(0, Consumer.class));
+            return null;
+        }).when(messageConsumer).basicConsume(any(Consumer.class), anyString(), anyInt());
+        doAnswer(invocation -> {
+            subscription.get().handleCancelOk(invocation.getArgument(0, String.class));
+            return null;
+        }).when(channel).basicCancel(anyString());
+    }
+
+    static void deliver(Consumer consumer, long deliveryTag) throws Exception {
+        consumer.handleDelivery("tag", new Envelope(deliveryTag, false, "", "q"), new AMQP.BasicProperties(), new byte[0]);
+    }
+
+    @Test
+    public void pollsWhenNoPrefetch() throws Exception {
+        GetResponse response = new GetResponse(new Envelope(1, false, "", "q"), null, new byte[0], 0);
+        when(messageConsumer.getFromRabbitQueue()).thenReturn(response);
+        DelayedReceiver receiver = new DelayedReceiver(0, messageConsumer);
+        assertThat(receiver.get(TimeTracker.ZERO)).isSameAs(response);
+        verify(messageConsumer, never()).basicConsume(any(Consumer.class), anyString(), anyInt());
+    }
+
+    @Test
+    public void getReturnsBufferedDeliveriesInOrder() throws Exception {
+        DelayedReceiver receiver = new DelayedReceiver(10, messageConsumer);
+        assertThat(receiver.get(TimeTracker.ZERO)).isNull();
+        verify(messageConsumer, times(1)).basicConsume(any(Consumer.class), anyString(), eq(10));
+        deliver(subscription.get(), 1);
+        deliver(subscription.get(), 2);
+        assertThat(receiver.get(TimeTracker.ZERO).getEnvelope().getDeliveryTag()).isEqualTo(1);
+        assertThat(receiver.get(TimeTracker.ZERO).getEnvelope().getDeliveryTag()).isEqualTo(2);
+        verify(messageConsumer, times(1)).basicConsume(any(Consumer.class), anyString(), anyInt());
+    }
+
+    @Test
+    public void getWakesUpOnDelivery() throws Exception {
+        DelayedReceiver receiver = new DelayedReceiver(10, messageConsumer);
+        receiver.get(TimeTracker.ZERO); // subscribes
+        Consumer consumer = subscription.get();
+        new Thread(() -> {
+            try {
+                Thread.sleep(50);
+                deliver(consumer, 1);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }).start();
+        long start = System.nanoTime();
+        GetResponse response = receiver.get(new TimeTracker(10, TimeUnit.SECONDS));
+        assertThat(response.getEnvelope().getDeliveryTag()).isEqualTo(1);
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(5));
+    }
+
+    @Test
+    public void stopRequeuesBufferedAndLateDeliveries() throws Exception {
+        DelayedReceiver receiver = new DelayedReceiver(10, messageConsumer);
+        receiver.get(TimeTracker.ZERO);
+        Consumer consumer = subscription.get();
+        deliver(consumer, 1);
+        deliver(consumer, 2);
+        receiver.stop();
+        verify(channel, times(1)).basicCancel(anyString());
+        verify(session).explicitNack(1);
+        verify(session).explicitNack(2);
+        deliver(consumer, 3); // arriving after cancellation
+        verify(session).explicitNack(3);
+
+        receiver.get(TimeTracker.ZERO); // subscribes again
+        verify(messageConsumer, times(2)).basicConsume(any(Consumer.class), anyString(), anyInt());
+    }
+
+    @Test
+    public void discardBufferedDoesNotNack() throws Exception {
+        DelayedReceiver receiver = new DelayedReceiver(10, messageConsumer);
+        receiver.get(TimeTracker.ZERO);
+        deliver(subscription.get(), 1);
+        receiver.discardBuffered();
+        verify(session, never()).explicitNack(anyLong());
+        assertThat(receiver.get(TimeTracker.ZERO)).isNull();
+    }
+
+    @Test
+    public void closeReleasesWaiters() throws Exception {
+        DelayedReceiver receiver = new DelayedReceiver(10, messageConsumer);
+        new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            receiver.close();
+        }).start();
+        long start = System.nanoTime();
+        assertThat(receiver.get(new TimeTracker(10, TimeUnit.SECONDS))).isNull();
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(5));
+    }
+
+    @Test
+    public void batchGetDrainsBufferUpToMax() throws Exception {
+        DelayedReceiver receiver = new DelayedReceiver(10, messageConsumer);
+        receiver.get(TimeTracker.ZERO);
+        for (int i = 1; i <= 5; i++) {
+            deliver(subscription.get(), i);
+        }
+        List<GetResponse> batch = receiver.get(3, TimeTracker.ZERO);
+        assertThat(batch).extracting(r -> r.getEnvelope().getDeliveryTag()).containsExactly(1L, 2L, 3L);
+        assertThat(receiver.lowestBufferedTag()).isEqualTo(4);
+        batch = receiver.get(10, TimeTracker.ZERO);
+        assertThat(batch).extracting(r -> r.getEnvelope().getDeliveryTag()).containsExactly(4L, 5L);
+        assertThat(receiver.lowestBufferedTag()).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void batchGetPollsUntilQueueIsEmpty() throws Exception {
+        when(messageConsumer.getFromRabbitQueue()).thenReturn(
+            new GetResponse(new Envelope(1, false, "", "q"), null, new byte[0], 1),
+            new GetResponse(new Envelope(2, false, "", "q"), null, new byte[0], 0),
+            null);
+        DelayedReceiver receiver = new DelayedReceiver(0, messageConsumer);
+        List<GetResponse> batch = receiver.get(10, TimeTracker.ZERO);
+        assertThat(batch).extracting(r -> r.getEnvelope().getDeliveryTag()).containsExactly(1L, 2L);
+    }
+}
@@ -0,0 +1,152 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DeliveryTagTrackerTest {
+
+    @Test
+    public void addRemoveContains() {
+        DeliveryTagTracker tracker = new DeliveryTagTracker(8);
+        assertThat(tracker.isEmpty()).isTrue();
+        tracker.add(1);
+        tracker.add(2);
+        assertThat(tracker.contains(1)).isTrue();
+        assertThat(tracker.contains(3)).isFalse();
+        assertThat(tracker.remove(1)).isTrue();
+        assertThat(tracker.remove(1)).isFalse();
+        assertThat(tracker.contains(1)).isFalse();
+        assertThat(tracker.isEmpty()).isFalse();
+        assertThat(tracker.remove(2)).isTrue();
+        assertThat(tracker.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void removeUpToReturnsHighestRemoved() {
+        DeliveryTagTracker tracker = new DeliveryTagTracker(8);
+        tracker.add(1);
+        tracker.add(3);
+        tracker.add(4);
+        tracker.add(6);
+        assertThat(tracker.removeUpTo(5)).isEqualTo(4);
+        assertThat(tracker.contains(6)).isTrue();
+        assertThat(tracker.removeUpTo(5)).isEqualTo(DeliveryTagTracker.NO_TAG);
+        assertThat(tracker.removeUpTo(10)).isEqualTo(6);
+        assertThat(tracker.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void tagsBeyondCapacityOverflow() {
+        DeliveryTagTracker tracker = new DeliveryTagTracker(4);
+        for (long tag = 1; tag <= 10; tag++) {
+            tracker.add(tag);
+        }
+        for (long tag = 1; tag <= 10; tag++) {
+            assertThat(tracker.contains(tag)).isTrue();
+        }
+        assertThat(tracker.remove(9)).isTrue();
+        assertThat(tracker.removeUpTo(7)).isEqualTo(7);
+        assertThat(tracker.contains(8)).isTrue();
+        assertThat(tracker.contains(10)).isTrue();
+        assertThat(tracker.clear()).isEqualTo(10);
+        assertThat(tracker.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void lowestTrackedTag() {
+        DeliveryTagTracker tracker = new DeliveryTagTracker(4);
+        assertThat(tracker.lowest(Long.MAX_VALUE)).isEqualTo(DeliveryTagTracker.NO_TAG);
+        for (long tag = 1; tag <= 10; tag++) {
+            tracker.add(tag);
+        }
+        tracker.remove(1);
+        tracker.remove(2);
+        assertThat(tracker.lowest(10)).isEqualTo(3);
+        assertThat(tracker.lowest(2)).isEqualTo(DeliveryTagTracker.NO_TAG);
+        tracker.removeUpTo(4);
+        tracker.remove(6);
+        // 5 is in the ring, 7 to 10 overflowed
+        assertThat(tracker.lowest(Long.MAX_VALUE)).isEqualTo(5);
+        tracker.remove(5);
+        assertThat(tracker.lowest(Long.MAX_VALUE)).isEqualTo(7);
+        assertThat(tracker.lowest(6)).isEqualTo(DeliveryTagTracker.NO_TAG);
+    }
+
+    @Test
+    public void tagAddedBelowWatermarkIsTracked() {
+        DeliveryTagTracker tracker = new DeliveryTagTracker(8);
+        tracker.add(6);
+        assertThat(tracker.removeUpTo(6)).isEqualTo(6);
+        tracker.add(5); // e.g. prefetched, received after 6 was acknowledged
+        assertThat(tracker.contains(5)).isTrue();
+        assertThat(tracker.removeUpTo(5)).isEqualTo(5);
+        assertThat(tracker.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void tagAddedWhileRemovedUpToIsNotTrackedTwice() throws Exception {
+        DeliveryTagTracker tracker = new DeliveryTagTracker(1); // every tag in the same slot
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        long rounds = 20000;
+        Thread adder = new Thread(() -> {
+            try {
+                for (long tag = 1; tag <= rounds; tag++) {
+                    barrier.await();
+                    tracker.add(tag);
+                    barrier.await();
+                }
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        adder.start();
+        for (long tag = 1; tag <= rounds; tag++) {
+            barrier.await();
+            long removed = tracker.removeUpTo(tag);
+            barrier.await();
+            // the tag is removed once: by removeUpTo, by add, or later (when it was added after removeUpTo returned)
+            if (removed == tag) {
+                assertThat(tracker.contains(tag)).isFalse();
+            } else if (tracker.contains(tag)) {
+                assertThat(tracker.remove(tag)).isTrue();
+            }
+            assertThat(tracker.isEmpty()).isTrue();
+        }
+        adder.join(10000);
+        assertThat(tracker.lowest(Long.MAX_VALUE)).isEqualTo(DeliveryTagTracker.NO_TAG);
+    }
+
+    @Test
+    public void concurrentAddAndRemoveUpTo() throws Exception {
+        DeliveryTagTracker tracker = new DeliveryTagTracker(64);
+        long count = 100000;
+        AtomicLong added = new AtomicLong(0);
+        CountDownLatch done = new CountDownLatch(1);
+        new Thread(() -> {
+            for (long tag = 1; tag <= count; tag++) {
+                tracker.add(tag);
+                added.set(tag);
+            }
+            done.countDown();
+        }).start();
+        long acked = 0;
+        while (acked < count) {
+            long upTo = added.get();
+            if (upTo > acked) {
+                long last = tracker.removeUpTo(upTo);
+                assertThat(last).isIn(DeliveryTagTracker.NO_TAG, upTo);
+                acked = upTo;
+            }
+        }
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        tracker.removeUpTo(count);
+        assertThat(tracker.isEmpty()).isTrue();
+    }
+}
@@ -0,0 +1,66 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import com.rabbitmq.jms.client.message.RMQTextMessage;
+import com.rabbitmq.jms.util.RMQJMSException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class OnMessageWatchdogTest {
+
+    OnMessageWatchdog watchdog;
+    DeliveryExecutor executor;
+
+    @BeforeEach
+    public void init() {
+        watchdog = new OnMessageWatchdog(100);
+        executor = new DeliveryExecutor(100, watchdog);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.close();
+        watchdog.close();
+    }
+
+    @Test
+    public void onMessageIsCalledOnCurrentThread() throws Exception {
+        AtomicReference<Thread> listenerThread = new AtomicReference<>();
+        executor.deliverMessageWithProtection(new RMQTextMessage(), message -> listenerThread.set(Thread.currentThread()));
+        assertThat(listenerThread.get()).isSameAs(Thread.currentThread());
+    }
+
+    @Test
+    public void slowOnMessageIsInterrupted() throws Exception {
+        AtomicBoolean interrupted = new AtomicBoolean(false);
+        assertThatThrownBy(() -> executor.deliverMessageWithProtection(new RMQTextMessage(), message -> {
+            try {
+                Thread.sleep(10000);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+        })).isInstanceOf(RMQJMSException.class).hasMessageContaining("too long");
+        assertThat(interrupted).isTrue();
+        assertThat(Thread.currentThread().isInterrupted()).isFalse();
+
+        // the watch can be used again
+        AtomicBoolean called = new AtomicBoolean(false);
+        executor.deliverMessageWithProtection(new RMQTextMessage(), message -> called.set(true));
+        assertThat(called).isTrue();
+    }
+
+    @Test
+    public void listenerExceptionIsWrapped() {
+        RuntimeException exception = new IllegalArgumentException();
+        assertThatThrownBy(() -> executor.deliverMessageWithProtection(new RMQTextMessage(), message -> {
+            throw exception;
+        })).isInstanceOf(RMQMessageListenerExecutionJMSException.class).hasCause(exception);
+    }
+}
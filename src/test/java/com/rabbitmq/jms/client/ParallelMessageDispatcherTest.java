@@ -0,0 +1,128 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.jms.client.message.RMQTextMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class ParallelMessageDispatcherTest {
+
+    Channel channel;
+    ParallelMessageDispatcher dispatcher;
+
+    @BeforeEach
+    public void init() {
+        channel = Mockito.mock(Channel.class);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (dispatcher != null) {
+            dispatcher.close(1000);
+        }
+    }
+
+    static RMQMessage message(long deliveryTag, String groupId) throws Exception {
+        RMQMessage message = new RMQTextMessage();
+        message.setRabbitDeliveryTag(deliveryTag);
+        if (groupId != null) {
+            message.setStringProperty(RMQConnectionMetaData.JMSX_GROUP_ID_LABEL, groupId);
+        }
+        return message;
+    }
+
+    @Test
+    public void messagesWithSameKeyAreProcessedInOrder() throws Exception {
+        dispatcher = new ParallelMessageDispatcher(channel, 4, null, true);
+        List<Long> processed = new CopyOnWriteArrayList<>();
+        for (long tag = 1; tag <= 100; tag++) {
+            RMQMessage message = message(tag, "group");
+            dispatcher.dispatch(message, true, () -> processed.add(message.getRabbitDeliveryTag()));
+        }
+        assertThat(dispatcher.awaitIdle(5000)).isTrue();
+        assertThat(processed).hasSize(100).isSorted();
+    }
+
+    @Test
+    public void messagesWithDifferentKeysAreProcessedInParallel() throws Exception {
+        // "a" and "b" have different hash codes modulo 2
+        dispatcher = new ParallelMessageDispatcher(channel, 2, null, true);
+        CountDownLatch bProcessed = new CountDownLatch(1);
+        CountDownLatch aCompleted = new CountDownLatch(1);
+        dispatcher.dispatch(message(1, "a"), true, () -> {
+            try {
+                // waits for a message delivered after it
+                assertThat(bProcessed.await(5, TimeUnit.SECONDS)).isTrue();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            aCompleted.countDown();
+            return true;
+        });
+        dispatcher.dispatch(message(2, "b"), true, () -> {
+            bProcessed.countDown();
+            return true;
+        });
+        assertThat(aCompleted.await(5, TimeUnit.SECONDS)).isTrue();
+        verify(channel, timeout(5000)).basicAck(2, true);
+    }
+
+    @Test
+    public void messagesAreAcknowledgedWhenAllPreviousMessagesAreProcessed() throws Exception {
+        dispatcher = new ParallelMessageDispatcher(channel, 2, null, true);
+        CountDownLatch release = new CountDownLatch(1);
+        dispatcher.dispatch(message(1, "a"), true, () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        });
+        dispatcher.dispatch(message(2, "b"), true, () -> true);
+        // rejected by the listener
+        dispatcher.dispatch(message(3, "b"), true, () -> false);
+        assertThat(dispatcher.awaitIdle(100)).isFalse();
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+
+        release.countDown();
+        assertThat(dispatcher.awaitIdle(5000)).isTrue();
+        verify(channel).basicAck(2, true);
+        verify(channel, never()).basicAck(3, true);
+    }
+
+    @Test
+    public void messagesAreAcknowledgedOneByOneWithoutMultipleAcks() throws Exception {
+        dispatcher = new ParallelMessageDispatcher(channel, 2, null, false);
+        dispatcher.dispatch(message(1, "a"), true, () -> true);
+        dispatcher.dispatch(message(2, "a"), true, () -> true);
+        assertThat(dispatcher.awaitIdle(5000)).isTrue();
+        verify(channel).basicAck(1, false);
+        verify(channel).basicAck(2, false);
+        verify(channel, never()).basicAck(anyLong(), Mockito.eq(true));
+    }
+
+    @Test
+    public void messagesAreNotAcknowledgedIfNotRequested() throws Exception {
+        dispatcher = new ParallelMessageDispatcher(channel, 2, null, true);
+        dispatcher.dispatch(message(1, null), false, () -> true);
+        dispatcher.dispatch(message(2, null), false, () -> true);
+        assertThat(dispatcher.awaitIdle(5000)).isTrue();
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+}
@@ -0,0 +1,95 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import com.rabbitmq.client.Channel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class PendingAcksTest {
+
+    Channel channel;
+    PendingAcks acks;
+
+    @BeforeEach
+    public void init() {
+        channel = Mockito.mock(Channel.class);
+        acks = new PendingAcks(channel);
+    }
+
+    @Test
+    public void acknowledgementsAreSentInTheOrderTheyAreAdded() throws Exception {
+        for (long tag = 1; tag <= 40; tag++) { // more than the initial capacity
+            acks.ack(tag, tag % 2 == 0);
+        }
+        acks.nack(41, true);
+        acks.nack(42, false);
+        acks.send();
+
+        InOrder inOrder = inOrder(channel);
+        for (long tag = 1; tag <= 40; tag++) {
+            inOrder.verify(channel).basicAck(tag, tag % 2 == 0);
+        }
+        inOrder.verify(channel).basicNack(41, false, true);
+        inOrder.verify(channel).basicNack(42, false, false);
+    }
+
+    @Test
+    public void threadDoesNotWaitForAnotherOneSending() throws Exception {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            sending.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(channel).basicAck(1, true);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            acks.ack(1, true);
+            Future<?> sender = executor.submit(() -> {
+                acks.send();
+                return null;
+            });
+            assertThat(sending.await(10, TimeUnit.SECONDS)).isTrue();
+
+            acks.ack(2, false);
+            acks.send(); // left to the sending thread
+            verify(channel, Mockito.never()).basicAck(2, false);
+
+            release.countDown();
+            sender.get(10, TimeUnit.SECONDS);
+            InOrder inOrder = inOrder(channel);
+            inOrder.verify(channel).basicAck(1, true);
+            inOrder.verify(channel, timeout(5000)).basicAck(2, false);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void acknowledgementsAfterAFailureStayPending() throws Exception {
+        doThrow(new IOException("channel closed")).when(channel).basicAck(1, false);
+        acks.ack(1, false);
+        acks.ack(2, false);
+        assertThatThrownBy(acks::send).isInstanceOf(IOException.class);
+        verify(channel, Mockito.never()).basicAck(2, false);
+        acks.send();
+        verify(channel).basicAck(2, false);
+    }
+}
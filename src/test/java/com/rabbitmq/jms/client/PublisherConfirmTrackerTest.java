@@ -0,0 +1,63 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PublisherConfirmTrackerTest {
+
+    @Test
+    public void removeSingleAndMultiple() {
+        PublisherConfirmTracker<String> tracker = new PublisherConfirmTracker<>(16);
+        for (long i = 1; i <= 10; i++) {
+            tracker.put(i, "m" + i);
+        }
+        assertThat(tracker.size()).isEqualTo(10);
+        assertThat(tracker.remove(3)).isEqualTo("m3");
+        assertThat(tracker.remove(3)).isNull();
+        List<String> removed = new ArrayList<>();
+        tracker.removeUpTo(5, removed::add);
+        assertThat(removed).containsExactly("m1", "m2", "m4", "m5");
+        assertThat(tracker.size()).isEqualTo(5);
+        removed.clear();
+        tracker.clear(removed::add);
+        assertThat(removed).containsExactly("m6", "m7", "m8", "m9", "m10");
+        assertThat(tracker.size()).isZero();
+    }
+
+    @Test
+    public void moreOutstandingThanCapacity() {
+        PublisherConfirmTracker<Long> tracker = new PublisherConfirmTracker<>(4);
+        for (long i = 1; i <= 20; i++) {
+            tracker.put(i, i);
+        }
+        assertThat(tracker.remove(15)).isEqualTo(15L);
+        List<Long> removed = new ArrayList<>();
+        tracker.removeUpTo(18, removed::add);
+        assertThat(removed).containsExactlyInAnyOrderElementsOf(
+            LongStream.rangeClosed(1, 18).filter(i -> i != 15).boxed().collect(Collectors.toList()));
+        assertThat(tracker.size()).isEqualTo(2);
+        // slots are reused once freed
+        tracker.put(21, 21L);
+        assertThat(tracker.remove(21)).isEqualTo(21L);
+    }
+
+    @Test
+    public void multipleConfirmSkipsIndividuallyConfirmedPrefix() {
+        PublisherConfirmTracker<Long> tracker = new PublisherConfirmTracker<>(8);
+        for (long i = 1; i <= 5; i++) {
+            tracker.put(i, i);
+        }
+        tracker.remove(1);
+        tracker.remove(2);
+        List<Long> removed = new ArrayList<>();
+        tracker.removeUpTo(4, removed::add);
+        assertThat(removed).containsExactly(3L, 4L);
+    }
+}
@@ -122,4 +122,32 @@ public class PublisherConfirmsUtilsTest {
                 .containsAll(IntStream.range(31, 50).filter(i -> i != 35).boxed().collect(Collectors.toList()));
     }
 
+    @Test
+    public void configurePublisherConfirmsSupportWithTokenExtractor() throws Exception {
+        Channel channel = mock(Channel.class);
+        AtomicReference<com.rabbitmq.client.ConfirmListener> amqpConfirmListener = new AtomicReference<>();
+        doAnswer(invocation -> {
+            amqpConfirmListener.set(invocation.getArgument(0, com.rabbitmq.client.ConfirmListener.class));
+            return null;
+        }).when(channel).addConfirmListener(any(com.rabbitmq.client.ConfirmListener.class));
+
+        List<PublisherConfirmContext> contexts = new ArrayList<>();
+        PublishingListener publishingListener = PublisherConfirmsUtils.configurePublisherConfirmsSupport(
+                channel, contexts::add, message -> toInt(message) * 10
+        );
+        for (int i = 1; i <= 3; i++) {
+            TextMessage message = message(String.valueOf(i));
+            when(message.getJMSMessageID()).thenReturn("ID:" + i);
+            publishingListener.publish(message, i);
+        }
+        amqpConfirmListener.get().handleNack(2, false);
+        amqpConfirmListener.get().handleAck(3, true);
+
+        assertThat(contexts).hasSize(3);
+        assertThat(contexts).extracting(PublisherConfirmContext::getMessage).containsOnlyNulls();
+        assertThat(contexts).extracting(PublisherConfirmContext::getMessageId).containsExactly("ID:2", "ID:1", "ID:3");
+        assertThat(contexts).extracting(PublisherConfirmContext::getToken).containsExactly(20, 10, 30);
+        assertThat(contexts).extracting(PublisherConfirmContext::isAck).containsExactly(false, true, true);
+    }
+
 }
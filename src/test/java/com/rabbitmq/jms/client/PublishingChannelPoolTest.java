@@ -0,0 +1,122 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import com.rabbitmq.client.Channel;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import javax.jms.IllegalStateException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PublishingChannelPoolTest {
+
+    List<Channel> channels = new ArrayList<>();
+
+    PublishingChannelPool pool(int size) {
+        return new PublishingChannelPool(size, () -> {
+            Channel channel = Mockito.mock(Channel.class);
+            Mockito.when(channel.isOpen()).thenReturn(true);
+            channels.add(channel);
+            return channel;
+        }, null, null, () -> new PublishingWindow(0, 0, null, 0, null));
+    }
+
+    @Test
+    public void channelsAreCreatedOnDemandAndReused() throws Exception {
+        PublishingChannelPool pool = pool(2);
+        PublishingChannel channel1 = pool.borrow();
+        PublishingChannel channel2 = pool.borrow();
+        assertThat(channel1.getChannel()).isNotSameAs(channel2.getChannel());
+        assertThat(pool.getChannelCount()).isEqualTo(2);
+
+        pool.release(channel1);
+        assertThat(pool.borrow()).isSameAs(channel1);
+        assertThat(channels).hasSize(2);
+    }
+
+    @Test
+    public void borrowWaitsForAChannelWhenAllAreInUse() throws Exception {
+        PublishingChannelPool pool = pool(1);
+        PublishingChannel channel = pool.borrow();
+        CompletableFuture<PublishingChannel> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.borrow();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread.sleep(200);
+        assertThat(waiting).isNotDone();
+
+        pool.release(channel);
+        assertThat(waiting.get(5, TimeUnit.SECONDS)).isSameAs(channel);
+    }
+
+    @Test
+    public void preferredChannelIsBorrowedAgainEvenWhenAnotherOneIsIdle() throws Exception {
+        PublishingChannelPool pool = pool(2);
+        PublishingChannel preferred = pool.borrow();
+        PublishingChannel other = pool.borrow();
+        pool.release(other);
+        CompletableFuture<PublishingChannel> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.borrow(preferred);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread.sleep(200);
+        assertThat(waiting).isNotDone();
+
+        pool.release(preferred);
+        assertThat(waiting.get(5, TimeUnit.SECONDS)).isSameAs(preferred);
+        pool.release(preferred);
+        assertThat(pool.borrow(preferred)).isSameAs(preferred);
+    }
+
+    @Test
+    public void anyChannelIsBorrowedWhenThePreferredOneIsDiscarded() throws Exception {
+        PublishingChannelPool pool = pool(1);
+        PublishingChannel channel = pool.borrow();
+        Mockito.when(channel.getChannel().isOpen()).thenReturn(false);
+        pool.release(channel);
+
+        PublishingChannel replacement = pool.borrow(channel);
+        assertThat(replacement).isNotSameAs(channel);
+        assertThat(channels).hasSize(2);
+    }
+
+    @Test
+    public void closedChannelsAreReplaced() throws Exception {
+        PublishingChannelPool pool = pool(1);
+        PublishingChannel channel = pool.borrow();
+        Mockito.when(channel.getChannel().isOpen()).thenReturn(false);
+        pool.release(channel);
+        assertThat(pool.getChannelCount()).isZero();
+
+        assertThat(pool.borrow()).isNotSameAs(channel);
+        assertThat(channels).hasSize(2);
+    }
+
+    @Test
+    public void closeClosesIdleChannelsAndBorrowedOnesWhenReleased() throws Exception {
+        PublishingChannelPool pool = pool(2);
+        PublishingChannel idle = pool.borrow();
+        PublishingChannel borrowed = pool.borrow();
+        pool.release(idle);
+
+        pool.close();
+        Mockito.verify(idle.getChannel()).close();
+        assertThatThrownBy(pool::borrow).isInstanceOf(IllegalStateException.class);
+
+        pool.release(borrowed);
+        Mockito.verify(borrowed.getChannel()).close();
+        assertThat(pool.getChannelCount()).isZero();
+    }
+}
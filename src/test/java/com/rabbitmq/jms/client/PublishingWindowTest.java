@@ -0,0 +1,109 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.jms.client.message.RMQTextMessage;
+import org.junit.jupiter.api.Test;
+
+import javax.jms.ResourceAllocationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class PublishingWindowTest {
+
+    @Test
+    public void failFastWhenWindowIsFull() throws Exception {
+        PublishingWindow window = new PublishingWindow(2, 0, PublishingWindowPolicy.FAIL_FAST, 0, null);
+        window.acquire(new RMQTextMessage(), 10);
+        window.acquire(new RMQTextMessage(), 10);
+        assertThat(window.getInFlightMessages()).isEqualTo(2);
+        assertThat(window.getInFlightBytes()).isZero();
+        assertThatThrownBy(() -> window.acquire(new RMQTextMessage(), 10)).isInstanceOf(ResourceAllocationException.class);
+        window.release(0);
+        window.acquire(new RMQTextMessage(), 10);
+        assertThat(window.getInFlightMessages()).isEqualTo(2);
+    }
+
+    @Test
+    public void byteLimitLetsALargeMessageGoWhenWindowIsEmpty() throws Exception {
+        PublishingWindow window = new PublishingWindow(0, 100, PublishingWindowPolicy.FAIL_FAST, 0, null);
+        window.acquire(new RMQTextMessage(), 60);
+        assertThatThrownBy(() -> window.acquire(new RMQTextMessage(), 60)).isInstanceOf(ResourceAllocationException.class);
+        assertThat(window.getInFlightMessages()).isEqualTo(1);
+        window.release(60);
+        window.acquire(new RMQTextMessage(), 1000);
+        assertThat(window.getInFlightBytes()).isEqualTo(1000);
+    }
+
+    @Test
+    public void blockUntilConfirmReleasesSlot() throws Exception {
+        PublishingWindow window = new PublishingWindow(1, 0, PublishingWindowPolicy.BLOCK, 5000, null);
+        window.acquire(new RMQTextMessage(), 0);
+        CountDownLatch acquired = new CountDownLatch(1);
+        new Thread(() -> {
+            try {
+                window.acquire(new RMQTextMessage(), 0);
+                acquired.countDown();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }).start();
+        assertThat(acquired.await(100, TimeUnit.MILLISECONDS)).isFalse();
+        window.release(0);
+        assertThat(acquired.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(window.getInFlightMessages()).isEqualTo(1);
+    }
+
+    @Test
+    public void blockTimesOut() throws Exception {
+        PublishingWindow window = new PublishingWindow(1, 0, PublishingWindowPolicy.BLOCK, 50, null);
+        window.acquire(new RMQTextMessage(), 0);
+        assertThatThrownBy(() -> window.acquire(new RMQTextMessage(), 0)).isInstanceOf(ResourceAllocationException.class);
+    }
+
+    @Test
+    public void callbackDecidesToSendOverTheWindow() throws Exception {
+        AtomicInteger calls = new AtomicInteger(0);
+        PublishingWindow window = new PublishingWindow(1, 0, PublishingWindowPolicy.CALLBACK, 0,
+            (message, inFlightMessages, inFlightBytes) -> {
+                if (calls.incrementAndGet() > 1) {
+                    throw new ResourceAllocationException("full");
+                }
+            });
+        window.acquire(new RMQTextMessage(), 0);
+        window.acquire(new RMQTextMessage(), 0);
+        assertThat(window.getInFlightMessages()).isEqualTo(2);
+        assertThatThrownBy(() -> window.acquire(new RMQTextMessage(), 0)).isInstanceOf(ResourceAllocationException.class);
+        assertThat(window.getInFlightMessages()).isEqualTo(2);
+    }
+
+    @Test
+    public void confirmsReleaseSlots() throws Exception {
+        Channel channel = mock(Channel.class);
+        AtomicReference<com.rabbitmq.client.ConfirmListener> amqpConfirmListener = new AtomicReference<>();
+        doAnswer(invocation -> {
+            amqpConfirmListener.set(invocation.getArgument(0, com.rabbitmq.client.ConfirmListener.class));
+            return null;
+        }).when(channel).addConfirmListener(any(com.rabbitmq.client.ConfirmListener.class));
+        PublishingWindow window = new PublishingWindow(0, 1000, PublishingWindowPolicy.FAIL_FAST, 0, null);
+        PublishingListener listener = PublisherConfirmsUtils.configurePublisherConfirmsSupport(channel, null, null, window);
+        for (int i = 1; i <= 3; i++) {
+            listener.publish(new RMQTextMessage(), i, 100 * i, null);
+        }
+        assertThat(window.getInFlightMessages()).isEqualTo(3);
+        assertThat(window.getInFlightBytes()).isEqualTo(600);
+        amqpConfirmListener.get().handleNack(2, false);
+        assertThat(window.getInFlightBytes()).isEqualTo(400);
+        amqpConfirmListener.get().handleAck(3, true);
+        assertThat(window.getInFlightMessages()).isZero();
+        assertThat(window.getInFlightBytes()).isZero();
+    }
+}
@@ -0,0 +1,185 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.jms.client.message.RMQTextMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.ServerSession;
+import javax.jms.ServerSessionPool;
+import javax.jms.Session;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RMQConnectionConsumerTest {
+
+    RMQConnection connection;
+    Channel channel;
+    RMQSession consumingSession;
+    ServerSessionPool pool;
+    ServerSession serverSession;
+    RMQConnectionConsumer connectionConsumer;
+
+    @BeforeEach
+    public void init() throws Exception {
+        connection = mock(RMQConnection.class);
+        channel = mock(Channel.class);
+        when(connection.createRabbitChannel(anyBoolean())).thenReturn(channel);
+        when(connection.getTerminationTimeout()).thenReturn(1000L);
+        consumingSession = new RMQSession(new SessionParams()
+            .setConnection(connection)
+            .setMode(RMQSession.CLIENT_INDIVIDUAL_ACKNOWLEDGE));
+        pool = mock(ServerSessionPool.class);
+        serverSession = mock(ServerSession.class);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (connectionConsumer != null) {
+            connectionConsumer.internalClose();
+        }
+    }
+
+    MessageListener start(int maxMessages) throws JMSException {
+        connectionConsumer = new RMQConnectionConsumer(connection, consumingSession, pool, maxMessages);
+        MessageConsumer consumer = mock(MessageConsumer.class);
+        connectionConsumer.start(consumer);
+        ArgumentCaptor<MessageListener> listener = ArgumentCaptor.forClass(MessageListener.class);
+        verify(consumer).setMessageListener(listener.capture());
+        return listener.getValue();
+    }
+
+    RMQMessage received(long deliveryTag) {
+        RMQMessage message = new RMQTextMessage();
+        message.setSession(consumingSession);
+        message.setRabbitDeliveryTag(deliveryTag);
+        consumingSession.unackedMessageReceived(deliveryTag);
+        return message;
+    }
+
+    @Test
+    public void messagesAreProcessedByServerSessionsAndAcknowledged() throws Exception {
+        RMQSession session = new RMQSession(new SessionParams()
+            .setConnection(connection)
+            .setMode(Session.AUTO_ACKNOWLEDGE));
+        List<Message> processed = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(3);
+        session.setMessageListener(message -> {
+            processed.add(message);
+            latch.countDown();
+        });
+        when(pool.getServerSession()).thenReturn(serverSession);
+        when(serverSession.getSession()).thenReturn(session);
+        doAnswer(invocation -> {
+            session.run();
+            return null;
+        }).when(serverSession).start();
+
+        MessageListener listener = start(10);
+        RMQMessage[] messages = { received(1), received(2), received(3) };
+        for (RMQMessage message : messages) {
+            listener.onMessage(message);
+        }
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(processed).containsExactly(messages);
+        verify(channel, timeout(5000)).basicAck(3, false);
+        verify(channel).basicAck(1, false);
+        verify(channel).basicAck(2, false);
+        verify(channel, never()).basicNack(anyLong(), anyBoolean(), anyBoolean());
+    }
+
+    @Test
+    public void messagesAreRequeuedWhenNoServerSessionIsAvailable() throws Exception {
+        when(pool.getServerSession()).thenThrow(new JMSException("pool exhausted"));
+
+        MessageListener listener = start(10);
+        listener.onMessage(received(1));
+
+        verify(channel, timeout(5000)).basicNack(1, false, true);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    public void messagesAreRequeuedWhenServerSessionHasNoListener() throws Exception {
+        RMQSession session = new RMQSession(new SessionParams()
+            .setConnection(connection)
+            .setMode(Session.AUTO_ACKNOWLEDGE));
+        session.loadMessages(Collections.singletonList(received(1)));
+        session.run();
+
+        verify(channel).basicNack(1, false, true);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    public void messagesAreAcknowledgedWhenTransactedServerSessionCommits() throws Exception {
+        RMQSession session = new RMQSession(new SessionParams()
+            .setConnection(connection)
+            .setTransacted(true)
+            .setMode(Session.SESSION_TRANSACTED));
+        session.setMessageListener(message -> { });
+        session.loadMessages(Arrays.asList(received(1), received(2)));
+        session.run();
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+
+        session.commit();
+        verify(channel).basicAck(2, true);
+        verify(channel, never()).basicNack(anyLong(), anyBoolean(), anyBoolean());
+    }
+
+    @Test
+    public void messagesAreRequeuedWhenTransactedServerSessionRollsBack() throws Exception {
+        RMQSession session = new RMQSession(new SessionParams()
+            .setConnection(connection)
+            .setTransacted(true)
+            .setMode(Session.SESSION_TRANSACTED));
+        session.setMessageListener(message -> { });
+        session.loadMessages(Arrays.asList(received(1), received(2)));
+        session.run();
+
+        session.rollback();
+        verify(channel).basicNack(1, false, true);
+        verify(channel).basicNack(2, false, true);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    public void messagesAreAcknowledgedWhenClientAcknowledgeServerSessionAcknowledges() throws Exception {
+        RMQSession session = new RMQSession(new SessionParams()
+            .setConnection(connection)
+            .setMode(Session.CLIENT_ACKNOWLEDGE));
+        List<Message> processed = new CopyOnWriteArrayList<>();
+        session.setMessageListener(processed::add);
+        session.loadMessages(Arrays.asList(received(1), received(2), received(3)));
+        session.run();
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+
+        processed.get(1).acknowledge(); // acknowledges all the messages delivered to the session
+        verify(channel).basicAck(3, true);
+        processed.get(2).acknowledge();
+        verify(channel, times(1)).basicAck(anyLong(), anyBoolean());
+    }
+}
@@ -1,6 +1,7 @@
 /* Copyright (c) 2017 Pivotal Software, Inc. All rights reserved. */
 package com.rabbitmq.jms.client;
 
+import com.rabbitmq.client.Channel;
 import com.rabbitmq.jms.admin.RMQDestination;
 import com.rabbitmq.jms.client.message.RMQTextMessage;
 import org.junit.jupiter.api.AfterEach;
@@ -12,8 +13,18 @@ import org.mockito.Mockito;
 import javax.jms.DeliveryMode;
 import javax.jms.JMSException;
 import javax.jms.Message;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -96,6 +107,195 @@ public class RMQMessageProducerTest {
         assertEquals(expiration, message.getJMSExpiration());
     }
 
+    @Test public void sendAsyncCompletesWhenMessageIsConfirmed() throws Exception {
+        Channel channel = Mockito.mock(Channel.class);
+        AtomicReference<com.rabbitmq.client.ConfirmListener> amqpConfirmListener = new AtomicReference<>();
+        Mockito.doAnswer(invocation -> {
+            amqpConfirmListener.set(invocation.getArgument(0, com.rabbitmq.client.ConfirmListener.class));
+            return null;
+        }).when(channel).addConfirmListener(Mockito.any(com.rabbitmq.client.ConfirmListener.class));
+        AtomicLong sequenceNumber = new AtomicLong(1);
+        Mockito.when(channel.getNextPublishSeqNo()).thenAnswer(invocation -> sequenceNumber.get());
+        Mockito.doAnswer(invocation -> sequenceNumber.incrementAndGet())
+            .when(channel).basicPublish(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+        PublishingListener publishingListener = PublisherConfirmsUtils.configurePublisherConfirmsSupport(channel, null);
+        Mockito.when(session.getPublishingChannel()).thenReturn(channel);
+        Mockito.when(session.enablePublisherConfirms()).thenReturn(publishingListener);
+
+        RMQMessageProducer producer = new RMQMessageProducer(session, new RMQDestination("queue", true, false));
+        RMQTextMessage message1 = new RMQTextMessage();
+        RMQTextMessage message2 = new RMQTextMessage();
+        CompletableFuture<PublisherConfirmContext> confirm1 = producer.sendAsync(message1);
+        CompletableFuture<PublisherConfirmContext> confirm2 = producer.sendAsync(message2);
+        producer.send(new RMQTextMessage());
+        assertFalse(confirm1.isDone());
+
+        amqpConfirmListener.get().handleNack(1, false);
+        assertFalse(confirm1.get().isAck());
+        assertSame(message1, confirm1.get().getMessage());
+        assertFalse(confirm2.isDone());
+
+        amqpConfirmListener.get().handleAck(3, true);
+        assertTrue(confirm2.get().isAck());
+        assertEquals(message2.getJMSMessageID(), confirm2.get().getMessageId());
+    }
+
+    @Test public void sendBatchReturnsOutcomeOfEachMessage() throws Exception {
+        Channel channel = Mockito.mock(Channel.class);
+        AtomicReference<com.rabbitmq.client.ConfirmListener> amqpConfirmListener = new AtomicReference<>();
+        Mockito.doAnswer(invocation -> {
+            amqpConfirmListener.set(invocation.getArgument(0, com.rabbitmq.client.ConfirmListener.class));
+            return null;
+        }).when(channel).addConfirmListener(Mockito.any(com.rabbitmq.client.ConfirmListener.class));
+        AtomicLong sequenceNumber = new AtomicLong(1);
+        Mockito.when(channel.getNextPublishSeqNo()).thenAnswer(invocation -> sequenceNumber.get());
+        Mockito.doAnswer(invocation -> {
+            long published = sequenceNumber.getAndIncrement();
+            if (published == 2) {
+                amqpConfirmListener.get().handleNack(published, false);
+            } else if (published == 3) {
+                amqpConfirmListener.get().handleAck(published, true);
+            }
+            return null;
+        }).when(channel).basicPublish(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+        PublishingListener publishingListener = PublisherConfirmsUtils.configurePublisherConfirmsSupport(channel, null);
+        Mockito.when(session.getPublishingChannel()).thenReturn(channel);
+        Mockito.when(session.enablePublisherConfirms()).thenReturn(publishingListener);
+        Mockito.when(session.getConfirmTimeout()).thenReturn(5000L);
+
+        RMQMessageProducer producer = new RMQMessageProducer(session, new RMQDestination("queue", true, false));
+        List<Message> messages = Arrays.asList(new RMQTextMessage(), new RMQTextMessage(), new RMQTextMessage());
+        List<PublisherConfirmContext> outcomes = producer.send(messages);
+
+        assertEquals(3, outcomes.size());
+        for (int i = 0; i < 3; i++) {
+            assertSame(messages.get(i), outcomes.get(i).getMessage());
+            assertEquals(i != 1, outcomes.get(i).isAck());
+        }
+    }
+
+    @Test public void sendBatchKeepsOutcomesWhenSomeMessagesAreNotConfirmedInTime() throws Exception {
+        Channel channel = Mockito.mock(Channel.class);
+        AtomicReference<com.rabbitmq.client.ConfirmListener> amqpConfirmListener = new AtomicReference<>();
+        Mockito.doAnswer(invocation -> {
+            amqpConfirmListener.set(invocation.getArgument(0, com.rabbitmq.client.ConfirmListener.class));
+            return null;
+        }).when(channel).addConfirmListener(Mockito.any(com.rabbitmq.client.ConfirmListener.class));
+        AtomicLong sequenceNumber = new AtomicLong(1);
+        Mockito.when(channel.getNextPublishSeqNo()).thenAnswer(invocation -> sequenceNumber.get());
+        Mockito.doAnswer(invocation -> {
+            long published = sequenceNumber.getAndIncrement();
+            if (published == 1) {
+                amqpConfirmListener.get().handleAck(published, false);
+            } else if (published == 3) {
+                amqpConfirmListener.get().handleNack(published, false);
+            } // the second message is never confirmed
+            return null;
+        }).when(channel).basicPublish(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+        PublishingListener publishingListener = PublisherConfirmsUtils.configurePublisherConfirmsSupport(channel, null);
+        Mockito.when(session.getPublishingChannel()).thenReturn(channel);
+        Mockito.when(session.enablePublisherConfirms()).thenReturn(publishingListener);
+        Mockito.when(session.getConfirmTimeout()).thenReturn(100L);
+
+        RMQMessageProducer producer = new RMQMessageProducer(session, new RMQDestination("queue", true, false));
+        List<Message> messages = Arrays.asList(new RMQTextMessage(), new RMQTextMessage(), new RMQTextMessage());
+        List<PublisherConfirmContext> outcomes = producer.send(messages);
+
+        assertEquals(3, outcomes.size());
+        for (int i = 0; i < 3; i++) {
+            assertSame(messages.get(i), outcomes.get(i).getMessage());
+        }
+        assertTrue(outcomes.get(0).isConfirmed());
+        assertTrue(outcomes.get(0).isAck());
+        assertFalse(outcomes.get(1).isConfirmed());
+        assertFalse(outcomes.get(1).isAck());
+        assertTrue(outcomes.get(2).isConfirmed());
+        assertFalse(outcomes.get(2).isAck());
+    }
+
+    @Test public void sendBatchPublishesOnASingleBorrowedChannel() throws Exception {
+        List<Channel> channels = new ArrayList<>();
+        PublishingChannelPool pool = new PublishingChannelPool(2, () -> {
+            Channel channel = Mockito.mock(Channel.class);
+            Mockito.when(channel.isOpen()).thenReturn(true);
+            channels.add(channel);
+            return channel;
+        }, null, null, () -> new PublishingWindow(0, 0, null, 0, null));
+        Mockito.when(session.getPublishingChannelPool()).thenReturn(pool);
+        Mockito.when(session.borrowPublishingChannel(pool)).thenAnswer(invocation -> pool.borrow(null));
+        Mockito.when(session.getConfirmTimeout()).thenReturn(10L);
+
+        RMQMessageProducer producer = new RMQMessageProducer(session, new RMQDestination("queue", true, false));
+        List<PublisherConfirmContext> outcomes = producer.send(
+            Arrays.asList(new RMQTextMessage(), new RMQTextMessage(), new RMQTextMessage()));
+
+        assertEquals(3, outcomes.size());
+        Mockito.verify(session, Mockito.times(1)).borrowPublishingChannel(pool);
+        assertEquals(1, channels.size());
+        Mockito.verify(channels.get(0), Mockito.times(3))
+            .basicPublish(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+    }
+
+    @Test public void sendUsesSessionMessageIdGenerator() throws Exception {
+        Mockito.when(session.getMessageIdGenerator()).thenReturn(new CounterMessageIdGenerator("ID:test:"));
+        StubRMQMessageProducer producer = new StubRMQMessageProducer(session, destination, true);
+        RMQTextMessage message = new RMQTextMessage();
+        producer.send(message);
+
+        assertEquals("ID:test:1", message.getJMSMessageID());
+        assertEquals("ID:test:1", message.getInternalID());
+        assertTrue(message.getJMSTimestamp() > 0L);
+    }
+
+    @Test public void sendSkipsDisabledMessageIdAndTimestamp() throws Exception {
+        StubRMQMessageProducer producer = new StubRMQMessageProducer(session, destination, true);
+        producer.setDisableMessageID(true);
+        producer.setDisableMessageTimestamp(true);
+        RMQTextMessage message = new RMQTextMessage();
+        message.setJMSMessageID("ID:previous");
+        producer.send(message);
+
+        assertNull(message.getJMSMessageID());
+        assertNull(message.getInternalID());
+        assertEquals(0L, message.getJMSTimestamp());
+    }
+
+    @Test public void messagesSentWithoutIdAreNotEqual() throws Exception {
+        StubRMQMessageProducer producer = new StubRMQMessageProducer(session, destination, true);
+        producer.setDisableMessageID(true);
+        RMQTextMessage message1 = new RMQTextMessage();
+        RMQTextMessage message2 = new RMQTextMessage();
+        producer.send(message1);
+        producer.send(message2);
+
+        assertNull(message1.getInternalID());
+        assertNull(message2.getInternalID());
+        assertEquals(message1, message1);
+        assertFalse(message1.equals(message2));
+        assertEquals(2, new HashSet<>(Arrays.asList(message1, message2)).size());
+    }
+
+    @Test public void sendPublishesOnPooledChannels() throws Exception {
+        List<Channel> channels = new ArrayList<>();
+        PublishingChannelPool pool = new PublishingChannelPool(2, () -> {
+            Channel channel = Mockito.mock(Channel.class);
+            Mockito.when(channel.isOpen()).thenReturn(true);
+            channels.add(channel);
+            return channel;
+        }, null, null, () -> new PublishingWindow(0, 0, null, 0, null));
+        Mockito.when(session.getPublishingChannelPool()).thenReturn(pool);
+        Mockito.when(session.borrowPublishingChannel(pool)).thenAnswer(invocation -> pool.borrow(null));
+
+        RMQMessageProducer producer = new RMQMessageProducer(session, new RMQDestination("queue", true, false));
+        producer.send(new RMQTextMessage());
+        producer.send(new RMQTextMessage());
+
+        assertEquals(1, channels.size());
+        Mockito.verify(channels.get(0), Mockito.times(2))
+            .basicPublish(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+        Mockito.verify(session, Mockito.never()).getPublishingChannel();
+    }
+
     static class StubRMQMessageProducer extends RMQMessageProducer {
 
         RMQMessage message;
@@ -105,7 +305,7 @@ public class RMQMessageProducerTest {
         }
 
         @Override
-        protected void sendJMSMessage(RMQDestination destination, RMQMessage msg, Message originalMessage, int deliveryMode, int priority, long timeToLive) throws JMSException {
+        protected void sendJMSMessage(RMQDestination destination, RMQMessage msg, Publication publication) throws JMSException {
             this.message = msg;
         }
     }
@@ -0,0 +1,258 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import com.rabbitmq.jms.admin.RMQDestination;
+import com.rabbitmq.jms.client.message.RMQBytesMessage;
+import com.rabbitmq.jms.client.message.RMQMapMessage;
+import com.rabbitmq.jms.client.message.RMQObjectMessage;
+import com.rabbitmq.jms.client.message.RMQStreamMessage;
+import com.rabbitmq.jms.client.message.RMQTextMessage;
+import com.rabbitmq.jms.util.WhiteListObjectInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import javax.jms.BytesMessage;
+import javax.jms.MapMessage;
+import javax.jms.MessageNotReadableException;
+import javax.jms.ObjectMessage;
+import javax.jms.StreamMessage;
+import javax.jms.TextMessage;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RMQMessageTest {
+
+    static RMQMessage roundTrip(RMQMessage message, MessageWireFormat format) throws Exception {
+        message.generateInternalID();
+        return RMQMessage.fromMessage(message.toByteArray(format), WhiteListObjectInputStream.DEFAULT_TRUSTED_PACKAGES);
+    }
+
+    static <T extends RMQMessage> T withHeaders(T message) throws Exception {
+        message.setJMSCorrelationID("correlation");
+        message.setJMSDestination(new RMQDestination("queue", true, false));
+        message.setJMSPriority(7);
+        message.setJMSType("type");
+        message.setStringProperty("string", "value");
+        message.setLongProperty("long", 42L);
+        message.setBooleanProperty("boolean", true);
+        return message;
+    }
+
+    static void assertHeaders(RMQMessage original, RMQMessage message) throws Exception {
+        assertThat(message.getJMSMessageID()).isEqualTo(original.getJMSMessageID());
+        assertThat(message.getJMSCorrelationID()).isEqualTo("correlation");
+        assertThat(message.getJMSDestination()).isEqualTo(new RMQDestination("queue", true, false));
+        assertThat(message.getJMSPriority()).isEqualTo(7);
+        assertThat(message.getJMSType()).isEqualTo("type");
+        assertThat(message.getStringProperty("string")).isEqualTo("value");
+        assertThat(message.getLongProperty("long")).isEqualTo(42L);
+        assertThat(message.getBooleanProperty("boolean")).isTrue();
+    }
+
+    @ParameterizedTest
+    @EnumSource(MessageWireFormat.class)
+    public void textMessageRoundTrip(MessageWireFormat format) throws Exception {
+        RMQTextMessage original = withHeaders(new RMQTextMessage());
+        original.setText("hello");
+        RMQMessage message = roundTrip(original, format);
+        assertThat(message).isInstanceOf(RMQTextMessage.class);
+        assertThat(((TextMessage) message).getText()).isEqualTo("hello");
+        assertHeaders(original, message);
+    }
+
+    @ParameterizedTest
+    @EnumSource(MessageWireFormat.class)
+    public void bytesMessageRoundTrip(MessageWireFormat format) throws Exception {
+        RMQBytesMessage original = withHeaders(new RMQBytesMessage());
+        original.writeInt(1);
+        original.writeUTF("two");
+        RMQMessage message = roundTrip(original, format);
+        assertThat(message).isInstanceOf(RMQBytesMessage.class);
+        assertThat(((BytesMessage) message).readInt()).isEqualTo(1);
+        assertThat(((BytesMessage) message).readUTF()).isEqualTo("two");
+        assertHeaders(original, message);
+    }
+
+    @ParameterizedTest
+    @EnumSource(MessageWireFormat.class)
+    public void mapMessageRoundTrip(MessageWireFormat format) throws Exception {
+        RMQMapMessage original = withHeaders(new RMQMapMessage());
+        original.setInt("int", 1);
+        original.setBytes("bytes", new byte[] {1, 2, 3});
+        original.setString("null", null);
+        RMQMessage message = roundTrip(original, format);
+        assertThat(((MapMessage) message).getInt("int")).isEqualTo(1);
+        assertThat(((MapMessage) message).getBytes("bytes")).containsExactly(1, 2, 3);
+        assertThat(((MapMessage) message).getString("null")).isNull();
+        assertHeaders(original, message);
+    }
+
+    @ParameterizedTest
+    @EnumSource(MessageWireFormat.class)
+    public void streamMessageRoundTrip(MessageWireFormat format) throws Exception {
+        RMQStreamMessage original = withHeaders(new RMQStreamMessage());
+        original.writeDouble(1.5);
+        original.writeString("two");
+        RMQMessage message = roundTrip(original, format);
+        assertThat(((StreamMessage) message).readDouble()).isEqualTo(1.5);
+        assertThat(((StreamMessage) message).readString()).isEqualTo("two");
+        assertHeaders(original, message);
+    }
+
+    @ParameterizedTest
+    @EnumSource(MessageWireFormat.class)
+    public void objectMessageRoundTrip(MessageWireFormat format) throws Exception {
+        RMQObjectMessage original = withHeaders(new RMQObjectMessage());
+        original.setObject(new java.util.ArrayList<>(Arrays.asList("one", "two")));
+        RMQMessage message = roundTrip(original, format);
+        assertThat(((ObjectMessage) message).getObject()).isEqualTo(Arrays.asList("one", "two"));
+        assertHeaders(original, message);
+    }
+
+    @Test
+    public void compactFormatIsSmallerThanSerialization() throws Exception {
+        RMQTextMessage text = withHeaders(new RMQTextMessage());
+        text.setText("hello");
+        RMQMessage message = text;
+        message.generateInternalID();
+        assertThat(message.toByteArray(MessageWireFormat.V2).length)
+            .isLessThan(message.toByteArray(MessageWireFormat.V1).length);
+        assertThat(message.toByteArray()).isEqualTo(message.toByteArray(MessageWireFormat.V1));
+    }
+
+    @Test
+    public void compactFormatWritesDestinationsAndSharesTheirNamesThroughTheCache() throws Exception {
+        DestinationCache cache = new DestinationCache();
+        RMQDestination amqpTopic = new RMQDestination("amqp", "exchange", "key", null);
+        amqpTopic.setQueue(false);
+        RMQDestination temporaryQueue = new RMQDestination("reply", true, true);
+        RMQMessage message = new RMQTextMessage();
+        message.setJMSDestination(amqpTopic);
+        message.setJMSReplyTo(temporaryQueue);
+        message.generateInternalID();
+        byte[] bytes = message.toByteArray(MessageWireFormat.V2);
+
+        RMQMessage first = RMQMessage.fromMessage(bytes, WhiteListObjectInputStream.DEFAULT_TRUSTED_PACKAGES, cache, false);
+        RMQMessage second = RMQMessage.fromMessage(bytes, WhiteListObjectInputStream.DEFAULT_TRUSTED_PACKAGES, cache, false);
+        assertThat(first.getJMSDestination()).isEqualTo(amqpTopic);
+        assertThat(first.getJMSReplyTo()).isEqualTo(temporaryQueue);
+        assertThat(((RMQDestination) first.getJMSReplyTo()).isTemporary()).isTrue();
+        RMQDestination firstDestination = (RMQDestination) first.getJMSDestination();
+        RMQDestination secondDestination = (RMQDestination) second.getJMSDestination();
+        assertThat(secondDestination).isNotSameAs(firstDestination).isEqualTo(firstDestination);
+        assertThat(secondDestination.getAmqpExchangeName()).isSameAs(firstDestination.getAmqpExchangeName());
+        assertThat(cache.size()).isEqualTo(1); // temporary destinations are not cached
+    }
+
+    @Test
+    public void changingAReceivedDestinationDoesNotChangeTheCache() {
+        DestinationCache cache = new DestinationCache();
+        RMQDestination first = cache.destination("queue", "exchange", "queue", "queue", false, true, false);
+        first.setAmqpRoutingKey("other");
+        RMQDestination second = cache.destination("queue", "exchange", "queue", "queue", false, true, false);
+        assertThat(second.getAmqpRoutingKey()).isEqualTo("queue");
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void destinationCacheEvictsLeastRecentlyUsedDestinations() {
+        DestinationCache cache = new DestinationCache(2);
+        String queue = cache.destination("queue", "", "queue", "queue", false, true, false).getDestinationName();
+        cache.destination("other", "", "other", "other", false, true, false);
+        assertThat(cache.destination(new String("queue"), "", "queue", "queue", false, true, false).getDestinationName()).isSameAs(queue);
+        cache.destination("third", "", "third", "third", false, true, false); // evicts "other"
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.destination(new String("queue"), "", "queue", "queue", false, true, false).getDestinationName()).isSameAs(queue);
+        String other = new String("other");
+        assertThat(cache.destination(other, "", "other", "other", false, true, false).getDestinationName()).isSameAs(other);
+    }
+
+    @Test
+    public void receivedBodiesAreWrittenAgainWhenMessagesAreForwarded() throws Exception {
+        RMQBytesMessage bytes = new RMQBytesMessage(16);
+        bytes.writeLong(42L);
+        RMQMessage received = roundTrip(roundTrip(bytes, MessageWireFormat.V2), MessageWireFormat.V1);
+        assertThat(((BytesMessage) received).readLong()).isEqualTo(42L);
+
+        RMQStreamMessage stream = new RMQStreamMessage(16);
+        stream.writeLong(42L);
+        received = roundTrip(roundTrip(stream, MessageWireFormat.V1), MessageWireFormat.V2);
+        assertThat(((StreamMessage) received).readLong()).isEqualTo(42L);
+    }
+
+    @Test
+    public void receivedBodiesAreViewsOverTheDelivery() throws Exception {
+        RMQBytesMessage bytes = new RMQBytesMessage();
+        bytes.writeBytes(new byte[] {1, 2, 3});
+        RMQMessage sent = bytes;
+        sent.generateInternalID();
+        byte[] delivery = sent.toByteArray(MessageWireFormat.V2);
+        RMQBytesMessage receivedBytes = (RMQBytesMessage) RMQMessage.fromMessage(delivery, WhiteListObjectInputStream.DEFAULT_TRUSTED_PACKAGES);
+        ByteBuffer body = receivedBytes.getBodyAsByteBuffer();
+        assertThat(body.isReadOnly()).isTrue();
+        assertThat(body.remaining()).isEqualTo(3);
+        assertThat(body.get(2)).isEqualTo((byte) 3);
+        assertThat(receivedBytes.getBodyLength()).isEqualTo(3);
+        assertThat(receivedBytes.getBodyAsInputStream().read()).isEqualTo(1);
+        delivery[delivery.length - 1] = 4;
+        assertThat(body.get(2)).isEqualTo((byte) 4);
+
+        RMQTextMessage text = new RMQTextMessage();
+        text.setText("h\u00e9llo");
+        sent = text;
+        sent.generateInternalID();
+        delivery = sent.toByteArray(MessageWireFormat.V2);
+        RMQTextMessage receivedText = (RMQTextMessage) RMQMessage.fromMessage(delivery, WhiteListObjectInputStream.DEFAULT_TRUSTED_PACKAGES);
+        assertThat(receivedText.getBodyAsByteBuffer().remaining()).isEqualTo(6);
+        assertThat(receivedText.getText()).isEqualTo("h\u00e9llo");
+        assertThat(receivedText.getText()).isSameAs(receivedText.getText());
+    }
+
+    @Test
+    public void bytesMessageBodyIsNotReadableWhileWritten() throws Exception {
+        RMQBytesMessage message = new RMQBytesMessage();
+        message.writeInt(1);
+        assertThatThrownBy(message::getBodyAsByteBuffer).isInstanceOf(MessageNotReadableException.class);
+        message.reset();
+        assertThat(message.getBodyAsByteBuffer().getInt()).isEqualTo(1);
+        assertThat(message.readInt()).isEqualTo(1);
+    }
+
+    @Test
+    public void lazyDecodingDecodesPropertiesAndBodyOnFirstAccess() throws Exception {
+        RMQMapMessage map = withHeaders(new RMQMapMessage());
+        map.setString("key", "value");
+        RMQMessage sent = map;
+        sent.generateInternalID();
+        byte[] delivery = sent.toByteArray(MessageWireFormat.V2);
+
+        RMQMessage received = RMQMessage.fromMessage(delivery, WhiteListObjectInputStream.DEFAULT_TRUSTED_PACKAGES, null, true);
+        received.setJMSRedelivered(true);
+        assertThat(received.getInternalID()).isEqualTo(sent.getInternalID());
+        assertThat(received.getJMSRedelivered()).isTrue();
+        assertHeaders(sent, received);
+        assertThat(((MapMessage) received).getString("key")).isEqualTo("value");
+
+        received = RMQMessage.fromMessage(delivery, WhiteListObjectInputStream.DEFAULT_TRUSTED_PACKAGES, null, true);
+        received.clearBody();
+        assertThat(((MapMessage) received).itemExists("key")).isFalse();
+    }
+
+    @Test
+    public void lazilyDecodedMessagesAreWrittenAgainWhenForwarded() throws Exception {
+        RMQStreamMessage stream = withHeaders(new RMQStreamMessage());
+        stream.writeInt(42);
+        RMQMessage sent = stream;
+        sent.generateInternalID();
+        RMQMessage received = RMQMessage.fromMessage(sent.toByteArray(MessageWireFormat.V2),
+                                                     WhiteListObjectInputStream.DEFAULT_TRUSTED_PACKAGES, null, true);
+        RMQMessage forwarded = RMQMessage.fromMessage(received.toByteArray(MessageWireFormat.V1),
+                                                      WhiteListObjectInputStream.DEFAULT_TRUSTED_PACKAGES, null, true);
+        assertHeaders(sent, forwarded);
+        assertThat(((StreamMessage) forwarded).readInt()).isEqualTo(42);
+    }
+}
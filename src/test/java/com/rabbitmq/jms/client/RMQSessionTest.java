@@ -0,0 +1,503 @@
+/* Copyright (c) 2019 Pivotal Software, Inc. All rights reserved. */
+package com.rabbitmq.jms.client;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Consumer;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.jms.admin.RMQDestination;
+import com.rabbitmq.jms.client.message.RMQTextMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TransactionRolledBackException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RMQSessionTest {
+
+    RMQConnection connection;
+    Channel channel;
+
+    @BeforeEach
+    public void init() throws Exception {
+        connection = mock(RMQConnection.class);
+        channel = mock(Channel.class);
+        when(connection.createRabbitChannel(anyBoolean())).thenReturn(channel);
+    }
+
+    RMQSession confirmTransactedSession() throws Exception {
+        return new RMQSession(new SessionParams()
+            .setConnection(connection)
+            .setTransacted(true)
+            .setMode(Session.SESSION_TRANSACTED)
+            .setConfirmTransactions(true));
+    }
+
+    @Test
+    public void confirmTransactedSessionUsesConfirmsInsteadOfTx() throws Exception {
+        RMQSession session = confirmTransactedSession();
+        assertThat(session.getTransacted()).isTrue();
+        assertThat(session.isAutoAck()).isFalse();
+        verify(connection).createRabbitChannel(false);
+        verify(channel).confirmSelect();
+        assertThat(session.enablePublisherConfirms()).isNotNull();
+    }
+
+    @Test
+    public void commitWaitsForConfirmsThenAcksReceivedMessagesAtOnce() throws Exception {
+        RMQSession session = confirmTransactedSession();
+        when(channel.waitForConfirms(anyLong())).thenReturn(true);
+        session.unackedMessageReceived(1);
+        session.unackedMessageReceived(2);
+        session.unackedMessageReceived(3);
+        session.commit();
+        verify(channel).waitForConfirms(anyLong());
+        verify(channel).basicAck(3, true);
+        verify(channel, never()).txCommit();
+    }
+
+    @Test
+    public void commitRollsBackReceivedMessagesWhenSentMessagesAreNotConfirmed() throws Exception {
+        RMQSession session = confirmTransactedSession();
+        when(channel.waitForConfirms(anyLong())).thenReturn(false);
+        session.unackedMessageReceived(1);
+        assertThatThrownBy(session::commit).isInstanceOf(TransactionRolledBackException.class);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+        verify(channel).basicRecover(true);
+    }
+
+    @Test
+    public void commitFailsWhenReceivedMessagesCannotBeAcknowledged() throws Exception {
+        RMQSession session = new RMQSession(new SessionParams()
+            .setConnection(connection)
+            .setTransacted(true)
+            .setMode(Session.SESSION_TRANSACTED)
+            .setConfirmTransactions(true)
+            .setReceivePrefetch(10));
+        List<Consumer> subscriptions = new ArrayList<>();
+        when(channel.basicConsume(anyString(), anyBoolean(), anyString(), anyBoolean(), anyBoolean(), any(), any(Consumer.class)))
+            .thenAnswer(invocation -> {
+                subscriptions.add(invocation.getArgument(6));
+                return invocation.getArgument(2);
+            });
+        RMQDestination queue = new RMQDestination("queue", "", "queue", "queue");
+        MessageConsumer first = session.createConsumer(queue);
+        MessageConsumer second = session.createConsumer(queue);
+        assertThat(first.receiveNoWait()).isNull(); // subscribes
+        assertThat(second.receiveNoWait()).isNull();
+        // 1 and 3 are received, 2 is prefetched by the first consumer
+        deliver(subscriptions.get(0), 1);
+        deliver(subscriptions.get(0), 2);
+        deliver(subscriptions.get(1), 3);
+        assertThat(first.receiveNoWait()).isNotNull();
+        assertThat(second.receiveNoWait()).isNotNull();
+
+        when(channel.waitForConfirms(anyLong())).thenReturn(true);
+        doThrow(new IOException("channel closed")).when(channel).basicAck(3, false);
+        assertThatThrownBy(session::commit).isInstanceOf(JMSException.class);
+        verify(channel).basicAck(1, true);
+    }
+
+    @Test
+    public void batchIsRequeuedWhenAMessageCannotBeConverted() throws Exception {
+        AtomicInteger conversions = new AtomicInteger();
+        RMQSession session = new RMQSession(new SessionParams()
+            .setConnection(connection)
+            .setMode(Session.AUTO_ACKNOWLEDGE)
+            .setReceivePrefetch(10)
+            .setReceivingContextConsumer(context -> {
+                if (conversions.incrementAndGet() == 2) {
+                    throw new IllegalStateException("cannot convert message");
+                }
+            }));
+        List<Consumer> subscriptions = new ArrayList<>();
+        when(channel.basicConsume(anyString(), anyBoolean(), anyString(), anyBoolean(), anyBoolean(), any(), any(Consumer.class)))
+            .thenAnswer(invocation -> {
+                subscriptions.add(invocation.getArgument(6));
+                return invocation.getArgument(2);
+            });
+        RMQMessageConsumer consumer = (RMQMessageConsumer) session.createConsumer(new RMQDestination("queue", "", "queue", "queue"));
+        assertThat(consumer.receiveNoWait()).isNull(); // subscribes
+        deliver(subscriptions.get(0), 1);
+        deliver(subscriptions.get(0), 2);
+        deliver(subscriptions.get(0), 3);
+
+        assertThatThrownBy(() -> consumer.receiveNoWait(3)).isInstanceOf(IllegalStateException.class);
+        verify(channel).basicNack(1, false, true);
+        verify(channel).basicNack(2, false, true);
+        verify(channel).basicNack(3, false, true);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    public void bytesMessagesAreSizedFromTheBodiesSent() throws Exception {
+        RMQSession session = new RMQSession(new SessionParams()
+            .setConnection(connection)
+            .setMode(Session.AUTO_ACKNOWLEDGE));
+        MessageProducer producer = session.createProducer(new RMQDestination("queue", true, false));
+        for (int i = 0; i < 100; i++) {
+            BytesMessage message = session.createBytesMessage();
+            message.writeBytes(new byte[10]);
+            producer.send(message);
+        }
+        assertThat(session.initialBodySize()).isEqualTo(BodySizeEstimator.MIN_SIZE);
+    }
+
+    @Test
+    public void messageThatCannotBeConvertedIsRejectedWithoutRequeue() throws Exception {
+        AtomicInteger conversions = new AtomicInteger();
+        RMQSession session = new RMQSession(new SessionParams()
+            .setConnection(connection)
+            .setMode(Session.AUTO_ACKNOWLEDGE)
+            .setReceivePrefetch(10)
+            .setReceivingContextConsumer(context -> {
+                if (conversions.incrementAndGet() == 1) {
+                    throw new IllegalStateException("cannot convert message");
+                }
+            }));
+        List<Consumer> subscriptions = new ArrayList<>();
+        when(channel.basicConsume(anyString(), anyBoolean(), anyString(), anyBoolean(), anyBoolean(), any(), any(Consumer.class)))
+            .thenAnswer(invocation -> {
+                subscriptions.add(invocation.getArgument(6));
+                return invocation.getArgument(2);
+            });
+        RMQMessageConsumer consumer = (RMQMessageConsumer) session.createConsumer(new RMQDestination("queue", "", "queue", "queue"));
+        assertThat(consumer.receiveNoWait()).isNull(); // subscribes
+        deliver(subscriptions.get(0), 1);
+        deliver(subscriptions.get(0), 2);
+
+        assertThatThrownBy(consumer::receiveNoWait).isInstanceOf(IllegalStateException.class);
+        verify(channel).basicNack(1, false, false);
+        verify(channel, never()).basicNack(anyLong(), anyBoolean(), eq(true));
+        assertThat(consumer.receiveNoWait()).isNotNull();
+    }
+
+    static void deliver(Consumer consumer, long deliveryTag) throws IOException {
+        consumer.handleDelivery("consumer", new Envelope(deliveryTag, false, "", "queue"), new AMQP.BasicProperties(), new byte[0]);
+    }
+
+    @Test
+    public void rollbackRequeuesReceivedMessages() throws Exception {
+        RMQSession session = confirmTransactedSession();
+        session.unackedMessageReceived(1);
+        session.rollback();
+        verify(channel).basicRecover(true);
+        verify(channel, never()).txRollback();
+
+        when(channel.waitForConfirms(anyLong())).thenReturn(true);
+        session.commit();
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    public void destinationTopologyIsDeclaredOncePerConnection() throws Exception {
+        DeclaredTopology topology = new DeclaredTopology();
+        when(connection.getDeclaredTopology()).thenReturn(topology);
+        RMQSession session = new RMQSession(new SessionParams()
+            .setConnection(connection)
+            .setMode(Session.AUTO_ACKNOWLEDGE));
+        session.createProducer(new RMQDestination("queue", true, false));
+        session.createProducer(new RMQDestination("queue", true, false));
+        session.createProducer(new RMQDestination("topic", false, false));
+        session.createProducer(new RMQDestination("topic", false, false));
+        verify(channel, times(1)).queueDeclare(eq("queue"), anyBoolean(), anyBoolean(), anyBoolean(), any());
+        verify(channel, times(1)).queueBind(eq("queue"), anyString(), eq("queue"), any());
+        verify(channel, times(1)).exchangeDeclare(eq("jms.durable.topic"), anyString(), anyBoolean(), anyBoolean(), anyBoolean(), any());
+
+        topology.handleRecovery(null);
+        session.createProducer(new RMQDestination("queue", true, false));
+        verify(channel, times(2)).queueDeclare(eq("queue"), anyBoolean(), anyBoolean(), anyBoolean(), any());
+    }
+
+    @Test
+    public void exclusiveQueuesAreDeclaredOncePerAmqpConnection() throws Exception {
+        when(connection.getDeclaredTopology()).thenReturn(new DeclaredTopology());
+        Channel otherChannel = mock(Channel.class);
+        when(channel.getConnection()).thenReturn(mock(com.rabbitmq.client.Connection.class));
+        when(otherChannel.getConnection()).thenReturn(mock(com.rabbitmq.client.Connection.class));
+        when(connection.createRabbitChannel(anyBoolean())).thenReturn(channel, otherChannel);
+        RMQSession session = new RMQSession(new SessionParams().setConnection(connection).setMode(Session.AUTO_ACKNOWLEDGE));
+        RMQSession otherSession = new RMQSession(new SessionParams().setConnection(connection).setMode(Session.AUTO_ACKNOWLEDGE));
+        RMQDestination temporaryQueue = (RMQDestination) session.createTemporaryQueue();
+        session.createProducer(temporaryQueue);
+        session.createProducer(temporaryQueue);
+        // as the reply-to destination of a message received
+        otherSession.createProducer(new RMQDestination(temporaryQueue.getDestinationName(), true, true));
+        verify(channel, times(1)).queueDeclare(eq(temporaryQueue.getQueueName()), eq(false), eq(true), anyBoolean(), any());
+        verify(otherChannel, times(1)).queueDeclare(eq(temporaryQueue.getQueueName()), eq(false), eq(true), anyBoolean(), any());
+    }
+
+    @Test
+    public void temporaryQueueIsSharedBetweenSessionsOnDifferentAmqpConnections() throws Exception {
+        com.rabbitmq.client.Connection firstAmqpConnection = mock(com.rabbitmq.client.Connection.class);
+        com.rabbitmq.client.Connection secondAmqpConnection = mock(com.rabbitmq.client.Connection.class);
+        Channel secondChannel = mock(Channel.class);
+        when(firstAmqpConnection.isOpen()).thenReturn(true);
+        when(secondAmqpConnection.isOpen()).thenReturn(true);
+        when(firstAmqpConnection.createChannel()).thenReturn(channel);
+        when(secondAmqpConnection.createChannel()).thenReturn(secondChannel);
+        RMQConnection jmsConnection = new RMQConnection(new ConnectionParams()
+            .setRabbitConnection(firstAmqpConnection)
+            .setAdditionalRabbitConnections(Collections.singletonList(secondAmqpConnection)));
+
+        Session consumingSession = jmsConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Session producingSession = jmsConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        RMQDestination temporaryQueue = (RMQDestination) consumingSession.createTemporaryQueue();
+        consumingSession.createConsumer(temporaryQueue);
+        producingSession.createProducer(temporaryQueue).send(producingSession.createTextMessage("reply"));
+
+        // an exclusive queue would be locked to the AMQP connection of the consuming session
+        verify(channel).queueDeclare(eq(temporaryQueue.getQueueName()), eq(false), eq(false), eq(false), any());
+        verify(secondChannel, never()).queueDeclare(anyString(), anyBoolean(), eq(true), anyBoolean(), any());
+        verify(secondChannel).basicPublish(anyString(), eq(temporaryQueue.getQueueName()), any(), any());
+
+        jmsConnection.close();
+        verify(channel).queueDelete(temporaryQueue.getQueueName());
+    }
+
+    @Test
+    public void sessionPublishesAgainOnThePooledChannelOfTheThread() throws Exception {
+        List<Channel> pooledChannels = new ArrayList<>();
+        PublishingChannelPool pool = new PublishingChannelPool(2, () -> {
+            Channel pooledChannel = mock(Channel.class);
+            when(pooledChannel.isOpen()).thenReturn(true);
+            pooledChannels.add(pooledChannel);
+            return pooledChannel;
+        }, null, null, () -> new PublishingWindow(0, 0, null, 0, null));
+        when(connection.getPublishingChannelPool()).thenReturn(pool);
+        RMQSession session = new RMQSession(new SessionParams()
+            .setConnection(connection)
+            .setMode(Session.AUTO_ACKNOWLEDGE));
+        MessageProducer producer = session.createProducer(new RMQDestination("queue", true, false));
+        producer.send(session.createTextMessage("first"));
+        // another channel is idle before the one the thread published on
+        PublishingChannel used = pool.borrow();
+        PublishingChannel other = pool.borrow();
+        pool.release(other);
+        pool.release(used);
+
+        producer.send(session.createTextMessage("second"));
+        verify(pooledChannels.get(0), times(2)).basicPublish(anyString(), anyString(), any(), any());
+        verify(pooledChannels.get(1), never()).basicPublish(anyString(), anyString(), any(), any());
+    }
+
+    @Test
+    public void nonTransactedSessionPublishesOnSeparatePublishingConnection() throws Exception {
+        Channel publishingChannel = mock(Channel.class);
+        when(connection.hasSeparatePublishingConnection()).thenReturn(true);
+        when(connection.createPublishingRabbitChannel()).thenReturn(publishingChannel);
+        RMQSession session = new RMQSession(new SessionParams()
+            .setConnection(connection)
+            .setMode(Session.AUTO_ACKNOWLEDGE));
+        assertThat(session.getChannel()).isSameAs(channel);
+        assertThat(session.getPublishingChannel()).isSameAs(publishingChannel);
+
+        session.enablePublisherConfirms();
+        verify(publishingChannel).confirmSelect();
+        verify(channel, never()).confirmSelect();
+
+        session.internalClose();
+        verify(publishingChannel).close();
+        verify(channel).close();
+    }
+
+    @Test
+    public void transactedSessionPublishesOnItsOwnChannel() throws Exception {
+        when(connection.hasSeparatePublishingConnection()).thenReturn(true);
+        RMQSession session = confirmTransactedSession();
+        assertThat(session.getPublishingChannel()).isSameAs(channel);
+        verify(connection, never()).createPublishingRabbitChannel();
+    }
+
+    @Test
+    public void dupsOkSessionCoalescesAcknowledgementsUntilClose() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            when(connection.getAckScheduler()).thenReturn(scheduler);
+            RMQSession session = new RMQSession(new SessionParams()
+                .setConnection(connection)
+                .setMode(Session.DUPS_OK_ACKNOWLEDGE)
+                .setAckCoalescingBatchSize(100)
+                .setAckCoalescingIntervalMs(60000));
+            session.explicitAck(1);
+            session.explicitAck(2);
+            verify(channel, never()).basicAck(anyLong(), anyBoolean());
+
+            session.internalClose();
+            verify(channel).basicAck(2, true);
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void clientAcknowledgeSessionDoesNotCoalesceAcknowledgements() throws Exception {
+        RMQSession session = new RMQSession(new SessionParams()
+            .setConnection(connection)
+            .setMode(Session.CLIENT_ACKNOWLEDGE)
+            .setAckCoalescingBatchSize(100));
+        session.explicitAck(1);
+        verify(channel).basicAck(1, false);
+        verify(connection, never()).getAckScheduler();
+    }
+
+    RMQMessage received(RMQSession session, long deliveryTag) {
+        RMQMessage message = new RMQTextMessage();
+        message.setSession(session);
+        message.setRabbitDeliveryTag(deliveryTag);
+        session.unackedMessageReceived(deliveryTag);
+        return message;
+    }
+
+    @Test
+    public void bulkAcknowledgementSendsRangeAsMultipleAck() throws Exception {
+        RMQSession session = new RMQSession(new SessionParams()
+            .setConnection(connection)
+            .setMode(RMQSession.CLIENT_INDIVIDUAL_ACKNOWLEDGE));
+        RMQMessage[] messages = new RMQMessage[7];
+        for (int tag = 1; tag <= 6; tag++) {
+            messages[tag] = received(session, tag);
+        }
+        session.acknowledge(Arrays.asList(messages[3], messages[1], messages[2], messages[5]));
+        verify(channel).basicAck(3, true);
+        verify(channel).basicAck(5, false);
+
+        // already acknowledged messages are skipped
+        session.acknowledge(Arrays.asList(messages[4], messages[5]));
+        verify(channel).basicAck(4, false);
+        verify(channel, times(3)).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    public void coalescedIndividualAcknowledgementsAreSentWhenTheyFormARange() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            when(connection.getAckScheduler()).thenReturn(scheduler);
+            RMQSession session = new RMQSession(new SessionParams()
+                .setConnection(connection)
+                .setMode(RMQSession.CLIENT_INDIVIDUAL_ACKNOWLEDGE)
+                .setIndividualAckCoalescing(true)
+                .setAckCoalescingIntervalMs(60000));
+            RMQMessage[] messages = new RMQMessage[7];
+            for (int tag = 1; tag <= 6; tag++) {
+                messages[tag] = received(session, tag);
+            }
+            messages[2].acknowledge();
+            messages[3].acknowledge();
+            verify(channel, never()).basicAck(anyLong(), anyBoolean());
+            messages[1].acknowledge();
+            verify(channel).basicAck(3, true);
+
+            messages[5].acknowledge();
+            verify(channel, times(1)).basicAck(anyLong(), anyBoolean());
+            // the leftover is sent on close
+            session.internalClose();
+            verify(channel).basicAck(5, false);
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void listenerAcknowledgesIndividuallyUnderParallelDispatch() throws Exception {
+        RMQSession session = new RMQSession(new SessionParams()
+            .setConnection(connection)
+            .setMode(RMQSession.CLIENT_INDIVIDUAL_ACKNOWLEDGE)
+            .setMessageListenerConcurrency(2));
+        RMQDestination queue = new RMQDestination("queue", "", "queue", "queue");
+        RMQMessageConsumer consumer = new RMQMessageConsumer(session, queue, "consumer", false, null, null,
+            false, ReceivingContextConsumer.NO_OP);
+        CountDownLatch latch = new CountDownLatch(4);
+        MessageListener listener = message -> {
+            try {
+                message.acknowledge();
+            } catch (JMSException e) {
+                throw new RuntimeException(e);
+            }
+            latch.countDown();
+        };
+        MessageListenerConsumer listenerConsumer = new MessageListenerConsumer(consumer, channel, listener,
+            TimeUnit.SECONDS.toNanos(1), false, ReceivingContextConsumer.NO_OP);
+        try {
+            for (long tag = 1; tag <= 4; tag++) {
+                listenerConsumer.handleDelivery("consumer", new Envelope(tag, false, "", "queue"),
+                    new AMQP.BasicProperties(), new byte[0]);
+            }
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+            for (long tag = 1; tag <= 4; tag++) {
+                verify(channel, timeout(5000)).basicAck(tag, false);
+            }
+        } finally {
+            session.internalClose();
+        }
+    }
+
+    @Test
+    public void concurrentGroupAcknowledgementsAreSentInOrder() throws Exception {
+        RMQSession session = new RMQSession(new SessionParams()
+            .setConnection(connection)
+            .setMode(Session.CLIENT_ACKNOWLEDGE));
+        List<Long> acked = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> acked.add(invocation.getArgument(0))).when(channel).basicAck(anyLong(), eq(true));
+        int count = 2000;
+        RMQMessage[] messages = new RMQMessage[count + 1];
+        for (int tag = 1; tag <= count; tag++) {
+            messages[tag] = received(session, tag);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 2; thread++) {
+                int first = thread + 1;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int tag = first; tag <= count; tag += 2) {
+                        messages[tag].acknowledge();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(acked).isSorted().doesNotHaveDuplicates().contains((long) count);
+    }
+}